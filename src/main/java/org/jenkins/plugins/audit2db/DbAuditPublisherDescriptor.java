@@ -94,7 +94,48 @@ public interface DbAuditPublisherDescriptor {
     void setJdbcPassword(final String password);
 
     /**
-     * Checks the JDBC connection.
+     * @return <code>true</code> if the audit database schema should be
+     *         migrated to the latest version when Jenkins starts, which is
+     *         the default.
+     */
+    boolean getMigrateOnStartup();
+
+    /**
+     * @param migrateOnStartup
+     *            <code>true</code> to migrate the audit database schema to the
+     *            latest version when Jenkins starts.
+     */
+    void setMigrateOnStartup(final boolean migrateOnStartup);
+
+    /**
+     * @return the number of days the build details are kept in the audit
+     *         database, or zero if they are kept forever.
+     */
+    int getRetentionDays();
+
+    /**
+     * @param retentionDays
+     *            the number of days the build details are kept in the audit
+     *            database, or zero to keep them forever.
+     */
+    void setRetentionDays(final int retentionDays);
+
+    /**
+     * @return <code>true</code> if the build details are archived to
+     *         compressed files before being deleted by the retention policy.
+     */
+    boolean getArchiveExpired();
+
+    /**
+     * @param archiveExpired
+     *            <code>true</code> to archive the build details to compressed
+     *            files before they are deleted by the retention policy.
+     */
+    void setArchiveExpired(final boolean archiveExpired);
+
+    /**
+     * Checks the JDBC connection by opening and closing a single unpooled
+     * connection. The saved configuration is not modified.
      * 
      * @param jdbcDriver
      *            the JDBC driver class.
@@ -134,4 +175,100 @@ public interface DbAuditPublisherDescriptor {
     FormValidation doGenerateDdl(@QueryParameter("audit2db.jdbcDriver") final String jdbcDriver,
             @QueryParameter("audit2db.jdbcUrl") final String jdbcUrl, @QueryParameter("audit2db.jdbcUser") final String username,
             @QueryParameter("audit2db.jdbcPassword") final String password) throws IOException, ServletException;
-}
\ No newline at end of file
+
+    /**
+     * Generates the DDL that partitions the audit tables by month, on the
+     * databases that support it.
+     * 
+     * @param jdbcDriver
+     *            the JDBC driver class.
+     * @param jdbcUrl
+     *            the JDBC URL.
+     * @param username
+     *            the JDBC user.
+     * @param password
+     *            the JDBC password.
+     * @return the validation result.
+     * @throws IOException
+     *             if a problem occurs while connecting to the datasource.
+     * @throws ServletException
+     *             if a problem occurs while processing the request.
+     */
+    FormValidation doGeneratePartitioningDdl(@QueryParameter("audit2db.jdbcDriver") final String jdbcDriver,
+            @QueryParameter("audit2db.jdbcUrl") final String jdbcUrl, @QueryParameter("audit2db.jdbcUser") final String username,
+            @QueryParameter("audit2db.jdbcPassword") final String password) throws IOException, ServletException;
+
+    /**
+     * Lists the schema migration steps that would be applied to the audit
+     * database, without changing it.
+     * 
+     * @param jdbcDriver
+     *            the JDBC driver class.
+     * @param jdbcUrl
+     *            the JDBC URL.
+     * @param username
+     *            the JDBC user.
+     * @param password
+     *            the JDBC password.
+     * @return the validation result.
+     * @throws IOException
+     *             if a problem occurs while connecting to the datasource.
+     * @throws ServletException
+     *             if a problem occurs while processing the request.
+     */
+    FormValidation doPreviewSchemaMigration(@QueryParameter("audit2db.jdbcDriver") final String jdbcDriver,
+            @QueryParameter("audit2db.jdbcUrl") final String jdbcUrl, @QueryParameter("audit2db.jdbcUser") final String username,
+            @QueryParameter("audit2db.jdbcPassword") final String password) throws IOException, ServletException;
+
+    /**
+     * Migrates the audit database schema to the latest version.
+     * 
+     * @param jdbcDriver
+     *            the JDBC driver class.
+     * @param jdbcUrl
+     *            the JDBC URL.
+     * @param username
+     *            the JDBC user.
+     * @param password
+     *            the JDBC password.
+     * @return the validation result.
+     * @throws IOException
+     *             if a problem occurs while connecting to the datasource.
+     * @throws ServletException
+     *             if a problem occurs while processing the request.
+     */
+    FormValidation doMigrateSchema(@QueryParameter("audit2db.jdbcDriver") final String jdbcDriver,
+            @QueryParameter("audit2db.jdbcUrl") final String jdbcUrl, @QueryParameter("audit2db.jdbcUser") final String username,
+            @QueryParameter("audit2db.jdbcPassword") final String password) throws IOException, ServletException;
+
+    /**
+     * Starts loading the existing Jenkins build history into the audit
+     * database in the background, unless a backfill is already running.
+     * 
+     * @return the validation result, holding the backfill progress.
+     */
+    FormValidation doStartBackfill();
+
+    /**
+     * Reports the progress of the running or most recent backfill.
+     * 
+     * @return the validation result, holding the backfill progress.
+     */
+    FormValidation doBackfillStatus();
+
+    /**
+     * Starts recomputing the daily build summaries of this Jenkins master
+     * from all the recorded build details in the background, unless a
+     * rebuild is already running.
+     * 
+     * @return the validation result, holding the rebuild progress.
+     */
+    FormValidation doRebuildSummaries();
+
+    /**
+     * Reports the progress of the running or most recent summary rebuild.
+     * 
+     * @return the validation result, holding the rebuild progress.
+     */
+    FormValidation doRebuildSummariesStatus();
+}
@@ -0,0 +1,22 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.data;
+
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+
+/**
+ * Receives build details one at a time, as they are read from the
+ * repository.
+ *
+ * @author Marco Scata
+ *
+ */
+public interface BuildDetailsHandler {
+    /**
+     * @param details
+     *            the next build details read.
+     * @return <code>true</code> to keep reading, <code>false</code> to stop.
+     */
+    boolean handle(BuildDetails details);
+}
@@ -7,9 +7,13 @@ import hudson.model.AbstractBuild;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.jenkins.plugins.audit2db.model.BuildDetails;
 import org.jenkins.plugins.audit2db.model.BuildNode;
+import org.jenkins.plugins.audit2db.model.BuildSummary;
+import org.jenkins.plugins.audit2db.model.BuildThroughput;
+import org.jenkins.plugins.audit2db.model.NodeUtilization;
 
 /**
  * @author Marco Scata
@@ -34,6 +38,18 @@ public interface BuildDetailsRepository {
      */
     void saveBuildDetailsList(List<BuildDetails> details);
 
+    /**
+     * Creates new entities in the repository for the given build details in
+     * a single transaction, skipping the build details that are already in
+     * the repository. Meant for bulk loads, where the entities are written
+     * in JDBC batches and then released, rather than one at a time.
+     *
+     * @param details
+     *            the collection of details to save.
+     * @return the number of entities created.
+     */
+    int saveNewBuildDetails(List<BuildDetails> details);
+
     /**
      * Retrieves previously saved build details that match the given id.
      *
@@ -63,8 +79,12 @@ public interface BuildDetailsRepository {
     List<BuildDetails> getBuildDetailsByFullName(String fullName);
 
     /**
-     * Retrieves previously saved build details whose start date or end date
-     * fall between the given range. The range is inclusive.
+     * Retrieves previously saved build details whose execution overlaps the
+     * given range: the builds started before the range ends, and ended after
+     * it starts or still running. The range is inclusive. Only the builds
+     * started within a maximum build age before the range are retrieved:
+     * no finished build ran for longer, and the builds abandoned by a
+     * restart of Jenkins are not read for every later range.
      *
      * @param start
      *            the start date.
@@ -88,6 +108,107 @@ public interface BuildDetailsRepository {
      */
     List<BuildDetails> getBuildDetailsByDurationRange(long min, long max);
 
+    /**
+     * Retrieves the longest of the builds on the given Jenkins master that
+     * were started within the given dates, longest first. Only the requested
+     * number of build details is read from the database.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param pattern
+     *            the project name pattern, or <code>null</code> to match all
+     *            projects.
+     * @param nodeName
+     *            the name pattern of the node the builds ran on, or
+     *            <code>null</code> to match all nodes.
+     * @param result
+     *            the result of the builds, or <code>null</code> to match
+     *            all results.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @param maxResults
+     *            the maximum number of build details to retrieve.
+     * @return a list of build details, never <code>null</code>.
+     */
+    List<BuildDetails> getSlowestBuildDetails(String masterHostName,
+	    String pattern, String nodeName, String result, Date fromDate,
+	    Date toDate, int maxResults);
+
+    /**
+     * Counts the finished builds on the given Jenkins master, and how many of
+     * them failed, per time bucket. Builds are counted by the database, so
+     * the cost depends on the number of buckets rather than on the number of
+     * builds.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param bucket
+     *            the size of the time buckets.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @return one entry per bucket within the dates, oldest first, including
+     *         the buckets without builds.
+     * @throws IllegalArgumentException
+     *             if the date range spans too many buckets.
+     */
+    List<BuildThroughput> getBuildThroughput(String masterHostName,
+	    TimeBucket bucket, Date fromDate, Date toDate);
+
+    /**
+     * Measures how many builds ran at the same time on each node, and on
+     * all the nodes with the same label, on the given Jenkins master. The
+     * builds running at any time within the given dates are read in start
+     * time order and swept through one at a time, so they are never all held
+     * in memory. Builds that started before the period are counted from its
+     * start, and builds still running up to its end, which is now at the
+     * latest. Only the builds started within the same maximum build age
+     * before the period are read, as in
+     * {@link #getBuildDetailsByDateRange(Date, Date)}. Unlike the other
+     * streamed reads, the sweep is a report query, so it is stopped at the
+     * query timeout.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @return the use of each node, by name, followed by the use of each
+     *         label, by label.
+     */
+    List<NodeUtilization> getNodeUtilization(String masterHostName,
+	    Date fromDate, Date toDate);
+
+    /**
+     * Tells whether the audit database schema has been migrated to the
+     * latest version. Until it is, the build details cannot be written: the
+     * methods that write them throw an {@link IllegalStateException}.
+     *
+     * @return <code>true</code> if the schema is up to date.
+     */
+    boolean isSchemaUpToDate();
+
+    /**
+     * Limits the report queries run through this repository, so that a
+     * report over a long date range cannot overload the database the builds
+     * are recorded in. Queries exceeding a limit are stopped and throw a
+     * {@link ReportLimitExceededException}. Streamed reads hold nothing in
+     * memory and are meant for exports, so they are not limited. Neither are
+     * the writes.
+     *
+     * @param timeoutSeconds
+     *            the maximum time a report query can run for, in seconds, or
+     *            zero for no limit.
+     * @param maxRows
+     *            the maximum number of rows a report query can read into
+     *            memory, or zero for no limit.
+     */
+    void setQueryLimits(int timeoutSeconds, int maxRows);
+
     /**
      * Retrieves previously saved build details that match the given user id.
      *
@@ -112,6 +233,9 @@ public interface BuildDetailsRepository {
      * Retrieves previously saved build details that were executed using the
      * given parameter values.
      *
+     * <p>
+     * The build details are read-only and do not include the build log.
+     *
      * @param masterHostName
      *            the host name of the Jenkins master.
      * @param paramName
@@ -194,6 +318,9 @@ public interface BuildDetailsRepository {
      * specified Jenkins master or all the slaves registered with that master,
      * between two dates for al projects.
      *
+     * <p>
+     * The build details are read-only and do not include the build log.
+     *
      * @param masterHostName
      *            the host name of the Jenkins master.
      * @param fromDate
@@ -211,6 +338,9 @@ public interface BuildDetailsRepository {
      * specified Jenkins master or all the slaves registered with that master,
      * between two dates and for a specific project.
      *
+     * <p>
+     * The build details are read-only and do not include the build log.
+     *
      * @param masterHostName
      *            the host name of the Jenkins master.
      * @param projectName
@@ -224,4 +354,302 @@ public interface BuildDetailsRepository {
      */
     List<BuildDetails> getBuildDetails(String masterHostName,
 	    String projectName, Date fromDate, Date toDate);
+
+    /**
+     * Retrieves the build details for all job instances that ran on the
+     * specified Jenkins master or all the slaves registered with that master,
+     * between two dates, grouped by project name. All the matching build
+     * details are read with a single query.
+     *
+     * <p>
+     * The build details are read-only and do not include the build log.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param pattern
+     *            the pattern used to match project names. A <code>null</code>
+     *            pattern matches all names.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @return a map of project names, in name order, to the build details of
+     *         that project, in start date order. Never <code>null</code>.
+     */
+    Map<String, List<BuildDetails>> getBuildDetailsByProject(
+	    String masterHostName, String pattern, Date fromDate, Date toDate);
+
+    /**
+     * Retrieves a page of the build details for all job instances that ran
+     * on the specified Jenkins master or all the slaves registered with that
+     * master, between two dates. Build details are ordered by start date and
+     * id, and pages are delimited by the build details next to them, so that
+     * the cost of a page does not depend on its position in the date range.
+     * <p>
+     * The build details are read-only and do not include the build log.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param pattern
+     *            the pattern used to match project names. A <code>null</code>
+     *            pattern matches all names.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @param cursor
+     *            the build details (exclusive) the page starts from, or
+     *            <code>null</code> to start from either end of the range.
+     * @param backward
+     *            if <code>true</code>, the page is made of the build details
+     *            before the cursor, rather than after.
+     * @param maxResults
+     *            the maximum number of build details to retrieve.
+     * @return a list of build details in start date order, never
+     *         <code>null</code>.
+     */
+    List<BuildDetails> getBuildDetailsPage(String masterHostName,
+	    String pattern, Date fromDate, Date toDate, BuildDetails cursor,
+	    boolean backward, int maxResults);
+
+    /**
+     * Retrieves a page of the build details that were executed using the
+     * given parameter values, in the same way as
+     * {@link #getBuildDetailsPage(String, String, Date, Date, BuildDetails, boolean, int)}.
+     * <p>
+     * The build details are read-only and do not include the build log.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param paramName
+     *            the parameter name.
+     * @param paramValue
+     *            the parameter value.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @param cursor
+     *            the build details (exclusive) the page starts from, or
+     *            <code>null</code> to start from either end of the range.
+     * @param backward
+     *            if <code>true</code>, the page is made of the build details
+     *            before the cursor, rather than after.
+     * @param maxResults
+     *            the maximum number of build details to retrieve.
+     * @return a list of build details in start date order, never
+     *         <code>null</code>.
+     */
+    List<BuildDetails> getBuildDetailsByParamsPage(String masterHostName,
+	    String paramName, String paramValue, Date fromDate, Date toDate,
+	    BuildDetails cursor, boolean backward, int maxResults);
+
+    /**
+     * Reads the build details for all job instances that ran on the
+     * specified Jenkins master or all the slaves registered with that master,
+     * between two dates, and hands them over as they are read, ordered by
+     * project name and then start date. Only a small number of build details
+     * is held in memory at any time, however many match.
+     * <p>
+     * The build details are read-only and do not include the build log.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param pattern
+     *            the pattern used to match project names. A <code>null</code>
+     *            pattern matches all names.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @param handler
+     *            the handler receiving the build details.
+     */
+    void streamBuildDetails(String masterHostName, String pattern,
+	    Date fromDate, Date toDate, BuildDetailsHandler handler);
+
+    /**
+     * Reads the build details that were executed using the given parameter
+     * values, in the same way as
+     * {@link #streamBuildDetails(String, String, Date, Date, BuildDetailsHandler)}.
+     * <p>
+     * The build details are read-only and do not include the build log.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param paramName
+     *            the parameter name.
+     * @param paramValue
+     *            the parameter value.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @param handler
+     *            the handler receiving the build details.
+     */
+    void streamBuildDetailsByParams(String masterHostName, String paramName,
+	    String paramValue, Date fromDate, Date toDate,
+	    BuildDetailsHandler handler);
+
+    /**
+     * Retrieves the ids of the oldest build details for job instances that
+     * ran on the specified Jenkins master or its slaves, and started before
+     * the given date. The ids are returned in start date order, so that
+     * successive calls after deleting the returned entities walk through
+     * the expired entities a chunk at a time.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param date
+     *            the date (exclusive) before which the job instances started.
+     * @param maxResults
+     *            the maximum number of ids to retrieve.
+     * @return a list of build details ids, never <code>null</code>.
+     */
+    List<String> getBuildDetailsIdsStartedBefore(String masterHostName,
+	    Date date, int maxResults);
+
+    /**
+     * Retrieves a chunk of the build details for job instances that ran on
+     * the specified Jenkins master or its slaves, and started before the
+     * given date, together with their parameters. The build details are
+     * returned in start date and id order, starting right after the given
+     * build details, so that successive calls walk through all of them.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param date
+     *            the date (exclusive) before which the job instances started.
+     * @param after
+     *            the last build details of the previous chunk, or
+     *            <code>null</code> to retrieve the first chunk.
+     * @param maxResults
+     *            the maximum number of build details to retrieve.
+     * @return a list of build details, never <code>null</code>.
+     */
+    List<BuildDetails> getBuildDetailsStartedBefore(String masterHostName,
+	    Date date, BuildDetails after, int maxResults);
+
+    /**
+     * Deletes the build details with the given ids, together with their
+     * parameters, in a single transaction. The build nodes are left
+     * untouched, as they are shared by other build details.
+     *
+     * @param ids
+     *            the ids of the build details to delete.
+     * @return the number of build details deleted.
+     */
+    int deleteBuildDetails(List<String> ids);
+
+    /**
+     * Computes a cheap signature of the build details that
+     * {@link #getBuildDetailsByProject(String, String, Date, Date)} would
+     * return, without reading them. The signature changes whenever builds are
+     * added to or removed from the result, so it can be used to tell whether
+     * a previously computed report is still current.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param pattern
+     *            the project name pattern, or <code>null</code> to match all
+     *            projects.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @return the signature of the matching build details.
+     */
+    String getBuildDetailsSignature(String masterHostName, String pattern,
+	    Date fromDate, Date toDate);
+
+    /**
+     * Computes a cheap signature of the build details that
+     * {@link #getBuildDetailsByParams(String, String, String, Date, Date)}
+     * would return, in the same way as
+     * {@link #getBuildDetailsSignature(String, String, Date, Date)}.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param paramName
+     *            the parameter name.
+     * @param paramValue
+     *            the parameter value.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @return the signature of the matching build details.
+     */
+    String getBuildDetailsByParamsSignature(String masterHostName,
+	    String paramName, String paramValue, Date fromDate, Date toDate);
+
+    /**
+     * Retrieves the build statistics of the matching projects from the daily
+     * summaries, rather than from the build details, so that the cost does
+     * not grow with the number of builds. Builds are counted on the day they
+     * started on; the summaries are kept when the build details are purged.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param pattern
+     *            the project name pattern, or <code>null</code> to match all
+     *            projects.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @return the statistics for each project and build result, ordered by
+     *         project name and result, never <code>null</code>. The duration
+     *         percentiles are not read, and are always 0.
+     */
+    List<BuildSummary> getBuildSummaries(String masterHostName,
+	    String pattern, Date fromDate, Date toDate);
+
+    /**
+     * Retrieves the build statistics of the matching projects from the daily
+     * summaries, in the same way as
+     * {@link #getBuildSummaries(String, String, Date, Date)}, but across all
+     * build results.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param pattern
+     *            the project name pattern, or <code>null</code> to match all
+     *            projects.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @return the statistics for each project, without a result, ordered by
+     *         project name, never <code>null</code>.
+     */
+    List<BuildSummary> getProjectBuildSummaries(String masterHostName,
+	    String pattern, Date fromDate, Date toDate);
+
+    /**
+     * Recomputes the daily summaries of the given Jenkins master from the
+     * build details, one day at a time. Summaries are maintained as builds
+     * are recorded, so this is only needed for the builds recorded before
+     * the summaries existed, or after the build details have been changed
+     * by hand.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param fromDate
+     *            the first day to recompute.
+     * @param toDate
+     *            the last day to recompute.
+     * @return the number of daily summaries written.
+     */
+    int rebuildBuildSummaries(String masterHostName, Date fromDate,
+	    Date toDate);
+
+    /**
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @return the start date of the oldest recorded build, or
+     *         <code>null</code> if there are none.
+     */
+    Date getOldestBuildDate(String masterHostName);
 }
@@ -0,0 +1,62 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.data;
+
+/**
+ * Thrown when a report query is stopped for taking too long or for reading
+ * too many rows. The report results would be incomplete, so none are
+ * returned.
+ *
+ * @author Marco Scata
+ *
+ */
+public class ReportLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final boolean timeout;
+    private final int limit;
+
+    private ReportLimitExceededException(final String message,
+	    final boolean timeout, final int limit, final Throwable cause) {
+	super(message, cause);
+	this.timeout = timeout;
+	this.limit = limit;
+    }
+
+    /**
+     * @return an exception for a query that ran for longer than the given
+     *         number of seconds.
+     */
+    public static ReportLimitExceededException timedOut(
+	    final int timeoutSeconds, final Throwable cause) {
+	return new ReportLimitExceededException(String.format(
+		"Report query stopped after %d seconds.", timeoutSeconds),
+		true, timeoutSeconds, cause);
+    }
+
+    /**
+     * @return an exception for a query that matched more than the given
+     *         number of rows.
+     */
+    public static ReportLimitExceededException tooManyRows(final int maxRows) {
+	return new ReportLimitExceededException(String.format(
+		"Report query stopped after %d rows.", maxRows), false,
+		maxRows, null);
+    }
+
+    /**
+     * @return <code>true</code> if the query took too long,
+     *         <code>false</code> if it read too many rows.
+     */
+    public boolean isTimeout() {
+	return timeout;
+    }
+
+    /**
+     * @return the number of seconds or rows the query was limited to.
+     */
+    public int getLimit() {
+	return limit;
+    }
+}
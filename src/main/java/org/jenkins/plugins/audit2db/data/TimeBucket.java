@@ -0,0 +1,118 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.data;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The sizes of the time buckets builds can be counted in.
+ * <p>
+ * Minute and hour buckets are numbered from the epoch in UTC. Their numbers
+ * only depend on the instant, not on the time zone of the JVM or its
+ * daylight saving rules, so they can be stored along with the build details
+ * and grouped on by the database; only their start dates are shown in local
+ * time. In time zones whose offset is not a whole number of hours, an hour
+ * bucket therefore starts on the half hour. Day buckets are numbered in
+ * local time instead, so that they start on a local midnight like the daily
+ * build summaries they are read from; they are never stored.
+ *
+ * @author Marco Scata
+ *
+ */
+public enum TimeBucket {
+    MINUTE(TimeUnit.MINUTES.toMillis(1), false), HOUR(TimeUnit.HOURS
+	    .toMillis(1), false), DAY(TimeUnit.DAYS.toMillis(1), true);
+
+    /**
+     * The maximum number of buckets a report can span.
+     */
+    public final static int MAX_BUCKETS = 10000;
+
+    private final static TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final long millis;
+    private final boolean local;
+
+    private TimeBucket(final long millis, final boolean local) {
+	this.millis = millis;
+	this.local = local;
+    }
+
+    /**
+     * @return the length of a bucket, in milliseconds.
+     */
+    public long getMillis() {
+	return millis;
+    }
+
+    /**
+     * @return the number of the bucket holding the given date.
+     */
+    public long getBucket(final Date date) {
+	final long time = date.getTime();
+	final long bucketTime = local ? time
+		+ TimeZone.getDefault().getOffset(time) : time;
+	// rounds down for dates before the epoch too
+	return (bucketTime >= 0) ? (bucketTime / millis)
+		: (((bucketTime + 1) / millis) - 1);
+    }
+
+    /**
+     * @return the number of buckets from the start of the day of the first
+     *         given date to the end of the day of the second one.
+     */
+    public long countBuckets(final Date fromDate, final Date toDate) {
+	final Calendar day = Calendar.getInstance();
+	day.setTime(fromDate);
+	day.set(Calendar.HOUR_OF_DAY, 0);
+	day.set(Calendar.MINUTE, 0);
+	day.set(Calendar.SECOND, 0);
+	day.set(Calendar.MILLISECOND, 0);
+	final long firstBucket = getBucket(day.getTime());
+	day.setTime(toDate);
+	day.set(Calendar.HOUR_OF_DAY, 23);
+	day.set(Calendar.MINUTE, 59);
+	day.set(Calendar.SECOND, 59);
+	day.set(Calendar.MILLISECOND, 999);
+	return (getBucket(day.getTime()) - firstBucket) + 1;
+    }
+
+    /**
+     * @return the start date of the given bucket.
+     */
+    public Date getStartDate(final long bucket) {
+	if (!local) {
+	    return new Date(bucket * millis);
+	}
+	// the local time of the start of the bucket, read as UTC...
+	final Calendar localTime = Calendar.getInstance(UTC);
+	localTime.setTimeInMillis(bucket * millis);
+	// ...then set on a local calendar, which resolves the DST changes
+	final Calendar retval = Calendar.getInstance();
+	retval.clear();
+	retval.set(localTime.get(Calendar.YEAR), localTime.get(Calendar.MONTH),
+		localTime.get(Calendar.DAY_OF_MONTH),
+		localTime.get(Calendar.HOUR_OF_DAY),
+		localTime.get(Calendar.MINUTE));
+	return retval.getTime();
+    }
+
+    /**
+     * @return the bucket size matching the given name, or {@link #HOUR} if
+     *         none does.
+     */
+    public static TimeBucket parse(final String name) {
+	if (name != null) {
+	    for (final TimeBucket bucket : values()) {
+		if (bucket.name().equalsIgnoreCase(name.trim())) {
+		    return bucket;
+		}
+	    }
+	}
+	return HOUR;
+    }
+}
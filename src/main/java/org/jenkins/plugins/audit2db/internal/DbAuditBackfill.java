@@ -0,0 +1,301 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.util.AtomicFileWriter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+import org.hibernate.SessionFactory;
+import org.jenkins.plugins.audit2db.Messages;
+import org.jenkins.plugins.audit2db.data.BuildDetailsRepository;
+import org.jenkins.plugins.audit2db.internal.data.BuildDetailsHibernateRepository;
+import org.jenkins.plugins.audit2db.internal.model.BuildDetailsImpl;
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+
+/**
+ * Loads the build history already kept by Jenkins into the audit database,
+ * so that the audit reports also cover the builds that ran before the plugin
+ * was enabled.
+ * <p>
+ * Jobs are processed in parallel by a small, bounded pool of low priority
+ * threads, and the overall pace is capped, so that the backfill does not
+ * compete with the live builds or the Jenkins UI. Build details are saved in
+ * batches, bounded by the size of their failed build logs as well as by
+ * their number, and the progress of each job is checkpointed after every
+ * batch, so that an interrupted backfill resumes where it stopped. Build
+ * details already in the audit database are never saved twice.
+ *
+ * @author Marco Scata
+ *
+ */
+public final class DbAuditBackfill implements Runnable {
+    private final static Logger LOGGER = Logger.getLogger(DbAuditBackfill.class.getName());
+
+    private final static String CHECKPOINT_FILE = "audit2db-backfill.properties";
+    private final static String JOB_DONE = "done";
+
+    private final static int BATCH_SIZE = 100;
+
+    /**
+     * The size of the failed build logs held by a batch, beyond which the
+     * batch is saved early: a few large logs must not fill the heap.
+     */
+    private final static long MAX_BATCH_LOG_BYTES = 8L * 1024 * 1024;
+    private final static int MAX_THREADS = 4;
+    private final static double MAX_BUILDS_PER_SECOND = 200;
+
+    /**
+     * The running or most recent backfill.
+     */
+    private static DbAuditBackfill current;
+
+    private final File checkpointFile;
+    private final Properties checkpoints = new Properties();
+    private final RateLimiter rateLimiter = new RateLimiter(
+	    MAX_BUILDS_PER_SECOND);
+
+    private final AtomicLong savedBuilds = new AtomicLong();
+    private final AtomicLong skippedBuilds = new AtomicLong();
+    private final AtomicInteger completedJobs = new AtomicInteger();
+    private volatile int totalJobs;
+    private volatile boolean running = true;
+    private volatile String failure;
+
+    private BuildDetailsRepository repository;
+
+    private DbAuditBackfill(final File checkpointFile) {
+	this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Starts a new backfill in the background, unless one is already
+     * running.
+     *
+     * @return the running backfill.
+     */
+    public static synchronized DbAuditBackfill start() {
+	if ((null == current) || !current.isRunning()) {
+	    current = new DbAuditBackfill(new File(Jenkins.getInstance()
+		    .getRootDir(), CHECKPOINT_FILE));
+	    final Thread thread = new Thread(current, "audit2db-backfill");
+	    thread.setDaemon(true);
+	    thread.setPriority(Thread.MIN_PRIORITY);
+	    thread.start();
+	}
+	return current;
+    }
+
+    /**
+     * @return the running or most recent backfill, or <code>null</code> if
+     *         none was started since Jenkins started.
+     */
+    public static synchronized DbAuditBackfill getCurrent() {
+	return current;
+    }
+
+    public boolean isRunning() {
+	return running;
+    }
+
+    /**
+     * @return a short description of the backfill progress.
+     */
+    public String getStatus() {
+	final String progress = Messages.DbAuditBackfill_Progress(
+		completedJobs.get(), totalJobs, savedBuilds.get(),
+		skippedBuilds.get());
+	if (running) {
+	    return Messages.DbAuditBackfill_Running(progress);
+	} else if (failure != null) {
+	    return Messages.DbAuditBackfill_Failed(progress, failure);
+	}
+	return Messages.DbAuditBackfill_Completed(progress);
+    }
+
+    @Override
+    public void run() {
+	final SessionFactory sessionFactory = DbAuditPublisherImpl
+		.getSessionFactory();
+	final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+		MAX_THREADS, MAX_THREADS, 0, TimeUnit.MILLISECONDS,
+		new ArrayBlockingQueue<Runnable>(MAX_THREADS * 2),
+		new ThreadFactory() {
+		    private final AtomicInteger counter = new AtomicInteger();
+
+		    @Override
+		    public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable,
+				"audit2db-backfill-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		    }
+		},
+		// a full queue makes the producer process jobs as well,
+		// rather than queuing every job in the instance up front
+		new ThreadPoolExecutor.CallerRunsPolicy());
+	try {
+	    loadCheckpoints();
+	    repository = new BuildDetailsHibernateRepository(sessionFactory);
+
+	    @SuppressWarnings("rawtypes")
+	    final List<AbstractProject> jobs = Jenkins.getInstance()
+		    .getAllItems(AbstractProject.class);
+	    totalJobs = jobs.size();
+	    LOGGER.log(Level.INFO, getStatus());
+
+	    for (final AbstractProject<?, ?> job : jobs) {
+		if (JOB_DONE.equals(getCheckpoint(job))) {
+		    completedJobs.incrementAndGet();
+		} else {
+		    executor.execute(new JobBackfill(job));
+		}
+	    }
+
+	    executor.shutdown();
+	    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+	} catch (final Exception e) {
+	    LOGGER.log(Level.SEVERE, e.getMessage(), e);
+	    failure = e.getMessage();
+	    executor.shutdownNow();
+	} finally {
+	    sessionFactory.close();
+	    running = false;
+	    LOGGER.log(Level.INFO, getStatus());
+	}
+    }
+
+    private void loadCheckpoints() throws IOException {
+	if (checkpointFile.exists()) {
+	    final InputStream in = new FileInputStream(checkpointFile);
+	    try {
+		checkpoints.load(in);
+	    } finally {
+		in.close();
+	    }
+	}
+    }
+
+    private String getCheckpoint(final AbstractProject<?, ?> job) {
+	synchronized (checkpoints) {
+	    return checkpoints.getProperty(job.getFullName());
+	}
+    }
+
+    private void setCheckpoint(final AbstractProject<?, ?> job,
+	    final String checkpoint) throws IOException {
+	synchronized (checkpoints) {
+	    checkpoints.setProperty(job.getFullName(), checkpoint);
+	    final AtomicFileWriter writer = new AtomicFileWriter(checkpointFile);
+	    try {
+		checkpoints.store(writer, null);
+		writer.commit();
+	    } finally {
+		writer.abort();
+	    }
+	}
+    }
+
+    /**
+     * Saves the build history of a single job, newest build first. The
+     * checkpoint of a job is the number of the oldest build saved so far.
+     */
+    private final class JobBackfill implements Runnable {
+	private final AbstractProject<?, ?> job;
+
+	private JobBackfill(final AbstractProject<?, ?> job) {
+	    this.job = job;
+	}
+
+	@Override
+	public void run() {
+	    try {
+		final String checkpoint = getCheckpoint(job);
+		final int resumeBefore = (null == checkpoint) ? Integer.MAX_VALUE
+			: Integer.parseInt(checkpoint);
+
+		final List<BuildDetails> batch = new ArrayList<BuildDetails>(
+			BATCH_SIZE);
+		long batchLogBytes = 0;
+		int oldestNumber = resumeBefore;
+		for (final AbstractBuild<?, ?> build : job.getBuilds()) {
+		    if ((build.getNumber() >= resumeBefore)
+			    || build.isBuilding()) {
+			continue;
+		    }
+		    // builds whose records were cut short have no result
+		    if (null == build.getResult()) {
+			skippedBuilds.incrementAndGet();
+			continue;
+		    }
+		    rateLimiter.acquire();
+		    final BuildDetails details = toBuildDetails(build);
+		    batch.add(details);
+		    if (details.getLog() != null) {
+			batchLogBytes += details.getLog().length;
+		    }
+		    oldestNumber = build.getNumber();
+		    if ((batch.size() >= BATCH_SIZE)
+			    || (batchLogBytes >= MAX_BATCH_LOG_BYTES)) {
+			save(batch, String.valueOf(oldestNumber));
+			batchLogBytes = 0;
+		    }
+		}
+		save(batch, JOB_DONE);
+		completedJobs.incrementAndGet();
+	    } catch (final InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    } catch (final Exception e) {
+		// the other jobs can still be backfilled: the checkpoint
+		// lets a later run retry this one from where it failed
+		LOGGER.log(Level.SEVERE, Messages.DbAuditBackfill_JobFailed(
+			job.getFullName(), e.getMessage()), e);
+		failure = e.getMessage();
+	    }
+	}
+
+	private BuildDetails toBuildDetails(final AbstractBuild<?, ?> build)
+		throws IOException {
+	    final BuildDetails retval = new BuildDetailsImpl(build);
+	    DbAuditPublisherImpl.setBuildOutcome(retval, build);
+	    return retval;
+	}
+
+	private void save(final List<BuildDetails> batch,
+		final String checkpoint) throws IOException {
+	    int saved;
+	    try {
+		saved = repository.saveNewBuildDetails(batch);
+	    } catch (final RuntimeException e) {
+		// another job may have just saved the same new build
+		// node: a second attempt finds it and uses it
+		LOGGER.log(Level.FINE, e.getMessage(), e);
+		saved = repository.saveNewBuildDetails(batch);
+	    }
+	    savedBuilds.addAndGet(saved);
+	    skippedBuilds.addAndGet(batch.size() - saved);
+	    batch.clear();
+	    setCheckpoint(job, checkpoint);
+	}
+    }
+}
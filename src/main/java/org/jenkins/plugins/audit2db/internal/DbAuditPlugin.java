@@ -8,9 +8,14 @@ import hudson.Plugin;
 import hudson.security.Permission;
 import hudson.security.PermissionGroup;
 import hudson.security.PermissionScope;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import jenkins.model.Jenkins;
 
 import org.jenkins.plugins.audit2db.Messages;
+import org.jenkins.plugins.audit2db.internal.data.SchemaMigrator;
 
 /**
  * @author Marco Scata
@@ -18,6 +23,8 @@ import org.jenkins.plugins.audit2db.Messages;
  */
 @Extension
 public class DbAuditPlugin extends Plugin {
+    private final static Logger LOGGER = Logger.getLogger(DbAuditPlugin.class.getName());
+
     private static final PermissionGroup GROUP = new PermissionGroup(
 	    DbAuditPlugin.class, Messages._DbAuditPlugin_PermissionGroup());
 
@@ -25,4 +32,33 @@ public class DbAuditPlugin extends Plugin {
 	    Messages.DbAuditPlugin_RunPermission(),
 	    Messages._DbAuditPlugin_RunPermission(), Jenkins.ADMINISTER,
 	    PermissionScope.JENKINS);
+
+    @Override
+    public void postInitialize() throws Exception {
+	final DbAuditPublisherDescriptorImpl descriptor = DbAuditPublisherImpl.descriptor;
+	if (!descriptor.getMigrateOnStartup()
+		|| (null == descriptor.getJdbcUrl())
+		|| descriptor.getJdbcUrl().isEmpty()) {
+	    return;
+	}
+
+	final SchemaMigrator migrator = new SchemaMigrator(
+		descriptor.getJdbcDriver(), descriptor.getJdbcUrl(),
+		descriptor.getJdbcUser(), descriptor.getJdbcPassword());
+
+	// index builds and backfills may take a while on large
+	// tables: they must not hold up the Jenkins startup
+	final Thread thread = new Thread("audit2db-schema-migration") {
+	    @Override
+	    public void run() {
+		try {
+		    migrator.migrate(false);
+		} catch (final Exception e) {
+		    LOGGER.log(Level.SEVERE, e.getMessage(), e);
+		}
+	    }
+	};
+	thread.setDaemon(true);
+	thread.start();
+    }
 }
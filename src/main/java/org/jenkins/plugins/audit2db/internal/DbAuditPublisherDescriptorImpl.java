@@ -3,6 +3,7 @@
  */
 package org.jenkins.plugins.audit2db.internal;
 
+import hudson.Util;
 import hudson.model.AbstractProject;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Publisher;
@@ -10,19 +11,22 @@ import hudson.util.FormValidation;
 import hudson.util.Scrambler;
 
 import java.io.IOException;
-import java.util.Properties;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.servlet.ServletException;
 
+import jenkins.model.Jenkins;
 import net.sf.json.JSONObject;
 
-import org.hibernate.Session;
-import org.hibernate.Transaction;
 import org.jenkins.plugins.audit2db.DbAuditPublisherDescriptor;
 import org.jenkins.plugins.audit2db.Messages;
 import org.jenkins.plugins.audit2db.internal.data.HibernateUtil;
+import org.jenkins.plugins.audit2db.internal.data.JdbcUtil;
+import org.jenkins.plugins.audit2db.internal.data.SchemaMigrator;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 
@@ -34,6 +38,12 @@ public class DbAuditPublisherDescriptorImpl extends
 BuildStepDescriptor<Publisher> implements DbAuditPublisherDescriptor {
     private final static Logger LOGGER = Logger.getLogger(DbAuditPublisherDescriptorImpl.class.getName());
 
+    /**
+     * Maximum number of seconds to wait for the database when testing the
+     * connection.
+     */
+    private final static int TEST_CONNECTION_TIMEOUT = 10;
+
     private boolean useJndi;
     private String jndiName;
     private String jndiUser;
@@ -44,6 +54,16 @@ BuildStepDescriptor<Publisher> implements DbAuditPublisherDescriptor {
     private String jdbcUser;
     private String jdbcPassword;
 
+    /**
+     * On by default: the builds cannot be recorded until the schema is
+     * migrated to the version the mappings need.
+     */
+    private boolean migrateOnStartup = true;
+
+    private int retentionDays;
+
+    private boolean archiveExpired;
+
     /**
      * @see org.jenkins.plugins.audit2db.DbAuditPublisherDescriptor#getUseJndi()
      */
@@ -171,6 +191,54 @@ BuildStepDescriptor<Publisher> implements DbAuditPublisherDescriptor {
 	this.jdbcPassword = Scrambler.scramble(password);
     }
 
+    /**
+     * @see org.jenkins.plugins.audit2db.DbAuditPublisherDescriptor#getMigrateOnStartup()
+     */
+    @Override
+    public boolean getMigrateOnStartup() {
+	return migrateOnStartup;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.DbAuditPublisherDescriptor#setMigrateOnStartup(boolean)
+     */
+    @Override
+    public void setMigrateOnStartup(final boolean migrateOnStartup) {
+	this.migrateOnStartup = migrateOnStartup;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.DbAuditPublisherDescriptor#getRetentionDays()
+     */
+    @Override
+    public int getRetentionDays() {
+	return retentionDays;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.DbAuditPublisherDescriptor#setRetentionDays(int)
+     */
+    @Override
+    public void setRetentionDays(final int retentionDays) {
+	this.retentionDays = Math.max(0, retentionDays);
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.DbAuditPublisherDescriptor#getArchiveExpired()
+     */
+    @Override
+    public boolean getArchiveExpired() {
+	return archiveExpired;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.DbAuditPublisherDescriptor#setArchiveExpired(boolean)
+     */
+    @Override
+    public void setArchiveExpired(final boolean archiveExpired) {
+	this.archiveExpired = archiveExpired;
+    }
+
     public DbAuditPublisherDescriptorImpl() {
 	this(DbAuditPublisherImpl.class);
 	LOGGER.log(Level.FINE, "init()");
@@ -200,6 +268,9 @@ BuildStepDescriptor<Publisher> implements DbAuditPublisherDescriptor {
 	    this.jdbcPassword = Scrambler.scramble(datasourceDetails
 		    .getString("jdbcPassword"));
 	}
+	this.migrateOnStartup = datasourceDetails.optBoolean("migrateOnStartup");
+	setRetentionDays(datasourceDetails.optInt("retentionDays"));
+	this.archiveExpired = datasourceDetails.optBoolean("archiveExpired");
 	save();
 	return super.configure(req, json);
     }
@@ -233,24 +304,32 @@ BuildStepDescriptor<Publisher> implements DbAuditPublisherDescriptor {
 	LOGGER.log(Level.FINE, String.format(
 		"doTestJdbcConnection('%s','%s','%s','*****'",
 		jdbcDriver, jdbcUrl, username));
-	FormValidation retval = FormValidation.ok(
-		Messages.DbAuditPublisherDescriptor_ConnectionOk());
+	FormValidation retval;
 
+	// a single unpooled connection is all we need here: building a
+	// session factory would start a connection pool for nothing
+	Connection connection = null;
 	try {
-	    final Properties props = HibernateUtil.getExtraProperties(
-		    jdbcDriver, jdbcUrl, username, password);
-
-	    final Session session = HibernateUtil.getSessionFactory(props).getCurrentSession();
-	    final Transaction tx = session.beginTransaction();
-	    tx.rollback();
-
-	    this.jdbcDriver = jdbcDriver;
-	    this.jdbcUrl = jdbcUrl;
-	    this.jdbcUser = username;
-	    this.jdbcPassword = Scrambler.scramble(password);
+	    final long connectStart = System.nanoTime();
+	    connection = JdbcUtil.getConnection(jdbcDriver, jdbcUrl, username,
+		    password, TEST_CONNECTION_TIMEOUT);
+	    final long connectMillis = TimeUnit.NANOSECONDS.toMillis(
+		    System.nanoTime() - connectStart);
+	    final long roundTripMillis = JdbcUtil.pingMillis(connection,
+		    TEST_CONNECTION_TIMEOUT);
+	    final DatabaseMetaData metadata = connection.getMetaData();
+
+	    retval = FormValidation.ok(
+		    Messages.DbAuditPublisherDescriptor_ConnectionOk(
+			    metadata.getDatabaseProductName(),
+			    metadata.getDatabaseProductVersion(),
+			    String.valueOf(connectMillis),
+			    String.valueOf(roundTripMillis)));
 	} catch (final Exception e) {
 	    LOGGER.log(Level.SEVERE, e.getMessage(), e);
 	    retval = FormValidation.error(e.getMessage());
+	} finally {
+	    JdbcUtil.close(connection);
 	}
 
 	return retval;
@@ -278,4 +357,108 @@ BuildStepDescriptor<Publisher> implements DbAuditPublisherDescriptor {
 
 	return retval;
     }
+
+    @Override
+    public FormValidation doGeneratePartitioningDdl(
+	    @QueryParameter("audit2db.jdbcDriver") final String jdbcDriver,
+	    @QueryParameter("audit2db.jdbcUrl") final String jdbcUrl,
+	    @QueryParameter("audit2db.jdbcUser") final String username,
+	    @QueryParameter("audit2db.jdbcPassword") final String password)
+    throws IOException, ServletException {
+	LOGGER.log(Level.FINE, String.format(
+		"doGeneratePartitioningDdl('%s','%s','%s','*****'",
+		jdbcDriver, jdbcUrl, username));
+	FormValidation retval;
+	try {
+	    final String ddlText = HibernateUtil.getPartitioningDdl(
+		    jdbcDriver, jdbcUrl, username, password);
+	    retval = FormValidation.ok(ddlText);
+	} catch (final UnsupportedOperationException e) {
+	    retval = FormValidation.warning(e.getMessage());
+	} catch (final Exception e) {
+	    LOGGER.log(Level.SEVERE, e.getMessage(), e);
+	    retval = FormValidation.error(e.getMessage());
+	}
+
+	return retval;
+    }
+
+    @Override
+    public FormValidation doPreviewSchemaMigration(
+	    @QueryParameter("audit2db.jdbcDriver") final String jdbcDriver,
+	    @QueryParameter("audit2db.jdbcUrl") final String jdbcUrl,
+	    @QueryParameter("audit2db.jdbcUser") final String username,
+	    @QueryParameter("audit2db.jdbcPassword") final String password)
+    throws IOException, ServletException {
+	LOGGER.log(Level.FINE, String.format(
+		"doPreviewSchemaMigration('%s','%s','%s','*****'",
+		jdbcDriver, jdbcUrl, username));
+	return migrateSchema(jdbcDriver, jdbcUrl, username, password, true);
+    }
+
+    @Override
+    public FormValidation doMigrateSchema(
+	    @QueryParameter("audit2db.jdbcDriver") final String jdbcDriver,
+	    @QueryParameter("audit2db.jdbcUrl") final String jdbcUrl,
+	    @QueryParameter("audit2db.jdbcUser") final String username,
+	    @QueryParameter("audit2db.jdbcPassword") final String password)
+    throws IOException, ServletException {
+	LOGGER.log(Level.FINE, String.format(
+		"doMigrateSchema('%s','%s','%s','*****'",
+		jdbcDriver, jdbcUrl, username));
+	return migrateSchema(jdbcDriver, jdbcUrl, username, password, false);
+    }
+
+    private FormValidation migrateSchema(final String jdbcDriver,
+	    final String jdbcUrl, final String username,
+	    final String password, final boolean dryRun) {
+	Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+	FormValidation retval;
+	try {
+	    final String report = new SchemaMigrator(jdbcDriver, jdbcUrl,
+		    username, password).migrate(dryRun);
+	    retval = FormValidation.okWithMarkup(
+		    "<pre>" + Util.escape(report) + "</pre>");
+	} catch (final Exception e) {
+	    LOGGER.log(Level.SEVERE, e.getMessage(), e);
+	    retval = FormValidation.error(e.getMessage());
+	}
+
+	return retval;
+    }
+
+    @Override
+    public FormValidation doStartBackfill() {
+	Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+	return FormValidation.ok(DbAuditBackfill.start().getStatus());
+    }
+
+    @Override
+    public FormValidation doBackfillStatus() {
+	Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+	final DbAuditBackfill backfill = DbAuditBackfill.getCurrent();
+	if (null == backfill) {
+	    return FormValidation.ok(
+		    Messages.DbAuditPublisherDescriptor_BackfillNotStarted());
+	}
+	return FormValidation.ok(backfill.getStatus());
+    }
+
+    @Override
+    public FormValidation doRebuildSummaries() {
+	Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+	return FormValidation.ok(DbAuditSummaryRebuild.start().getStatus());
+    }
+
+    @Override
+    public FormValidation doRebuildSummariesStatus() {
+	Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+	final DbAuditSummaryRebuild rebuild = DbAuditSummaryRebuild
+		.getCurrent();
+	if (null == rebuild) {
+	    return FormValidation.ok(
+		    Messages.DbAuditPublisherDescriptor_RebuildNotStarted());
+	}
+	return FormValidation.ok(rebuild.getStatus());
+    }
 }
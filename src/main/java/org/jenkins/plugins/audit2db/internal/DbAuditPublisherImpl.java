@@ -7,6 +7,7 @@ import hudson.Extension;
 import hudson.Launcher;
 import hudson.model.BuildListener;
 import hudson.model.AbstractBuild;
+import hudson.model.Result;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Notifier;
@@ -21,6 +22,7 @@ import java.util.logging.Logger;
 
 import org.hibernate.SessionFactory;
 import org.jenkins.plugins.audit2db.DbAuditPublisher;
+import org.jenkins.plugins.audit2db.Messages;
 import org.jenkins.plugins.audit2db.data.BuildDetailsRepository;
 import org.jenkins.plugins.audit2db.internal.data.BuildDetailsHibernateRepository;
 import org.jenkins.plugins.audit2db.internal.data.HibernateUtil;
@@ -96,33 +98,64 @@ public class DbAuditPublisherImpl extends Notifier implements DbAuditPublisher {
 	return HibernateUtil.getSessionFactory(props);
     }
 
-    @Override
-    public boolean perform(final AbstractBuild<?, ?> build,
-	    final Launcher launcher, final BuildListener listener)
-    throws InterruptedException, IOException {
-
-	LOGGER.log(
-		Level.FINE,
-		String.format("perform: %s; launcher: %s",
-			build.getDisplayName(), launcher.toString()));
-
-	final BuildDetails details = getRepository().getBuildDetailsForBuild(
-		build);
+    /**
+     * Records the outcome of a completed build in its build details.
+     */
+    static void setBuildOutcome(final BuildDetails details,
+	    final AbstractBuild<?, ?> build) throws IOException {
 	details.setDuration(build.getDuration());
 	details.setEndDate(new Date(details.getStartDate().getTime()
 		+ details.getDuration()));
 	details.setResult(build.getResult().toString());
 	
 	//save build log if build failed
-	if (build.getResult().toString() == "FAILURE") {
+	if (Result.FAILURE.equals(build.getResult())) {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
 		build.getLogText().writeLogTo(0, out);
 		byte[] bFile = out.toByteArray();
 		details.setLog(bFile);
 	}
+    }
+
+    /**
+     * Tells whether the builds can be recorded. Until the audit database
+     * schema is migrated, the builds are not recorded, rather than failed.
+     */
+    private boolean isSchemaUpToDate(final BuildListener listener) {
+	try {
+	    if (getRepository().isSchemaUpToDate()) {
+		return true;
+	    }
+	} catch (final Throwable t) {
+	    // the database is unavailable: recording the build fails as usual
+	    LOGGER.log(Level.SEVERE, t.getMessage(), t);
+	    return true;
+	}
+	final String message = Messages.DbAuditPublisher_SchemaNotUpToDate();
+	LOGGER.log(Level.SEVERE, message);
+	listener.getLogger().println("[audit2db] - " + message);
+	return false;
+    }
+
+    @Override
+    public boolean perform(final AbstractBuild<?, ?> build,
+	    final Launcher launcher, final BuildListener listener)
+    throws InterruptedException, IOException {
+
+	LOGGER.log(
+		Level.FINE,
+		String.format("perform: %s; launcher: %s",
+			build.getDisplayName(), launcher.toString()));
+
+	if (!isSchemaUpToDate(listener)) {
+	    return true;
+	}
 
 	boolean result = false;
 	try {
+	    final BuildDetails details = getRepository()
+		    .getBuildDetailsForBuild(build);
+	    setBuildOutcome(details, build);
 	    getRepository().updateBuildDetails(details);
 	    LOGGER.log(Level.FINE,
 		    "Updated build details with id=" + details.getId());
@@ -142,6 +175,10 @@ public class DbAuditPublisherImpl extends Notifier implements DbAuditPublisher {
 	LOGGER.log(Level.FINE,
 		String.format("prebuild: %s;", build.getDisplayName()));
 
+	if (!isSchemaUpToDate(listener)) {
+	    return super.prebuild(build, listener);
+	}
+
 	Object id = null;
 	final BuildDetails details = new BuildDetailsImpl(build);
 	try {
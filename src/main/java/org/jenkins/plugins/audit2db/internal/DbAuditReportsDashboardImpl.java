@@ -12,6 +12,7 @@ import jenkins.model.ModelObjectWithContextMenu.ContextMenu;
 
 import org.jenkins.plugins.audit2db.DbAuditReportsDashboard;
 import org.jenkins.plugins.audit2db.Messages;
+import org.jenkins.plugins.audit2db.internal.data.ReportCache;
 import org.jenkins.plugins.audit2db.reports.DbAuditReport;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
@@ -72,6 +73,13 @@ public class DbAuditReportsDashboardImpl implements DbAuditReportsDashboard {
 	return retval;
     }
 
+    /**
+     * @return a short description of the report cache usage.
+     */
+    public String getCacheStatistics() {
+	return ReportCache.getInstance().getStatistics();
+    }
+
     /**
      * 
      * @param request
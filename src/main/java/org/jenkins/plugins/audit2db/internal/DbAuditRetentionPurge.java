@@ -0,0 +1,212 @@
+/**
+ * 
+ */
+package org.jenkins.plugins.audit2db.internal;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+import org.hibernate.SessionFactory;
+import org.jenkins.plugins.audit2db.data.BuildDetailsRepository;
+import org.jenkins.plugins.audit2db.internal.data.BuildDetailsArchive;
+import org.jenkins.plugins.audit2db.internal.data.BuildDetailsHibernateRepository;
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+
+/**
+ * Enforces the retention policy configured in the plugin descriptor, by
+ * periodically deleting the build details that started before the retention
+ * period.
+ * <p>
+ * The expired build details are deleted in small chunks, oldest first, each
+ * in its own short transaction and with a pause in between, so that the
+ * builds being audited in the meantime are never held up for long.
+ *
+ * @author Marco Scata
+ *
+ */
+@Extension
+public class DbAuditRetentionPurge extends AsyncPeriodicWork {
+    private final static Logger LOGGER = Logger.getLogger(DbAuditRetentionPurge.class.getName());
+
+    /**
+     * Number of build details deleted in each transaction: small enough to
+     * keep locks short, and well below the limit on the number of values in
+     * an <code>IN</code> list on all the supported databases.
+     */
+    private final static int CHUNK_SIZE = 500;
+
+    /**
+     * Pause between two chunks, giving way to the live workload.
+     */
+    private final static long CHUNK_PAUSE_MILLIS = 500;
+
+    public DbAuditRetentionPurge() {
+	super("Audit to Database retention purge");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+	return DAY;
+    }
+
+    @Override
+    public long getInitialDelay() {
+	// let Jenkins settle down after a restart
+	return TimeUnit.MINUTES.toMillis(15);
+    }
+
+    @Override
+    protected void execute(final TaskListener listener) throws IOException,
+	    InterruptedException {
+	final int retentionDays = DbAuditPublisherImpl.descriptor
+		.getRetentionDays();
+	if (retentionDays <= 0) {
+	    listener.getLogger().println(
+		    "[audit2db] - No retention period configured.");
+	    return;
+	}
+
+	final Calendar cutoff = Calendar.getInstance();
+	cutoff.add(Calendar.DAY_OF_MONTH, -retentionDays);
+	listener.getLogger().println(String.format(
+		"[audit2db] - Deleting build details started before %tF.",
+		cutoff));
+
+	final SessionFactory sessionFactory = DbAuditPublisherImpl
+		.getSessionFactory();
+	try {
+	    final BuildDetailsRepository repository = new BuildDetailsHibernateRepository(
+		    sessionFactory);
+	    final long deleted;
+	    if (DbAuditPublisherImpl.descriptor.getArchiveExpired()) {
+		final BuildDetailsArchive archive = new BuildDetailsArchive(
+			new File(Jenkins.getInstance().getRootDir(),
+				BuildDetailsArchive.DIRECTORY_NAME));
+		deleted = archiveAndPurge(repository, archive,
+			DbAuditUtil.getHostName(), cutoff.getTime(), listener);
+	    } else {
+		deleted = purge(repository, DbAuditUtil.getHostName(),
+			cutoff.getTime(), listener);
+	    }
+	    LOGGER.log(Level.INFO, String.format(
+		    "Deleted %d build details older than %d days.",
+		    deleted, retentionDays));
+	} finally {
+	    sessionFactory.close();
+	}
+    }
+
+    /**
+     * Deletes all the build details that started before the given date, a
+     * chunk at a time.
+     *
+     * @return the number of build details deleted.
+     */
+    long purge(final BuildDetailsRepository repository,
+	    final String masterHostName, final Date cutoff,
+	    final TaskListener listener) throws InterruptedException {
+	long retval = 0;
+	while (true) {
+	    // the oldest expired ids: the previous chunks are gone,
+	    // so each query starts right where the last one ended
+	    final List<String> ids = repository
+		    .getBuildDetailsIdsStartedBefore(masterHostName, cutoff,
+			    CHUNK_SIZE);
+	    if (ids.isEmpty()) {
+		break;
+	    }
+
+	    retval += repository.deleteBuildDetails(ids);
+	    listener.getLogger().println(String.format(
+		    "[audit2db] - Deleted %d build details so far.", retval));
+	    if (ids.size() < CHUNK_SIZE) {
+		break;
+	    }
+	    Thread.sleep(CHUNK_PAUSE_MILLIS);
+	}
+	return retval;
+    }
+
+    /**
+     * Archives and then deletes all the build details that started before
+     * the given date. The build details of each month are only deleted once
+     * their archive file is complete, so nothing is lost if the purge is
+     * interrupted: at worst, some build details are archived twice.
+     *
+     * @return the number of build details deleted.
+     */
+    long archiveAndPurge(final BuildDetailsRepository repository,
+	    final BuildDetailsArchive archive, final String masterHostName,
+	    final Date cutoff, final TaskListener listener)
+	    throws IOException, InterruptedException {
+	long retval = 0;
+	final List<String> archivedIds = new ArrayList<String>();
+	BuildDetailsArchive.Writer writer = null;
+	try {
+	    BuildDetails last = null;
+	    while (true) {
+		final List<BuildDetails> chunk = repository
+			.getBuildDetailsStartedBefore(masterHostName, cutoff,
+				last, CHUNK_SIZE);
+		for (final BuildDetails details : chunk) {
+		    if ((writer != null) && !writer.accepts(details)) {
+			writer.close();
+			writer = null;
+			retval += delete(repository, archivedIds, listener);
+		    }
+		    if (null == writer) {
+			writer = archive.createWriter(details.getStartDate());
+		    }
+		    writer.write(details);
+		    archivedIds.add(details.getId());
+		}
+		if (chunk.size() < CHUNK_SIZE) {
+		    break;
+		}
+		last = chunk.get(chunk.size() - 1);
+		Thread.sleep(CHUNK_PAUSE_MILLIS);
+	    }
+
+	    if (writer != null) {
+		writer.close();
+		writer = null;
+		retval += delete(repository, archivedIds, listener);
+	    }
+	} finally {
+	    if (writer != null) {
+		writer.abort();
+	    }
+	}
+	return retval;
+    }
+
+    private long delete(final BuildDetailsRepository repository,
+	    final List<String> ids, final TaskListener listener)
+	    throws InterruptedException {
+	long retval = 0;
+	for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+	    if (from > 0) {
+		Thread.sleep(CHUNK_PAUSE_MILLIS);
+	    }
+	    retval += repository.deleteBuildDetails(ids.subList(from,
+		    Math.min(from + CHUNK_SIZE, ids.size())));
+	}
+	listener.getLogger().println(String.format(
+		"[audit2db] - Archived and deleted %d build details.", retval));
+	ids.clear();
+	return retval;
+    }
+}
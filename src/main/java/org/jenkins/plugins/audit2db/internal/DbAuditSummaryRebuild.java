@@ -0,0 +1,129 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hibernate.SessionFactory;
+import org.jenkins.plugins.audit2db.Messages;
+import org.jenkins.plugins.audit2db.data.BuildDetailsRepository;
+import org.jenkins.plugins.audit2db.internal.data.BuildDetailsHibernateRepository;
+
+/**
+ * Recomputes the daily build summaries of this Jenkins master from all the
+ * recorded build details, in the background. The summaries are rebuilt one
+ * day at a time, oldest first, so that the progress can be reported while
+ * the rebuild runs.
+ *
+ * @author Marco Scata
+ *
+ */
+public final class DbAuditSummaryRebuild implements Runnable {
+    private final static Logger LOGGER = Logger.getLogger(DbAuditSummaryRebuild.class.getName());
+
+    /**
+     * The running or most recent rebuild.
+     */
+    private static DbAuditSummaryRebuild current;
+
+    private volatile int completedDays;
+    private volatile int totalDays;
+    private volatile int summaries;
+    private volatile boolean running = true;
+    private volatile String failure;
+
+    private DbAuditSummaryRebuild() {
+	// started by others
+    }
+
+    /**
+     * Starts a new rebuild in the background, unless one is already running.
+     *
+     * @return the running rebuild.
+     */
+    public static synchronized DbAuditSummaryRebuild start() {
+	if ((null == current) || !current.isRunning()) {
+	    current = new DbAuditSummaryRebuild();
+	    final Thread thread = new Thread(current, "audit2db-summaries");
+	    thread.setDaemon(true);
+	    thread.setPriority(Thread.MIN_PRIORITY);
+	    thread.start();
+	}
+	return current;
+    }
+
+    /**
+     * @return the running or most recent rebuild, or <code>null</code> if
+     *         none was started since Jenkins started.
+     */
+    public static synchronized DbAuditSummaryRebuild getCurrent() {
+	return current;
+    }
+
+    public boolean isRunning() {
+	return running;
+    }
+
+    /**
+     * @return a short description of the rebuild progress.
+     */
+    public String getStatus() {
+	final String progress = Messages.DbAuditSummaryRebuild_Progress(
+		completedDays, totalDays, summaries);
+	if (running) {
+	    return Messages.DbAuditSummaryRebuild_Running(progress);
+	} else if (failure != null) {
+	    return Messages.DbAuditSummaryRebuild_Failed(progress, failure);
+	}
+	return Messages.DbAuditSummaryRebuild_Completed(progress);
+    }
+
+    @Override
+    public void run() {
+	final SessionFactory sessionFactory = DbAuditPublisherImpl
+		.getSessionFactory();
+	try {
+	    final BuildDetailsRepository repository = new BuildDetailsHibernateRepository(
+		    sessionFactory);
+	    final String hostName = DbAuditUtil.getHostName();
+	    final Date oldestBuildDate = repository
+		    .getOldestBuildDate(hostName);
+	    if (oldestBuildDate != null) {
+		final Date today = new Date();
+		final Calendar day = Calendar.getInstance();
+		day.setTime(oldestBuildDate);
+		day.set(Calendar.HOUR_OF_DAY, 0);
+		day.set(Calendar.MINUTE, 0);
+		day.set(Calendar.SECOND, 0);
+		day.set(Calendar.MILLISECOND, 0);
+		final Date firstDay = day.getTime();
+		int days = 0;
+		while (!day.getTime().after(today)) {
+		    days++;
+		    day.add(Calendar.DAY_OF_MONTH, 1);
+		}
+		totalDays = days;
+		LOGGER.log(Level.INFO, getStatus());
+
+		day.setTime(firstDay);
+		while (completedDays < totalDays) {
+		    summaries += repository.rebuildBuildSummaries(hostName,
+			    day.getTime(), day.getTime());
+		    completedDays++;
+		    day.add(Calendar.DAY_OF_MONTH, 1);
+		}
+	    }
+	} catch (final Exception e) {
+	    LOGGER.log(Level.SEVERE, e.getMessage(), e);
+	    failure = e.getMessage();
+	} finally {
+	    sessionFactory.close();
+	    running = false;
+	    LOGGER.log(Level.INFO, getStatus());
+	}
+    }
+}
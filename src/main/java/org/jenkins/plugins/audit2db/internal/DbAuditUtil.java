@@ -5,6 +5,7 @@ package org.jenkins.plugins.audit2db.internal;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Locale;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,4 +45,30 @@ public final class DbAuditUtil {
     public static String getIpAddress() {
         return ipaddr;
     }
+
+    /**
+     * @return the given text in lower case, as stored in the columns used by
+     *         the case-insensitive lookups, or <code>null</code>.
+     */
+    public static String toLowerCase(final String text) {
+        return (null == text) ? null : text.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @return the 64-bit FNV-1a hash of the given build details id, as
+     *         stored in the column breaking the start date ties of the
+     *         report pages, or <code>null</code>. Numbers sort the same way
+     *         in Java and in every database, whatever their collation.
+     */
+    public static Long getIdHash(final String id) {
+        if (null == id) {
+            return null;
+        }
+        long retval = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            retval ^= id.charAt(i);
+            retval *= 0x100000001b3L;
+        }
+        return Long.valueOf(retval);
+    }
 }
@@ -0,0 +1,48 @@
+/**
+ * 
+ */
+package org.jenkins.plugins.audit2db.internal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces out operations shared by several threads so that, overall, they do
+ * not exceed a fixed rate.
+ *
+ * @author Marco Scata
+ *
+ */
+final class RateLimiter {
+    private final long intervalNanos;
+    private long nextSlot = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond
+     *            the maximum number of operations per second.
+     */
+    RateLimiter(final double permitsPerSecond) {
+	if (permitsPerSecond <= 0) {
+	    throw new IllegalArgumentException(
+		    "Invalid rate: must be greater than zero.");
+	}
+	this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+    }
+
+    /**
+     * Waits until the next operation is allowed.
+     *
+     * @throws InterruptedException
+     *             if the thread is interrupted while waiting.
+     */
+    void acquire() throws InterruptedException {
+	final long waitNanos;
+	synchronized (this) {
+	    final long now = System.nanoTime();
+	    waitNanos = nextSlot - now;
+	    nextSlot = Math.max(nextSlot, now) + intervalNanos;
+	}
+	if (waitNanos > 0) {
+	    TimeUnit.NANOSECONDS.sleep(waitNanos);
+	}
+    }
+}
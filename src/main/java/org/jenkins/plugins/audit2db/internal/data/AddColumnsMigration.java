@@ -0,0 +1,66 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.Mapping;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Table;
+
+/**
+ * Adds some of the columns mapped on a table, if they are missing from the
+ * database. The columns must be nullable, so that existing rows need not be
+ * rewritten; their types are taken from the mappings.
+ *
+ * @author Marco Scata
+ *
+ */
+public class AddColumnsMigration extends SchemaMigration {
+    private final String tableName;
+    private final List<String> columnNames;
+
+    public AddColumnsMigration(final int version, final String description,
+	    final String tableName, final String... columnNames) {
+	super(version, description);
+	this.tableName = tableName;
+	this.columnNames = Arrays.asList(columnNames);
+    }
+
+    @Override
+    public List<String> getStatements(final Configuration config,
+	    final Dialect dialect, final DatabaseMetaData metadata)
+	    throws SQLException {
+	final List<String> retval = new ArrayList<String>();
+	config.buildMappings();
+	final Mapping mapping = config.buildMapping();
+
+	final Iterator<?> tables = config.getTableMappings();
+	while (tables.hasNext()) {
+	    final Table table = (Table) tables.next();
+	    if (!table.getName().equals(tableName)) {
+		continue;
+	    }
+	    final Iterator<?> columns = table.getColumnIterator();
+	    while (columns.hasNext()) {
+		final Column column = (Column) columns.next();
+		if (columnNames.contains(column.getName())
+			&& !columnExists(metadata, table.getName(),
+				column.getName())) {
+		    retval.add(addColumn(dialect, table.getQuotedName(dialect),
+			    column.getQuotedName(dialect),
+			    column.getSqlTypeCode(mapping), column.getLength()));
+		}
+	    }
+	}
+	return retval;
+    }
+}
@@ -0,0 +1,717 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.jenkins.plugins.audit2db.internal.model.BuildDetailsImpl;
+import org.jenkins.plugins.audit2db.internal.model.BuildNodeImpl;
+import org.jenkins.plugins.audit2db.internal.model.BuildParameterImpl;
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+import org.jenkins.plugins.audit2db.model.BuildNode;
+import org.jenkins.plugins.audit2db.model.BuildParameter;
+
+/**
+ * Compressed file storage for the build details removed from the audit
+ * database by the retention purge.
+ * <p>
+ * Build details are stored in one sub-directory per month of start date.
+ * Each archive file holds the build details (with their parameters and node)
+ * of a single month, and comes with a small index file recording its date
+ * range, Jenkins masters and projects, so that queries only ever open the
+ * files that can hold matching build details.
+ *
+ * @author Marco Scata
+ *
+ */
+public class BuildDetailsArchive {
+    private final static Logger LOGGER = Logger.getLogger(BuildDetailsArchive.class.getName());
+
+    /**
+     * The name of the archive directory, under the Jenkins root directory.
+     */
+    public final static String DIRECTORY_NAME = "audit2db-archive";
+
+    private final static String DATA_EXTENSION = ".dat.gz";
+    private final static String INDEX_EXTENSION = ".idx";
+    private final static String TEMP_EXTENSION = ".tmp";
+
+    private final static int FILE_MAGIC = 0x41324442; // "A2DB"
+    private final static int FILE_VERSION = 1;
+
+    private final static String INDEX_COUNT = "count";
+    private final static String INDEX_FIRST_START = "firstStartDate";
+    private final static String INDEX_LAST_START = "lastStartDate";
+    private final static String INDEX_MASTER = "master.";
+    private final static String INDEX_PROJECT = "project.";
+
+    private final File rootDir;
+
+    /**
+     * @param rootDir
+     *            the directory holding the archive files; it is created on
+     *            the first write.
+     */
+    public BuildDetailsArchive(final File rootDir) {
+	this.rootDir = rootDir;
+    }
+
+    public File getRootDir() {
+	return rootDir;
+    }
+
+    private static String getMonth(final Date date) {
+	return String.format(Locale.ROOT, "%tY-%<tm", date);
+    }
+
+    /**
+     * Creates a new archive file for the build details that started in the
+     * same month as the given date.
+     *
+     * @param date
+     *            a date within the month to archive.
+     * @return a writer for the new file.
+     * @throws IOException
+     *             if the file cannot be created.
+     */
+    public Writer createWriter(final Date date) throws IOException {
+	final String month = getMonth(date);
+	final File monthDir = new File(rootDir, month);
+	if (!monthDir.isDirectory() && !monthDir.mkdirs()) {
+	    throw new IOException(
+		    Messages.BuildDetailsArchive_CannotCreateDir(monthDir));
+	}
+
+	long timestamp = System.currentTimeMillis();
+	File dataFile;
+	do {
+	    dataFile = new File(monthDir, "builds-" + timestamp++
+		    + DATA_EXTENSION);
+	} while (dataFile.exists());
+	return new Writer(month, dataFile);
+    }
+
+    /**
+     * Retrieves the archived build details for all job instances that ran on
+     * the specified Jenkins master between two dates, using the same date
+     * semantics as the {@link BuildDetailsHibernateRepository}.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master.
+     * @param projectPattern
+     *            the pattern used to match project names, using the SQL
+     *            <code>like</code> wildcards; <code>null</code> matches all
+     *            projects.
+     * @param fromDate
+     *            the start (inclusive) of the date range.
+     * @param toDate
+     *            the end (inclusive) of the date range.
+     * @return a list of build details in start date order, never
+     *         <code>null</code>.
+     * @throws IOException
+     *             if an archive file cannot be read.
+     */
+    public List<BuildDetails> getBuildDetails(final String masterHostName,
+	    final String projectPattern, final Date fromDate, final Date toDate)
+	    throws IOException {
+	final Pattern pattern = toPattern(projectPattern);
+	return read(masterHostName, fromDate, toDate, pattern,
+		getProjectFilter(pattern));
+    }
+
+    /**
+     * Retrieves a page of the archived build details returned by
+     * {@link #getBuildDetails(String, String, Date, Date)}. Only the archive
+     * files whose start dates reach beyond the cursor are read, month by
+     * month, until the page is full.
+     *
+     * @param cursor
+     *            the build details the page must follow (or precede when
+     *            reading backward), or <code>null</code> for the first
+     *            page.
+     * @param backward
+     *            <code>true</code> to read the page before the cursor.
+     * @param maxResults
+     *            the maximum number of build details in the page.
+     * @param order
+     *            the order of the pages, consistent with the start dates.
+     * @return a list of build details in the given order, never
+     *         <code>null</code>.
+     * @throws IOException
+     *             if an archive file cannot be read.
+     */
+    public List<BuildDetails> getBuildDetailsPage(final String masterHostName,
+	    final String projectPattern, final Date fromDate,
+	    final Date toDate, final BuildDetails cursor,
+	    final boolean backward, final int maxResults,
+	    final Comparator<BuildDetails> order) throws IOException {
+	final Pattern pattern = toPattern(projectPattern);
+	return readPage(masterHostName, fromDate, toDate, pattern,
+		getProjectFilter(pattern), cursor, backward, maxResults, order);
+    }
+
+    private static Filter getProjectFilter(final Pattern pattern) {
+	return new Filter() {
+	    @Override
+	    public boolean accept(final BuildDetails details) {
+		return (null == pattern)
+			|| pattern.matcher(details.getName()).matches();
+	    }
+	};
+    }
+
+    /**
+     * Retrieves the archived build details for all job instances that ran on
+     * the specified Jenkins master between two dates with the given
+     * parameter, using the same semantics as
+     * {@link BuildDetailsHibernateRepository#getBuildDetailsByParams(String, String, String, Date, Date)}.
+     *
+     * @return a list of build details in start date order, never
+     *         <code>null</code>.
+     * @throws IOException
+     *             if an archive file cannot be read.
+     */
+    public List<BuildDetails> getBuildDetailsByParams(
+	    final String masterHostName, final String paramName,
+	    final String paramValue, final Date fromDate, final Date toDate)
+	    throws IOException {
+	return read(masterHostName, fromDate, toDate, null,
+		getParamsFilter(paramName, paramValue));
+    }
+
+    /**
+     * Retrieves a page of the archived build details returned by
+     * {@link #getBuildDetailsByParams(String, String, String, Date, Date)},
+     * reading as few archive files as
+     * {@link #getBuildDetailsPage(String, String, Date, Date, BuildDetails, boolean, int, Comparator)}.
+     *
+     * @return a list of build details in the given order, never
+     *         <code>null</code>.
+     * @throws IOException
+     *             if an archive file cannot be read.
+     */
+    public List<BuildDetails> getBuildDetailsByParamsPage(
+	    final String masterHostName, final String paramName,
+	    final String paramValue, final Date fromDate, final Date toDate,
+	    final BuildDetails cursor, final boolean backward,
+	    final int maxResults, final Comparator<BuildDetails> order)
+	    throws IOException {
+	return readPage(masterHostName, fromDate, toDate, null,
+		getParamsFilter(paramName, paramValue), cursor, backward,
+		maxResults, order);
+    }
+
+    private static Filter getParamsFilter(final String paramName,
+	    final String paramValue) {
+	final boolean noParams = (null == paramName) || paramName.isEmpty();
+	final Pattern namePattern = toPattern(paramName);
+	final Pattern valuePattern = toPattern(paramValue);
+	return new Filter() {
+	    @Override
+	    public boolean accept(final BuildDetails details) {
+		if (noParams) {
+		    return details.getParameters().isEmpty();
+		}
+		for (final BuildParameter param : details.getParameters()) {
+		    if (namePattern.matcher(param.getName()).matches()
+			    && (param.getValue() != null)
+			    && (valuePattern != null)
+			    && valuePattern.matcher(param.getValue()).matches()) {
+			return true;
+		    }
+		}
+		return false;
+	    }
+	};
+    }
+
+    /**
+     * Converts a SQL <code>like</code> pattern into a case-insensitive
+     * regular expression.
+     */
+    private static Pattern toPattern(final String likePattern) {
+	if ((null == likePattern) || likePattern.isEmpty()) {
+	    return null;
+	}
+	final StringBuilder regex = new StringBuilder();
+	final StringBuilder literal = new StringBuilder();
+	for (final char c : likePattern.toCharArray()) {
+	    if ((c == '%') || (c == '_')) {
+		if (literal.length() > 0) {
+		    regex.append(Pattern.quote(literal.toString()));
+		    literal.setLength(0);
+		}
+		regex.append((c == '%') ? ".*" : ".");
+	    } else {
+		literal.append(c);
+	    }
+	}
+	if (literal.length() > 0) {
+	    regex.append(Pattern.quote(literal.toString()));
+	}
+	return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE
+		| Pattern.UNICODE_CASE | Pattern.DOTALL);
+    }
+
+    private interface Filter {
+	boolean accept(BuildDetails details);
+    }
+
+    private List<BuildDetails> read(final String masterHostName,
+	    final Date fromDate, final Date toDate,
+	    final Pattern projectPattern, final Filter filter)
+	    throws IOException {
+	final List<BuildDetails> retval = new ArrayList<BuildDetails>();
+	final Date inclusiveStartDate = BuildDetailsHibernateRepository
+		.getInclusiveStartDate(fromDate);
+	final Date inclusiveEndDate = BuildDetailsHibernateRepository
+		.getInclusiveEndDate(toDate);
+
+	// only the directories of the months in range are even listed
+	for (final Date month : getMonths(inclusiveStartDate, inclusiveEndDate)) {
+	    readMonth(month, masterHostName, inclusiveStartDate,
+		    inclusiveEndDate, projectPattern, filter, retval);
+	}
+	return retval;
+    }
+
+    private List<BuildDetails> readPage(final String masterHostName,
+	    final Date fromDate, final Date toDate,
+	    final Pattern projectPattern, final Filter filter,
+	    final BuildDetails cursor, final boolean backward,
+	    final int maxResults, final Comparator<BuildDetails> order)
+	    throws IOException {
+	final List<BuildDetails> retval = new ArrayList<BuildDetails>();
+	Date inclusiveStartDate = BuildDetailsHibernateRepository
+		.getInclusiveStartDate(fromDate);
+	Date inclusiveEndDate = BuildDetailsHibernateRepository
+		.getInclusiveEndDate(toDate);
+	Filter pageFilter = filter;
+	if (cursor != null) {
+	    // archive files starting before (or after) the cursor are skipped
+	    // from their index alone
+	    if (backward) {
+		if (cursor.getStartDate().before(inclusiveEndDate)) {
+		    inclusiveEndDate = cursor.getStartDate();
+		}
+	    } else if (cursor.getStartDate().after(inclusiveStartDate)) {
+		inclusiveStartDate = cursor.getStartDate();
+	    }
+	    pageFilter = new Filter() {
+		@Override
+		public boolean accept(final BuildDetails details) {
+		    final int comparison = order.compare(details, cursor);
+		    return (backward ? (comparison < 0) : (comparison > 0))
+			    && filter.accept(details);
+		}
+	    };
+	}
+	final Comparator<BuildDetails> pageOrder = backward ? Collections
+		.reverseOrder(order) : order;
+
+	final List<Date> months = getMonths(inclusiveStartDate,
+		inclusiveEndDate);
+	if (backward) {
+	    Collections.reverse(months);
+	}
+	// the archive files of a month may overlap each other, but never
+	// those of another month: the page is full once a month fills it
+	for (final Date month : months) {
+	    final List<BuildDetails> monthDetails = new ArrayList<BuildDetails>();
+	    readMonth(month, masterHostName, inclusiveStartDate,
+		    inclusiveEndDate, projectPattern, pageFilter, monthDetails);
+	    Collections.sort(monthDetails, pageOrder);
+	    for (final BuildDetails details : monthDetails) {
+		if (retval.size() >= maxResults) {
+		    break;
+		}
+		retval.add(details);
+	    }
+	    if (retval.size() >= maxResults) {
+		break;
+	    }
+	}
+	if (backward) {
+	    Collections.reverse(retval);
+	}
+	return retval;
+    }
+
+    /**
+     * @return the first day of each month between the given dates.
+     */
+    private static List<Date> getMonths(final Date fromDate, final Date toDate) {
+	final List<Date> retval = new ArrayList<Date>();
+	final Calendar month = Calendar.getInstance();
+	month.setTime(fromDate);
+	month.set(Calendar.DAY_OF_MONTH, 1);
+	while (!month.getTime().after(toDate)) {
+	    retval.add(month.getTime());
+	    month.add(Calendar.MONTH, 1);
+	}
+	return retval;
+    }
+
+    private void readMonth(final Date month, final String masterHostName,
+	    final Date fromDate, final Date toDate,
+	    final Pattern projectPattern, final Filter filter,
+	    final List<BuildDetails> results) throws IOException {
+	final File monthDir = new File(rootDir, getMonth(month));
+	for (final File indexFile : listIndexFiles(monthDir)) {
+	    final Properties index = loadIndex(indexFile);
+	    if (!matchesIndex(index, masterHostName, fromDate, toDate,
+		    projectPattern)) {
+		continue;
+	    }
+	    final File dataFile = new File(monthDir, indexFile.getName()
+		    .replace(INDEX_EXTENSION, DATA_EXTENSION));
+	    readDataFile(dataFile, masterHostName, fromDate, toDate, filter,
+		    results);
+	}
+    }
+
+    private File[] listIndexFiles(final File monthDir) {
+	final File[] retval = monthDir.listFiles(new FilenameFilter() {
+	    @Override
+	    public boolean accept(final File dir, final String name) {
+		return name.endsWith(INDEX_EXTENSION);
+	    }
+	});
+	if (null == retval) {
+	    return new File[0];
+	}
+	// file names are timestamped, so this is the archiving order
+	Arrays.sort(retval);
+	return retval;
+    }
+
+    private Properties loadIndex(final File indexFile) throws IOException {
+	final Properties retval = new Properties();
+	final InputStream in = new FileInputStream(indexFile);
+	try {
+	    retval.load(in);
+	} finally {
+	    in.close();
+	}
+	return retval;
+    }
+
+    private boolean matchesIndex(final Properties index,
+	    final String masterHostName, final Date fromDate,
+	    final Date toDate, final Pattern projectPattern) {
+	final long firstStart = Long.parseLong(index.getProperty(
+		INDEX_FIRST_START, "0"));
+	final long lastStart = Long.parseLong(index.getProperty(
+		INDEX_LAST_START, "0"));
+	if ((firstStart > toDate.getTime()) || (lastStart < fromDate.getTime())) {
+	    return false;
+	}
+	boolean masterMatches = false;
+	boolean projectMatches = (null == projectPattern);
+	for (final String key : index.stringPropertyNames()) {
+	    if (key.startsWith(INDEX_MASTER)) {
+		masterMatches |= index.getProperty(key).equalsIgnoreCase(
+			masterHostName);
+	    } else if (!projectMatches && key.startsWith(INDEX_PROJECT)) {
+		projectMatches = projectPattern.matcher(index.getProperty(key))
+			.matches();
+	    }
+	}
+	return masterMatches && projectMatches;
+    }
+
+    private void readDataFile(final File dataFile,
+	    final String masterHostName, final Date fromDate,
+	    final Date toDate, final Filter filter,
+	    final List<BuildDetails> results) throws IOException {
+	final DataInputStream in = new DataInputStream(new BufferedInputStream(
+		new GZIPInputStream(new FileInputStream(dataFile))));
+	try {
+	    if ((in.readInt() != FILE_MAGIC) || (in.readInt() != FILE_VERSION)) {
+		throw new IOException(
+			Messages.BuildDetailsArchive_UnknownFormat(dataFile));
+	    }
+	    while (in.readBoolean()) {
+		final BuildDetails details = readDetails(in);
+		final Date endDate = details.getEndDate();
+		if (!details.getStartDate().before(fromDate)
+			&& !details.getStartDate().after(toDate)
+			&& (endDate != null) && !endDate.after(toDate)
+			&& masterHostName.equalsIgnoreCase(
+				details.getNode().getMasterHostName())
+			&& filter.accept(details)) {
+		    results.add(details);
+		}
+	    }
+	} finally {
+	    in.close();
+	}
+    }
+
+    private static void writeString(final DataOutputStream out,
+	    final String value) throws IOException {
+	writeBytes(out, (null == value) ? null : value.getBytes("UTF-8"));
+    }
+
+    private static String readString(final DataInputStream in)
+	    throws IOException {
+	final byte[] bytes = readBytes(in);
+	return (null == bytes) ? null : new String(bytes, "UTF-8");
+    }
+
+    private static void writeBytes(final DataOutputStream out,
+	    final byte[] value) throws IOException {
+	if (null == value) {
+	    out.writeInt(-1);
+	} else {
+	    out.writeInt(value.length);
+	    out.write(value);
+	}
+    }
+
+    private static byte[] readBytes(final DataInputStream in)
+	    throws IOException {
+	final int length = in.readInt();
+	if (length < 0) {
+	    return null;
+	}
+	final byte[] retval = new byte[length];
+	in.readFully(retval);
+	return retval;
+    }
+
+    private static void writeLong(final DataOutputStream out, final Long value)
+	    throws IOException {
+	out.writeBoolean(value != null);
+	if (value != null) {
+	    out.writeLong(value.longValue());
+	}
+    }
+
+    private static Long readLong(final DataInputStream in) throws IOException {
+	return in.readBoolean() ? Long.valueOf(in.readLong()) : null;
+    }
+
+    private static void writeDetails(final DataOutputStream out,
+	    final BuildDetails details) throws IOException {
+	writeString(out, details.getId());
+	writeString(out, details.getName());
+	writeString(out, details.getFullName());
+	out.writeLong(details.getStartDate().getTime());
+	writeLong(out, (null == details.getEndDate()) ? null : Long
+		.valueOf(details.getEndDate().getTime()));
+	writeLong(out, details.getDuration());
+	writeString(out, details.getResult());
+	writeString(out, details.getUserId());
+	writeString(out, details.getUserName());
+	writeBytes(out, details.getLog());
+
+	final BuildNode node = details.getNode();
+	writeString(out, node.getMasterAddress());
+	writeString(out, node.getMasterHostName());
+	writeString(out, node.getDisplayName());
+	writeString(out, node.getUrl());
+	writeString(out, node.getName());
+	writeString(out, node.getDescription());
+	writeString(out, node.getLabel());
+
+	final List<BuildParameter> params = details.getParameters();
+	out.writeInt(params.size());
+	for (final BuildParameter param : params) {
+	    writeString(out, param.getId());
+	    writeString(out, param.getName());
+	    writeString(out, param.getValue());
+	}
+    }
+
+    private static BuildDetails readDetails(final DataInputStream in)
+	    throws IOException {
+	final BuildDetails retval = new BuildDetailsImpl();
+	retval.setId(readString(in));
+	retval.setName(readString(in));
+	retval.setFullName(readString(in));
+	retval.setStartDate(new Date(in.readLong()));
+	final Long endDate = readLong(in);
+	retval.setEndDate((null == endDate) ? null : new Date(endDate
+		.longValue()));
+	retval.setDuration(readLong(in));
+	retval.setResult(readString(in));
+	retval.setUserId(readString(in));
+	retval.setUserName(readString(in));
+	retval.setLog(readBytes(in));
+
+	final BuildNode node = new BuildNodeImpl();
+	node.setMasterAddress(readString(in));
+	node.setMasterHostName(readString(in));
+	node.setDisplayName(readString(in));
+	node.setUrl(readString(in));
+	node.setName(readString(in));
+	node.setDescription(readString(in));
+	node.setLabel(readString(in));
+	retval.setNode(node);
+
+	final int paramCount = in.readInt();
+	final List<BuildParameter> params = new ArrayList<BuildParameter>(
+		paramCount);
+	for (int i = 0; i < paramCount; i++) {
+	    params.add(new BuildParameterImpl(readString(in), readString(in),
+		    readString(in), retval));
+	}
+	retval.setParameters(params);
+	return retval;
+    }
+
+    /**
+     * Writes a single archive file. The file only becomes visible to queries
+     * once the writer is successfully closed.
+     */
+    public final class Writer {
+	private final String month;
+	private final File dataFile;
+	private final File tempFile;
+	private final DataOutputStream out;
+
+	private long count;
+	private long firstStartDate = Long.MAX_VALUE;
+	private long lastStartDate = Long.MIN_VALUE;
+	private final Set<String> masters = new TreeSet<String>();
+	private final Set<String> projects = new TreeSet<String>();
+
+	private Writer(final String month, final File dataFile)
+		throws IOException {
+	    this.month = month;
+	    this.dataFile = dataFile;
+	    this.tempFile = new File(dataFile.getPath() + TEMP_EXTENSION);
+	    this.out = new DataOutputStream(new BufferedOutputStream(
+		    new GZIPOutputStream(new FileOutputStream(tempFile))));
+	    out.writeInt(FILE_MAGIC);
+	    out.writeInt(FILE_VERSION);
+	}
+
+	/**
+	 * @return <code>true</code> if the given build details belong to the
+	 *         month of this archive file.
+	 */
+	public boolean accepts(final BuildDetails details) {
+	    return month.equals(getMonth(details.getStartDate()));
+	}
+
+	public void write(final BuildDetails details) throws IOException {
+	    if (!accepts(details)) {
+		throw new IllegalArgumentException(
+			Messages.BuildDetailsArchive_WrongMonth(details, month));
+	    }
+	    out.writeBoolean(true);
+	    writeDetails(out, details);
+
+	    count++;
+	    firstStartDate = Math.min(firstStartDate, details.getStartDate()
+		    .getTime());
+	    lastStartDate = Math.max(lastStartDate, details.getStartDate()
+		    .getTime());
+	    masters.add(details.getNode().getMasterHostName());
+	    projects.add(details.getName());
+	}
+
+	/**
+	 * Completes the archive file and its index.
+	 *
+	 * @throws IOException
+	 *             if either file cannot be written; the partial files are
+	 *             removed.
+	 */
+	public void close() throws IOException {
+	    boolean completed = false;
+	    try {
+		out.writeBoolean(false);
+		out.close();
+
+		final Properties index = new Properties();
+		index.setProperty(INDEX_COUNT, String.valueOf(count));
+		index.setProperty(INDEX_FIRST_START,
+			String.valueOf(firstStartDate));
+		index.setProperty(INDEX_LAST_START,
+			String.valueOf(lastStartDate));
+		int i = 0;
+		for (final String master : masters) {
+		    index.setProperty(INDEX_MASTER + i++, master);
+		}
+		i = 0;
+		for (final String project : projects) {
+		    index.setProperty(INDEX_PROJECT + i++, project);
+		}
+
+		final File indexFile = new File(dataFile.getPath().replace(
+			DATA_EXTENSION, INDEX_EXTENSION));
+		final File tempIndexFile = new File(indexFile.getPath()
+			+ TEMP_EXTENSION);
+		final OutputStream indexOut = new FileOutputStream(
+			tempIndexFile);
+		try {
+		    index.store(indexOut, null);
+		} finally {
+		    indexOut.close();
+		}
+
+		// the index is renamed last: queries ignore data files
+		// without an index, so they never see a partial file
+		if (!tempFile.renameTo(dataFile)
+			|| !tempIndexFile.renameTo(indexFile)) {
+		    throw new IOException(
+			    Messages.BuildDetailsArchive_CannotRename(dataFile));
+		}
+		completed = true;
+	    } finally {
+		if (!completed) {
+		    abort();
+		}
+	    }
+	}
+
+	/**
+	 * Discards the archive file.
+	 */
+	public void abort() {
+	    try {
+		out.close();
+	    } catch (final IOException e) {
+		LOGGER.log(Level.FINE, e.getMessage(), e);
+	    }
+	    for (final File file : new File[] { tempFile, dataFile,
+		    new File(dataFile.getPath().replace(DATA_EXTENSION,
+			    INDEX_EXTENSION) + TEMP_EXTENSION) }) {
+		if (file.exists() && !file.delete()) {
+		    LOGGER.log(Level.WARNING,
+			    Messages.BuildDetailsArchive_CannotDelete(file));
+		}
+	    }
+	}
+    }
+}
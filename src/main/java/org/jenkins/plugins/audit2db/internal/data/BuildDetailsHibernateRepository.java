@@ -4,25 +4,66 @@
 package org.jenkins.plugins.audit2db.internal.data;
 
 import hudson.model.AbstractBuild;
+import hudson.model.Result;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.hibernate.Criteria;
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
+import org.hibernate.LockOptions;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Settings;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
-import org.hibernate.criterion.MatchMode;
+import org.hibernate.criterion.Projection;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Property;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.jdbc.Work;
+import org.jenkins.plugins.audit2db.data.BuildDetailsHandler;
 import org.jenkins.plugins.audit2db.data.BuildDetailsRepository;
+import org.jenkins.plugins.audit2db.data.ReportLimitExceededException;
+import org.jenkins.plugins.audit2db.data.TimeBucket;
+import org.jenkins.plugins.audit2db.internal.DbAuditUtil;
+import org.jenkins.plugins.audit2db.internal.model.BuildDailySummaryImpl;
 import org.jenkins.plugins.audit2db.internal.model.BuildDetailsImpl;
 import org.jenkins.plugins.audit2db.internal.model.BuildNodeImpl;
+import org.jenkins.plugins.audit2db.internal.model.BuildParameterImpl;
+import org.jenkins.plugins.audit2db.internal.model.BuildThroughputImpl;
+import org.jenkins.plugins.audit2db.internal.model.ReadOnlyBuildDetails;
 import org.jenkins.plugins.audit2db.model.BuildDetails;
 import org.jenkins.plugins.audit2db.model.BuildNode;
+import org.jenkins.plugins.audit2db.model.BuildSummary;
+import org.jenkins.plugins.audit2db.model.BuildThroughput;
+import org.jenkins.plugins.audit2db.model.NodeUtilization;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Hibernate-based implementation of the {@link BuildDetailsRepository}
@@ -34,13 +75,79 @@ import org.springframework.transaction.TransactionStatus;
 public class BuildDetailsHibernateRepository extends
 	AbstractHibernateRepository implements BuildDetailsRepository {
 
+    /**
+     * The maximum number of build details whose parameters are read with a
+     * single query.
+     */
+    private final static int PARAMETERS_BATCH_SIZE = 500;
+
+    /**
+     * The number of rows fetched from the database at a time when streaming
+     * build details.
+     */
+    private final static int STREAM_FETCH_SIZE = 500;
+
     private final static Logger LOGGER = Logger
 	    .getLogger(BuildDetailsHibernateRepository.class.getName());
 
+    /**
+     * The number of times a transaction writing daily summaries is run when
+     * another one (possibly on another Jenkins master) created the same
+     * summary row first.
+     */
+    private final static int SUMMARY_ATTEMPTS = 3;
+
+    /**
+     * SQL states reported by the JDBC drivers for a query cancelled by its
+     * timeout, when they do not throw a {@link SQLTimeoutException}.
+     */
+    private final static Set<String> TIMEOUT_SQL_STATES = new HashSet<String>(
+	    Arrays.asList("57014", "HYT00", "HYT01", "70100"));
+
+    /**
+     * The minimum time between two reads of the schema version, while the
+     * schema is not up to date.
+     */
+    private final static long SCHEMA_CHECK_MILLIS = 60000;
+
+    /**
+     * Number of hours a build may run for, or 0 for no limit. Only the
+     * builds started within this age before a date range are read for it:
+     * builds without an end date that started earlier were abandoned, for
+     * instance by a restart of Jenkins, and no finished build ran longer.
+     */
+    private final static int MAX_BUILD_AGE_HOURS = Integer.getInteger(
+	    BuildDetailsHibernateRepository.class.getName()
+		    + ".maxBuildAgeHours", 168);
+
+    private volatile int maxBuildAgeHours = MAX_BUILD_AGE_HOURS;
+    private volatile int queryTimeout;
+    private volatile int schemaVersion;
+    private volatile long schemaCheckedAt;
+    private volatile int maxRows;
+
     public BuildDetailsHibernateRepository(final SessionFactory sessionFactory) {
 	super(sessionFactory);
     }
 
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#setQueryLimits(int, int)
+     */
+    @Override
+    public void setQueryLimits(final int timeoutSeconds, final int maxRows) {
+	this.queryTimeout = Math.max(0, timeoutSeconds);
+	this.maxRows = Math.max(0, maxRows);
+    }
+
+    /**
+     * Sets the number of hours a build may run for, or 0 for no limit. Only
+     * the builds started within this age before a date range are read for
+     * the range.
+     */
+    public void setMaxBuildAge(final int hours) {
+	this.maxBuildAgeHours = Math.max(0, hours);
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getBuildNodeByUrl(String)
      */
@@ -54,7 +161,7 @@ public class BuildDetailsHibernateRepository extends
 
 	final DetachedCriteria criteria = DetachedCriteria
 		.forClass(BuildNodeImpl.class);
-	criteria.add(Restrictions.eq("url", url).ignoreCase());
+	criteria.add(eqIgnoringCase("url", url));
 
 	try {
 	    @SuppressWarnings("unchecked")
@@ -78,6 +185,7 @@ public class BuildDetailsHibernateRepository extends
 	    throw new IllegalArgumentException(
 		    "Invalid build details: cannot be null.");
 	}
+	checkSchemaUpToDate();
 
 	// check if the build node details are already persisted
 	final String url = details.getNode().getUrl();
@@ -86,7 +194,19 @@ public class BuildDetailsHibernateRepository extends
 	    details.setNode(node);
 	}
 
-	return getHibernateTemplate().save(details);
+	// the build details and their daily summary are written together
+	final Object retval = executeWithSummaries(new HibernateCallback<Object>() {
+	    @Override
+	    public Object doInHibernate(final Session session) {
+		final Object id = session.save(details);
+		if (details.getEndDate() != null) {
+		    addToDailySummary(session, details);
+		}
+		return id;
+	    }
+	});
+	invalidateReports(details);
+	return retval;
     }
 
     /**
@@ -113,6 +233,81 @@ public class BuildDetailsHibernateRepository extends
 	}
     }
 
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#saveNewBuildDetails(List)
+     */
+    @Override
+    public int saveNewBuildDetails(final List<BuildDetails> details) {
+	if (null == details) {
+	    throw new IllegalArgumentException(
+		    "Invalid build details: cannot be null.");
+	}
+	if (details.isEmpty()) {
+	    return 0;
+	}
+	checkSchemaUpToDate();
+
+	// build details saved meanwhile are skipped when the transaction is
+	// run again
+	final int retval = executeWithSummaries(new HibernateCallback<Integer>() {
+	    @Override
+	    public Integer doInHibernate(final Session session) {
+		return saveNewBuildDetails(session, details);
+	    }
+	});
+	for (final BuildDetails detail : details) {
+	    invalidateReports(detail);
+	}
+	return retval;
+    }
+
+    private int saveNewBuildDetails(final Session session,
+	    final List<BuildDetails> details) {
+	final List<String> ids = new ArrayList<String>(details.size());
+	for (final BuildDetails detail : details) {
+	    ids.add(detail.getId());
+	}
+	@SuppressWarnings("unchecked")
+	final Set<String> existingIds = new HashSet<String>(session
+		.createQuery(String.format(
+			"select id from %s where id in (:ids)",
+			BuildDetailsImpl.class.getName()))
+		.setParameterList("ids", ids).list());
+
+	// most build details in a batch share a handful of nodes:
+	// look each of them up only once
+	final Map<String, BuildNode> nodes = new HashMap<String, BuildNode>();
+	int retval = 0;
+	for (final BuildDetails detail : details) {
+	    if (existingIds.contains(detail.getId())) {
+		continue;
+	    }
+	    final String url = detail.getNode().getUrl();
+	    final String key = url.toUpperCase();
+	    BuildNode node = nodes.get(key);
+	    if (null == node) {
+		node = (BuildNode) session.createCriteria(BuildNodeImpl.class)
+			.add(eqIgnoringCase("url", url))
+			.setMaxResults(1).uniqueResult();
+		if (null == node) {
+		    node = detail.getNode();
+		}
+		nodes.put(key, node);
+	    }
+	    detail.setNode(node);
+	    session.save(detail);
+	    if (detail.getEndDate() != null) {
+		addToDailySummary(session, detail);
+	    }
+	    retval++;
+	}
+
+	// write everything in JDBC batches now, and release the entities
+	session.flush();
+	session.clear();
+	return retval;
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getBuildDetailsById(String)
      */
@@ -129,7 +324,7 @@ public class BuildDetailsHibernateRepository extends
     public List<BuildDetails> getBuildDetailsByName(final String name) {
 	final DetachedCriteria criteria = DetachedCriteria
 		.forClass(BuildDetails.class);
-	criteria.add(Restrictions.ilike("name", name, MatchMode.EXACT));
+	criteria.add(eqIgnoringCase("name", name));
 	return getHibernateTemplate().findByCriteria(criteria);
     }
 
@@ -141,12 +336,19 @@ public class BuildDetailsHibernateRepository extends
     public List<BuildDetails> getBuildDetailsByFullName(final String fullName) {
 	final DetachedCriteria criteria = DetachedCriteria
 		.forClass(BuildDetails.class);
-	criteria.add(
-		Restrictions.ilike("fullName", fullName, MatchMode.EXACT));
+	criteria.add(eqIgnoringCase("fullName", fullName));
 	return getHibernateTemplate().findByCriteria(criteria);
     }
 
     /**
+     * A build overlaps the range when it starts before the range ends and
+     * ends (or is still running) after the range starts. Ranges are mostly
+     * recent, so few builds end after the range starts: the end date leads
+     * IDX_JBD_OVERLAP, which the database range scans for both branches of
+     * the end date condition, checking the start date from the index. Only
+     * the builds started within the maximum build age before the range are
+     * read, running or finished.
+     *
      * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getBuildDetailsByDateRange(java.util.Date,
      *      java.util.Date)
      */
@@ -157,25 +359,38 @@ public class BuildDetailsHibernateRepository extends
 	final DetachedCriteria criteria = DetachedCriteria
 		.forClass(BuildDetails.class);
 
-	// we need this funny-looking complex criteria because the
-	// semantics of the 'between' criteria can vary across
-	// db providers and we want a predictable inclusive behaviour.
+	criteria.add(getOverlapRestriction(start, end));
+	return getHibernateTemplate().findByCriteria(criteria);
+    }
+
+    /**
+     * Matches the builds running at any time within a date range: those
+     * starting before it ends, and either ending after it starts or still
+     * running. Only the builds started within the maximum build age before
+     * the range are matched.
+     */
+    private Criterion getOverlapRestriction(final Date start, final Date end) {
+	// we need to specifically state <= and >= because the "between"
+	// semantics vary between database implementations and we want
+	// an inclusive filter every time
 	final Date inclusiveStartDate = getInclusiveStartDate(start);
 	final Date inclusiveEndDate = getInclusiveEndDate(end);
-	criteria.add(
-		Restrictions.or(
-			Restrictions.and(
-                		Restrictions.ge("startDate", inclusiveStartDate),
-                		Restrictions.le("startDate", inclusiveEndDate)),
-                	Restrictions.and(
-                		Restrictions.ge("endDate", inclusiveStartDate),
-                		Restrictions.le("endDate", inclusiveEndDate))
-                )
-        );
-	return getHibernateTemplate().findByCriteria(criteria);
+	// the end date comes first so that the database picks the overlap
+	// index; the bounds on the start date also let a partitioned table
+	// skip all the partitions before and after them
+	final Criterion retval = Restrictions.and(Restrictions.or(
+		Restrictions.ge("endDate", inclusiveStartDate),
+		Restrictions.isNull("endDate")),
+		Restrictions.le("startDate", inclusiveEndDate));
+	if (maxBuildAgeHours <= 0) {
+	    return retval;
+	}
+	return Restrictions.and(retval, Restrictions.ge("startDate",
+		new Date(inclusiveStartDate.getTime()
+			- (maxBuildAgeHours * 3600000L))));
     }
 
-    private Date getInclusiveEndDate(final Date end) {
+    static Date getInclusiveEndDate(final Date end) {
 	final Calendar inclusiveEndDate = Calendar.getInstance();
 	inclusiveEndDate.setTime(end);
 	inclusiveEndDate.set(Calendar.HOUR_OF_DAY, 23);
@@ -185,7 +400,163 @@ public class BuildDetailsHibernateRepository extends
 	return inclusiveEndDate.getTime();
     }
 
-    private Date getInclusiveStartDate(final Date start) {
+    /**
+     * Restricts the start date on both sides. Builds ending within a date
+     * range must also start before its end, so the upper bound does not
+     * change the results, but it lets the database use a range scan on the
+     * start date (or skip the unrelated partitions, if the table is
+     * partitioned) rather than scanning up to the end of the history.
+     */
+    private Criterion getStartDateRestriction(final Date fromDate,
+	    final Date toDate) {
+	return Restrictions.and(
+		Restrictions.ge("startDate", getInclusiveStartDate(fromDate)),
+		Restrictions.le("startDate", getInclusiveEndDate(toDate)));
+    }
+
+    /**
+     * Matches a text ignoring its case, on the lower case copy of the
+     * property stored on write: the database can seek the index of the copy,
+     * rather than compare lower(property) on every row. While the schema
+     * migration is still populating the copies, the property itself is
+     * compared on the rows without one.
+     *
+     * @param property
+     *            the property, whose copy is named with a "lower" prefix.
+     */
+    private Criterion eqIgnoringCase(final String property,
+	    final String value) {
+	final String lowerProperty = getLowerProperty(property);
+	final Criterion retval = Restrictions.eq(lowerProperty,
+		DbAuditUtil.toLowerCase(value));
+	if (isLowerCaseComplete()) {
+	    return retval;
+	}
+	// the rows not backfilled yet only have the original text
+	return Restrictions.or(retval, Restrictions.and(
+		Restrictions.isNull(lowerProperty),
+		Restrictions.eq(property, value).ignoreCase()));
+    }
+
+    /**
+     * Matches a like pattern ignoring its case, on the lower case copy of
+     * the property. Patterns without wildcards are matched for equality, and
+     * the others can still seek the index up to their first wildcard.
+     *
+     * @param property
+     *            the property, whose copy is named with a "lower" prefix.
+     */
+    private Criterion likeIgnoringCase(final String property,
+	    final String pattern) {
+	if ((null == pattern)
+		|| ((pattern.indexOf('%') < 0) && (pattern.indexOf('_') < 0))) {
+	    return eqIgnoringCase(property, pattern);
+	}
+	final String lowerProperty = getLowerProperty(property);
+	final Criterion retval = Restrictions.like(lowerProperty,
+		DbAuditUtil.toLowerCase(pattern));
+	if (isLowerCaseComplete()) {
+	    return retval;
+	}
+	return Restrictions.or(retval, Restrictions.and(
+		Restrictions.isNull(lowerProperty),
+		Restrictions.ilike(property, pattern)));
+    }
+
+    /**
+     * @return the lower case copy of the given property, possibly prefixed
+     *         by an alias.
+     */
+    private static String getLowerProperty(final String property) {
+	final int start = property.lastIndexOf('.') + 1;
+	return property.substring(0, start) + "lower"
+		+ Character.toUpperCase(property.charAt(start))
+		+ property.substring(start + 1);
+    }
+
+    /**
+     * Tells whether the schema migration has populated the lower case copies
+     * of the names of the rows recorded before they were added. The copies
+     * are mapped, so the entities cannot be read at all before the migration
+     * has added them: the fallback only covers the rows recorded before, while
+     * the migration populates them and then indexes them.
+     */
+    private boolean isLowerCaseComplete() {
+	try {
+	    return getSchemaVersion() >= SchemaMigrations.LOWER_CASE_VERSION;
+	} catch (final RuntimeException e) {
+	    // the fallback is always correct, only slower
+	    LOGGER.log(Level.WARNING, e.getMessage(), e);
+	    return false;
+	}
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#isSchemaUpToDate()
+     */
+    @Override
+    public boolean isSchemaUpToDate() {
+	return getSchemaVersion() >= SchemaMigrator.getLatestSchemaVersion();
+    }
+
+    /**
+     * Refuses to write while the schema is not up to date: the mappings name
+     * tables and columns that the schema migration has not created yet.
+     *
+     * @throws IllegalStateException
+     *             if the schema is not up to date.
+     */
+    private void checkSchemaUpToDate() {
+	if (!isSchemaUpToDate()) {
+	    throw new IllegalStateException(
+		    Messages.BuildDetailsHibernateRepository_SchemaNotUpToDate(
+			    getSchemaVersion(),
+			    SchemaMigrator.getLatestSchemaVersion()));
+	}
+    }
+
+    /**
+     * Reads the version of the schema, at most once a minute until it is up
+     * to date. A schema that Hibernate creates or updates from the mappings
+     * is up to date without a recorded version.
+     *
+     * @throws org.springframework.dao.DataAccessException
+     *             if the version cannot be read.
+     */
+    private int getSchemaVersion() {
+	final int latestVersion = SchemaMigrator.getLatestSchemaVersion();
+	final long now = System.currentTimeMillis();
+	if ((schemaVersion < latestVersion)
+		&& ((now - schemaCheckedAt) >= SCHEMA_CHECK_MILLIS)) {
+	    final Settings settings = ((SessionFactoryImplementor) getSessionFactory())
+		    .getSettings();
+	    if (settings.isAutoCreateSchema() || settings.isAutoUpdateSchema()) {
+		schemaVersion = latestVersion;
+	    } else {
+		schemaVersion = getHibernateTemplate().execute(
+			new HibernateCallback<Integer>() {
+			    @Override
+			    public Integer doInHibernate(final Session session) {
+				final int[] retval = new int[1];
+				session.doWork(new Work() {
+				    @Override
+				    public void execute(
+					    final Connection connection)
+					    throws SQLException {
+					retval[0] = SchemaMigrator
+						.getSchemaVersion(connection);
+				    }
+				});
+				return retval[0];
+			    }
+			});
+	    }
+	    schemaCheckedAt = now;
+	}
+	return schemaVersion;
+    }
+
+    static Date getInclusiveStartDate(final Date start) {
 	final Calendar inclusiveStartDate = Calendar.getInstance();
 	inclusiveStartDate.setTime(start);
 	inclusiveStartDate.set(Calendar.HOUR_OF_DAY, 0);
@@ -224,7 +595,7 @@ public class BuildDetailsHibernateRepository extends
     public List<BuildDetails> getBuildDetailsByUserId(final String userId) {
 	final DetachedCriteria criteria = DetachedCriteria
 		.forClass(BuildDetails.class);
-	criteria.add(Restrictions.ilike("userId", userId, MatchMode.EXACT));
+	criteria.add(eqIgnoringCase("userId", userId));
 	return getHibernateTemplate().findByCriteria(criteria);
     }
 
@@ -236,7 +607,7 @@ public class BuildDetailsHibernateRepository extends
     public List<BuildDetails> getBuildDetailsByUserName(final String userName) {
 	final DetachedCriteria criteria = DetachedCriteria
 		.forClass(BuildDetails.class);
-	criteria.add(Restrictions.ilike("userName", userName, MatchMode.EXACT));
+	criteria.add(eqIgnoringCase("userName", userName));
 	return getHibernateTemplate().findByCriteria(criteria);
     }
 
@@ -250,40 +621,76 @@ public class BuildDetailsHibernateRepository extends
 	    final String paramName, final String paramValue,
 	    final Date fromDate, final Date toDate) {
 
+	final DetachedCriteria criteria = getParamsCriteria(masterHostName,
+		paramName, paramValue, fromDate, toDate)
+		.addOrder(Property.forName("startDate").asc());
+
+	final List<BuildDetails> retval = new ArrayList<BuildDetails>();
+	try {
+	    final List<BuildDetails> buildDetails = findReadOnly(criteria, 0);
+	    if ((buildDetails != null) && !buildDetails.isEmpty()) {
+		retval.addAll(buildDetails);
+	    }
+	} catch (final ReportLimitExceededException e) {
+	    throw e;
+	} catch (final Throwable t) {
+	    LOGGER.log(Level.SEVERE, t.getMessage(), t);
+	}
+
+	return retval;
+    }
+
+    private DetachedCriteria getParamsCriteria(final String masterHostName,
+	    final String paramName, final String paramValue,
+	    final Date fromDate, final Date toDate) {
 	// we need to specifically state >=startdate AND <=enddate
 	// because the "between" semantics vary between database
 	// implementations and we want to use an inclusive filter every time
 	final DetachedCriteria criteria = DetachedCriteria
 		.forClass(BuildDetails.class)
 		.createAlias("node", "node")
-		.add(Restrictions.eq("node.masterHostName", masterHostName))
-		.add(Restrictions.and(
-			Restrictions.ge("startDate", getInclusiveStartDate(fromDate)),
-			Restrictions.le("endDate", getInclusiveEndDate(toDate))))
-		.addOrder(Property.forName("startDate").asc());
+		.add(eqIgnoringCase("node.masterHostName", masterHostName))
+		.add(getStartDateRestriction(fromDate, toDate))
+		.add(Restrictions.le("endDate", getInclusiveEndDate(toDate)));
 
 	if ((null == paramName) || paramName.isEmpty()) {
 	    criteria.add(Restrictions.isEmpty("parameters"));
 	} else {
 	    criteria.createAlias("parameters", "param")
 	    	.add(Restrictions.and(
-		    Restrictions.ilike("param.name", paramName),
-		    Restrictions.ilike("param.value", paramValue)
+		    likeIgnoringCase("param.name", paramName),
+		    likeIgnoringCase("param.value", paramValue)
 	    ));
 	}
+	return criteria;
+    }
 
-	final List<BuildDetails> retval = new ArrayList<BuildDetails>();
-	try {
-	    final List<BuildDetails> buildDetails = getHibernateTemplate()
-		    .findByCriteria(criteria);
-	    if ((buildDetails != null) && !buildDetails.isEmpty()) {
-		retval.addAll(buildDetails);
-	    }
-	} catch (final Throwable t) {
-	    LOGGER.log(Level.SEVERE, t.getMessage(), t);
-	}
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getBuildDetailsByParamsPage(String, String, String, Date, Date, BuildDetails, boolean, int)
+     */
+    @Override
+    public List<BuildDetails> getBuildDetailsByParamsPage(
+	    final String masterHostName, final String paramName,
+	    final String paramValue, final Date fromDate, final Date toDate,
+	    final BuildDetails cursor, final boolean backward,
+	    final int maxResults) {
+	return findPage(getParamsCriteria(masterHostName, paramName,
+		paramValue, fromDate, toDate), cursor, backward, maxResults);
+    }
 
-	return retval;
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#streamBuildDetailsByParams(String, String, String, Date, Date, BuildDetailsHandler)
+     */
+    @Override
+    public void streamBuildDetailsByParams(final String masterHostName,
+	    final String paramName, final String paramValue,
+	    final Date fromDate, final Date toDate,
+	    final BuildDetailsHandler handler) {
+	streamReadOnly(getParamsCriteria(masterHostName, paramName,
+		paramValue, fromDate, toDate)
+		.addOrder(Property.forName("name").asc())
+		.addOrder(Property.forName("startDate").asc())
+		.addOrder(Property.forName("id").asc()), true, 0, handler);
     }
 
     /**
@@ -295,7 +702,91 @@ public class BuildDetailsHibernateRepository extends
 	    throw new IllegalArgumentException(
 		    "Invalid build details: cannot be null.");
 	}
-	getHibernateTemplate().update(details);
+	checkSchemaUpToDate();
+
+	// the build is added to its daily summary when it finishes, in the
+	// same transaction as the update, so the two never disagree
+	executeWithSummaries(new HibernateCallback<Object>() {
+	    @Override
+	    public Object doInHibernate(final Session session) {
+		final Object previousEndDate = session
+			.createQuery(String.format(
+				"select endDate from %s where id = :id",
+				BuildDetailsImpl.class.getName()))
+			.setParameter("id", details.getId())
+			.uniqueResult();
+		session.update(details);
+		if ((null == previousEndDate) && (details.getEndDate() != null)) {
+		    addToDailySummary(session, details);
+		}
+		return null;
+	    }
+	});
+	invalidateReports(details);
+    }
+
+    /**
+     * Runs the given callback in a transaction writing daily summaries. The
+     * summary rows are locked one at a time, so that only the builds adding
+     * to the same summary wait for each other. When two transactions create
+     * the same summary row together, the one failing on the unique key is
+     * rolled back and run again, and then adds to the row created by the
+     * other.
+     */
+    private <T> T executeWithSummaries(final HibernateCallback<T> callback) {
+	for (int attempt = 1;; attempt++) {
+	    final TransactionStatus tx = getTransactionManager()
+		    .getTransaction(null);
+	    try {
+		final T retval = getHibernateTemplate().execute(callback);
+		getTransactionManager().commit(tx);
+		return retval;
+	    } catch (final DataIntegrityViolationException e) {
+		final boolean retry = tx.isNewTransaction()
+			&& (attempt < SUMMARY_ATTEMPTS);
+		if (!tx.isCompleted()) {
+		    getTransactionManager().rollback(tx);
+		}
+		if (!retry) {
+		    throw e;
+		}
+		LOGGER.log(Level.FINE, String.format(
+			"Retrying a daily build summary update (attempt %d): %s",
+			attempt + 1, e.getMessage()));
+	    } catch (final RuntimeException e) {
+		if (!tx.isCompleted()) {
+		    getTransactionManager().rollback(tx);
+		}
+		throw e;
+	    }
+	}
+    }
+
+    /**
+     * Adds a finished build to the summary of the day it started on. The
+     * summary row is read with <code>select ... for update</code>, and a new
+     * one is written right away, so that a concurrent creation of the same
+     * row fails here on its unique key.
+     *
+     * @see #executeWithSummaries(HibernateCallback)
+     */
+    private static void addToDailySummary(final Session session,
+	    final BuildDetails details) {
+	final String masterHostName = details.getNode().getMasterHostName();
+	final Date buildDay = getInclusiveStartDate(details.getStartDate());
+	final long duration = (details.getDuration() != null) ? details
+		.getDuration() : 0;
+	final BuildDailySummaryImpl summary = (BuildDailySummaryImpl) session
+		.get(BuildDailySummaryImpl.class, BuildDailySummaryImpl.getId(
+			masterHostName, details.getName(), buildDay,
+			details.getResult()), LockOptions.UPGRADE);
+	if (null == summary) {
+	    session.save(new BuildDailySummaryImpl(masterHostName, details
+		    .getName(), buildDay, details.getResult(), duration));
+	    session.flush();
+	} else {
+	    summary.add(duration);
+	}
     }
 
     /**
@@ -325,30 +816,27 @@ public class BuildDetailsHibernateRepository extends
 
 	DetachedCriteria criteria = DetachedCriteria
 		.forClass(BuildDetails.class)
-		.add(Restrictions.and(
-			Restrictions.ge("startDate", getInclusiveStartDate(fromDate)),
-			Restrictions.le("endDate", getInclusiveEndDate(toDate))
-		));
+		.add(getStartDateRestriction(fromDate, toDate))
+		.add(Restrictions.le("endDate", getInclusiveEndDate(toDate)));
 
 	if ((pattern != null) && !pattern.isEmpty()
 		&& !pattern.trim().equals("%")) {
-	    criteria = criteria.add(Restrictions.ilike("name", pattern));
+	    criteria = criteria.add(likeIgnoringCase("name", pattern));
 	}
 
-	criteria = criteria.createCriteria("node").add(
-		Restrictions.ilike("masterHostName", masterHostName));
+	// only the distinct names are read, never the build details: without
+	// a name pattern, the whole query can be answered from IDX_JBD_PROJECTS
+	criteria = criteria.createAlias("node", "node")
+		.add(eqIgnoringCase("node.masterHostName", masterHostName))
+		.setProjection(Projections.distinct(Projections.property("name")))
+		.addOrder(Property.forName("name").asc());
 
 	try {
 	    @SuppressWarnings("unchecked")
-	    final List<BuildDetails> buildDetails = getHibernateTemplate()
+	    final List<String> projectNames = getHibernateTemplate()
 		    .findByCriteria(criteria);
-	    if ((buildDetails != null) && !buildDetails.isEmpty()) {
-		for (final BuildDetails detail : buildDetails) {
-		    final String projectName = detail.getName();
-		    if (!retval.contains(projectName)) {
-			retval.add(projectName);
-		    }
-		}
+	    if (projectNames != null) {
+		retval.addAll(projectNames);
 	    }
 	} catch (final Throwable t) {
 	    LOGGER.log(Level.SEVERE, t.getMessage(), t);
@@ -363,6 +851,352 @@ public class BuildDetailsHibernateRepository extends
 	return getBuildDetails(masterHostName, null, fromDate, toDate);
     }
 
+    /**
+     * Reads all the matching build details at once, ordered by project name
+     * and then start date, so that they can be split into per-project lists
+     * in a single pass rather than with one query per project.
+     */
+    @Override
+    public Map<String, List<BuildDetails>> getBuildDetailsByProject(
+	    final String masterHostName, final String pattern,
+	    final Date fromDate, final Date toDate) {
+	final Map<String, List<BuildDetails>> retval = new LinkedHashMap<String, List<BuildDetails>>();
+
+	final DetachedCriteria criteria = getProjectCriteria(masterHostName,
+		pattern, fromDate, toDate)
+		.addOrder(Property.forName("name").asc())
+		.addOrder(Property.forName("startDate").asc())
+		.addOrder(Property.forName("id").asc());
+
+	try {
+	    final List<BuildDetails> buildDetails = findReadOnly(criteria, 0);
+	    if (buildDetails != null) {
+		String projectName = null;
+		List<BuildDetails> projectExecutions = null;
+		for (final BuildDetails details : buildDetails) {
+		    if ((null == projectExecutions)
+			    || !details.getName().equals(projectName)) {
+			projectName = details.getName();
+			projectExecutions = new ArrayList<BuildDetails>();
+			retval.put(projectName, projectExecutions);
+		    }
+		    projectExecutions.add(details);
+		}
+	    }
+	} catch (final ReportLimitExceededException e) {
+	    throw e;
+	} catch (final Throwable t) {
+	    LOGGER.log(Level.SEVERE, t.getMessage(), t);
+	}
+
+	return retval;
+    }
+
+    private DetachedCriteria getProjectCriteria(final String masterHostName,
+	    final String pattern, final Date fromDate, final Date toDate) {
+	final DetachedCriteria criteria = DetachedCriteria
+		.forClass(BuildDetails.class)
+		.add(getStartDateRestriction(fromDate, toDate))
+		.add(Restrictions.le("endDate", getInclusiveEndDate(toDate)));
+
+	if ((pattern != null) && !pattern.isEmpty()
+		&& !pattern.trim().equals("%")) {
+	    criteria.add(likeIgnoringCase("name", pattern));
+	}
+
+	return criteria.createAlias("node", "node")
+		.add(eqIgnoringCase("node.masterHostName", masterHostName));
+    }
+
+    /**
+     * Reads only the requested number of build details: the database orders
+     * them by duration and stops there, walking IDX_JBD_DURATION backwards
+     * and checking the start date from the index itself.
+     *
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getSlowestBuildDetails(String, String, String, String, Date, Date, int)
+     */
+    @Override
+    public List<BuildDetails> getSlowestBuildDetails(
+	    final String masterHostName, final String pattern,
+	    final String nodeName, final String result, final Date fromDate,
+	    final Date toDate, final int maxResults) {
+	if (maxResults <= 0) {
+	    throw new IllegalArgumentException(
+		    "Invalid maximum number of results: must be positive.");
+	}
+
+	final DetachedCriteria criteria = getProjectCriteria(masterHostName,
+		pattern, fromDate, toDate)
+		.add(Restrictions.isNotNull("duration"));
+	if ((nodeName != null) && !nodeName.trim().isEmpty()) {
+	    criteria.add(Restrictions.or(
+		    likeIgnoringCase("node.name", nodeName.trim()),
+		    likeIgnoringCase("node.displayName", nodeName.trim())));
+	}
+	if ((result != null) && !result.trim().isEmpty()) {
+	    // the results are stored as the upper case names of the Jenkins
+	    // results, so there is no need for a lower case copy
+	    criteria.add(Restrictions.eq("result",
+		    result.trim().toUpperCase(Locale.ENGLISH)));
+	}
+	// same order as the index, so that no sort is needed
+	criteria.addOrder(Property.forName("duration").desc())
+		.addOrder(Property.forName("startDate").desc());
+
+	try {
+	    return findReadOnly(criteria, maxResults);
+	} catch (final ReportLimitExceededException e) {
+	    throw e;
+	} catch (final Throwable t) {
+	    LOGGER.log(Level.SEVERE, t.getMessage(), t);
+	}
+	return new ArrayList<BuildDetails>();
+    }
+
+    /**
+     * Minute and hour buckets are grouped on the bucket columns stored with
+     * the build details, which IDX_JBD_BUCKETS covers together with the
+     * result, so that no build row is read. Day buckets are read from the
+     * daily summaries instead.
+     *
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getBuildThroughput(String, TimeBucket, Date, Date)
+     */
+    @Override
+    public List<BuildThroughput> getBuildThroughput(
+	    final String masterHostName, final TimeBucket bucket,
+	    final Date fromDate, final Date toDate) {
+	if (bucket.countBuckets(fromDate, toDate) > TimeBucket.MAX_BUCKETS) {
+	    throw new IllegalArgumentException(String.format(
+		    "Too many time buckets: at most %d can be reported.",
+		    TimeBucket.MAX_BUCKETS));
+	}
+	final long firstBucket = bucket.getBucket(getInclusiveStartDate(fromDate));
+	final long lastBucket = bucket.getBucket(getInclusiveEndDate(toDate));
+
+	final List<BuildThroughput> retval = new ArrayList<BuildThroughput>();
+	for (long index = firstBucket; index <= lastBucket; index++) {
+	    retval.add(new BuildThroughputImpl(bucket.getStartDate(index)));
+	}
+
+	final DetachedCriteria criteria;
+	final String bucketProperty;
+	final String countProperty;
+	if (TimeBucket.DAY == bucket) {
+	    bucketProperty = "buildDay";
+	    countProperty = "buildCount";
+	    criteria = DetachedCriteria
+		    .forClass(BuildDailySummaryImpl.class)
+		    .add(eqIgnoringCase("masterHostName", masterHostName))
+		    .add(Restrictions.ge("buildDay",
+			    getInclusiveStartDate(fromDate)))
+		    .add(Restrictions.le("buildDay",
+			    getInclusiveStartDate(toDate)));
+	} else {
+	    bucketProperty = (TimeBucket.MINUTE == bucket) ? "startMinute"
+		    : "startHour";
+	    countProperty = null;
+	    // the minute bucket leads the index for both bucket sizes
+	    criteria = DetachedCriteria
+		    .forClass(BuildDetails.class)
+		    .add(Restrictions.between("startMinute",
+			    TimeBucket.MINUTE.getBucket(getInclusiveStartDate(fromDate)),
+			    TimeBucket.MINUTE.getBucket(getInclusiveEndDate(toDate))))
+		    .add(Restrictions.isNotNull("result"))
+		    .createAlias("node", "node")
+		    .add(eqIgnoringCase("node.masterHostName", masterHostName));
+	}
+	criteria.setProjection(Projections.projectionList()
+		.add(Projections.groupProperty(bucketProperty))
+		.add(Projections.groupProperty("result"))
+		.add((null == countProperty) ? Projections.rowCount()
+			: Projections.sum(countProperty)));
+
+	final String failure = Result.FAILURE.toString();
+	try {
+	    final List<Object[]> rows = findLimited(criteria);
+	    for (final Object[] row : rows) {
+		final long index = (row[0] instanceof Date) ? bucket
+			.getBucket((Date) row[0]) : toLong(row[0]);
+		if ((index >= firstBucket) && (index <= lastBucket)) {
+		    ((BuildThroughputImpl) retval
+			    .get((int) (index - firstBucket))).add(
+			    toLong(row[2]), failure.equals(row[1]));
+		}
+	    }
+	} catch (final ReportLimitExceededException e) {
+	    throw e;
+	} catch (final Throwable t) {
+	    LOGGER.log(Level.SEVERE, t.getMessage(), t);
+	}
+
+	return retval;
+    }
+
+    /**
+     * The builds running at any time within the range are read, including
+     * those that started before it: the sweep counts them from the start of
+     * the period. They are read in (startDate, id) order, as the sweep
+     * needs, without their parameters.
+     *
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getNodeUtilization(String, Date, Date)
+     */
+    @Override
+    public List<NodeUtilization> getNodeUtilization(
+	    final String masterHostName, final Date fromDate, final Date toDate) {
+	final long periodStart = getInclusiveStartDate(fromDate).getTime();
+	final long periodEnd = Math.min(
+		getInclusiveEndDate(toDate).getTime() + 1,
+		System.currentTimeMillis());
+	final UtilizationSweep sweep = new UtilizationSweep(periodStart,
+		periodEnd);
+
+	final DetachedCriteria criteria = DetachedCriteria
+		.forClass(BuildDetails.class)
+		.add(getOverlapRestriction(fromDate, toDate))
+		.createAlias("node", "node")
+		.add(eqIgnoringCase("node.masterHostName", masterHostName))
+		.addOrder(Property.forName("startDate").asc())
+		.addOrder(Property.forName("id").asc());
+	try {
+	    streamReadOnly(criteria, false, queryTimeout, sweep);
+	    return sweep.finish();
+	} catch (final ReportLimitExceededException e) {
+	    throw e;
+	} catch (final Throwable t) {
+	    LOGGER.log(Level.SEVERE, t.getMessage(), t);
+	}
+	return new ArrayList<NodeUtilization>();
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getBuildDetailsPage(String, String, Date, Date, BuildDetails, boolean, int)
+     */
+    @Override
+    public List<BuildDetails> getBuildDetailsPage(final String masterHostName,
+	    final String pattern, final Date fromDate, final Date toDate,
+	    final BuildDetails cursor, final boolean backward,
+	    final int maxResults) {
+	return findPage(getProjectCriteria(masterHostName, pattern, fromDate,
+		toDate), cursor, backward, maxResults);
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getBuildDetailsSignature(String, String, Date, Date)
+     */
+    @Override
+    public String getBuildDetailsSignature(final String masterHostName,
+	    final String pattern, final Date fromDate, final Date toDate) {
+	return getSignature(getProjectCriteria(masterHostName, pattern,
+		fromDate, toDate));
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getBuildDetailsByParamsSignature(String, String, String, Date, Date)
+     */
+    @Override
+    public String getBuildDetailsByParamsSignature(
+	    final String masterHostName, final String paramName,
+	    final String paramValue, final Date fromDate, final Date toDate) {
+	return getSignature(getParamsCriteria(masterHostName, paramName,
+		paramValue, fromDate, toDate));
+    }
+
+    /**
+     * Only finished builds are ever reported, and finished builds are never
+     * updated: the number of matching builds and their latest dates change
+     * whenever a build is saved or purged. The aggregates are answered from
+     * the index on the start date without reading any build details.
+     */
+    private String getSignature(final DetachedCriteria criteria) {
+	criteria.setProjection(Projections.projectionList()
+		.add(Projections.countDistinct("id"))
+		.add(Projections.max("startDate"))
+		.add(Projections.max("endDate")));
+	@SuppressWarnings("unchecked")
+	final List<Object[]> rows = getHibernateTemplate().findByCriteria(
+		criteria);
+	final Object[] row = rows.get(0);
+	final StringBuilder retval = new StringBuilder();
+	retval.append(row[0]);
+	for (int i = 1; i < row.length; i++) {
+	    retval.append(':').append(
+		    (row[i] != null) ? ((Date) row[i]).getTime() : 0);
+	}
+	return retval.toString();
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#streamBuildDetails(String, String, Date, Date, BuildDetailsHandler)
+     */
+    @Override
+    public void streamBuildDetails(final String masterHostName,
+	    final String pattern, final Date fromDate, final Date toDate,
+	    final BuildDetailsHandler handler) {
+	streamReadOnly(getProjectCriteria(masterHostName, pattern, fromDate,
+		toDate).addOrder(Property.forName("name").asc())
+		.addOrder(Property.forName("startDate").asc())
+		.addOrder(Property.forName("id").asc()), true, 0, handler);
+    }
+
+    /**
+     * Reads a page of the build details matching the given criteria. Pages
+     * are sought with a (startDate, idHash, id) comparison rather than an
+     * offset, so the database reads the page straight from IDX_JBD_PAGES,
+     * without skipping over the build details of the previous pages. The
+     * numeric hash orders the builds started at the same time exactly as
+     * the archived builds are merged in, whatever the database collation.
+     */
+    private List<BuildDetails> findPage(final DetachedCriteria criteria,
+	    final BuildDetails cursor, final boolean backward,
+	    final int maxResults) {
+	if (cursor != null) {
+	    // start date ties are broken by the hash of the id, compared the
+	    // same way by every database, and only then by the id itself
+	    final Date startDate = cursor.getStartDate();
+	    final Long idHash = DbAuditUtil.getIdHash(cursor.getId());
+	    final String id = cursor.getId();
+	    if (backward) {
+		criteria.add(Restrictions.or(
+			Restrictions.lt("startDate", startDate),
+			Restrictions.and(Restrictions.eq("startDate", startDate),
+				Restrictions.or(Restrictions.lt("idHash", idHash),
+					Restrictions.and(
+						Restrictions.eq("idHash", idHash),
+						Restrictions.lt("id", id))))));
+	    } else {
+		criteria.add(Restrictions.or(
+			Restrictions.gt("startDate", startDate),
+			Restrictions.and(Restrictions.eq("startDate", startDate),
+				Restrictions.or(Restrictions.gt("idHash", idHash),
+					Restrictions.and(
+						Restrictions.eq("idHash", idHash),
+						Restrictions.gt("id", id))))));
+	    }
+	}
+	if (backward) {
+	    criteria.addOrder(Property.forName("startDate").desc())
+		    .addOrder(Property.forName("idHash").desc())
+		    .addOrder(Property.forName("id").desc());
+	} else {
+	    criteria.addOrder(Property.forName("startDate").asc())
+		    .addOrder(Property.forName("idHash").asc())
+		    .addOrder(Property.forName("id").asc());
+	}
+
+	final List<BuildDetails> retval = new ArrayList<BuildDetails>();
+	try {
+	    retval.addAll(findReadOnly(criteria, maxResults));
+	} catch (final ReportLimitExceededException e) {
+	    throw e;
+	} catch (final Throwable t) {
+	    LOGGER.log(Level.SEVERE, t.getMessage(), t);
+	}
+	if (backward) {
+	    Collections.reverse(retval);
+	}
+	return retval;
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.data.AuditReportsRepository#getBuildDetails(java.lang.String,
      *      java.sql.Date, java.sql.Date)
@@ -378,27 +1212,674 @@ public class BuildDetailsHibernateRepository extends
 	DetachedCriteria criteria = DetachedCriteria
 		.forClass(BuildDetails.class);
 	if (projectName != null) {
-	    criteria = criteria.add(Restrictions.ilike("name", projectName));
+	    criteria = criteria.add(likeIgnoringCase("name", projectName));
 	}
 	criteria = criteria
-		.add(Restrictions.and(
-			Restrictions.ge("startDate", getInclusiveStartDate(fromDate)),
-			Restrictions.le("endDate", getInclusiveEndDate(toDate))))
+		.add(getStartDateRestriction(fromDate, toDate))
+		.add(Restrictions.le("endDate", getInclusiveEndDate(toDate)))
 		.addOrder(Property.forName("startDate").asc())
 		.createAlias("node", "node")
-		.add(Restrictions.ilike("node.masterHostName", masterHostName));
+		.add(eqIgnoringCase("node.masterHostName", masterHostName));
 
 	try {
 	    @SuppressWarnings("unchecked")
-	    final List<BuildDetails> buildDetails = getHibernateTemplate()
-		    .findByCriteria(criteria);
+	    final List<BuildDetails> buildDetails = findReadOnly(criteria, 0);
 	    if ((buildDetails != null) && !buildDetails.isEmpty()) {
 		retval.addAll(buildDetails);
 	    }
+	} catch (final ReportLimitExceededException e) {
+	    throw e;
+	} catch (final Throwable t) {
+	    LOGGER.log(Level.SEVERE, t.getMessage(), t);
+	}
+
+	return retval;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getBuildDetailsIdsStartedBefore(String, Date, int)
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public List<String> getBuildDetailsIdsStartedBefore(
+	    final String masterHostName, final Date date, final int maxResults) {
+	final DetachedCriteria criteria = DetachedCriteria
+		.forClass(BuildDetails.class)
+		.createAlias("node", "node")
+		.add(eqIgnoringCase("node.masterHostName", masterHostName))
+		.add(Restrictions.lt("startDate", date))
+		.setProjection(Projections.id())
+		.addOrder(Property.forName("startDate").asc())
+		.addOrder(Property.forName("id").asc());
+
+	return getHibernateTemplate().findByCriteria(criteria, 0, maxResults);
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getBuildDetailsStartedBefore(String, Date, BuildDetails, int)
+     */
+    @Override
+    public List<BuildDetails> getBuildDetailsStartedBefore(
+	    final String masterHostName, final Date date,
+	    final BuildDetails after, final int maxResults) {
+	final DetachedCriteria criteria = DetachedCriteria
+		.forClass(BuildDetails.class)
+		.createAlias("node", "node")
+		.add(eqIgnoringCase("node.masterHostName", masterHostName))
+		.add(Restrictions.lt("startDate", date))
+		.addOrder(Property.forName("startDate").asc())
+		.addOrder(Property.forName("id").asc());
+	if (after != null) {
+	    // keyset pagination: no rows are skipped or read twice,
+	    // and each chunk is a range scan on the date index
+	    criteria.add(Restrictions.or(
+		    Restrictions.gt("startDate", after.getStartDate()),
+		    Restrictions.and(
+			    Restrictions.eq("startDate", after.getStartDate()),
+			    Restrictions.gt("id", after.getId()))));
+	}
+
+	return findWithParameters(criteria, maxResults);
+    }
+
+    /**
+     * Runs a report query within the report limits. The database stops the
+     * query at the timeout, and reads at most one row beyond the row limit,
+     * which tells that the limit was exceeded.
+     *
+     * @param capped
+     *            whether the rows read are limited, rather than already
+     *            bounded by the query itself.
+     */
+    @SuppressWarnings("rawtypes")
+    private List list(final Criteria executable, final boolean capped) {
+	final int timeout = queryTimeout;
+	final int rowLimit = capped ? maxRows : 0;
+	if (timeout > 0) {
+	    executable.setTimeout(timeout);
+	}
+	if (rowLimit > 0) {
+	    executable.setMaxResults(rowLimit + 1);
+	}
+	final List retval;
+	try {
+	    retval = executable.list();
+	} catch (final RuntimeException e) {
+	    if ((timeout > 0) && isTimeout(e)) {
+		throw ReportLimitExceededException.timedOut(timeout, e);
+	    }
+	    throw e;
+	}
+	if ((rowLimit > 0) && (retval.size() > rowLimit)) {
+	    throw ReportLimitExceededException.tooManyRows(rowLimit);
+	}
+	return retval;
+    }
+
+    private static boolean isTimeout(final Throwable t) {
+	for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+	    if (cause instanceof SQLTimeoutException) {
+		return true;
+	    }
+	    if ((cause instanceof SQLException)
+		    && TIMEOUT_SQL_STATES.contains(((SQLException) cause)
+			    .getSQLState())) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Runs a report query returning aggregated rows, within the report
+     * limits.
+     */
+    private List<Object[]> findLimited(final DetachedCriteria criteria) {
+	return getHibernateTemplate().execute(
+		new HibernateCallback<List<Object[]>>() {
+		    @SuppressWarnings("unchecked")
+		    @Override
+		    public List<Object[]> doInHibernate(final Session session) {
+			return list(criteria.getExecutableCriteria(session),
+				true);
+		    }
+		});
+    }
+
+    /**
+     * Retrieves the build details matching the given criteria as
+     * {@link ReadOnlyBuildDetails}, for rendering. Only the columns shown in
+     * the reports are read: the build log is left out, no entities enter
+     * the session, and the parameters of up to
+     * {@value #PARAMETERS_BATCH_SIZE} build details are read with a single
+     * query.
+     *
+     * @param maxResults
+     *            the maximum number of build details to retrieve, or zero
+     *            for no limit.
+     */
+    private List<BuildDetails> findReadOnly(final DetachedCriteria criteria,
+	    final int maxResults) {
+	criteria.setProjection(getReadOnlyProjection());
+
+	return getHibernateTemplate().execute(
+		new HibernateCallback<List<BuildDetails>>() {
+		    @SuppressWarnings("unchecked")
+		    @Override
+		    public List<BuildDetails> doInHibernate(
+			    final Session session) {
+			// report pages use a session of their own, which must
+			// never write anything back to the database
+			if (!session.getTransaction().isActive()) {
+			    session.setFlushMode(FlushMode.MANUAL);
+			    session.setDefaultReadOnly(true);
+			}
+
+			final List<BuildDetails> retval = new ArrayList<BuildDetails>();
+			final Map<String, ReadOnlyBuildDetails> detailsById = new LinkedHashMap<String, ReadOnlyBuildDetails>();
+			final Map<String, BuildNode> nodesByUrl = new HashMap<String, BuildNode>();
+			final Criteria executable = criteria
+				.getExecutableCriteria(session);
+			if (maxResults > 0) {
+			    executable.setMaxResults(maxResults);
+			}
+			final List<Object[]> rows = list(executable,
+				maxResults <= 0);
+			for (final Object[] row : rows) {
+			    retval.add(toReadOnly(row, detailsById, nodesByUrl));
+			}
+			loadParameters(session, detailsById);
+			return retval;
+		    }
+		});
+    }
+
+    /**
+     * Reads the build details matching the given criteria as
+     * {@link ReadOnlyBuildDetails}, like
+     * {@link #findReadOnly(DetachedCriteria, int)}, but hands them over one
+     * at a time as they are read from the database rather than all at once.
+     * Only a chunk of {@value #PARAMETERS_BATCH_SIZE} build details is held
+     * in memory at any time.
+     * <p>
+     * The rows are scrolled within a read-only transaction, which some JDBC
+     * drivers (e.g. PostgreSQL) require to actually fetch the rows
+     * {@value #STREAM_FETCH_SIZE} at a time. MySQL also needs the
+     * <code>useCursorFetch=true</code> connection property.
+     *
+     * @param withParameters
+     *            whether the parameters of the build details are loaded, or
+     *            left empty for handlers that never read them.
+     * @param timeout
+     *            the query timeout, in seconds, or zero for exports, which
+     *            are not limited.
+     */
+    private void streamReadOnly(final DetachedCriteria criteria,
+	    final boolean withParameters, final int timeout,
+	    final BuildDetailsHandler handler) {
+	criteria.setProjection(getReadOnlyProjection());
+
+	final DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+	definition.setReadOnly(true);
+	final TransactionStatus tx = getTransactionManager().getTransaction(
+		definition);
+	try {
+	    getHibernateTemplate().execute(new HibernateCallback<Object>() {
+		@Override
+		public Object doInHibernate(final Session session) {
+		    final Criteria executable = criteria
+			    .getExecutableCriteria(session)
+			    .setFetchSize(STREAM_FETCH_SIZE).setReadOnly(true);
+		    if (timeout > 0) {
+			executable.setTimeout(timeout);
+		    }
+		    final ScrollableResults rows = executable
+			    .scroll(ScrollMode.FORWARD_ONLY);
+		    try {
+			final List<BuildDetails> chunk = new ArrayList<BuildDetails>(
+				PARAMETERS_BATCH_SIZE);
+			final Map<String, ReadOnlyBuildDetails> detailsById = new HashMap<String, ReadOnlyBuildDetails>();
+			final Map<String, BuildNode> nodesByUrl = new HashMap<String, BuildNode>();
+			boolean more = true;
+			while (more && rows.next()) {
+			    chunk.add(toReadOnly(rows.get(), detailsById,
+				    nodesByUrl));
+			    if (chunk.size() >= PARAMETERS_BATCH_SIZE) {
+				more = handle(session, chunk, detailsById,
+					withParameters, handler);
+			    }
+			}
+			if (more) {
+			    handle(session, chunk, detailsById,
+				    withParameters, handler);
+			}
+		    } finally {
+			rows.close();
+		    }
+		    return null;
+		}
+	    });
+	    getTransactionManager().commit(tx);
+	} catch (final RuntimeException e) {
+	    getTransactionManager().rollback(tx);
+	    if ((timeout > 0) && isTimeout(e)) {
+		throw ReportLimitExceededException.timedOut(timeout, e);
+	    }
+	    throw e;
+	}
+    }
+
+    /**
+     * Hands a chunk of streamed build details over to the handler, once
+     * their parameters are loaded (if needed), and then releases them.
+     *
+     * @return <code>false</code> if the handler asked to stop.
+     */
+    private static boolean handle(final Session session,
+	    final List<BuildDetails> chunk,
+	    final Map<String, ReadOnlyBuildDetails> detailsById,
+	    final boolean withParameters, final BuildDetailsHandler handler) {
+	if (withParameters) {
+	    loadParameters(session, detailsById);
+	}
+	boolean retval = true;
+	for (final BuildDetails details : chunk) {
+	    if (!handler.handle(details)) {
+		retval = false;
+		break;
+	    }
+	}
+	chunk.clear();
+	detailsById.clear();
+	return retval;
+    }
+
+    private static Projection getReadOnlyProjection() {
+	return Projections.projectionList()
+		.add(Projections.id())
+		.add(Projections.property("name"))
+		.add(Projections.property("fullName"))
+		.add(Projections.property("startDate"))
+		.add(Projections.property("endDate"))
+		.add(Projections.property("duration"))
+		.add(Projections.property("result"))
+		.add(Projections.property("userId"))
+		.add(Projections.property("userName"))
+		.add(Projections.property("node.masterAddress"))
+		.add(Projections.property("node.masterHostName"))
+		.add(Projections.property("node.displayName"))
+		.add(Projections.property("node.url"))
+		.add(Projections.property("node.name"))
+		.add(Projections.property("node.description"))
+		.add(Projections.property("node.label"));
+    }
+
+    /**
+     * Converts a row read with {@link #getReadOnlyProjection()}. Rows for
+     * build details already converted (e.g. matching more than one parameter)
+     * share the same instance, and build details on the same node share the
+     * same node.
+     */
+    private static ReadOnlyBuildDetails toReadOnly(final Object[] row,
+	    final Map<String, ReadOnlyBuildDetails> detailsById,
+	    final Map<String, BuildNode> nodesByUrl) {
+	ReadOnlyBuildDetails retval = detailsById.get(row[0]);
+	if (null == retval) {
+	    BuildNode node = nodesByUrl.get(row[12]);
+	    if (null == node) {
+		node = new BuildNodeImpl((String) row[9], (String) row[10],
+			(String) row[11], (String) row[12], (String) row[13],
+			(String) row[14], (String) row[15]);
+		nodesByUrl.put(node.getUrl(), node);
+	    }
+	    retval = new ReadOnlyBuildDetails((String) row[0],
+		    (String) row[1], (String) row[2], (Date) row[3],
+		    (Date) row[4], (Long) row[5], (String) row[6],
+		    (String) row[7], (String) row[8], node);
+	    detailsById.put(retval.getId(), retval);
+	}
+	return retval;
+    }
+
+    /**
+     * Reads the parameters of the given build details, with one query for
+     * every {@value #PARAMETERS_BATCH_SIZE} build details.
+     */
+    @SuppressWarnings("unchecked")
+    private static void loadParameters(final Session session,
+	    final Map<String, ReadOnlyBuildDetails> detailsById) {
+	final List<String> ids = new ArrayList<String>(detailsById.keySet());
+	for (int i = 0; i < ids.size(); i += PARAMETERS_BATCH_SIZE) {
+	    final List<Object[]> params = session
+		    .createQuery(
+			    "select p.buildDetails.id, p.id, p.name, p.value from "
+				    + BuildParameterImpl.class.getName()
+				    + " p where p.buildDetails.id in (:ids)")
+		    .setParameterList("ids", ids.subList(i,
+			    Math.min(i + PARAMETERS_BATCH_SIZE, ids.size())))
+		    .setReadOnly(true).list();
+	    for (final Object[] param : params) {
+		detailsById.get(param[0]).addParameter((String) param[1],
+			(String) param[2], (String) param[3]);
+	    }
+	}
+    }
+
+    /**
+     * Retrieves the build details matching the given criteria together with
+     * their parameters, so that the parameters can still be read once the
+     * session is closed. The parameters are loaded in batches (see
+     * {@link BuildDetailsImpl#getParameters()}), with a few IN-list queries
+     * rather than one query per build.
+     *
+     * @param maxResults
+     *            the maximum number of build details to retrieve, or zero
+     *            for no limit.
+     */
+    private List<BuildDetails> findWithParameters(
+	    final DetachedCriteria criteria, final int maxResults) {
+	return getHibernateTemplate().execute(
+		new HibernateCallback<List<BuildDetails>>() {
+		    @SuppressWarnings("unchecked")
+		    @Override
+		    public List<BuildDetails> doInHibernate(
+			    final Session session) {
+			final Criteria executable = criteria
+				.getExecutableCriteria(session);
+			if (maxResults > 0) {
+			    executable.setMaxResults(maxResults);
+			}
+			final List<BuildDetails> retval = executable.list();
+			for (final BuildDetails details : retval) {
+			    Hibernate.initialize(details.getParameters());
+			}
+			return retval;
+		    }
+		});
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#deleteBuildDetails(List)
+     */
+    @Override
+    public int deleteBuildDetails(final List<String> ids) {
+	if (null == ids) {
+	    throw new IllegalArgumentException("Invalid ids: cannot be null.");
+	}
+	if (ids.isEmpty()) {
+	    return 0;
+	}
+
+	// bulk deletes, because a cascading delete would load every entity
+	// first and then also try to delete the shared build node
+	final TransactionStatus tx = getTransactionManager().getTransaction(
+		null);
+	try {
+	    final int retval = getHibernateTemplate().execute(
+		    new HibernateCallback<Integer>() {
+			@Override
+			public Integer doInHibernate(final Session session) {
+			    session.createQuery(String.format(
+				    "delete from %s where buildDetails.id in (:ids)",
+				    BuildParameterImpl.class.getName()))
+				    .setParameterList("ids", ids)
+				    .executeUpdate();
+			    return session.createQuery(String.format(
+				    "delete from %s where id in (:ids)",
+				    BuildDetailsImpl.class.getName()))
+				    .setParameterList("ids", ids)
+				    .executeUpdate();
+			}
+		    });
+	    getTransactionManager().commit(tx);
+	    // the dates of the deleted build details are not known
+	    invalidateReports(null, null);
+	    return retval;
+	} catch (final RuntimeException e) {
+	    getTransactionManager().rollback(tx);
+	    throw e;
+	}
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getBuildSummaries(String, String, Date, Date)
+     */
+    @Override
+    public List<BuildSummary> getBuildSummaries(final String masterHostName,
+	    final String pattern, final Date fromDate, final Date toDate) {
+	return getBuildSummaries(masterHostName, pattern, fromDate, toDate,
+		true);
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getProjectBuildSummaries(String, String, Date, Date)
+     */
+    @Override
+    public List<BuildSummary> getProjectBuildSummaries(
+	    final String masterHostName, final String pattern,
+	    final Date fromDate, final Date toDate) {
+	return getBuildSummaries(masterHostName, pattern, fromDate, toDate,
+		false);
+    }
+
+    /**
+     * Merges the matching daily summaries. The duration sketches cannot be
+     * merged by the database, so the daily rows are read and merged here:
+     * there is at most one row per project, day and result, however many
+     * builds there were. The summaries by result are not used for the
+     * duration percentiles, so their sketches are not read at all.
+     */
+    private List<BuildSummary> getBuildSummaries(final String masterHostName,
+	    final String pattern, final Date fromDate, final Date toDate,
+	    final boolean byResult) {
+	final List<BuildSummary> retval = new ArrayList<BuildSummary>();
+
+	final DetachedCriteria criteria = DetachedCriteria
+		.forClass(BuildDailySummaryImpl.class)
+		.add(eqIgnoringCase("masterHostName", masterHostName))
+		.add(Restrictions.ge("buildDay", getInclusiveStartDate(fromDate)))
+		.add(Restrictions.le("buildDay", getInclusiveStartDate(toDate)));
+	if ((pattern != null) && !pattern.isEmpty()
+		&& !pattern.trim().equals("%")) {
+	    criteria.add(likeIgnoringCase("name", pattern));
+	}
+	final ProjectionList projections = Projections.projectionList()
+		.add(Projections.property("name"))
+		.add(Projections.property("result"))
+		.add(Projections.property("buildCount"))
+		.add(Projections.property("totalDuration"))
+		.add(Projections.property("minDuration"))
+		.add(Projections.property("maxDuration"));
+	if (!byResult) {
+	    projections.add(Projections.property("durationSketch"));
+	}
+	criteria.setProjection(projections).addOrder(
+		Property.forName("name").asc());
+	if (byResult) {
+	    criteria.addOrder(Property.forName("result").asc());
+	}
+
+	try {
+	    final List<Object[]> rows = findLimited(criteria);
+	    BuildDailySummaryImpl summary = null;
+	    for (final Object[] row : rows) {
+		final BuildDailySummaryImpl daily = new BuildDailySummaryImpl();
+		daily.setName((String) row[0]);
+		daily.setResult(byResult ? (String) row[1] : null);
+		daily.setBuildCount(toLong(row[2]));
+		daily.setTotalDuration(toLong(row[3]));
+		daily.setMinDuration(toLong(row[4]));
+		daily.setMaxDuration(toLong(row[5]));
+		if (!byResult) {
+		    daily.setDurationSketch((String) row[6]);
+		}
+		if ((null == summary)
+			|| !summary.getName().equals(daily.getName())
+			|| !equal(summary.getResult(), daily.getResult())) {
+		    summary = daily;
+		    retval.add(summary);
+		} else {
+		    summary.merge(daily);
+		}
+	    }
+	} catch (final ReportLimitExceededException e) {
+	    throw e;
 	} catch (final Throwable t) {
 	    LOGGER.log(Level.SEVERE, t.getMessage(), t);
 	}
 
 	return retval;
     }
+
+    private static boolean equal(final String s1, final String s2) {
+	return (null == s1) ? (null == s2) : s1.equals(s2);
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#rebuildBuildSummaries(String, Date, Date)
+     */
+    @Override
+    public int rebuildBuildSummaries(final String masterHostName,
+	    final Date fromDate, final Date toDate) {
+	if (null == masterHostName) {
+	    throw new IllegalArgumentException(
+		    "Invalid master host name: cannot be null.");
+	}
+	checkSchemaUpToDate();
+
+	// one day per transaction, so that a long history neither holds
+	// locks for long nor builds up a huge session
+	int retval = 0;
+	final Calendar day = Calendar.getInstance();
+	day.setTime(getInclusiveStartDate(fromDate));
+	final Date lastDay = getInclusiveStartDate(toDate);
+	while (!day.getTime().after(lastDay)) {
+	    retval += rebuildBuildSummaries(masterHostName, day.getTime());
+	    day.add(Calendar.DAY_OF_MONTH, 1);
+	}
+	LOGGER.log(Level.FINE, String.format(
+		"Rebuilt %d daily build summaries from %tF to %tF.", retval,
+		fromDate, toDate));
+	return retval;
+    }
+
+    private int rebuildBuildSummaries(final String masterHostName,
+	    final Date buildDay) {
+	return executeWithSummaries(new HibernateCallback<Integer>() {
+	    @Override
+	    public Integer doInHibernate(final Session session) {
+		return rebuildBuildSummaries(session, masterHostName, buildDay);
+	    }
+	});
+    }
+
+    private int rebuildBuildSummaries(final Session session,
+	    final String masterHostName, final Date buildDay) {
+	session.createQuery(String.format(isLowerCaseComplete()
+		? "delete from %s where lowerMasterHostName = :host and buildDay = :day"
+		: "delete from %s where (lowerMasterHostName = :host or (lowerMasterHostName is null and lower(masterHostName) = :host)) and buildDay = :day",
+		BuildDailySummaryImpl.class.getName()))
+		.setParameter("host", DbAuditUtil.toLowerCase(masterHostName))
+		.setDate("day", buildDay)
+		.executeUpdate();
+
+	// the durations of a day are read rather than aggregated by the
+	// database, because their sketches can only be built here
+	@SuppressWarnings("unchecked")
+	final List<Object[]> rows = session
+		.createCriteria(BuildDetailsImpl.class)
+		.add(Restrictions.ge("startDate", buildDay))
+		.add(Restrictions.le("startDate", getInclusiveEndDate(buildDay)))
+		.add(Restrictions.isNotNull("endDate"))
+		.createAlias("node", "node")
+		.add(eqIgnoringCase("node.masterHostName", masterHostName))
+		.setProjection(Projections.projectionList()
+			.add(Projections.property("node.masterHostName"))
+			.add(Projections.property("name"))
+			.add(Projections.property("result"))
+			.add(Projections.property("duration")))
+		.list();
+	final Map<String, BuildDailySummaryImpl> summaries = new HashMap<String, BuildDailySummaryImpl>();
+	for (final Object[] row : rows) {
+	    final String host = (String) row[0];
+	    final String name = (String) row[1];
+	    final String result = (String) row[2];
+	    final long duration = toLong(row[3]);
+	    final String id = BuildDailySummaryImpl.getId(host, name, buildDay,
+		    result);
+	    final BuildDailySummaryImpl summary = summaries.get(id);
+	    if (null == summary) {
+		summaries.put(id, new BuildDailySummaryImpl(host, name,
+			buildDay, result, duration));
+	    } else {
+		summary.add(duration);
+	    }
+	}
+	for (final BuildDailySummaryImpl summary : summaries.values()) {
+	    session.save(summary);
+	}
+	return summaries.size();
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsRepository#getOldestBuildDate(String)
+     */
+    @Override
+    public Date getOldestBuildDate(final String masterHostName) {
+	final DetachedCriteria criteria = DetachedCriteria
+		.forClass(BuildDetails.class)
+		.createAlias("node", "node")
+		.add(eqIgnoringCase("node.masterHostName", masterHostName))
+		.setProjection(Projections.min("startDate"));
+	final List<?> result = getHibernateTemplate().findByCriteria(criteria);
+	return result.isEmpty() ? null : (Date) result.get(0);
+    }
+
+    private static long toLong(final Object value) {
+	// aggregates over no values, or over null values, are null
+	return (null == value) ? 0 : ((Number) value).longValue();
+    }
+
+    private static void invalidateReports(final BuildDetails details) {
+	// unfinished builds are not reported yet
+	if ((details.getEndDate() != null) && (details.getNode() != null)) {
+	    invalidateReports(details.getNode().getMasterHostName(),
+		    details.getStartDate());
+	}
+    }
+
+    /**
+     * Drops the cached reports that could include the given build. If a
+     * transaction is active, they are dropped again once it completes:
+     * until then, other sessions could still read and cache the reports
+     * without the build.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master the build ran on, or
+     *            <code>null</code> to drop all the cached reports.
+     * @param startDate
+     *            the start date of the build.
+     */
+    private static void invalidateReports(final String masterHostName,
+	    final Date startDate) {
+	final ReportCache cache = ReportCache.getInstance();
+	if (null == masterHostName) {
+	    cache.invalidateAll();
+	} else {
+	    cache.invalidate(masterHostName, startDate);
+	}
+	if (TransactionSynchronizationManager.isSynchronizationActive()) {
+	    TransactionSynchronizationManager
+		    .registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(final int status) {
+			    if (null == masterHostName) {
+				cache.invalidateAll();
+			    } else {
+				cache.invalidate(masterHostName, startDate);
+			    }
+			}
+		    });
+	}
+    }
 }
@@ -0,0 +1,241 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Populates newly added columns from existing data, a small chunk at a time.
+ * <p>
+ * Rows are visited in key order (keyset pagination), and each chunk is
+ * committed on its own, so that locks are only ever held on a few rows and
+ * for a short time, and the backfill can be interrupted and resumed at any
+ * point.
+ *
+ * @author Marco Scata
+ *
+ */
+public abstract class ChunkedBackfill {
+    private final String table;
+    private final String keyColumn;
+    private final String[] sourceColumns;
+    private final String[] targetColumns;
+    private final int[] targetTypes;
+
+    /**
+     * @param table
+     *            the table to backfill.
+     * @param keyColumn
+     *            the unique key column used to page through the table.
+     * @param sourceColumns
+     *            the columns the new values are computed from.
+     * @param targetColumns
+     *            the columns to populate.
+     * @param targetTypes
+     *            the SQL types of the target columns, as defined in
+     *            {@link java.sql.Types}.
+     */
+    protected ChunkedBackfill(final String table, final String keyColumn,
+	    final String[] sourceColumns, final String[] targetColumns,
+	    final int[] targetTypes) {
+	this.table = table;
+	this.keyColumn = keyColumn;
+	this.sourceColumns = sourceColumns.clone();
+	this.targetColumns = targetColumns.clone();
+	this.targetTypes = targetTypes.clone();
+    }
+
+    /**
+     * Computes the target column values for a single row.
+     *
+     * @param sourceValues
+     *            the values of the source columns, in declaration order.
+     * @return the values of the target columns, in declaration order.
+     */
+    protected abstract Object[] getTargetValues(Object[] sourceValues);
+
+    /**
+     * @return the SQL condition matching the rows still waiting to be
+     *         backfilled: by default, those with any target column still
+     *         <code>null</code>.
+     */
+    protected String getPendingCondition() {
+	final StringBuilder retval = new StringBuilder("(");
+	for (int i = 0; i < targetColumns.length; i++) {
+	    if (i > 0) {
+		retval.append(" or ");
+	    }
+	    retval.append(targetColumns[i]).append(" is null");
+	}
+	return retval.append(')').toString();
+    }
+
+    private String getSelectSql(final boolean afterKey) {
+	final StringBuilder retval = new StringBuilder("select ")
+		.append(keyColumn);
+	for (final String column : sourceColumns) {
+	    retval.append(", ").append(column);
+	}
+	retval.append(" from ").append(table).append(" where ")
+		.append(getPendingCondition());
+	if (afterKey) {
+	    retval.append(" and ").append(keyColumn).append(" > ?");
+	}
+	return retval.append(" order by ").append(keyColumn).toString();
+    }
+
+    private String getUpdateSql() {
+	final StringBuilder retval = new StringBuilder("update ")
+		.append(table).append(" set ");
+	for (int i = 0; i < targetColumns.length; i++) {
+	    if (i > 0) {
+		retval.append(", ");
+	    }
+	    retval.append(targetColumns[i]).append(" = ?");
+	}
+	return retval.append(" where ").append(keyColumn).append(" = ?")
+		.toString();
+    }
+
+    /**
+     * @param connection
+     *            an open connection.
+     * @return the number of rows still waiting to be backfilled.
+     * @throws SQLException
+     *             if the rows cannot be counted.
+     */
+    public long countPending(final Connection connection) throws SQLException {
+	final PreparedStatement count = connection.prepareStatement(
+		"select count(*) from " + table + " where "
+			+ getPendingCondition());
+	try {
+	    final ResultSet result = count.executeQuery();
+	    try {
+		return result.next() ? result.getLong(1) : 0;
+	    } finally {
+		JdbcUtil.close(result);
+	    }
+	} finally {
+	    JdbcUtil.close(count);
+	}
+    }
+
+    /**
+     * Runs the backfill to completion.
+     *
+     * @param connection
+     *            an open connection.
+     * @param chunkSize
+     *            the number of rows to update in each transaction.
+     * @param pauseMillis
+     *            the pause between chunks, giving way to the live workload.
+     * @return the number of rows updated.
+     * @throws SQLException
+     *             if a chunk cannot be updated; all previous chunks remain
+     *             committed.
+     * @throws InterruptedException
+     *             if the thread is interrupted between two chunks.
+     */
+    public long run(final Connection connection, final int chunkSize,
+	    final long pauseMillis) throws SQLException, InterruptedException {
+	final boolean autoCommit = connection.getAutoCommit();
+	connection.setAutoCommit(false);
+	long retval = 0;
+	Object lastKey = null;
+	try {
+	    while (true) {
+		final List<Object[]> chunk = readChunk(connection, lastKey,
+			chunkSize);
+		if (chunk.isEmpty()) {
+		    break;
+		}
+		updateChunk(connection, chunk);
+		connection.commit();
+
+		retval += chunk.size();
+		lastKey = chunk.get(chunk.size() - 1)[0];
+		if (chunk.size() < chunkSize) {
+		    break;
+		}
+		Thread.sleep(pauseMillis);
+	    }
+	} catch (final SQLException e) {
+	    connection.rollback();
+	    throw e;
+	} finally {
+	    connection.setAutoCommit(autoCommit);
+	}
+	return retval;
+    }
+
+    private List<Object[]> readChunk(final Connection connection,
+	    final Object lastKey, final int chunkSize) throws SQLException {
+	final List<Object[]> retval = new ArrayList<Object[]>(chunkSize);
+	final PreparedStatement select = connection
+		.prepareStatement(getSelectSql(lastKey != null));
+	try {
+	    select.setMaxRows(chunkSize);
+	    if (lastKey != null) {
+		select.setObject(1, lastKey);
+	    }
+	    final ResultSet rows = select.executeQuery();
+	    try {
+		while (rows.next()) {
+		    final Object[] row = new Object[sourceColumns.length + 1];
+		    for (int i = 0; i < row.length; i++) {
+			row[i] = rows.getObject(i + 1);
+		    }
+		    retval.add(row);
+		}
+	    } finally {
+		JdbcUtil.close(rows);
+	    }
+	} finally {
+	    JdbcUtil.close(select);
+	}
+	return retval;
+    }
+
+    private void updateChunk(final Connection connection,
+	    final List<Object[]> chunk) throws SQLException {
+	final PreparedStatement update = connection
+		.prepareStatement(getUpdateSql());
+	try {
+	    for (final Object[] row : chunk) {
+		final Object[] sourceValues = new Object[sourceColumns.length];
+		System.arraycopy(row, 1, sourceValues, 0, sourceValues.length);
+		final Object[] targetValues = getTargetValues(sourceValues);
+		for (int i = 0; i < targetColumns.length; i++) {
+		    if (null == targetValues[i]) {
+			update.setNull(i + 1, targetTypes[i]);
+		    } else {
+			update.setObject(i + 1, targetValues[i], targetTypes[i]);
+		    }
+		}
+		update.setObject(targetColumns.length + 1, row[0]);
+		update.addBatch();
+	    }
+	    update.executeBatch();
+	} finally {
+	    JdbcUtil.close(update);
+	}
+    }
+
+    @Override
+    public String toString() {
+	final StringBuilder columns = new StringBuilder();
+	for (final String column : targetColumns) {
+	    if (columns.length() > 0) {
+		columns.append(", ");
+	    }
+	    columns.append(column);
+	}
+	return String.format("%s (%s)", table, columns);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Index;
+import org.hibernate.mapping.Table;
+
+/**
+ * Creates some of the indexes declared on the mapped entities, if they are
+ * missing from the database. The index definitions are taken from the
+ * mappings, so that the migrated schema matches the generated DDL.
+ *
+ * @author Marco Scata
+ *
+ */
+public class CreateIndexesMigration extends SchemaMigration {
+    private final List<String> indexNames;
+
+    public CreateIndexesMigration(final int version, final String description,
+	    final String... indexNames) {
+	super(version, description);
+	this.indexNames = Arrays.asList(indexNames);
+    }
+
+    @Override
+    public List<String> getStatements(final Configuration config,
+	    final Dialect dialect, final DatabaseMetaData metadata)
+	    throws SQLException {
+	final List<String> retval = new ArrayList<String>();
+	config.buildMappings();
+
+	final Iterator<?> tables = config.getTableMappings();
+	while (tables.hasNext()) {
+	    final Table table = (Table) tables.next();
+	    final Iterator<?> indexes = table.getIndexIterator();
+	    while (indexes.hasNext()) {
+		final Index index = (Index) indexes.next();
+		if (indexNames.contains(index.getName())
+			&& !indexExists(metadata, table.getName(), index.getName())) {
+		    final List<String> columns = new ArrayList<String>();
+		    final Iterator<?> indexColumns = index.getColumnIterator();
+		    while (indexColumns.hasNext()) {
+			columns.add(((Column) indexColumns.next())
+				.getQuotedName(dialect));
+		    }
+		    retval.add(createIndex(dialect, index.getName(),
+			    table.getQuotedName(dialect), columns));
+		}
+	    }
+	}
+	return retval;
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.Environment;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.Mapping;
+import org.hibernate.mapping.Index;
+import org.hibernate.mapping.Table;
+
+/**
+ * Creates some of the tables mapped by the entities, together with their
+ * indexes, if they are missing from the database. The table definitions are
+ * taken from the mappings, so that the migrated schema matches the generated
+ * DDL.
+ *
+ * @author Marco Scata
+ *
+ */
+public class CreateTablesMigration extends SchemaMigration {
+    private final List<String> tableNames;
+
+    public CreateTablesMigration(final int version, final String description,
+	    final String... tableNames) {
+	super(version, description);
+	this.tableNames = Arrays.asList(tableNames);
+    }
+
+    @Override
+    public List<String> getStatements(final Configuration config,
+	    final Dialect dialect, final DatabaseMetaData metadata)
+	    throws SQLException {
+	final List<String> retval = new ArrayList<String>();
+	config.buildMappings();
+	final Mapping mapping = config.buildMapping();
+	final String defaultCatalog = config.getProperty(Environment.DEFAULT_CATALOG);
+	final String defaultSchema = config.getProperty(Environment.DEFAULT_SCHEMA);
+
+	final Iterator<?> tables = config.getTableMappings();
+	while (tables.hasNext()) {
+	    final Table table = (Table) tables.next();
+	    if (tableNames.contains(table.getName())
+		    && !tableExists(metadata, table.getName())) {
+		retval.add(table.sqlCreateString(dialect, mapping,
+			defaultCatalog, defaultSchema));
+		final Iterator<?> indexes = table.getIndexIterator();
+		while (indexes.hasNext()) {
+		    retval.add(((Index) indexes.next()).sqlCreateString(
+			    dialect, mapping, defaultCatalog, defaultSchema));
+		}
+	    }
+	}
+	return retval;
+    }
+}
@@ -3,10 +3,9 @@
  */
 package org.jenkins.plugins.audit2db.internal.data;
 
-import java.io.File;
-import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Properties;
-import java.util.Scanner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -14,8 +13,11 @@ import org.hibernate.HibernateException;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.AnnotationConfiguration;
 import org.hibernate.cfg.Configuration;
-import org.hibernate.engine.SessionFactoryImplementor;
-import org.hibernate.tool.hbm2ddl.SchemaExport;
+import org.hibernate.cfg.Environment;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.resolver.DialectFactory;
+import org.hibernate.jdbc.util.FormatStyle;
+import org.hibernate.jdbc.util.Formatter;
 
 /**
  * Utility class for Hibernate access.
@@ -26,7 +28,15 @@ import org.hibernate.tool.hbm2ddl.SchemaExport;
 public class HibernateUtil {
     private final static Logger LOGGER = Logger.getLogger(HibernateUtil.class.getName());
 
-    private static Configuration getConfig(final Properties extraProperties) throws HibernateException {
+    private final static String NEWLINE = System.getProperty("line.separator");
+
+    /**
+     * Maximum number of seconds to wait for the database when detecting
+     * the SQL dialect.
+     */
+    private final static int DIALECT_CONNECTION_TIMEOUT = 30;
+
+    static Configuration getConfig(final Properties extraProperties) throws HibernateException {
         LOGGER.log(Level.INFO, Messages.HibernateUtil_LoadConfig());
         final Configuration config = new AnnotationConfiguration().configure();
         if ((extraProperties != null) && !extraProperties.isEmpty()) {
@@ -71,33 +81,90 @@ public class HibernateUtil {
         return props;
     }
 
-    public static String getSchemaDdl(
+    /**
+     * Resolves the SQL dialect for the given configuration properties. An
+     * explicitly configured dialect is used as-is, otherwise the database
+     * behind the given connection is asked what it is.
+     */
+    static Dialect getDialect(final Properties props,
+            final Connection connection) {
+        if (props.getProperty(Environment.DIALECT) != null) {
+            return Dialect.getDialect(props);
+        }
+        return DialectFactory.buildDialect(props, connection);
+    }
+
+    /**
+     * Resolves the SQL dialect for the given configuration, opening a single
+     * plain JDBC connection only if no dialect is explicitly configured.
+     */
+    private static Dialect getDialect(final Configuration config,
             final String driverClass,
             final String driverUrl,
             final String username,
-            final String password) throws IOException {
-        String retval = null;
+            final String password) throws SQLException {
+        final Properties props = config.getProperties();
+        if (props.getProperty(Environment.DIALECT) != null) {
+            return Dialect.getDialect(props);
+        }
 
+        final Connection connection = JdbcUtil.getConnection(driverClass,
+                driverUrl, username, password, DIALECT_CONNECTION_TIMEOUT);
+        try {
+            return getDialect(props, connection);
+        } finally {
+            JdbcUtil.close(connection);
+        }
+    }
+
+    public static String getSchemaDdl(
+            final String driverClass,
+            final String driverUrl,
+            final String username,
+            final String password) throws SQLException {
         final Properties props = getExtraProperties(
                 driverClass, driverUrl, username, password);
-        final SessionFactory sessionFactory = getSessionFactory(props);
-        final String dialect = ((SessionFactoryImplementor)sessionFactory).getDialect().toString();
-        props.put("hibernate.dialect", dialect);
+        final Configuration config = getConfig(props);
+        final Dialect dialect = getDialect(config,
+                driverClass, driverUrl, username, password);
+
+        // the index definitions on the mapped entities are part of
+        // the creation script, so there is no need for a second pass
+        final Formatter formatter = FormatStyle.DDL.getFormatter();
+        final StringBuilder ddl = new StringBuilder();
+        for (final String statement : config.generateSchemaCreationScript(dialect)) {
+            ddl.append(formatter.format(statement)).append(';').append(NEWLINE);
+        }
 
+        return String.format(Messages.HibernateUtil_GeneratedNote(),
+                dialect, ddl.toString().trim());
+    }
+
+    /**
+     * Generates the script that partitions the build details table by month,
+     * for the databases that support it.
+     *
+     * @throws UnsupportedOperationException
+     *             if the table cannot be partitioned on the target database.
+     */
+    public static String getPartitioningDdl(
+            final String driverClass,
+            final String driverUrl,
+            final String username,
+            final String password) throws SQLException {
+        final Properties props = getExtraProperties(
+                driverClass, driverUrl, username, password);
         final Configuration config = getConfig(props);
-        final SchemaExport generator = new SchemaExport(config);
-        final File tempDdlFile = File.createTempFile("jenkins_audit2db", ".ddl");
-        generator.setOutputFile(tempDdlFile.getPath());
-        generator.setFormat(true);
-        generator.execute(true, false, false, true);
-
-        final Scanner scanner = new Scanner(tempDdlFile);
-        //using a non-matching delimiter will read the whole file
-        scanner.useDelimiter("\\Z");
-        retval = String.format(Messages.HibernateUtil_GeneratedNote(),
-                dialect, scanner.next());
-        tempDdlFile.delete();
+        final Dialect dialect = getDialect(config,
+                driverClass, driverUrl, username, password);
 
-        return retval;
+        final Formatter formatter = FormatStyle.DDL.getFormatter();
+        final StringBuilder ddl = new StringBuilder();
+        for (final String statement : TablePartitioning.getStatements(config, dialect)) {
+            ddl.append(formatter.format(statement)).append(';').append(NEWLINE);
+        }
+
+        return String.format(Messages.HibernateUtil_PartitioningNote(),
+                dialect, ddl.toString().trim());
     }
 }
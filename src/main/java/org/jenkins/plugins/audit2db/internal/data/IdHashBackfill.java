@@ -0,0 +1,27 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.sql.Types;
+
+import org.jenkins.plugins.audit2db.internal.DbAuditUtil;
+
+/**
+ * Populates the id hash of the build details recorded before that column
+ * was added.
+ *
+ * @author Marco Scata
+ *
+ */
+class IdHashBackfill extends ChunkedBackfill {
+    IdHashBackfill() {
+	super("JENKINS_BUILD_DETAILS", "id", new String[] { "id" },
+		new String[] { "idHash" }, new int[] { Types.BIGINT });
+    }
+
+    @Override
+    protected Object[] getTargetValues(final Object[] sourceValues) {
+	return new Object[] { DbAuditUtil.getIdHash((String) sourceValues[0]) };
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hibernate.util.ReflectHelper;
+
+/**
+ * Utility class for plain JDBC access, used wherever building a full
+ * Hibernate session factory (and its connection pool) would be overkill.
+ *
+ * @author Marco Scata
+ *
+ */
+public final class JdbcUtil {
+    private final static Logger LOGGER = Logger.getLogger(JdbcUtil.class.getName());
+
+    /**
+     * Cannot be instantiated by others.
+     */
+    private JdbcUtil() {
+    }
+
+    /**
+     * Opens a single, unpooled connection using the given JDBC details. The
+     * driver is loaded the same way Hibernate would load it, and is used
+     * directly rather than through the {@link java.sql.DriverManager}, so
+     * that no global state is modified.
+     *
+     * @param driverClass
+     *            the JDBC driver class.
+     * @param driverUrl
+     *            the JDBC URL.
+     * @param username
+     *            the JDBC user.
+     * @param password
+     *            the JDBC password.
+     * @param timeoutSeconds
+     *            the maximum time to wait for the connection to be
+     *            established.
+     * @return a new connection, which the caller is responsible for closing.
+     * @throws SQLException
+     *             if the connection cannot be established within the given
+     *             time.
+     */
+    public static Connection getConnection(final String driverClass,
+            final String driverUrl, final String username,
+            final String password, final int timeoutSeconds)
+            throws SQLException {
+        final Driver driver = loadDriver(driverClass);
+        final Properties props = new Properties();
+        if (username != null) {
+            props.put("user", username);
+        }
+        if (password != null) {
+            props.put("password", password);
+        }
+
+        // a connection that arrives after we gave up waiting
+        // must be closed by the worker thread, or it would leak
+        final AtomicBoolean abandoned = new AtomicBoolean(false);
+        final ExecutorService executor = Executors
+                .newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        final Thread thread = new Thread(runnable,
+                                "audit2db-jdbc-connect");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        try {
+            final Future<Connection> future = executor
+                    .submit(new Callable<Connection>() {
+                        @Override
+                        public Connection call() throws SQLException {
+                            final Connection retval = driver.connect(
+                                    driverUrl, props);
+                            if ((retval != null) && abandoned.get()) {
+                                close(retval);
+                                return null;
+                            }
+                            return retval;
+                        }
+                    });
+
+            final Connection retval = future.get(timeoutSeconds,
+                    TimeUnit.SECONDS);
+            if (null == retval) {
+                throw new SQLException(Messages.JdbcUtil_UrlNotAccepted(
+                        driverClass, driverUrl));
+            }
+            return retval;
+        } catch (final TimeoutException e) {
+            abandoned.set(true);
+            throw new SQLException(Messages.JdbcUtil_ConnectionTimeout(
+                    driverUrl, timeoutSeconds));
+        } catch (final InterruptedException e) {
+            abandoned.set(true);
+            Thread.currentThread().interrupt();
+            throw new SQLException(e.getMessage(), e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Driver loadDriver(final String driverClass)
+            throws SQLException {
+        if ((null == driverClass) || driverClass.trim().isEmpty()) {
+            throw new SQLException(Messages.JdbcUtil_NoDriverClass());
+        }
+        try {
+            return (Driver) ReflectHelper.classForName(driverClass.trim())
+                    .newInstance();
+        } catch (final Exception e) {
+            throw new SQLException(
+                    Messages.JdbcUtil_DriverNotLoaded(driverClass), e);
+        }
+    }
+
+    /**
+     * Measures a single round trip to the database.
+     *
+     * @param connection
+     *            an open connection.
+     * @param timeoutSeconds
+     *            the maximum time to wait for the database to respond.
+     * @return the round trip time in milliseconds.
+     * @throws SQLException
+     *             if the database does not respond in time.
+     */
+    public static long pingMillis(final Connection connection,
+            final int timeoutSeconds) throws SQLException {
+        final long start = System.nanoTime();
+        boolean valid;
+        try {
+            valid = connection.isValid(timeoutSeconds);
+        } catch (final AbstractMethodError e) {
+            // pre-JDBC4 drivers: fall back to a metadata lookup,
+            // which always requires a trip to the server
+            close(connection.getMetaData().getTables(null, null,
+                    "JENKINS_BUILD_DETAILS", null));
+            valid = true;
+        }
+        if (!valid) {
+            throw new SQLException(Messages.JdbcUtil_ConnectionNotValid());
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    public static void close(final Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (final SQLException e) {
+                LOGGER.log(Level.WARNING, e.getMessage(), e);
+            }
+        }
+    }
+
+    public static void close(final Statement statement) {
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (final SQLException e) {
+                LOGGER.log(Level.WARNING, e.getMessage(), e);
+            }
+        }
+    }
+
+    public static void close(final ResultSet resultSet) {
+        if (resultSet != null) {
+            try {
+                resultSet.close();
+            } catch (final SQLException e) {
+                LOGGER.log(Level.WARNING, e.getMessage(), e);
+            }
+        }
+    }
+}
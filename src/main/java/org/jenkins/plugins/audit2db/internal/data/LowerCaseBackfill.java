@@ -0,0 +1,71 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.sql.Types;
+import java.util.Arrays;
+
+import org.jenkins.plugins.audit2db.internal.DbAuditUtil;
+
+/**
+ * Populates the lower case copies of some text columns, for the rows
+ * recorded before those copies were added.
+ *
+ * @author Marco Scata
+ *
+ */
+class LowerCaseBackfill extends ChunkedBackfill {
+    private final String[] sourceColumns;
+    private final String[] targetColumns;
+
+    /**
+     * @param table
+     *            the table to backfill.
+     * @param keyColumn
+     *            the unique key column used to page through the table.
+     * @param sourceColumns
+     *            the text columns.
+     * @param targetColumns
+     *            their lower case copies, in the same order.
+     */
+    LowerCaseBackfill(final String table, final String keyColumn,
+	    final String[] sourceColumns, final String[] targetColumns) {
+	super(table, keyColumn, sourceColumns, targetColumns, getTypes(
+		targetColumns.length));
+	this.sourceColumns = sourceColumns.clone();
+	this.targetColumns = targetColumns.clone();
+    }
+
+    private static int[] getTypes(final int count) {
+	final int[] retval = new int[count];
+	Arrays.fill(retval, Types.VARCHAR);
+	return retval;
+    }
+
+    /**
+     * The copies of <code>null</code> texts stay <code>null</code>, so only
+     * the copies missing for actual texts are pending.
+     */
+    @Override
+    protected String getPendingCondition() {
+	final StringBuilder retval = new StringBuilder("(");
+	for (int i = 0; i < targetColumns.length; i++) {
+	    if (i > 0) {
+		retval.append(" or ");
+	    }
+	    retval.append('(').append(targetColumns[i]).append(" is null and ")
+		    .append(sourceColumns[i]).append(" is not null)");
+	}
+	return retval.append(')').toString();
+    }
+
+    @Override
+    protected Object[] getTargetValues(final Object[] sourceValues) {
+	final Object[] retval = new Object[sourceValues.length];
+	for (int i = 0; i < sourceValues.length; i++) {
+	    retval[i] = DbAuditUtil.toLowerCase((String) sourceValues[i]);
+	}
+	return retval;
+    }
+}
@@ -0,0 +1,280 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the results of recent report queries in memory, so that the same
+ * report viewed again shortly after is not read from the database again.
+ * <p>
+ * Results are kept for a limited time, and the cache holds a limited number
+ * of build details overall: the least recently used results are evicted
+ * first. Results are also dropped as soon as a build falling within their
+ * date range is recorded, or as soon as build details are deleted.
+ *
+ * @author Marco Scata
+ *
+ */
+public final class ReportCache {
+    private final static Logger LOGGER = Logger.getLogger(ReportCache.class.getName());
+
+    /**
+     * Maximum number of build details held by the cache overall.
+     */
+    private final static int MAX_BUILDS = Integer.getInteger(
+	    ReportCache.class.getName() + ".maxBuilds", 20000);
+
+    /**
+     * Number of seconds a result is kept for.
+     */
+    private final static int TTL_SECONDS = Integer.getInteger(
+	    ReportCache.class.getName() + ".ttlSeconds", 300);
+
+    /**
+     * A single result cannot take more than this share of the cache, or it
+     * would evict everything else.
+     */
+    private final static int MAX_ENTRY_SHARE = 4;
+
+    private final static ReportCache INSTANCE = new ReportCache(MAX_BUILDS,
+	    TimeUnit.SECONDS.toMillis(TTL_SECONDS));
+
+    /**
+     * Reads a result on a cache miss.
+     */
+    public interface Loader<T> {
+	/**
+	 * @return the result to cache.
+	 */
+	T load();
+
+	/**
+	 * @return the number of build details held by the given result.
+	 */
+	int getWeight(T value);
+    }
+
+    private final static class Entry {
+	private final String masterHostName;
+	private final Date fromDate;
+	private final Date toDate;
+	private final Object value;
+	private final int weight;
+	private final long expiresAt;
+
+	private Entry(final String masterHostName, final Date fromDate,
+		final Date toDate, final Object value, final int weight,
+		final long expiresAt) {
+	    this.masterHostName = masterHostName;
+	    this.fromDate = fromDate;
+	    this.toDate = toDate;
+	    this.value = value;
+	    this.weight = weight;
+	    this.expiresAt = expiresAt;
+	}
+
+	private boolean covers(final String hostName, final Date startDate) {
+	    return masterHostName.equals(hostName)
+		    && !startDate.before(fromDate) && !startDate.after(toDate);
+	}
+    }
+
+    private final int maxWeight;
+    private final long ttlMillis;
+
+    // in access order: the first entry is the least recently used
+    private final LinkedHashMap<List<Object>, Entry> entries = new LinkedHashMap<List<Object>, Entry>(
+	    16, 0.75f, true);
+    private int weight;
+
+    /**
+     * Incremented by every invalidation: a result loaded while a build was
+     * being recorded may or may not include it, so it is not cached.
+     */
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public ReportCache(final int maxWeight, final long ttlMillis) {
+	this.maxWeight = maxWeight;
+	this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @return the cache shared by all the reports.
+     */
+    public static ReportCache getInstance() {
+	return INSTANCE;
+    }
+
+    /**
+     * Returns the cached result for the given report query, loading and
+     * caching it first if needed.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master the report is about.
+     * @param fromDate
+     *            the start (inclusive) of the report date range.
+     * @param toDate
+     *            the end (inclusive) of the report date range.
+     * @param key
+     *            the report type and all the other report filters. Filters
+     *            matched case-insensitively should be normalised by the
+     *            caller.
+     * @param loader
+     *            reads the result on a cache miss.
+     * @return the result, which must not be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(final String masterHostName, final Date fromDate,
+	    final Date toDate, final List<?> key, final Loader<T> loader) {
+	final String hostName = normalize(masterHostName);
+	final Date inclusiveStartDate = BuildDetailsHibernateRepository
+		.getInclusiveStartDate(fromDate);
+	final Date inclusiveEndDate = BuildDetailsHibernateRepository
+		.getInclusiveEndDate(toDate);
+	final List<Object> fullKey = new ArrayList<Object>(key.size() + 3);
+	fullKey.add(hostName);
+	fullKey.add(inclusiveStartDate);
+	fullKey.add(inclusiveEndDate);
+	fullKey.addAll(key);
+
+	final long loadGeneration;
+	synchronized (this) {
+	    final Entry entry = entries.get(fullKey);
+	    if (entry != null) {
+		if (entry.expiresAt > System.currentTimeMillis()) {
+		    hits++;
+		    return (T) entry.value;
+		}
+		remove(fullKey);
+	    }
+	    misses++;
+	    loadGeneration = generation;
+	}
+
+	final T value = loader.load();
+	final int valueWeight = loader.getWeight(value) + 1;
+
+	synchronized (this) {
+	    if ((generation == loadGeneration)
+		    && (valueWeight <= (maxWeight / MAX_ENTRY_SHARE))) {
+		remove(fullKey);
+		entries.put(fullKey, new Entry(hostName, inclusiveStartDate,
+			inclusiveEndDate, value, valueWeight,
+			System.currentTimeMillis() + ttlMillis));
+		weight += valueWeight;
+		final Iterator<Entry> eldest = entries.values().iterator();
+		while (weight > maxWeight) {
+		    weight -= eldest.next().weight;
+		    eldest.remove();
+		    evictions++;
+		}
+	    }
+	}
+	return value;
+    }
+
+    /**
+     * Drops the cached results that could include a build with the given
+     * start date.
+     *
+     * @param masterHostName
+     *            the host name of the Jenkins master the build ran on.
+     * @param startDate
+     *            the start date of the build.
+     */
+    public synchronized void invalidate(final String masterHostName,
+	    final Date startDate) {
+	generation++;
+	final String hostName = normalize(masterHostName);
+	final Iterator<Entry> iterator = entries.values().iterator();
+	while (iterator.hasNext()) {
+	    final Entry entry = iterator.next();
+	    if (entry.covers(hostName, startDate)) {
+		weight -= entry.weight;
+		iterator.remove();
+		invalidations++;
+	    }
+	}
+    }
+
+    /**
+     * Drops all the cached results.
+     */
+    public synchronized void invalidateAll() {
+	generation++;
+	invalidations += entries.size();
+	entries.clear();
+	weight = 0;
+	LOGGER.log(Level.FINE, "Report cache cleared: {0}", getStatistics());
+    }
+
+    private void remove(final List<Object> key) {
+	final Entry entry = entries.remove(key);
+	if (entry != null) {
+	    weight -= entry.weight;
+	}
+    }
+
+    private static String normalize(final String masterHostName) {
+	// the reports match host names case-insensitively
+	return (null == masterHostName) ? "" : masterHostName
+		.toLowerCase(Locale.ENGLISH);
+    }
+
+    public synchronized int getSize() {
+	return entries.size();
+    }
+
+    public synchronized int getWeight() {
+	return weight;
+    }
+
+    public synchronized long getHits() {
+	return hits;
+    }
+
+    public synchronized long getMisses() {
+	return misses;
+    }
+
+    public synchronized long getEvictions() {
+	return evictions;
+    }
+
+    public synchronized long getInvalidations() {
+	return invalidations;
+    }
+
+    /**
+     * @return the share of the lookups answered from the cache, between 0
+     *         and 1.
+     */
+    public synchronized double getHitRate() {
+	final long lookups = hits + misses;
+	return (0 == lookups) ? 0 : ((double) hits / lookups);
+    }
+
+    /**
+     * @return a short description of the cache usage.
+     */
+    public synchronized String getStatistics() {
+	return Messages.ReportCache_Statistics(entries.size(), weight, hits,
+		misses, Math.round(getHitRate() * 100), evictions,
+		invalidations);
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.Oracle8iDialect;
+import org.hibernate.dialect.Oracle9Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+
+/**
+ * A single, ordered step in the evolution of the audit database schema.
+ * <p>
+ * Each step brings a database at the previous version up to its own version.
+ * Steps must only issue statements for objects that are actually missing, so
+ * that a step interrupted half-way can safely be run again.
+ *
+ * @author Marco Scata
+ *
+ */
+public abstract class SchemaMigration {
+    private final int version;
+    private final String description;
+
+    protected SchemaMigration(final int version, final String description) {
+	this.version = version;
+	this.description = description;
+    }
+
+    /**
+     * @return the schema version reached once this step is applied.
+     */
+    public int getVersion() {
+	return version;
+    }
+
+    /**
+     * @return a short description of this step.
+     */
+    public String getDescription() {
+	return description;
+    }
+
+    /**
+     * Retrieves the DDL statements needed to apply this step to the database.
+     *
+     * @param config
+     *            the Hibernate configuration holding the current mappings.
+     * @param dialect
+     *            the SQL dialect of the target database.
+     * @param metadata
+     *            the metadata of the target database.
+     * @return a list of statements, possibly empty, never <code>null</code>.
+     * @throws SQLException
+     *             if the database metadata cannot be read.
+     */
+    public abstract List<String> getStatements(Configuration config,
+	    Dialect dialect, DatabaseMetaData metadata) throws SQLException;
+
+    /**
+     * @return the data backfills to run once the statements have been
+     *         applied, never <code>null</code>.
+     */
+    public List<ChunkedBackfill> getBackfills() {
+	return Collections.emptyList();
+    }
+
+    @Override
+    public String toString() {
+	return String.format("%d: %s", version, description);
+    }
+
+    /**
+     * Converts the given identifier to the case the database uses when
+     * storing unquoted identifiers, so it can be used in metadata lookups.
+     */
+    protected static String toMetadataCase(final DatabaseMetaData metadata,
+	    final String identifier) throws SQLException {
+	if (metadata.storesUpperCaseIdentifiers()) {
+	    return identifier.toUpperCase();
+	} else if (metadata.storesLowerCaseIdentifiers()) {
+	    return identifier.toLowerCase();
+	}
+	return identifier;
+    }
+
+    protected static boolean tableExists(final DatabaseMetaData metadata,
+	    final String table) throws SQLException {
+	final ResultSet tables = metadata.getTables(null, null,
+		toMetadataCase(metadata, table), null);
+	try {
+	    return tables.next();
+	} finally {
+	    JdbcUtil.close(tables);
+	}
+    }
+
+    protected static boolean columnExists(final DatabaseMetaData metadata,
+	    final String table, final String column) throws SQLException {
+	final ResultSet columns = metadata.getColumns(null, null,
+		toMetadataCase(metadata, table),
+		toMetadataCase(metadata, column));
+	try {
+	    return columns.next();
+	} finally {
+	    JdbcUtil.close(columns);
+	}
+    }
+
+    protected static boolean indexExists(final DatabaseMetaData metadata,
+	    final String table, final String index) throws SQLException {
+	// approximate statistics: some drivers would otherwise
+	// analyze the whole table just to list its indexes
+	final ResultSet indexes = metadata.getIndexInfo(null, null,
+		toMetadataCase(metadata, table), false, true);
+	try {
+	    while (indexes.next()) {
+		if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+		    return true;
+		}
+	    }
+	    return false;
+	} finally {
+	    JdbcUtil.close(indexes);
+	}
+    }
+
+    /**
+     * Builds a statement that creates the given index while keeping the
+     * table available for writes, on the databases that support it.
+     */
+    protected static String createIndex(final Dialect dialect,
+	    final String index, final String table, final List<String> columns) {
+	final StringBuilder columnList = new StringBuilder();
+	for (final String column : columns) {
+	    if (columnList.length() > 0) {
+		columnList.append(", ");
+	    }
+	    columnList.append(column);
+	}
+
+	if (dialect instanceof PostgreSQLDialect) {
+	    return String.format("create index concurrently %s on %s (%s)",
+		    index, table, columnList);
+	} else if ((dialect instanceof Oracle8iDialect)
+		|| (dialect instanceof Oracle9Dialect)) {
+	    return String.format("create index %s on %s (%s) online",
+		    index, table, columnList);
+	}
+	return String.format("create index %s on %s (%s)",
+		index, table, columnList);
+    }
+
+    /**
+     * Builds a statement that adds a nullable column to the given table.
+     * Nullable columns without defaults can be added without rewriting the
+     * table on all the supported databases.
+     */
+    protected static String addColumn(final Dialect dialect,
+	    final String table, final String column, final int sqlType,
+	    final int length) {
+	return String.format("alter table %s %s %s %s", table,
+		dialect.getAddColumnString(), column,
+		dialect.getTypeName(sqlType, length, 0, 0));
+    }
+}
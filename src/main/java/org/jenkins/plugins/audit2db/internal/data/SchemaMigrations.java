@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ordered list of all schema migration steps. New steps must always be
+ * appended with the next version number: steps that have been released must
+ * never be changed or re-numbered.
+ *
+ * @author Marco Scata
+ *
+ */
+final class SchemaMigrations {
+    /**
+     * The version of the schema created by releases that predate schema
+     * versioning.
+     */
+    static final int BASELINE_VERSION = 1;
+
+    /**
+     * The version from which the lower case copies of the names are all
+     * populated, and can be relied upon by the case-insensitive lookups.
+     */
+    static final int LOWER_CASE_VERSION = 16;
+
+    /**
+     * Cannot be instantiated by others.
+     */
+    private SchemaMigrations() {
+    }
+
+    static List<SchemaMigration> getAll() {
+	final List<SchemaMigration> retval = new ArrayList<SchemaMigration>();
+	retval.add(new CreateIndexesMigration(2, "Indexes for report queries",
+		"IDX_JBD_DATES", "IDX_JBD_NAME", "IDX_JBD_NODE",
+		"IDX_JBN_MASTER", "IDX_JBP_DETAILS", "IDX_JBP_NAME_VALUE"));
+	retval.add(new CreateIndexesMigration(3, "Covering index for project names",
+		"IDX_JBD_PROJECTS"));
+	retval.add(new CreateIndexesMigration(4, "Keyset index for report pages",
+		"IDX_JBD_KEYSET"));
+	retval.add(new CreateTablesMigration(5, "Daily build summaries",
+		"JENKINS_BUILD_DAILY"));
+	retval.add(new AddColumnsMigration(6, "Daily build duration sketches",
+		"JENKINS_BUILD_DAILY", "durationSketch"));
+	retval.add(new CreateIndexesMigration(7, "Duration index for slowest builds",
+		"IDX_JBD_DURATION"));
+	retval.add(new AddColumnsMigration(8, "Start time buckets",
+		"JENKINS_BUILD_DETAILS", "startMinute", "startHour") {
+	    @Override
+	    public List<ChunkedBackfill> getBackfills() {
+		return Collections
+			.<ChunkedBackfill> singletonList(new StartBucketsBackfill());
+	    }
+	});
+	retval.add(new CreateIndexesMigration(9, "Covering index for throughput reports",
+		"IDX_JBD_BUCKETS"));
+	// the smallest tables first, so that the node lookups of the builds
+	// recorded meanwhile stop needing the fallback on lower() soonest
+	retval.add(lowerCaseColumns(10, "Lower case node names",
+		"JENKINS_BUILD_NODE", "url", "url", "masterHostName"));
+	retval.add(lowerCaseColumns(11, "Lower case daily build summary names",
+		"JENKINS_BUILD_DAILY", "id", "masterHostName", "name"));
+	retval.add(lowerCaseColumns(12, "Lower case build parameters",
+		"JENKINS_BUILD_PARAMS", "id", "name", "value"));
+	retval.add(lowerCaseColumns(13, "Lower case build names",
+		"JENKINS_BUILD_DETAILS", "id", "name", "fullName", "userId",
+		"userName"));
+	retval.add(new CreateIndexesMigration(14, "Indexes for case-insensitive lookups",
+		"IDX_JBD_LOWER_NAME", "IDX_JBD_LOWER_FULL_NAME",
+		"IDX_JBD_LOWER_USER_ID", "IDX_JBD_LOWER_USER_NAME",
+		"IDX_JBN_LOWER_URL", "IDX_JBN_LOWER_MASTER",
+		"IDX_JBP_LOWER_NAME_VALUE", "IDX_JBDY_LOWER_DAY"));
+	retval.add(new CreateIndexesMigration(15, "Index for date range overlaps",
+		"IDX_JBD_OVERLAP"));
+	retval.add(lowerCaseColumns(LOWER_CASE_VERSION, "Lower case node names for filters",
+		"JENKINS_BUILD_NODE", "url", "name", "displayName"));
+	retval.add(new AddColumnsMigration(17, "Id hashes for report pages",
+		"JENKINS_BUILD_DETAILS", "idHash") {
+	    @Override
+	    public List<ChunkedBackfill> getBackfills() {
+		return Collections
+			.<ChunkedBackfill> singletonList(new IdHashBackfill());
+	    }
+	});
+	retval.add(new CreateIndexesMigration(18, "Keyset index on id hashes",
+		"IDX_JBD_PAGES"));
+	return retval;
+    }
+
+    /**
+     * @return a step adding the lower case copies of the given columns, named
+     *         after them with a "lower" prefix, and populating them.
+     */
+    private static SchemaMigration lowerCaseColumns(final int version,
+	    final String description, final String tableName,
+	    final String keyColumn, final String... columnNames) {
+	final String[] lowerColumnNames = new String[columnNames.length];
+	for (int i = 0; i < columnNames.length; i++) {
+	    lowerColumnNames[i] = "lower"
+		    + Character.toUpperCase(columnNames[i].charAt(0))
+		    + columnNames[i].substring(1);
+	}
+	return new AddColumnsMigration(version, description, tableName,
+		lowerColumnNames) {
+	    @Override
+	    public List<ChunkedBackfill> getBackfills() {
+		return Collections
+			.<ChunkedBackfill> singletonList(new LowerCaseBackfill(
+				tableName, keyColumn, columnNames,
+				lowerColumnNames));
+	    }
+	};
+    }
+}
@@ -0,0 +1,295 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.Dialect;
+
+/**
+ * Brings the audit database schema up to date, by applying in order all the
+ * {@link SchemaMigration} steps that have not been applied yet. The version
+ * reached is recorded in a dedicated table.
+ *
+ * @author Marco Scata
+ *
+ */
+public class SchemaMigrator {
+    private final static Logger LOGGER = Logger.getLogger(SchemaMigrator.class.getName());
+
+    public final static String VERSION_TABLE = "JENKINS_AUDIT2DB_SCHEMA";
+
+    private final static String AUDIT_TABLE = "JENKINS_BUILD_DETAILS";
+
+    private final static int CONNECTION_TIMEOUT = 30;
+    private final static int BACKFILL_CHUNK_SIZE = 1000;
+    private final static long BACKFILL_PAUSE_MILLIS = 200;
+
+    /**
+     * Migrations started concurrently (e.g. at startup and from the
+     * configuration page) are applied one after the other.
+     */
+    private final static Object LOCK = new Object();
+
+    private final static int LATEST_VERSION = getLatestVersion(SchemaMigrations
+	    .getAll());
+
+    private final String driverClass;
+    private final String driverUrl;
+    private final String username;
+    private final String password;
+    private final List<SchemaMigration> migrations;
+
+    public SchemaMigrator(final String driverClass, final String driverUrl,
+	    final String username, final String password) {
+	this.driverClass = driverClass;
+	this.driverUrl = driverUrl;
+	this.username = username;
+	this.password = password;
+	this.migrations = SchemaMigrations.getAll();
+    }
+
+    /**
+     * @return the version of the schema once all migrations are applied.
+     */
+    public int getLatestVersion() {
+	return getLatestVersion(migrations);
+    }
+
+    /**
+     * @return the version of the schema once all the migrations of this
+     *         release are applied.
+     */
+    public static int getLatestSchemaVersion() {
+	return LATEST_VERSION;
+    }
+
+    private static int getLatestVersion(final List<SchemaMigration> migrations) {
+	int retval = SchemaMigrations.BASELINE_VERSION;
+	for (final SchemaMigration migration : migrations) {
+	    retval = Math.max(retval, migration.getVersion());
+	}
+	return retval;
+    }
+
+    /**
+     * Brings the audit database schema up to the latest version. If the
+     * audit tables do not exist at all, the whole schema is created.
+     *
+     * @param dryRun
+     *            if <code>true</code>, nothing is changed and the returned
+     *            report lists what would be done.
+     * @return a report of the steps taken.
+     * @throws SQLException
+     *             if a step fails. All the steps that completed before the
+     *             failure remain applied and recorded.
+     * @throws InterruptedException
+     *             if the thread is interrupted during a data backfill.
+     */
+    public String migrate(final boolean dryRun) throws SQLException,
+	    InterruptedException {
+	synchronized (LOCK) {
+	    final StringBuilder report = new StringBuilder();
+	    if (dryRun) {
+		log(report, Messages.SchemaMigrator_DryRun());
+	    }
+
+	    final Configuration config = HibernateUtil.getConfig(
+		    HibernateUtil.getExtraProperties(driverClass, driverUrl,
+			    username, password));
+	    final Connection connection = JdbcUtil.getConnection(driverClass,
+		    driverUrl, username, password, CONNECTION_TIMEOUT);
+	    try {
+		connection.setAutoCommit(true);
+		final Dialect dialect = HibernateUtil.getDialect(
+			config.getProperties(), connection);
+		final DatabaseMetaData metadata = connection.getMetaData();
+
+		if (!SchemaMigration.tableExists(metadata, AUDIT_TABLE)) {
+		    // a fresh schema generated from the mappings
+		    // is already at the latest version
+		    final int latestVersion = getLatestVersion();
+		    log(report, Messages.SchemaMigrator_FreshInstall(latestVersion));
+		    execute(connection, Arrays.asList(
+			    config.generateSchemaCreationScript(dialect)),
+			    dryRun, report);
+		    createVersionTable(connection, dialect, dryRun, report);
+		    recordVersion(connection, latestVersion,
+			    Messages.SchemaMigrator_InitialSchema(), dryRun);
+		    return report.toString();
+		}
+
+		int currentVersion;
+		if (SchemaMigration.tableExists(metadata, VERSION_TABLE)) {
+		    currentVersion = getCurrentVersion(connection);
+		} else {
+		    currentVersion = SchemaMigrations.BASELINE_VERSION;
+		    log(report, Messages.SchemaMigrator_Baseline(currentVersion));
+		    createVersionTable(connection, dialect, dryRun, report);
+		    recordVersion(connection, currentVersion,
+			    Messages.SchemaMigrator_BaselineSchema(), dryRun);
+		}
+		log(report, Messages.SchemaMigrator_CurrentVersion(currentVersion));
+
+		for (final SchemaMigration migration : migrations) {
+		    if (migration.getVersion() > currentVersion) {
+			apply(connection, config, dialect, metadata,
+				migration, dryRun, report);
+			currentVersion = migration.getVersion();
+		    }
+		}
+		log(report, Messages.SchemaMigrator_UpToDate(currentVersion));
+	    } finally {
+		JdbcUtil.close(connection);
+	    }
+
+	    return report.toString();
+	}
+    }
+
+    private void apply(final Connection connection,
+	    final Configuration config, final Dialect dialect,
+	    final DatabaseMetaData metadata, final SchemaMigration migration,
+	    final boolean dryRun, final StringBuilder report)
+	    throws SQLException, InterruptedException {
+	log(report, Messages.SchemaMigrator_Applying(migration));
+	execute(connection,
+		migration.getStatements(config, dialect, metadata),
+		dryRun, report);
+
+	for (final ChunkedBackfill backfill : migration.getBackfills()) {
+	    if (dryRun) {
+		log(report, Messages.SchemaMigrator_PendingBackfill(backfill));
+	    } else {
+		final long rows = backfill.run(connection,
+			BACKFILL_CHUNK_SIZE, BACKFILL_PAUSE_MILLIS);
+		log(report, Messages.SchemaMigrator_Backfilled(backfill, rows));
+	    }
+	}
+
+	recordVersion(connection, migration.getVersion(),
+		migration.getDescription(), dryRun);
+    }
+
+    private void execute(final Connection connection,
+	    final List<String> statements, final boolean dryRun,
+	    final StringBuilder report) throws SQLException {
+	for (final String sql : statements) {
+	    report.append("    ").append(sql).append(';').append('\n');
+	    if (!dryRun) {
+		final Statement statement = connection.createStatement();
+		try {
+		    statement.execute(sql);
+		} finally {
+		    JdbcUtil.close(statement);
+		}
+	    }
+	}
+    }
+
+    private void createVersionTable(final Connection connection,
+	    final Dialect dialect, final boolean dryRun,
+	    final StringBuilder report) throws SQLException {
+	final String sql = String.format(
+		"create table %s (schemaVersion %s not null, description %s, appliedOn %s, primary key (schemaVersion))",
+		VERSION_TABLE, dialect.getTypeName(Types.INTEGER),
+		dialect.getTypeName(Types.VARCHAR, 255, 0, 0),
+		dialect.getTypeName(Types.TIMESTAMP));
+	execute(connection, Arrays.asList(sql), dryRun, report);
+    }
+
+    /**
+     * Tells whether a migration step has been applied to a database.
+     *
+     * @param connection
+     *            an open connection to the database.
+     * @param version
+     *            the version of the migration step.
+     * @throws SQLException
+     *             if the recorded version cannot be read.
+     */
+    public static boolean isApplied(final Connection connection,
+	    final int version) throws SQLException {
+	return getSchemaVersion(connection) >= version;
+    }
+
+    /**
+     * Reads the version of the schema of a database. A schema without a
+     * version table was created by a release that predates schema
+     * versioning, so it is at the baseline version, as {@link #migrate}
+     * assumes.
+     *
+     * @param connection
+     *            an open connection to the database.
+     * @return the version of the schema.
+     * @throws SQLException
+     *             if the recorded version cannot be read.
+     */
+    public static int getSchemaVersion(final Connection connection)
+	    throws SQLException {
+	if (!SchemaMigration.tableExists(connection.getMetaData(),
+		VERSION_TABLE)) {
+	    return SchemaMigrations.BASELINE_VERSION;
+	}
+	return getCurrentVersion(connection);
+    }
+
+    private static int getCurrentVersion(final Connection connection)
+	    throws SQLException {
+	final Statement statement = connection.createStatement();
+	try {
+	    final ResultSet result = statement.executeQuery(
+		    "select max(schemaVersion) from " + VERSION_TABLE);
+	    try {
+		if (result.next()) {
+		    final int version = result.getInt(1);
+		    if (!result.wasNull()) {
+			return version;
+		    }
+		}
+		return SchemaMigrations.BASELINE_VERSION;
+	    } finally {
+		JdbcUtil.close(result);
+	    }
+	} finally {
+	    JdbcUtil.close(statement);
+	}
+    }
+
+    private void recordVersion(final Connection connection,
+	    final int version, final String description, final boolean dryRun)
+	    throws SQLException {
+	if (dryRun) {
+	    return;
+	}
+	final PreparedStatement insert = connection.prepareStatement(
+		"insert into " + VERSION_TABLE
+		+ " (schemaVersion, description, appliedOn) values (?, ?, ?)");
+	try {
+	    insert.setInt(1, version);
+	    insert.setString(2, description);
+	    insert.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+	    insert.executeUpdate();
+	} finally {
+	    JdbcUtil.close(insert);
+	}
+    }
+
+    private void log(final StringBuilder report, final String message) {
+	LOGGER.log(Level.INFO, message);
+	report.append(message).append('\n');
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Date;
+
+import org.jenkins.plugins.audit2db.data.TimeBucket;
+
+/**
+ * Populates the start minute and hour of the build details recorded before
+ * those columns were added.
+ *
+ * @author Marco Scata
+ *
+ */
+class StartBucketsBackfill extends ChunkedBackfill {
+    StartBucketsBackfill() {
+	super("JENKINS_BUILD_DETAILS", "id", new String[] { "startDate" },
+		new String[] { "startMinute", "startHour" }, new int[] {
+			Types.BIGINT, Types.BIGINT });
+    }
+
+    @Override
+    protected Object[] getTargetValues(final Object[] sourceValues) {
+	// some drivers (e.g. Oracle) return their own timestamp type, whose
+	// text form is still the JDBC escape format
+	final Date startDate = (sourceValues[0] instanceof Date) ? (Date) sourceValues[0]
+		: Timestamp.valueOf(sourceValues[0].toString());
+	return new Object[] { TimeBucket.MINUTE.getBucket(startDate),
+		TimeBucket.HOUR.getBucket(startDate) };
+    }
+}
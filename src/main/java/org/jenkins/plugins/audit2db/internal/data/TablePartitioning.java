@@ -0,0 +1,120 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.hibernate.cfg.Configuration;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.Oracle8iDialect;
+import org.hibernate.dialect.Oracle9Dialect;
+import org.hibernate.mapping.Column;
+import org.hibernate.mapping.Index;
+import org.hibernate.mapping.Table;
+
+/**
+ * Builds the statements that partition the build details table by month of
+ * {@link org.jenkins.plugins.audit2db.model.BuildDetails#getStartDate() start
+ * date}. All the repository date filters bound the start date, so that a
+ * partitioned table only has the partitions overlapping the requested dates
+ * scanned, regardless of how much history it holds.
+ * <p>
+ * Partitioning is only offered where an existing table can be partitioned
+ * in place without changing its keys: on the other supported databases
+ * partitioned tables require the partition column to be part of the primary
+ * key, or do not support foreign keys at all.
+ *
+ * @author Marco Scata
+ *
+ */
+final class TablePartitioning {
+    private final static String TABLE = "JENKINS_BUILD_DETAILS";
+    private final static String PARTITION_COLUMN = "startDate";
+
+    /**
+     * The upper bound of the first partition: later partitions are created
+     * automatically, one for each month, as rows are inserted.
+     */
+    private final static String FIRST_PARTITION_BOUND = "2000-01-01 00:00:00";
+
+    /**
+     * Cannot be instantiated by others.
+     */
+    private TablePartitioning() {
+    }
+
+    static boolean isSupported(final Dialect dialect) {
+	return (dialect instanceof Oracle8iDialect)
+		|| (dialect instanceof Oracle9Dialect);
+    }
+
+    /**
+     * @param config
+     *            the mappings of the entities.
+     * @param dialect
+     *            the SQL dialect of the target database.
+     * @return the statements that partition the build details table.
+     * @throws UnsupportedOperationException
+     *             if the table cannot be partitioned on the given database.
+     */
+    static List<String> getStatements(final Configuration config,
+	    final Dialect dialect) {
+	if (!isSupported(dialect)) {
+	    throw new UnsupportedOperationException(
+		    Messages.TablePartitioning_NotSupported(dialect));
+	}
+
+	// interval partitioning, converted online (Oracle 12.2 onwards);
+	// the indexes on the start date become local so that they are pruned
+	// as well
+	final StringBuilder localIndexes = new StringBuilder();
+	for (final String index : getLocalIndexes(config)) {
+	    if (localIndexes.length() > 0) {
+		localIndexes.append(", ");
+	    }
+	    localIndexes.append(index).append(" local");
+	}
+	final List<String> retval = new ArrayList<String>();
+	retval.add(String.format(
+		"alter table %s modify partition by range (%s) "
+		+ "interval (numtoyminterval(1, 'MONTH')) "
+		+ "(partition JBD_P0 values less than (timestamp '%s')) "
+		+ "online update indexes (%s)",
+		TABLE, PARTITION_COLUMN, FIRST_PARTITION_BOUND, localIndexes));
+	return retval;
+    }
+
+    /**
+     * @return the names of the indexes of the build details table that
+     *         include the partition column, as declared on the mapped
+     *         entities.
+     */
+    private static List<String> getLocalIndexes(final Configuration config) {
+	final List<String> retval = new ArrayList<String>();
+	config.buildMappings();
+
+	final Iterator<?> tables = config.getTableMappings();
+	while (tables.hasNext()) {
+	    final Table table = (Table) tables.next();
+	    if (!TABLE.equalsIgnoreCase(table.getName())) {
+		continue;
+	    }
+	    final Iterator<?> indexes = table.getIndexIterator();
+	    while (indexes.hasNext()) {
+		final Index index = (Index) indexes.next();
+		final Iterator<?> columns = index.getColumnIterator();
+		while (columns.hasNext()) {
+		    if (PARTITION_COLUMN.equalsIgnoreCase(((Column) columns
+			    .next()).getName())) {
+			retval.add(index.getName());
+			break;
+		    }
+		}
+	    }
+	}
+	return retval;
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.jenkins.plugins.audit2db.data.BuildDetailsHandler;
+import org.jenkins.plugins.audit2db.internal.model.NodeUtilizationImpl;
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+import org.jenkins.plugins.audit2db.model.BuildNode;
+import org.jenkins.plugins.audit2db.model.NodeUtilization;
+
+/**
+ * Measures the use of the build nodes, and of their labels, from build
+ * details handed over in start time order. Each build is added to the sweep
+ * of its node and to the sweep of each of its node labels, and is then
+ * released, so any number of builds can be streamed through.
+ *
+ * @author Marco Scata
+ *
+ */
+public class UtilizationSweep implements BuildDetailsHandler {
+    private final long periodStart;
+    private final long periodEnd;
+    private final Map<String, NodeUtilizationImpl> nodes = new TreeMap<String, NodeUtilizationImpl>();
+    private final Map<String, NodeUtilizationImpl> labels = new TreeMap<String, NodeUtilizationImpl>();
+
+    /**
+     * @param periodStart
+     *            the start of the period, in milliseconds.
+     * @param periodEnd
+     *            the end of the period, in milliseconds. Builds still running
+     *            are counted up to the end of the period.
+     */
+    public UtilizationSweep(final long periodStart, final long periodEnd) {
+	this.periodStart = periodStart;
+	this.periodEnd = periodEnd;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.data.BuildDetailsHandler#handle(org.jenkins.plugins.audit2db.model.BuildDetails)
+     */
+    @Override
+    public boolean handle(final BuildDetails details) {
+	final BuildNode node = details.getNode();
+	if ((null == details.getStartDate()) || (null == node)) {
+	    return true;
+	}
+	final long start = details.getStartDate().getTime();
+	final long end = (null == details.getEndDate()) ? periodEnd : details
+		.getEndDate().getTime();
+
+	getSweep(nodes, getNodeName(node), false).add(start, end);
+	if (node.getLabel() != null) {
+	    for (final String label : node.getLabel().trim().split("\\s+")) {
+		if (!label.isEmpty()) {
+		    getSweep(labels, label, true).add(start, end);
+		}
+	    }
+	}
+	return true;
+    }
+
+    private static String getNodeName(final BuildNode node) {
+	// the master node has an empty name
+	return ((node.getName() != null) && !node.getName().isEmpty()) ? node
+		.getName() : node.getDisplayName();
+    }
+
+    private NodeUtilizationImpl getSweep(
+	    final Map<String, NodeUtilizationImpl> sweeps, final String name,
+	    final boolean label) {
+	NodeUtilizationImpl retval = sweeps.get(name);
+	if (null == retval) {
+	    retval = new NodeUtilizationImpl(name, label, periodStart,
+		    periodEnd);
+	    sweeps.put(name, retval);
+	}
+	return retval;
+    }
+
+    /**
+     * Ends all the sweeps at the end of the period.
+     *
+     * @return the use of each node, by name, followed by the use of each
+     *         label, by label.
+     */
+    public List<NodeUtilization> finish() {
+	final List<NodeUtilization> retval = new ArrayList<NodeUtilization>();
+	for (final NodeUtilizationImpl sweep : nodes.values()) {
+	    sweep.finish();
+	    retval.add(sweep);
+	}
+	for (final NodeUtilizationImpl sweep : labels.values()) {
+	    sweep.finish();
+	    retval.add(sweep);
+	}
+	return retval;
+    }
+}
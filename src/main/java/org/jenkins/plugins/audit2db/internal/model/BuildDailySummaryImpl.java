@@ -0,0 +1,319 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.model;
+
+import hudson.Util;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.Transient;
+
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Table;
+import org.jenkins.plugins.audit2db.internal.DbAuditUtil;
+import org.jenkins.plugins.audit2db.model.BuildSummary;
+
+/**
+ * Data class for the daily rollup of the builds of a project that ended with
+ * the same result, on a Jenkins master.
+ * <p>
+ * The id is derived from the rollup key (master, project, day and result),
+ * so that the rollup row of a build can be read by primary key. Rows are
+ * only ever written by the master they belong to. The summary reports use
+ * the same class, without an id or a day, for the totals over a date range.
+ *
+ * @author Marco Scata
+ *
+ */
+@Entity(name = "JENKINS_BUILD_DAILY")
+@Table(appliesTo = "JENKINS_BUILD_DAILY", indexes = {
+	@Index(name = "IDX_JBDY_DAY", columnNames = { "masterHostName", "buildDay", "name" }),
+	@Index(name = "IDX_JBDY_LOWER_DAY", columnNames = { "lowerMasterHostName", "buildDay", "lowerName" }) })
+public class BuildDailySummaryImpl implements BuildSummary {
+    private String id;
+    private String masterHostName;
+    private String name;
+    private Date buildDay;
+    private String result;
+    private long buildCount;
+    private long totalDuration;
+    private long minDuration;
+    private long maxDuration;
+    private String durationSketch;
+    /**
+     * The durations read from {@link #durationSketch} while builds are added
+     * or rows merged, so that the sketch is only stored once at the end.
+     */
+    private transient DurationSketch sketch;
+
+    public BuildDailySummaryImpl() {
+    }
+
+    /**
+     * Creates the rollup of a single build.
+     */
+    public BuildDailySummaryImpl(final String masterHostName,
+	    final String name, final Date buildDay, final String result,
+	    final long duration) {
+	this.id = getId(masterHostName, name, buildDay, result);
+	this.masterHostName = masterHostName;
+	this.name = name;
+	this.buildDay = buildDay;
+	this.result = result;
+	this.buildCount = 1;
+	this.totalDuration = duration;
+	this.minDuration = duration;
+	this.maxDuration = duration;
+	this.sketch = new DurationSketch();
+	this.sketch.add(duration);
+    }
+
+    /**
+     * @return the id of the rollup row with the given key.
+     */
+    public static String getId(final String masterHostName,
+	    final String name, final Date buildDay, final String result) {
+	return Util.getDigestOf(String.format("%s\n%s\n%tF\n%s",
+		masterHostName, name, buildDay, result));
+    }
+
+    /**
+     * Adds a build to this rollup.
+     */
+    public void add(final long duration) {
+	if (0 == buildCount) {
+	    minDuration = duration;
+	    maxDuration = duration;
+	} else {
+	    minDuration = Math.min(minDuration, duration);
+	    maxDuration = Math.max(maxDuration, duration);
+	}
+	buildCount++;
+	totalDuration += duration;
+	loadSketch().add(duration);
+    }
+
+    /**
+     * Adds all the builds of another rollup to this one.
+     */
+    public void merge(final BuildSummary other) {
+	if (0 == other.getBuildCount()) {
+	    return;
+	}
+	if (0 == buildCount) {
+	    minDuration = other.getMinDuration();
+	    maxDuration = other.getMaxDuration();
+	} else {
+	    minDuration = Math.min(minDuration, other.getMinDuration());
+	    maxDuration = Math.max(maxDuration, other.getMaxDuration());
+	}
+	buildCount += other.getBuildCount();
+	totalDuration += other.getTotalDuration();
+	if (other instanceof BuildDailySummaryImpl) {
+	    final BuildDailySummaryImpl daily = (BuildDailySummaryImpl) other;
+	    if (daily.sketch != null) {
+		loadSketch().merge(daily.sketch);
+	    } else if (daily.durationSketch != null) {
+		loadSketch().merge(DurationSketch.valueOf(daily.durationSketch));
+	    }
+	}
+    }
+
+    /**
+     * @return the durations of the builds, read from the stored sketch the
+     *         first time they are needed.
+     */
+    private DurationSketch loadSketch() {
+	if (null == sketch) {
+	    sketch = DurationSketch.valueOf(durationSketch);
+	}
+	return sketch;
+    }
+
+    @Id
+    @Column(nullable = false, unique = true, length = 32)
+    public String getId() {
+	return id;
+    }
+
+    public void setId(final String id) {
+	this.id = id;
+    }
+
+    @Column(nullable = false, unique = false)
+    public String getMasterHostName() {
+	return masterHostName;
+    }
+
+    public void setMasterHostName(final String masterHostName) {
+	this.masterHostName = masterHostName;
+    }
+
+    /**
+     * @return the master host name in lower case, for the case-insensitive
+     *         lookups.
+     */
+    @Column(nullable = true, unique = false)
+    public String getLowerMasterHostName() {
+	return DbAuditUtil.toLowerCase(masterHostName);
+    }
+
+    /**
+     * Does nothing: the value is derived from the master host name.
+     */
+    public void setLowerMasterHostName(final String lowerMasterHostName) {
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.BuildSummary#getName()
+     */
+    @Column(nullable = false, unique = false)
+    @Override
+    public String getName() {
+	return name;
+    }
+
+    public void setName(final String name) {
+	this.name = name;
+    }
+
+    /**
+     * @return the project name in lower case, for the case-insensitive
+     *         lookups.
+     */
+    @Column(nullable = true, unique = false)
+    public String getLowerName() {
+	return DbAuditUtil.toLowerCase(name);
+    }
+
+    /**
+     * Does nothing: the value is derived from the project name.
+     */
+    public void setLowerName(final String lowerName) {
+    }
+
+    /**
+     * @return the day the builds started on.
+     */
+    @Column(nullable = false, unique = false)
+    @Temporal(TemporalType.DATE)
+    public Date getBuildDay() {
+	return buildDay;
+    }
+
+    public void setBuildDay(final Date buildDay) {
+	this.buildDay = buildDay;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.BuildSummary#getResult()
+     */
+    @Column(nullable = true, unique = false)
+    @Override
+    public String getResult() {
+	return result;
+    }
+
+    public void setResult(final String result) {
+	this.result = result;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.BuildSummary#getBuildCount()
+     */
+    @Column(nullable = false, unique = false)
+    @Override
+    public long getBuildCount() {
+	return buildCount;
+    }
+
+    public void setBuildCount(final long buildCount) {
+	this.buildCount = buildCount;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.BuildSummary#getTotalDuration()
+     */
+    @Column(nullable = false, unique = false)
+    @Override
+    public long getTotalDuration() {
+	return totalDuration;
+    }
+
+    public void setTotalDuration(final long totalDuration) {
+	this.totalDuration = totalDuration;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.BuildSummary#getMinDuration()
+     */
+    @Column(nullable = false, unique = false)
+    @Override
+    public long getMinDuration() {
+	return minDuration;
+    }
+
+    public void setMinDuration(final long minDuration) {
+	this.minDuration = minDuration;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.BuildSummary#getMaxDuration()
+     */
+    @Column(nullable = false, unique = false)
+    @Override
+    public long getMaxDuration() {
+	return maxDuration;
+    }
+
+    public void setMaxDuration(final long maxDuration) {
+	this.maxDuration = maxDuration;
+    }
+
+    /**
+     * @return the durations of the builds, in the form stored by
+     *         {@link DurationSketch#toString()}.
+     */
+    @Column(nullable = true, unique = false, length = 4000)
+    public String getDurationSketch() {
+	if (sketch != null) {
+	    durationSketch = sketch.toString();
+	    sketch = null;
+	}
+	return durationSketch;
+    }
+
+    public void setDurationSketch(final String durationSketch) {
+	this.durationSketch = durationSketch;
+	this.sketch = null;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.BuildSummary#getDurationPercentile(double)
+     */
+    @Override
+    public long getDurationPercentile(final double percentile) {
+	return loadSketch().getPercentile(percentile);
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.BuildSummary#getAverageDuration()
+     */
+    @Override
+    @Transient
+    public long getAverageDuration() {
+	return (0 == buildCount) ? 0 : (totalDuration / buildCount);
+    }
+
+    @Override
+    public String toString() {
+	return String.format("%s %tF %s: %d builds", name, buildDay, result,
+		buildCount);
+    }
+}
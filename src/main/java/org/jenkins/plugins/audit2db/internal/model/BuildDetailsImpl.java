@@ -29,17 +29,46 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Table;
+import org.jenkins.plugins.audit2db.data.TimeBucket;
+import org.jenkins.plugins.audit2db.internal.DbAuditUtil;
 import org.jenkins.plugins.audit2db.model.BuildDetails;
 import org.jenkins.plugins.audit2db.model.BuildNode;
 import org.jenkins.plugins.audit2db.model.BuildParameter;
 
 /**
  * Data class for build details.
+ * <p>
+ * The indexes declared here support the report queries, which filter by date
+ * range, job name and (through the node) master host name. The project names
+ * index covers the project name lookups, which can then be answered without
+ * reading the table at all. The keyset index serves the report pages, which are
+ * read in (startDate, id) order. The buckets index covers the throughput
+ * reports, which count the builds by start minute or hour. The lower case
+ * copies of the names are stored so that the case-insensitive lookups can
+ * seek their indexes, rather than scan the table comparing lower(name). The
+ * overlap index serves the date range lookups, which are bounded by the end
+ * date.
  * 
  * @author Marco Scata
  * 
  */
 @Entity(name = "JENKINS_BUILD_DETAILS")
+@Table(appliesTo = "JENKINS_BUILD_DETAILS", indexes = {
+	@Index(name = "IDX_JBD_DATES", columnNames = { "startDate", "endDate" }),
+	@Index(name = "IDX_JBD_NAME", columnNames = { "name", "startDate" }),
+	@Index(name = "IDX_JBD_PROJECTS", columnNames = { "startDate", "endDate", "name", "node_url" }),
+	@Index(name = "IDX_JBD_KEYSET", columnNames = { "startDate", "id" }),
+	@Index(name = "IDX_JBD_DURATION", columnNames = { "duration", "startDate" }),
+	@Index(name = "IDX_JBD_BUCKETS", columnNames = { "startMinute", "startHour", "result", "node_url" }),
+	@Index(name = "IDX_JBD_LOWER_NAME", columnNames = { "lowerName", "startDate" }),
+	@Index(name = "IDX_JBD_LOWER_FULL_NAME", columnNames = { "lowerFullName" }),
+	@Index(name = "IDX_JBD_LOWER_USER_ID", columnNames = { "lowerUserId" }),
+	@Index(name = "IDX_JBD_LOWER_USER_NAME", columnNames = { "lowerUserName" }),
+	@Index(name = "IDX_JBD_OVERLAP", columnNames = { "endDate", "startDate" }),
+	@Index(name = "IDX_JBD_PAGES", columnNames = { "startDate", "idHash", "id" }) })
 public class BuildDetailsImpl implements BuildDetails {
     private final static Logger LOGGER = Logger
 	    .getLogger(BuildDetailsImpl.class.getName());
@@ -75,6 +104,22 @@ public class BuildDetailsImpl implements BuildDetails {
 	this.id = id;
     }
 
+    /**
+     * @return the hash of the id, breaking the start date ties of the
+     *         report pages.
+     * @see DbAuditUtil#getIdHash(String)
+     */
+    @Column(nullable = true, unique = false)
+    public Long getIdHash() {
+	return DbAuditUtil.getIdHash(id);
+    }
+
+    /**
+     * Does nothing: the value is derived from the id.
+     */
+    public void setIdHash(final Long idHash) {
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.model.BuildDetails#getName()
      */
@@ -92,6 +137,20 @@ public class BuildDetailsImpl implements BuildDetails {
 	this.name = name;
     }
 
+    /**
+     * @return the name in lower case, for the case-insensitive lookups.
+     */
+    @Column(nullable = true, unique = false)
+    public String getLowerName() {
+	return DbAuditUtil.toLowerCase(name);
+    }
+
+    /**
+     * Does nothing: the value is derived from the name.
+     */
+    public void setLowerName(final String lowerName) {
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.model.BuildDetails#getFullName()
      */
@@ -109,6 +168,20 @@ public class BuildDetailsImpl implements BuildDetails {
 	this.fullName = fullName;
     }
 
+    /**
+     * @return the full name in lower case, for the case-insensitive lookups.
+     */
+    @Column(nullable = true, unique = false)
+    public String getLowerFullName() {
+	return DbAuditUtil.toLowerCase(fullName);
+    }
+
+    /**
+     * Does nothing: the value is derived from the full name.
+     */
+    public void setLowerFullName(final String lowerFullName) {
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.model.BuildDetails#getStartDate()
      */
@@ -126,6 +199,39 @@ public class BuildDetailsImpl implements BuildDetails {
 	this.startDate = start;
     }
 
+    /**
+     * @return the number of the minute the build started in, as defined by
+     *         {@link TimeBucket#MINUTE}. Stored so that the throughput
+     *         reports can be grouped by the database.
+     */
+    @Column(nullable = true, unique = false)
+    public Long getStartMinute() {
+	return (null == startDate) ? null : TimeBucket.MINUTE
+		.getBucket(startDate);
+    }
+
+    /**
+     * Does nothing: the value is derived from the start date.
+     */
+    public void setStartMinute(final Long startMinute) {
+    }
+
+    /**
+     * @return the number of the hour the build started in, as defined by
+     *         {@link TimeBucket#HOUR}.
+     */
+    @Column(nullable = true, unique = false)
+    public Long getStartHour() {
+	return (null == startDate) ? null : TimeBucket.HOUR
+		.getBucket(startDate);
+    }
+
+    /**
+     * Does nothing: the value is derived from the start date.
+     */
+    public void setStartHour(final Long startHour) {
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.model.BuildDetails#getEndDate()
      */
@@ -197,6 +303,20 @@ public class BuildDetailsImpl implements BuildDetails {
 	this.userId = userId;
     }
 
+    /**
+     * @return the user id in lower case, for the case-insensitive lookups.
+     */
+    @Column(nullable = true, unique = false)
+    public String getLowerUserId() {
+	return DbAuditUtil.toLowerCase(userId);
+    }
+
+    /**
+     * Does nothing: the value is derived from the user id.
+     */
+    public void setLowerUserId(final String lowerUserId) {
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.model.BuildDetails#getUserName()
      */
@@ -214,6 +334,20 @@ public class BuildDetailsImpl implements BuildDetails {
 	this.userName = userName;
 
     }
+
+    /**
+     * @return the user name in lower case, for the case-insensitive lookups.
+     */
+    @Column(nullable = true, unique = false)
+    public String getLowerUserName() {
+	return DbAuditUtil.toLowerCase(userName);
+    }
+
+    /**
+     * Does nothing: the value is derived from the user name.
+     */
+    public void setLowerUserName(final String lowerUserName) {
+    }
     
     /**
      * @see org.jenkins.plugins.audit2db.model.BuildDetails#getLog()
@@ -230,9 +364,14 @@ public class BuildDetailsImpl implements BuildDetails {
     }
 
     /**
+     * The parameters are loaded lazily, for up to 500 build details at a time
+     * with a single IN-list query, so that reports listing the parameters of
+     * every build only issue a handful of queries.
+     *
      * @see org.jenkins.plugins.audit2db.model.BuildDetails#getParameters()
      */
     @OneToMany(cascade = CascadeType.ALL, targetEntity = BuildParameterImpl.class, mappedBy = "buildDetails")
+    @BatchSize(size = 500)
     @Column(nullable = true, unique = false)
     @Override
     public List<BuildParameter> getParameters() {
@@ -259,6 +398,7 @@ public class BuildDetailsImpl implements BuildDetails {
      */
     @ManyToOne(targetEntity = BuildNodeImpl.class, cascade = CascadeType.ALL, fetch = FetchType.EAGER)
     @JoinColumn(nullable = true, unique = false)
+    @Index(name = "IDX_JBD_NODE")
     @Override
     public BuildNode getNode() {
 	return node;
@@ -315,7 +455,7 @@ public class BuildDetailsImpl implements BuildDetails {
 	return retval;
     }
 
-    private BuildNode resolveBuildNode(final Node node) {
+    private BuildNode resolveBuildNode(final Node node, final String nodeName) {
 	String address = "UNKNOWN";
 	String hostname = "UNKNOWN";
 	try {
@@ -328,11 +468,25 @@ public class BuildDetailsImpl implements BuildDetails {
 		    "An error occurred while trying to resolve the master's network name and address: "
 			    + e.getMessage(), e);
 	}
+	if (null == node) {
+	    // the node has been removed since the build ran
+	    // (e.g. when backfilling old builds): only its name is known
+	    final String name = (null == nodeName) ? "" : nodeName;
+	    final String computerUrl = String.format("computer/%s/",
+		    name.isEmpty() ? "(master)" : name);
+	    return new BuildNodeImpl(address, hostname, name,
+		    String.format("%s/%s", hostname, computerUrl), name,
+		    null, null);
+	}
 	final Computer computer = node.toComputer();
+	final String displayName = (null == computer) ? node.getDisplayName()
+		: computer.getDisplayName();
+	final String computerUrl = (null == computer) ? String.format(
+		"computer/%s/", node.getNodeName()) : computer.getUrl();
 	final BuildNode retval = new BuildNodeImpl(address, hostname,
-		computer.getDisplayName(), String.format("%s/%s", hostname,
-			computer.getUrl()), node.getNodeName(),
-		node.getNodeDescription(), node.getLabelString());
+		displayName, String.format("%s/%s", hostname, computerUrl),
+		node.getNodeName(), node.getNodeDescription(),
+		node.getLabelString());
 	return retval;
     }
 
@@ -414,7 +568,7 @@ public class BuildDetailsImpl implements BuildDetails {
 	    }
 	}
 
-	this.node = resolveBuildNode(build.getBuiltOn());
+	this.node = resolveBuildNode(build.getBuiltOn(), build.getBuiltOnStr());
 	this.id = String
 		.format("%s/%s/%s", this.node, this.name, build.getId());
 	this.parameters
@@ -7,6 +7,9 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 
+import org.hibernate.annotations.Index;
+
+import org.jenkins.plugins.audit2db.internal.DbAuditUtil;
 import org.jenkins.plugins.audit2db.model.BuildNode;
 
 /**
@@ -44,6 +47,7 @@ public class BuildNodeImpl implements BuildNode {
      * @see org.jenkins.plugins.audit2db.model.BuildNode#getMasterHostName()
      */
     @Column(nullable = false, unique = false)
+    @Index(name = "IDX_JBN_MASTER")
     @Override
     public String getMasterHostName() {
 	return hostName;
@@ -57,6 +61,22 @@ public class BuildNodeImpl implements BuildNode {
 	this.hostName = hostName;
     }
 
+    /**
+     * @return the master host name in lower case, for the case-insensitive
+     *         lookups.
+     */
+    @Column(nullable = true, unique = false)
+    @Index(name = "IDX_JBN_LOWER_MASTER")
+    public String getLowerMasterHostName() {
+	return DbAuditUtil.toLowerCase(hostName);
+    }
+
+    /**
+     * Does nothing: the value is derived from the master host name.
+     */
+    public void setLowerMasterHostName(final String lowerMasterHostName) {
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.model.BuildNode#getDisplayName()
      */
@@ -74,6 +94,21 @@ public class BuildNodeImpl implements BuildNode {
 	this.displayName = displayName;
     }
 
+    /**
+     * @return the display name in lower case, for the case-insensitive
+     *         filters. There is one row per node, so it is not indexed.
+     */
+    @Column(nullable = true, unique = false)
+    public String getLowerDisplayName() {
+	return DbAuditUtil.toLowerCase(displayName);
+    }
+
+    /**
+     * Does nothing: the value is derived from the display name.
+     */
+    public void setLowerDisplayName(final String lowerDisplayName) {
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.model.BuildNode#getUrl()
      */
@@ -92,6 +127,21 @@ public class BuildNodeImpl implements BuildNode {
 	this.url = url;
     }
 
+    /**
+     * @return the url in lower case, for the case-insensitive lookups.
+     */
+    @Column(nullable = true, unique = false)
+    @Index(name = "IDX_JBN_LOWER_URL")
+    public String getLowerUrl() {
+	return DbAuditUtil.toLowerCase(url);
+    }
+
+    /**
+     * Does nothing: the value is derived from the url.
+     */
+    public void setLowerUrl(final String lowerUrl) {
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.model.BuildNode#getName()
      */
@@ -109,6 +159,21 @@ public class BuildNodeImpl implements BuildNode {
 	this.name = name;
     }
 
+    /**
+     * @return the name in lower case, for the case-insensitive filters.
+     *         There is one row per node, so it is not indexed.
+     */
+    @Column(nullable = true, unique = false)
+    public String getLowerName() {
+	return DbAuditUtil.toLowerCase(name);
+    }
+
+    /**
+     * Does nothing: the value is derived from the name.
+     */
+    public void setLowerName(final String lowerName) {
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.model.BuildNode#getDescription()
      */
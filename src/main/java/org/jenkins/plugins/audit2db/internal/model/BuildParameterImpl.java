@@ -9,6 +9,10 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Table;
+
+import org.jenkins.plugins.audit2db.internal.DbAuditUtil;
 import org.jenkins.plugins.audit2db.model.BuildDetails;
 import org.jenkins.plugins.audit2db.model.BuildParameter;
 
@@ -19,6 +23,9 @@ import org.jenkins.plugins.audit2db.model.BuildParameter;
  *
  */
 @Entity(name="JENKINS_BUILD_PARAMS")
+@Table(appliesTo = "JENKINS_BUILD_PARAMS", indexes = {
+        @Index(name = "IDX_JBP_NAME_VALUE", columnNames = { "name", "value" }),
+        @Index(name = "IDX_JBP_LOWER_NAME_VALUE", columnNames = { "lowerName", "lowerValue" }) })
 public class BuildParameterImpl implements BuildParameter {
     private String id;
     private String name;
@@ -72,6 +79,20 @@ public class BuildParameterImpl implements BuildParameter {
         this.name = name;
     }
 
+    /**
+     * @return the name in lower case, for the case-insensitive lookups.
+     */
+    @Column(nullable=true, unique=false)
+    public String getLowerName() {
+        return DbAuditUtil.toLowerCase(name);
+    }
+
+    /**
+     * Does nothing: the value is derived from the name.
+     */
+    public void setLowerName(final String lowerName) {
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.model.BuildParameter#getValue()
      */
@@ -89,11 +110,26 @@ public class BuildParameterImpl implements BuildParameter {
         this.value = value;
     }
 
+    /**
+     * @return the value in lower case, for the case-insensitive lookups.
+     */
+    @Column(nullable=true, unique=false)
+    public String getLowerValue() {
+        return DbAuditUtil.toLowerCase(value);
+    }
+
+    /**
+     * Does nothing: the value is derived from the parameter value.
+     */
+    public void setLowerValue(final String lowerValue) {
+    }
+
     /**
      * @see org.jenkins.plugins.audit2db.model.BuildParameter#getBuildDetails()
      */
     @ManyToOne(targetEntity=BuildDetailsImpl.class)
     @JoinColumn(nullable=false, unique=false)
+    @Index(name = "IDX_JBP_DETAILS")
     @Override
     public BuildDetails getBuildDetails() {
         return buildDetails;
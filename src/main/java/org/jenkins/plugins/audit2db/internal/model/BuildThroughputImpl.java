@@ -0,0 +1,64 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.model;
+
+import java.util.Date;
+
+import org.jenkins.plugins.audit2db.model.BuildThroughput;
+
+/**
+ * Data class for the number of builds started within a time bucket.
+ *
+ * @author Marco Scata
+ *
+ */
+public class BuildThroughputImpl implements BuildThroughput {
+    private final Date startDate;
+    private long buildCount;
+    private long failureCount;
+
+    public BuildThroughputImpl(final Date startDate) {
+	this.startDate = startDate;
+    }
+
+    /**
+     * Adds a number of builds with the same result to this bucket.
+     */
+    public void add(final long count, final boolean failed) {
+	buildCount += count;
+	if (failed) {
+	    failureCount += count;
+	}
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.BuildThroughput#getStartDate()
+     */
+    @Override
+    public Date getStartDate() {
+	return startDate;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.BuildThroughput#getBuildCount()
+     */
+    @Override
+    public long getBuildCount() {
+	return buildCount;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.BuildThroughput#getFailureCount()
+     */
+    @Override
+    public long getFailureCount() {
+	return failureCount;
+    }
+
+    @Override
+    public String toString() {
+	return String.format("%tF %<tR: %d builds, %d failures", startDate,
+		buildCount, failureCount);
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.model;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A compact summary of a set of build durations, from which any percentile
+ * can be estimated.
+ * <p>
+ * Durations are counted in buckets whose bounds grow geometrically, so that
+ * every estimate is within {@link #RELATIVE_ACCURACY} of a duration actually
+ * in the set, whatever the range of the durations. Two sketches are merged
+ * by adding up their bucket counts, so the sketches of single days can be
+ * combined into the sketch of any date range without losing accuracy. The
+ * number of buckets is capped: past the cap, the buckets of the shortest
+ * durations are merged, so only the lowest percentiles lose accuracy.
+ *
+ * @author Marco Scata
+ *
+ */
+public final class DurationSketch {
+    /**
+     * The maximum relative error of the estimated percentiles.
+     */
+    public final static double RELATIVE_ACCURACY = 0.02;
+
+    /**
+     * The maximum number of buckets, which bounds the size of the stored
+     * sketch. Durations spanning five orders of magnitude, such as a second
+     * to a day, fit without merging any bucket.
+     */
+    private final static int MAX_BUCKETS = 300;
+
+    private final static double GAMMA = (1 + RELATIVE_ACCURACY)
+	    / (1 - RELATIVE_ACCURACY);
+    private final static double LOG_GAMMA = Math.log(GAMMA);
+
+    private final static String ZERO_BUCKET = "z";
+
+    // keyed by bucket index, in ascending duration order
+    private final TreeMap<Integer, Long> buckets = new TreeMap<Integer, Long>();
+    private long zeroCount;
+    private long count;
+
+    /**
+     * Reads a sketch stored with {@link #toString()}.
+     *
+     * @param value
+     *            the stored sketch, or <code>null</code> for an empty one.
+     * @return the sketch.
+     */
+    public static DurationSketch valueOf(final String value) {
+	final DurationSketch retval = new DurationSketch();
+	if ((value != null) && !value.isEmpty()) {
+	    for (final String bucket : value.split(",")) {
+		final int separator = bucket.indexOf(':');
+		final String index = bucket.substring(0, separator);
+		final long bucketCount = Long.parseLong(bucket
+			.substring(separator + 1));
+		if (ZERO_BUCKET.equals(index)) {
+		    retval.zeroCount += bucketCount;
+		} else {
+		    retval.addToBucket(Integer.parseInt(index), bucketCount);
+		}
+		retval.count += bucketCount;
+	    }
+	    retval.collapse();
+	}
+	return retval;
+    }
+
+    /**
+     * Adds a build duration to this sketch.
+     *
+     * @param duration
+     *            the build duration, in milliseconds.
+     */
+    public void add(final long duration) {
+	if (duration <= 0) {
+	    zeroCount++;
+	} else {
+	    addToBucket((int) Math.ceil(Math.log(duration) / LOG_GAMMA), 1);
+	    collapse();
+	}
+	count++;
+    }
+
+    /**
+     * Adds all the durations counted by the given sketch to this one.
+     */
+    public void merge(final DurationSketch other) {
+	for (final Map.Entry<Integer, Long> bucket : other.buckets.entrySet()) {
+	    addToBucket(bucket.getKey(), bucket.getValue());
+	}
+	zeroCount += other.zeroCount;
+	count += other.count;
+	collapse();
+    }
+
+    /**
+     * @return the number of durations in this sketch.
+     */
+    public long getCount() {
+	return count;
+    }
+
+    /**
+     * Estimates the given percentile of the durations in this sketch.
+     *
+     * @param percentile
+     *            the percentile, between 0 and 100.
+     * @return the estimated duration, in milliseconds, or 0 if the sketch is
+     *         empty.
+     */
+    public long getPercentile(final double percentile) {
+	if (0 == count) {
+	    return 0;
+	}
+	// the rank of the nearest duration, counting from zero
+	final long rank = (long) Math.ceil((percentile / 100) * count) - 1;
+	long seen = zeroCount;
+	if (rank < seen) {
+	    return 0;
+	}
+	for (final Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+	    seen += bucket.getValue();
+	    if (rank < seen) {
+		return Math.round(getBucketValue(bucket.getKey()));
+	    }
+	}
+	return Math.round(getBucketValue(buckets.lastKey()));
+    }
+
+    private static double getBucketValue(final int index) {
+	// the value with the same relative distance to both bucket bounds
+	return (2 * Math.pow(GAMMA, index)) / (GAMMA + 1);
+    }
+
+    private void addToBucket(final int index, final long bucketCount) {
+	final Long current = buckets.get(index);
+	buckets.put(index, (null == current) ? bucketCount : current
+		+ bucketCount);
+    }
+
+    private void collapse() {
+	while (buckets.size() > MAX_BUCKETS) {
+	    final Map.Entry<Integer, Long> lowest = buckets.pollFirstEntry();
+	    addToBucket(buckets.firstKey(), lowest.getValue());
+	}
+    }
+
+    /**
+     * @return the sketch in a compact text form, which can be read back with
+     *         {@link #valueOf(String)}.
+     */
+    @Override
+    public String toString() {
+	final StringBuilder retval = new StringBuilder();
+	if (zeroCount > 0) {
+	    retval.append(ZERO_BUCKET).append(':').append(zeroCount);
+	}
+	final Iterator<Map.Entry<Integer, Long>> iterator = buckets.entrySet()
+		.iterator();
+	while (iterator.hasNext()) {
+	    final Map.Entry<Integer, Long> bucket = iterator.next();
+	    if (retval.length() > 0) {
+		retval.append(',');
+	    }
+	    retval.append(bucket.getKey()).append(':').append(bucket.getValue());
+	}
+	return retval.toString();
+    }
+}
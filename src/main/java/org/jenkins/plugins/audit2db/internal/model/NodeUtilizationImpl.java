@@ -0,0 +1,178 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.jenkins.plugins.audit2db.model.NodeUtilization;
+
+/**
+ * Sweeps the builds of a node, or of a label, in start time order to measure
+ * how many of them were running at the same time.
+ * <p>
+ * Only the end times of the builds still running are kept, in a min-heap, so
+ * the memory used depends on the concurrency rather than on the number of
+ * builds. Build times are clipped to the period.
+ *
+ * @author Marco Scata
+ *
+ */
+public class NodeUtilizationImpl implements NodeUtilization {
+    private final String name;
+    private final boolean label;
+    private final long periodStart;
+    private final long periodEnd;
+    private final PriorityQueue<Long> endTimes = new PriorityQueue<Long>();
+    // indexed by the number of builds running
+    private final List<Long> concurrencyTimes = new ArrayList<Long>();
+    private long lastTime;
+    private long buildCount;
+    private long buildTime;
+    private int peakConcurrency;
+
+    public NodeUtilizationImpl(final String name, final boolean label,
+	    final long periodStart, final long periodEnd) {
+	this.name = name;
+	this.label = label;
+	this.periodStart = periodStart;
+	this.periodEnd = Math.max(periodStart, periodEnd);
+	this.lastTime = periodStart;
+    }
+
+    /**
+     * Adds a build to the sweep. Builds must be added in start time order.
+     *
+     * @param start
+     *            the start time of the build, in milliseconds.
+     * @param end
+     *            the end time of the build, in milliseconds.
+     */
+    public void add(final long start, final long end) {
+	final long clippedStart = Math.min(Math.max(start, periodStart),
+		periodEnd);
+	final long clippedEnd = Math.min(Math.max(end, clippedStart),
+		periodEnd);
+	advance(clippedStart);
+	endTimes.add(clippedEnd);
+	buildCount++;
+	buildTime += clippedEnd - clippedStart;
+	peakConcurrency = Math.max(peakConcurrency, endTimes.size());
+    }
+
+    /**
+     * Ends the sweep at the end of the period. No build can be added
+     * afterwards.
+     */
+    public void finish() {
+	advance(periodEnd);
+    }
+
+    /**
+     * Moves the sweep line forward to the given time, ending the builds that
+     * ended in between.
+     */
+    private void advance(final long time) {
+	while (!endTimes.isEmpty() && (endTimes.peek() <= time)) {
+	    addTime(endTimes.size(), endTimes.peek() - lastTime);
+	    lastTime = endTimes.poll();
+	}
+	if (time > lastTime) {
+	    addTime(endTimes.size(), time - lastTime);
+	    lastTime = time;
+	}
+    }
+
+    private void addTime(final int concurrency, final long time) {
+	while (concurrencyTimes.size() <= concurrency) {
+	    concurrencyTimes.add(0L);
+	}
+	concurrencyTimes.set(concurrency, concurrencyTimes.get(concurrency)
+		+ time);
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.NodeUtilization#getName()
+     */
+    @Override
+    public String getName() {
+	return name;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.NodeUtilization#isLabel()
+     */
+    @Override
+    public boolean isLabel() {
+	return label;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.NodeUtilization#getBuildCount()
+     */
+    @Override
+    public long getBuildCount() {
+	return buildCount;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.NodeUtilization#getPeakConcurrency()
+     */
+    @Override
+    public int getPeakConcurrency() {
+	return peakConcurrency;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.NodeUtilization#getPeriod()
+     */
+    @Override
+    public long getPeriod() {
+	return periodEnd - periodStart;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.NodeUtilization#getBusyTime()
+     */
+    @Override
+    public long getBusyTime() {
+	long retval = 0;
+	for (int concurrency = 1; concurrency < concurrencyTimes.size(); concurrency++) {
+	    retval += concurrencyTimes.get(concurrency);
+	}
+	return retval;
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.NodeUtilization#getBusyPercentage()
+     */
+    @Override
+    public double getBusyPercentage() {
+	return (0 == getPeriod()) ? 0 : ((getBusyTime() * 100.0) / getPeriod());
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.NodeUtilization#getAverageConcurrency()
+     */
+    @Override
+    public double getAverageConcurrency() {
+	return (0 == getPeriod()) ? 0 : (((double) buildTime) / getPeriod());
+    }
+
+    /**
+     * @see org.jenkins.plugins.audit2db.model.NodeUtilization#getConcurrencyTimes()
+     */
+    @Override
+    public List<Long> getConcurrencyTimes() {
+	return Collections.unmodifiableList(concurrencyTimes);
+    }
+
+    @Override
+    public String toString() {
+	return String.format("%s: %d builds, peak %d, %.1f%% busy", name,
+		buildCount, peakConcurrency, getBusyPercentage());
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+import org.jenkins.plugins.audit2db.model.BuildNode;
+import org.jenkins.plugins.audit2db.model.BuildParameter;
+
+/**
+ * A read-only view of build details, used to render reports.
+ * <p>
+ * Unlike {@link BuildDetailsImpl}, instances are populated from column
+ * projections and are never attached to a session: they cannot be written
+ * back to the database, they carry no build log, and the build nodes they
+ * refer to can be shared between instances.
+ *
+ * @author Marco Scata
+ *
+ */
+public class ReadOnlyBuildDetails implements BuildDetails {
+    private final String id;
+    private final String name;
+    private final String fullName;
+    private final Date startDate;
+    private final Date endDate;
+    private final Long duration;
+    private final String result;
+    private final String userId;
+    private final String userName;
+    private final BuildNode node;
+    private final List<BuildParameter> parameters = new ArrayList<BuildParameter>();
+
+    public ReadOnlyBuildDetails(final String id, final String name,
+	    final String fullName, final Date startDate, final Date endDate,
+	    final Long duration, final String result, final String userId,
+	    final String userName, final BuildNode node) {
+	this.id = id;
+	this.name = name;
+	this.fullName = fullName;
+	this.startDate = startDate;
+	this.endDate = endDate;
+	this.duration = duration;
+	this.result = result;
+	this.userId = userId;
+	this.userName = userName;
+	this.node = node;
+    }
+
+    /**
+     * Adds a parameter to these build details. Only meant to be used while
+     * the build details are being read.
+     */
+    public void addParameter(final String id, final String name,
+	    final String value) {
+	parameters.add(new BuildParameterImpl(id, name, value, this));
+    }
+
+    private static UnsupportedOperationException readOnly() {
+	return new UnsupportedOperationException(
+		"Read-only build details cannot be modified.");
+    }
+
+    @Override
+    public String getId() {
+	return id;
+    }
+
+    @Override
+    public void setId(final String id) {
+	throw readOnly();
+    }
+
+    @Override
+    public String getName() {
+	return name;
+    }
+
+    @Override
+    public void setName(final String name) {
+	throw readOnly();
+    }
+
+    @Override
+    public String getFullName() {
+	return fullName;
+    }
+
+    @Override
+    public void setFullName(final String fullName) {
+	throw readOnly();
+    }
+
+    @Override
+    public Date getStartDate() {
+	return startDate;
+    }
+
+    @Override
+    public void setStartDate(final Date start) {
+	throw readOnly();
+    }
+
+    @Override
+    public Date getEndDate() {
+	return endDate;
+    }
+
+    @Override
+    public void setEndDate(final Date end) {
+	throw readOnly();
+    }
+
+    @Override
+    public Long getDuration() {
+	return duration;
+    }
+
+    @Override
+    public void setDuration(final Long duration) {
+	throw readOnly();
+    }
+
+    @Override
+    public String getResult() {
+	return result;
+    }
+
+    @Override
+    public void setResult(final String result) {
+	throw readOnly();
+    }
+
+    @Override
+    public String getUserId() {
+	return userId;
+    }
+
+    @Override
+    public void setUserId(final String userId) {
+	throw readOnly();
+    }
+
+    @Override
+    public String getUserName() {
+	return userName;
+    }
+
+    @Override
+    public void setUserName(final String userName) {
+	throw readOnly();
+    }
+
+    /**
+     * @return always <code>null</code>: build logs are not read for reports.
+     */
+    @Override
+    public byte[] getLog() {
+	return null;
+    }
+
+    @Override
+    public void setLog(final byte[] log) {
+	throw readOnly();
+    }
+
+    @Override
+    public List<BuildParameter> getParameters() {
+	return Collections.unmodifiableList(parameters);
+    }
+
+    @Override
+    public void setParameters(final List<BuildParameter> params) {
+	throw readOnly();
+    }
+
+    @Override
+    public BuildNode getNode() {
+	return node;
+    }
+
+    @Override
+    public void setNode(final BuildNode node) {
+	throw readOnly();
+    }
+
+    @Override
+    public String toString() {
+	return String.format("%s [%s]", this.fullName, this.id);
+    }
+
+    @Override
+    public int hashCode() {
+	return this.id.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+	if (this == obj) {
+	    return true;
+	}
+	if (!(obj instanceof BuildDetails)) {
+	    return false;
+	}
+	return ((BuildDetails) obj).hashCode() == this.hashCode();
+    }
+}
@@ -1,16 +1,74 @@
 package org.jenkins.plugins.audit2db.internal.reports;
 
+import hudson.Util;
 import hudson.model.Descriptor;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
 import jenkins.model.Jenkins;
+import net.sf.json.util.JSONUtils;
 
+import org.jenkins.plugins.audit2db.Messages;
+import org.jenkins.plugins.audit2db.data.BuildDetailsHandler;
 import org.jenkins.plugins.audit2db.data.BuildDetailsRepository;
+import org.jenkins.plugins.audit2db.data.ReportLimitExceededException;
+import org.jenkins.plugins.audit2db.internal.DbAuditPlugin;
 import org.jenkins.plugins.audit2db.internal.DbAuditPublisherImpl;
 import org.jenkins.plugins.audit2db.internal.DbAuditUtil;
+import org.jenkins.plugins.audit2db.internal.data.BuildDetailsArchive;
 import org.jenkins.plugins.audit2db.internal.data.BuildDetailsHibernateRepository;
+import org.jenkins.plugins.audit2db.internal.data.ReportCache;
+import org.jenkins.plugins.audit2db.model.BuildDetails;
 import org.jenkins.plugins.audit2db.reports.DbAuditReport;
+import org.jenkins.plugins.audit2db.reports.ReportPage;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
 
 public abstract class AbstractDbAuditReport implements DbAuditReport {
+    private final static Logger LOGGER = Logger.getLogger(AbstractDbAuditReport.class.getName());
+
+    /**
+     * Number of seconds a report query may run for, or 0 for no limit. Can
+     * be set for a single report, by prefixing the property with the class
+     * name of the report instead.
+     */
+    private final static int QUERY_TIMEOUT = Integer.getInteger(
+	    AbstractDbAuditReport.class.getName() + ".queryTimeout", 60);
+
+    /**
+     * Number of rows a report query may read, or 0 for no limit. Can be set
+     * for a single report, by prefixing the property with the class name of
+     * the report instead.
+     */
+    private final static int MAX_ROWS = Integer.getInteger(
+	    AbstractDbAuditReport.class.getName() + ".maxRows", 50000);
+
     private transient BuildDetailsRepository repository;
+    private transient BuildDetailsArchive archive;
 
     public AbstractDbAuditReport() {
 	super();
@@ -36,6 +94,7 @@ public abstract class AbstractDbAuditReport implements DbAuditReport {
 	if (null == repository) {
 	    repository = new BuildDetailsHibernateRepository(
 		    DbAuditPublisherImpl.getSessionFactory());
+	    setQueryLimits(repository);
 	}
 	return repository;
     }
@@ -44,12 +103,874 @@ public abstract class AbstractDbAuditReport implements DbAuditReport {
     public void setRepository(final BuildDetailsRepository repository) {
 	if (repository != null) {
 	    this.repository = repository;
+	    setQueryLimits(repository);
 	}
     }
 
+    private void setQueryLimits(final BuildDetailsRepository repository) {
+	repository.setQueryLimits(
+		Integer.getInteger(getClass().getName() + ".queryTimeout",
+			QUERY_TIMEOUT),
+		Integer.getInteger(getClass().getName() + ".maxRows", MAX_ROWS));
+    }
+
+    /**
+     * @return the warning shown instead of a report exceeding the query
+     *         limits.
+     */
+    public String getLimitMessage() {
+	return Messages.DbAuditReports_LimitExceeded();
+    }
+
+    /**
+     * Logs a report query stopped by the query limits.
+     */
+    protected void logLimitExceeded(final ReportLimitExceededException e) {
+	LOGGER.log(Level.WARNING, "{0}: {1}", new Object[] { getUrlName(),
+		e.getMessage() });
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public Descriptor<DbAuditReport> getDescriptor() {
 	return Jenkins.getInstance().getDescriptorOrDie(getClass());
     }
-}
\ No newline at end of file
+
+    /**
+     * @return the archive of the build details removed from the database by
+     *         the retention policy, or <code>null</code> outside Jenkins.
+     */
+    public BuildDetailsArchive getArchive() {
+	if (null == archive) {
+	    final Jenkins jenkins = Jenkins.getInstance();
+	    if (jenkins != null) {
+		archive = new BuildDetailsArchive(new File(
+			jenkins.getRootDir(), BuildDetailsArchive.DIRECTORY_NAME));
+	    }
+	}
+	return archive;
+    }
+
+    public void setArchive(final BuildDetailsArchive archive) {
+	if (archive != null) {
+	    this.archive = archive;
+	}
+    }
+
+    /**
+     * Adds the archived build details to the given project executions. Only
+     * the archive files overlapping the report dates are read, so reports
+     * on recent dates are not slowed down by the archive.
+     *
+     * @param executions
+     *            the project executions retrieved from the database.
+     * @param archived
+     *            the matching build details retrieved from the archive.
+     */
+    protected void addArchivedExecutions(
+	    final Map<String, List<BuildDetails>> executions,
+	    final List<BuildDetails> archived) {
+	final Set<String> ids = new HashSet<String>();
+	for (final List<BuildDetails> projectExecutions : executions.values()) {
+	    for (final BuildDetails details : projectExecutions) {
+		ids.add(details.getId());
+	    }
+	}
+	for (final BuildDetails details : archived) {
+	    // build details archived just before a failed purge
+	    // may still be in the database as well
+	    if (!ids.add(details.getId())) {
+		continue;
+	    }
+	    List<BuildDetails> projectExecutions = executions.get(details
+		    .getName());
+	    if (null == projectExecutions) {
+		projectExecutions = new ArrayList<BuildDetails>();
+		executions.put(details.getName(), projectExecutions);
+	    }
+	    projectExecutions.add(details);
+	}
+	if (!archived.isEmpty()) {
+	    for (final List<BuildDetails> projectExecutions : executions
+		    .values()) {
+		Collections.sort(projectExecutions, START_DATE_ORDER);
+	    }
+	}
+    }
+
+    private final static Comparator<BuildDetails> START_DATE_ORDER = new Comparator<BuildDetails>() {
+	@Override
+	public int compare(final BuildDetails d1, final BuildDetails d2) {
+	    return d1.getStartDate().compareTo(d2.getStartDate());
+	}
+    };
+
+    @Override
+    public int getPageSizeParam(final String pageSizeString) {
+	return DbAuditReportUtils.getPageSizeParam(pageSizeString);
+    }
+
+    /**
+     * Reads the build details matching the report filters, from the database
+     * and from the archive.
+     */
+    protected abstract class ReportSource {
+	private final String masterHostName;
+	private final Date startDate;
+	private final Date endDate;
+	private final List<Object> filters = new ArrayList<Object>();
+
+	/**
+	 * @param masterHostName
+	 *            the host name of the Jenkins master.
+	 * @param startDate
+	 *            the start (inclusive) of the report date range.
+	 * @param endDate
+	 *            the end (inclusive) of the report date range.
+	 * @param filters
+	 *            the other report filters, all matched
+	 *            case-insensitively.
+	 */
+	protected ReportSource(final String masterHostName,
+		final Date startDate, final Date endDate,
+		final String... filters) {
+	    this.masterHostName = masterHostName;
+	    this.startDate = startDate;
+	    this.endDate = endDate;
+	    for (final String filter : filters) {
+		this.filters.add((null == filter) ? null : filter.trim()
+			.toLowerCase(Locale.ENGLISH));
+	    }
+	}
+
+	/**
+	 * @return all the matching build details in the database, grouped by
+	 *         project.
+	 */
+	protected abstract Map<String, List<BuildDetails>> getBuildDetailsByProject();
+
+	/**
+	 * @see BuildDetailsRepository#getBuildDetailsPage(String, String, Date, Date, BuildDetails, boolean, int)
+	 */
+	protected abstract List<BuildDetails> getBuildDetails(
+		BuildDetails cursor, boolean backward, int maxResults);
+
+	/**
+	 * @see BuildDetailsRepository#streamBuildDetails(String, String, Date, Date, BuildDetailsHandler)
+	 */
+	protected abstract void streamBuildDetails(BuildDetailsHandler handler);
+
+	/**
+	 * @see BuildDetailsRepository#getBuildDetailsSignature(String, String, Date, Date)
+	 */
+	protected abstract String getSignature();
+
+	/**
+	 * @return all the matching archived build details, never
+	 *         <code>null</code>.
+	 */
+	protected abstract List<BuildDetails> getArchivedBuildDetails();
+
+	/**
+	 * @return a page of the matching archived build details, in the
+	 *         same order as
+	 *         {@link #getBuildDetails(BuildDetails, boolean, int)}; never
+	 *         <code>null</code>.
+	 */
+	protected abstract List<BuildDetails> getArchivedBuildDetails(
+		BuildDetails cursor, boolean backward, int maxResults);
+
+	/**
+	 * Returns the cached result of a query on these build details,
+	 * loading it on a cache miss.
+	 *
+	 * @param kind
+	 *            the kind of result, followed by its own parameters.
+	 */
+	private <T> T getCached(final ReportCache.Loader<T> loader,
+		final Object... kind) {
+	    final List<Object> key = new ArrayList<Object>();
+	    key.add(getUrlName());
+	    key.addAll(filters);
+	    key.addAll(Arrays.asList(kind));
+	    return ReportCache.getInstance().get(masterHostName, startDate,
+		    endDate, key, loader);
+	}
+
+	/**
+	 * @return the key of a background job exporting these build details
+	 *         in the given format.
+	 */
+	private List<Object> getJobKey(final String format) {
+	    final List<Object> key = new ArrayList<Object>();
+	    key.add(getUrlName());
+	    key.add((null == masterHostName) ? null : masterHostName
+		    .toLowerCase(Locale.ENGLISH));
+	    key.add(startDate);
+	    key.add(endDate);
+	    key.addAll(filters);
+	    key.add(format);
+	    return key;
+	}
+    }
+
+    /**
+     * Reads the build details of the projects matching a name pattern, which
+     * most reports are made of. Reports reading other build details override
+     * the methods that differ.
+     */
+    protected class ProjectReportSource extends ReportSource {
+	private final String masterHostName;
+	private final String projectPattern;
+	private final Date startDate;
+	private final Date endDate;
+
+	/**
+	 * @param masterHostName
+	 *            the host name of the Jenkins master.
+	 * @param projectPattern
+	 *            the project name pattern, or <code>null</code> for all
+	 *            projects.
+	 * @param startDate
+	 *            the start (inclusive) of the report date range.
+	 * @param endDate
+	 *            the end (inclusive) of the report date range.
+	 */
+	protected ProjectReportSource(final String masterHostName,
+		final String projectPattern, final Date startDate,
+		final Date endDate) {
+	    super(masterHostName, startDate, endDate, projectPattern);
+	    this.masterHostName = masterHostName;
+	    this.projectPattern = projectPattern;
+	    this.startDate = startDate;
+	    this.endDate = endDate;
+	}
+
+	@Override
+	protected Map<String, List<BuildDetails>> getBuildDetailsByProject() {
+	    return getRepository().getBuildDetailsByProject(masterHostName,
+		    projectPattern, startDate, endDate);
+	}
+
+	@Override
+	protected List<BuildDetails> getBuildDetails(
+		final BuildDetails cursor, final boolean backward,
+		final int maxResults) {
+	    return getRepository().getBuildDetailsPage(masterHostName,
+		    projectPattern, startDate, endDate, cursor, backward,
+		    maxResults);
+	}
+
+	@Override
+	protected void streamBuildDetails(final BuildDetailsHandler handler) {
+	    getRepository().streamBuildDetails(masterHostName,
+		    projectPattern, startDate, endDate, handler);
+	}
+
+	@Override
+	protected String getSignature() {
+	    return getRepository().getBuildDetailsSignature(masterHostName,
+		    projectPattern, startDate, endDate);
+	}
+
+	@Override
+	protected List<BuildDetails> getArchivedBuildDetails() {
+	    return AbstractDbAuditReport.this.getArchivedBuildDetails(
+		    masterHostName, projectPattern, startDate, endDate);
+	}
+
+	@Override
+	protected List<BuildDetails> getArchivedBuildDetails(
+		final BuildDetails cursor, final boolean backward,
+		final int maxResults) {
+	    return getArchivedBuildDetailsPage(masterHostName,
+		    projectPattern, startDate, endDate, cursor, backward,
+		    maxResults);
+	}
+    }
+
+    /**
+     * Retrieves all the project executions matching the report filters, from
+     * the database and from the archive. Repeated requests are answered from
+     * the {@link ReportCache} until a matching build is recorded.
+     *
+     * @param source
+     *            the source of the build details.
+     * @return the project executions, which must not be modified, or
+     *         <code>null</code> if the query limits were exceeded.
+     */
+    protected Map<String, List<BuildDetails>> getProjectExecutions(
+	    final ReportSource source) {
+	try {
+	    return loadProjectExecutions(source);
+	} catch (final ReportLimitExceededException e) {
+	    logLimitExceeded(e);
+	    return null;
+	}
+    }
+
+    private Map<String, List<BuildDetails>> loadProjectExecutions(
+	    final ReportSource source) {
+	return source.getCached(
+		new ReportCache.Loader<Map<String, List<BuildDetails>>>() {
+		    @Override
+		    public Map<String, List<BuildDetails>> load() {
+			final Map<String, List<BuildDetails>> retval = source
+				.getBuildDetailsByProject();
+			addArchivedExecutions(retval,
+				source.getArchivedBuildDetails());
+			return retval;
+		    }
+
+		    @Override
+		    public int getWeight(
+			    final Map<String, List<BuildDetails>> value) {
+			return countExecutions(value);
+		    }
+		}, "executions");
+    }
+
+    private static int countExecutions(
+	    final Map<String, List<BuildDetails>> projectExecutions) {
+	int retval = 0;
+	for (final List<BuildDetails> executions : projectExecutions.values()) {
+	    retval += executions.size();
+	}
+	return retval;
+    }
+
+    /**
+     * Builds the report page next to the given cursors.
+     *
+     * @param source
+     *            the source of the page build details.
+     * @param afterCursor
+     *            the cursor the page must follow, if any.
+     * @param beforeCursor
+     *            the cursor the page must precede, if any. Takes precedence
+     *            over <code>afterCursor</code>.
+     * @param pageSize
+     *            the maximum number of executions in the page.
+     * @return the requested page, or <code>null</code> if the query limits
+     *         were exceeded.
+     */
+    protected ReportPage getPage(final ReportSource source,
+	    final String afterCursor, final String beforeCursor,
+	    final int pageSize) {
+	try {
+	    return source.getCached(new ReportCache.Loader<ReportPage>() {
+		@Override
+		public ReportPage load() {
+		    return loadPage(source, afterCursor, beforeCursor, pageSize);
+		}
+
+		@Override
+		public int getWeight(final ReportPage value) {
+		    return countExecutions(value.getProjectExecutions());
+		}
+	    }, "page", afterCursor, beforeCursor, pageSize);
+	} catch (final ReportLimitExceededException e) {
+	    logLimitExceeded(e);
+	    return null;
+	}
+    }
+
+    private ReportPage loadPage(final ReportSource source,
+	    final String afterCursor, final String beforeCursor,
+	    final int pageSize) {
+	final BuildDetails before = DbAuditReportUtils
+		.stringToCursor(beforeCursor);
+	final boolean backward = (before != null);
+	final BuildDetails cursor = backward ? before : DbAuditReportUtils
+		.stringToCursor(afterCursor);
+
+	// one extra execution tells whether there is a page beyond this one
+	final List<BuildDetails> candidates = new ArrayList<BuildDetails>(
+		source.getBuildDetails(cursor, backward, pageSize + 1));
+	final Set<String> ids = new HashSet<String>();
+	for (final BuildDetails details : candidates) {
+	    ids.add(details.getId());
+	}
+	for (final BuildDetails details : source.getArchivedBuildDetails(
+		cursor, backward, pageSize + 1)) {
+	    if (!ids.contains(details.getId())) {
+		candidates.add(details);
+	    }
+	}
+	Collections.sort(candidates, KEYSET_ORDER);
+
+	final boolean hasMore = candidates.size() > pageSize;
+	final List<BuildDetails> page = backward ? candidates.subList(
+		Math.max(0, candidates.size() - pageSize), candidates.size())
+		: candidates.subList(0, Math.min(pageSize, candidates.size()));
+
+	String nextCursor = null;
+	String previousCursor = null;
+	if (!page.isEmpty()) {
+	    final String first = DbAuditReportUtils.cursorAsString(page.get(0));
+	    final String last = DbAuditReportUtils.cursorAsString(page.get(page
+		    .size() - 1));
+	    if (backward) {
+		nextCursor = last;
+		previousCursor = hasMore ? first : null;
+	    } else {
+		nextCursor = hasMore ? last : null;
+		previousCursor = (cursor != null) ? first : null;
+	    }
+	}
+
+	final Map<String, List<BuildDetails>> projectExecutions = new TreeMap<String, List<BuildDetails>>();
+	for (final BuildDetails details : page) {
+	    List<BuildDetails> executions = projectExecutions.get(details
+		    .getName());
+	    if (null == executions) {
+		executions = new ArrayList<BuildDetails>();
+		projectExecutions.put(details.getName(), executions);
+	    }
+	    executions.add(details);
+	}
+	return new ReportPageImpl(projectExecutions, pageSize, nextCursor,
+		previousCursor);
+    }
+
+    /**
+     * @param req
+     *            the request holding the report filters.
+     * @return the source of the build details matching the filters.
+     */
+    protected abstract ReportSource getReportSource(StaplerRequest req);
+
+    /**
+     * Writes all the results of the report filtered by the request
+     * parameters, without pagination. Results are written and flushed as
+     * they are read from the database, so that the first rows show up right
+     * away and memory use stays flat, however large the report is.
+     */
+    public void doStream(final StaplerRequest req, final StaplerResponse rsp)
+	    throws IOException {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
+	}
+	final ReportSource source = getReportSource(req);
+
+	rsp.setContentType("text/html;charset=UTF-8");
+	final PrintWriter writer = rsp.getWriter();
+	final String title = Util.escape(getDisplayName());
+	writer.println("<!DOCTYPE html>");
+	writer.println("<html><head><title>" + title + "</title>");
+	for (final String media : new String[] { "screen", "print" }) {
+	    writer.println(String.format(
+		    "<link href=\"%s/plugin/audit2db/css/%s.css\" type=\"text/css\" rel=\"stylesheet\" media=\"%s\"/>",
+		    req.getContextPath(), media, media));
+	}
+	writer.println("</head><body>");
+	writer.println("<div class=\"report-title\">" + title + "</div>");
+	writer.println("<div class=\"report-header\">"
+		+ Util.escape(getJenkinsHostname()) + " ("
+		+ Util.escape(getJenkinsIpAddr()) + ")</div>");
+
+	final ReportStreamWriter stream = new HtmlReportWriter(writer,
+		source.getArchivedBuildDetails());
+	stream.start();
+	source.streamBuildDetails(stream);
+	stream.finish();
+
+	writer.println("</body></html>");
+	writer.flush();
+    }
+
+    /**
+     * Writes all the results of the report filtered by the request
+     * parameters as JSON. The response carries an entity tag derived from a
+     * cheap signature of the matching build details, so that a client
+     * polling an unchanged report gets a <code>304 Not Modified</code>
+     * without the report query ever running.
+     */
+    public void doApi(final StaplerRequest req, final StaplerResponse rsp)
+	    throws IOException {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
+	}
+	final ReportSource source = getReportSource(req);
+
+	// archived builds only change when a purge removes them
+	// from the database, which changes the signature as well
+	final String etag = "\"" + Util.getDigestOf(source.getSignature())
+		+ "\"";
+	rsp.setHeader("ETag", etag);
+	rsp.setHeader("Cache-Control", "private, no-cache");
+	if (matchesEntityTag(req.getHeader("If-None-Match"), etag)) {
+	    rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+	    return;
+	}
+
+	rsp.setContentType("application/json;charset=UTF-8");
+	final PrintWriter writer = rsp.getWriter();
+	final ReportStreamWriter stream = new JsonReportWriter(writer,
+		getUrlName(), source.getArchivedBuildDetails());
+	stream.start();
+	source.streamBuildDetails(stream);
+	stream.finish();
+    }
+
+    private static boolean matchesEntityTag(final String ifNoneMatch,
+	    final String etag) {
+	if (null == ifNoneMatch) {
+	    return false;
+	}
+	for (final String candidate : ifNoneMatch.split(",")) {
+	    final String tag = candidate.trim();
+	    if (tag.equals("*") || tag.equals(etag)
+		    || tag.equals("W/" + etag)) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Exports all the results of the report filtered by the request
+     * parameters, as comma separated values or, if the <code>format</code>
+     * request parameter is <code>tsv</code>, as tab separated values. Rows
+     * are written as they are read from the database, and compressed on the
+     * fly if the client accepts it.
+     */
+    public void doExport(final StaplerRequest req, final StaplerResponse rsp)
+	    throws IOException {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
+	}
+	final ReportSource source = getReportSource(req);
+	final boolean tsv = "tsv".equalsIgnoreCase(req.getParameter("format"));
+
+	rsp.setContentType(tsv ? "text/tab-separated-values;charset=UTF-8"
+		: "text/csv;charset=UTF-8");
+	rsp.setHeader("Content-Disposition", String.format(
+		"attachment; filename=\"%s.%s\"", getUrlName(),
+		tsv ? "tsv" : "csv"));
+	OutputStream out = rsp.getOutputStream();
+	GZIPOutputStream gzip = null;
+	final String acceptEncoding = req.getHeader("Accept-Encoding");
+	if ((acceptEncoding != null) && acceptEncoding.contains("gzip")) {
+	    rsp.setHeader("Content-Encoding", "gzip");
+	    gzip = new GZIPOutputStream(out);
+	    out = gzip;
+	}
+	final PrintWriter writer = new PrintWriter(new BufferedWriter(
+		new OutputStreamWriter(out, "UTF-8")));
+
+	final ReportStreamWriter stream = new DelimitedReportWriter(writer,
+		tsv ? '\t' : ',', source.getArchivedBuildDetails());
+	stream.start();
+	source.streamBuildDetails(stream);
+	stream.finish();
+
+	writer.flush();
+	if (gzip != null) {
+	    gzip.finish();
+	}
+	out.flush();
+    }
+
+    /**
+     * Submits a background job exporting all the results of the report
+     * filtered by the request parameters, in the <code>format</code> given
+     * by the request: <code>csv</code> (the default), <code>tsv</code> or
+     * <code>json</code>. The response is a <code>202 Accepted</code> with the
+     * job status, and points to the URL the status can be polled from. An
+     * identical job still running is returned rather than started again.
+     * Forms submitted from the report views also carry a
+     * <code>redirect</code> parameter, which sends the browser to the job
+     * page instead.
+     */
+    public void doSubmitJob(final StaplerRequest req,
+	    final StaplerResponse rsp) throws IOException {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
+	}
+	if (!"POST".equals(req.getMethod())) {
+	    rsp.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+	    return;
+	}
+	final ReportSource source = getReportSource(req);
+	final String format = req.getParameter("format");
+	final String extension = ("tsv".equalsIgnoreCase(format) || "json"
+		.equalsIgnoreCase(format)) ? format.toLowerCase(Locale.ENGLISH)
+		: "csv";
+
+	final ReportJobs.Job job;
+	try {
+	    job = ReportJobs.getInstance().submit(source.getJobKey(extension),
+		    getUrlName() + "." + extension, getContentType(extension),
+		    new ReportJobs.Task() {
+			@Override
+			public void run(final ReportJobs.Job job,
+				final PrintWriter writer) {
+			    final List<BuildDetails> archived = source
+				    .getArchivedBuildDetails();
+			    job.setExpectedRows(getCount(source.getSignature())
+				    + archived.size());
+			    final ReportStreamWriter stream = createStreamWriter(
+				    extension, writer, archived);
+			    stream.start();
+			    source.streamBuildDetails(new BuildDetailsHandler() {
+				@Override
+				public boolean handle(final BuildDetails details) {
+				    job.addRow();
+				    return stream.handle(details);
+				}
+			    });
+			    stream.finish();
+			}
+		    });
+	} catch (final RejectedExecutionException e) {
+	    rsp.setHeader("Retry-After", "60");
+	    rsp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+		    Messages.DbAuditReports_TooManyJobs());
+	    return;
+	}
+
+	if (req.getParameter("redirect") != null) {
+	    rsp.sendRedirect(HttpServletResponse.SC_SEE_OTHER, "jobPage?id="
+		    + job.getId());
+	    return;
+	}
+	rsp.setStatus(HttpServletResponse.SC_ACCEPTED);
+	rsp.setHeader("Location", "job?id=" + job.getId());
+	writeJobStatus(rsp, job);
+    }
+
+    /**
+     * @return the background job with the given id, shown by the job page,
+     *         or <code>null</code> if there is none or its result has
+     *         expired.
+     */
+    public ReportJobs.Job getJob(final String id) {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
+	}
+	return ReportJobs.getInstance().get(id);
+    }
+
+    /**
+     * Writes the status of the background job with the <code>id</code>
+     * given by the request, as JSON.
+     */
+    public void doJob(final StaplerRequest req, final StaplerResponse rsp)
+	    throws IOException {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
+	}
+	final ReportJobs.Job job = ReportJobs.getInstance().get(
+		req.getParameter("id"));
+	if (null == job) {
+	    rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+	    return;
+	}
+	rsp.setHeader("Cache-Control", "no-cache");
+	writeJobStatus(rsp, job);
+    }
+
+    /**
+     * Downloads the result of the background job with the <code>id</code>
+     * given by the request. The result can be downloaded any number of
+     * times, until it expires.
+     */
+    public void doJobResult(final StaplerRequest req,
+	    final StaplerResponse rsp) throws IOException {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
+	}
+	final ReportJobs.Job job = ReportJobs.getInstance().get(
+		req.getParameter("id"));
+	if (null == job) {
+	    rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+	    return;
+	}
+	if (job.getStatus() != ReportJobs.Status.DONE) {
+	    rsp.setStatus(HttpServletResponse.SC_CONFLICT);
+	    writeJobStatus(rsp, job);
+	    return;
+	}
+
+	rsp.setContentType(job.getContentType());
+	rsp.setHeader("Content-Disposition", String.format(
+		"attachment; filename=\"%s\"", job.getFileName()));
+	rsp.setHeader("Content-Length", String.valueOf(job.getFile().length()));
+	final InputStream in = new FileInputStream(job.getFile());
+	try {
+	    Util.copyStream(in, rsp.getOutputStream());
+	} finally {
+	    in.close();
+	}
+    }
+
+    private static void writeJobStatus(final StaplerResponse rsp,
+	    final ReportJobs.Job job) throws IOException {
+	rsp.setContentType("application/json;charset=UTF-8");
+	final PrintWriter writer = rsp.getWriter();
+	writer.print("{\"id\":");
+	writer.print(JSONUtils.quote(job.getId()));
+	writer.print(",\"status\":");
+	writer.print(JSONUtils.quote(job.getStatus().name()));
+	writer.print(",\"rows\":");
+	writer.print(job.getRows());
+	writer.print(",\"expectedRows\":");
+	writer.print(job.getExpectedRows());
+	writer.print(",\"progress\":");
+	writer.print(job.getProgress());
+	writer.print(",\"submitted\":");
+	writer.print(job.getSubmitted());
+	writer.print(",\"finished\":");
+	writer.print((job.getFinished() > 0) ? String.valueOf(job
+		.getFinished()) : "null");
+	writer.print(",\"failure\":");
+	writer.print((job.getFailure() != null) ? JSONUtils.quote(job
+		.getFailure()) : "null");
+	writer.print(",\"result\":");
+	writer.print((ReportJobs.Status.DONE == job.getStatus()) ? JSONUtils
+		.quote("jobResult?id=" + job.getId()) : "null");
+	writer.print('}');
+	writer.flush();
+    }
+
+    private static String getContentType(final String extension) {
+	if ("json".equals(extension)) {
+	    return "application/json;charset=UTF-8";
+	}
+	return "tsv".equals(extension) ? "text/tab-separated-values;charset=UTF-8"
+		: "text/csv;charset=UTF-8";
+    }
+
+    private ReportStreamWriter createStreamWriter(final String extension,
+	    final PrintWriter writer, final List<BuildDetails> archived) {
+	if ("json".equals(extension)) {
+	    return new JsonReportWriter(writer, getUrlName(), archived);
+	}
+	return new DelimitedReportWriter(writer, "tsv".equals(extension) ? '\t'
+		: ',', archived);
+    }
+
+    /**
+     * @return the number of build details counted by a signature, which
+     *         starts with it.
+     */
+    private static long getCount(final String signature) {
+	final int separator = signature.indexOf(':');
+	try {
+	    return Long.parseLong((separator < 0) ? signature : signature
+		    .substring(0, separator));
+	} catch (final NumberFormatException e) {
+	    return -1;
+	}
+    }
+
+    private final static Comparator<BuildDetails> KEYSET_ORDER = new Comparator<BuildDetails>() {
+	@Override
+	public int compare(final BuildDetails d1, final BuildDetails d2) {
+	    final long t1 = d1.getStartDate().getTime();
+	    final long t2 = d2.getStartDate().getTime();
+	    if (t1 != t2) {
+		return (t1 < t2) ? -1 : 1;
+	    }
+	    // the same tie-breaker as the database, whatever its collation
+	    final int hashes = DbAuditUtil.getIdHash(d1.getId()).compareTo(
+		    DbAuditUtil.getIdHash(d2.getId()));
+	    return (hashes != 0) ? hashes : d1.getId().compareTo(d2.getId());
+	}
+    };
+
+    /**
+     * Retrieves the archived build details for the given project pattern.
+     *
+     * @return a list of build details, never <code>null</code>.
+     */
+    protected List<BuildDetails> getArchivedBuildDetails(
+	    final String masterHostName, final String projectPattern,
+	    final Date fromDate, final Date toDate) {
+	final BuildDetailsArchive archive = getArchive();
+	if (archive != null) {
+	    try {
+		return archive.getBuildDetails(masterHostName,
+			projectPattern, fromDate, toDate);
+	    } catch (final IOException e) {
+		LOGGER.log(Level.SEVERE, e.getMessage(), e);
+	    }
+	}
+	return Collections.emptyList();
+    }
+
+    /**
+     * Retrieves the archived build details for the given parameter.
+     *
+     * @return a list of build details, never <code>null</code>.
+     */
+    protected List<BuildDetails> getArchivedBuildDetailsByParams(
+	    final String masterHostName, final String paramName,
+	    final String paramValue, final Date fromDate, final Date toDate) {
+	final BuildDetailsArchive archive = getArchive();
+	if (archive != null) {
+	    try {
+		return archive.getBuildDetailsByParams(masterHostName,
+			paramName, paramValue, fromDate, toDate);
+	    } catch (final IOException e) {
+		LOGGER.log(Level.SEVERE, e.getMessage(), e);
+	    }
+	}
+	return Collections.emptyList();
+    }
+
+    /**
+     * Retrieves a page of the archived build details for the given project
+     * pattern.
+     *
+     * @return a list of build details, never <code>null</code>.
+     */
+    protected List<BuildDetails> getArchivedBuildDetailsPage(
+	    final String masterHostName, final String projectPattern,
+	    final Date fromDate, final Date toDate, final BuildDetails cursor,
+	    final boolean backward, final int maxResults) {
+	final BuildDetailsArchive archive = getArchive();
+	if (archive != null) {
+	    try {
+		return archive.getBuildDetailsPage(masterHostName,
+			projectPattern, fromDate, toDate, cursor, backward,
+			maxResults, KEYSET_ORDER);
+	    } catch (final IOException e) {
+		LOGGER.log(Level.SEVERE, e.getMessage(), e);
+	    }
+	}
+	return Collections.emptyList();
+    }
+
+    /**
+     * Retrieves a page of the archived build details for the given
+     * parameter.
+     *
+     * @return a list of build details, never <code>null</code>.
+     */
+    protected List<BuildDetails> getArchivedBuildDetailsByParamsPage(
+	    final String masterHostName, final String paramName,
+	    final String paramValue, final Date fromDate, final Date toDate,
+	    final BuildDetails cursor, final boolean backward,
+	    final int maxResults) {
+	final BuildDetailsArchive archive = getArchive();
+	if (archive != null) {
+	    try {
+		return archive.getBuildDetailsByParamsPage(masterHostName,
+			paramName, paramValue, fromDate, toDate, cursor,
+			backward, maxResults, KEYSET_ORDER);
+	    } catch (final IOException e) {
+		LOGGER.log(Level.SEVERE, e.getMessage(), e);
+	    }
+	}
+	return Collections.emptyList();
+    }
+}
@@ -3,6 +3,9 @@
  */
 package org.jenkins.plugins.audit2db.internal.reports;
 
+import hudson.Util;
+
+import java.io.UnsupportedEncodingException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -10,6 +13,9 @@ import java.util.Date;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.jenkins.plugins.audit2db.internal.model.BuildDetailsImpl;
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+
 /**
  * @author Marco Scata
  *
@@ -21,6 +27,18 @@ public abstract class DbAuditReportUtils {
     private final static SimpleDateFormat DATE_FORMAT = new SimpleDateFormat(
     "yyyy-MM-dd HH:mm:ss");
 
+    /**
+     * The number of executions in a report page, unless otherwise requested.
+     */
+    public final static int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * The largest number of executions a report page can be asked for.
+     */
+    public final static int MAX_PAGE_SIZE = 1000;
+
+    private final static String CURSOR_SEPARATOR = ":";
+
     private final static transient Logger LOGGER = Logger
     .getLogger(DbAuditReportUtils.class.getName());
 
@@ -99,4 +117,73 @@ public abstract class DbAuditReportUtils {
 	}
 	return DATE_FORMAT_NOTIME.format(date);
     }
+
+    /**
+     * Checks the given page size string and, if invalid, returns the default
+     * page size.
+     *
+     * @param pageSizeString
+     *            a page size in string format.
+     * @return a valid page size.
+     */
+    public static int getPageSizeParam(final String pageSizeString) {
+	if ((pageSizeString != null) && !pageSizeString.isEmpty()) {
+	    try {
+		final int pageSize = Integer.parseInt(pageSizeString.trim());
+		if (pageSize > 0) {
+		    return Math.min(pageSize, MAX_PAGE_SIZE);
+		}
+	    } catch (final NumberFormatException e) {
+		LOGGER.log(Level.WARNING, "Unable to parse page size "
+			+ pageSizeString);
+	    }
+	}
+	return DEFAULT_PAGE_SIZE;
+    }
+
+    /**
+     * Encodes the position of the given build details in a report as a
+     * string that can be safely passed as a request parameter.
+     *
+     * @param details
+     *            the build details delimiting a report page.
+     * @return the equivalent cursor string.
+     */
+    public static String cursorAsString(final BuildDetails details) {
+	try {
+	    return Util.toHexString((details.getStartDate().getTime()
+		    + CURSOR_SEPARATOR + details.getId()).getBytes("UTF-8"));
+	} catch (final UnsupportedEncodingException e) {
+	    throw new IllegalStateException(e);
+	}
+    }
+
+    /**
+     * @param cursorString
+     *            a cursor string created by
+     *            {@link #cursorAsString(BuildDetails)}.
+     * @return build details holding the start date and id encoded in the
+     *         cursor, or <code>null</code> if the cursor string cannot be
+     *         parsed.
+     */
+    public static BuildDetails stringToCursor(final String cursorString) {
+	BuildDetails retval = null;
+	if ((cursorString != null) && !cursorString.isEmpty()) {
+	    try {
+		final String cursor = new String(
+			Util.fromHexString(cursorString), "UTF-8");
+		final int separator = cursor.indexOf(CURSOR_SEPARATOR);
+		if (separator > 0) {
+		    retval = new BuildDetailsImpl();
+		    retval.setStartDate(new Date(Long.parseLong(cursor
+			    .substring(0, separator))));
+		    retval.setId(cursor.substring(separator + 1));
+		}
+	    } catch (final Exception e) {
+		LOGGER.log(Level.WARNING, "Unable to parse cursor "
+			+ cursorString);
+	    }
+	}
+	return retval;
+    }
 }
@@ -0,0 +1,137 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.reports;
+
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+import org.jenkins.plugins.audit2db.model.BuildParameter;
+
+/**
+ * Writes the report results as comma or tab separated values, one build per
+ * line, for use in spreadsheets and scripts.
+ * <p>
+ * Comma separated values are quoted as per RFC 4180. Tab separated values
+ * cannot be quoted, so tabs and line breaks in the values are replaced by
+ * spaces.
+ *
+ * @author Marco Scata
+ *
+ */
+final class DelimitedReportWriter extends ReportStreamWriter {
+    private final static String[] HEADINGS = new String[] { "project",
+	"fullName", "buildId", "node", "started", "finished", "duration",
+	"result", "userId", "userName", "parameters" };
+
+    private final PrintWriter writer;
+    private final char delimiter;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat(
+	    "yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * @param writer
+     *            the response writer.
+     * @param delimiter
+     *            either a comma or a tab.
+     * @param archivedDetails
+     *            the matching archived build details, in start date order.
+     */
+    DelimitedReportWriter(final PrintWriter writer, final char delimiter,
+	    final List<BuildDetails> archivedDetails) {
+	super(archivedDetails);
+	this.writer = writer;
+	this.delimiter = delimiter;
+    }
+
+    @Override
+    protected void writeStart() {
+	for (int i = 0; i < HEADINGS.length; i++) {
+	    writeValue(i, HEADINGS[i]);
+	}
+	writeEndOfLine();
+    }
+
+    @Override
+    protected void writeProjectStart(final String name) {
+	// the project name is a column of each row
+    }
+
+    @Override
+    protected void writeProjectEnd() {
+	// the project name is a column of each row
+    }
+
+    @Override
+    protected void writeRow(final BuildDetails details, final int row) {
+	final StringBuilder params = new StringBuilder();
+	for (final BuildParameter param : details.getParameters()) {
+	    if (params.length() > 0) {
+		params.append("; ");
+	    }
+	    params.append(param.getName()).append('=').append(param.getValue());
+	}
+
+	int column = 0;
+	writeValue(column++, details.getName());
+	writeValue(column++, details.getFullName());
+	writeValue(column++, details.getId());
+	writeValue(column++, (details.getNode() != null) ? details.getNode()
+		.getName() : null);
+	writeValue(column++, (details.getStartDate() != null) ? dateFormat
+		.format(details.getStartDate()) : null);
+	writeValue(column++, (details.getEndDate() != null) ? dateFormat
+		.format(details.getEndDate()) : null);
+	writeValue(column++, (details.getDuration() != null) ? details
+		.getDuration().toString() : null);
+	writeValue(column++, details.getResult());
+	writeValue(column++, details.getUserId());
+	writeValue(column++, details.getUserName());
+	writeValue(column++, params.toString());
+	writeEndOfLine();
+    }
+
+    @Override
+    protected void writeEnd(final boolean empty) {
+	writer.flush();
+    }
+
+    @Override
+    protected boolean checkError() {
+	return writer.checkError();
+    }
+
+    private void writeValue(final int column, final String value) {
+	if (column > 0) {
+	    writer.print(delimiter);
+	}
+	if ((null == value) || (value.length() == 0)) {
+	    return;
+	}
+
+	String text = value;
+	// spreadsheets would run a value starting
+	// with one of these characters as a formula
+	if ("=+-@".indexOf(text.charAt(0)) >= 0) {
+	    text = "'" + text;
+	}
+
+	if ('\t' == delimiter) {
+	    writer.print(text.replace('\t', ' ').replace('\r', ' ')
+		    .replace('\n', ' '));
+	} else if ((text.indexOf(delimiter) >= 0) || (text.indexOf('"') >= 0)
+		|| (text.indexOf('\r') >= 0) || (text.indexOf('\n') >= 0)) {
+	    writer.print('"');
+	    writer.print(text.replace("\"", "\"\""));
+	    writer.print('"');
+	} else {
+	    writer.print(text);
+	}
+    }
+
+    private void writeEndOfLine() {
+	writer.print("\r\n");
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.reports;
+
+import hudson.Util;
+
+import java.io.PrintWriter;
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+import org.jenkins.plugins.audit2db.Messages;
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+import org.jenkins.plugins.audit2db.model.BuildParameter;
+
+/**
+ * Writes the report results with the same markup as
+ * <code>report-body.jelly</code>, and flushes them to the client every few
+ * rows.
+ *
+ * @author Marco Scata
+ *
+ */
+final class HtmlReportWriter extends ReportStreamWriter {
+    private final static int FLUSH_INTERVAL = 100;
+
+    private final PrintWriter writer;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat(
+	    "yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * @param writer
+     *            the response writer.
+     * @param archivedDetails
+     *            the matching archived build details, in start date order.
+     */
+    HtmlReportWriter(final PrintWriter writer,
+	    final List<BuildDetails> archivedDetails) {
+	super(archivedDetails);
+	this.writer = writer;
+    }
+
+    @Override
+    protected void writeStart() {
+	writer.println("<div id=\"reportResults\">");
+	writer.flush();
+    }
+
+    @Override
+    protected void writeProjectStart(final String name) {
+	writer.print("<div><div class=\"report-groupheader\">");
+	writer.print(Util.escape(name));
+	writer.println("</div></div>");
+	writer.println("<table class=\"report-table\"><tr>");
+	for (final String heading : new String[] {
+		Messages.DbAuditReports_ExecutedOn(),
+		Messages.DbAuditReports_Started(),
+		Messages.DbAuditReports_Finished(),
+		Messages.DbAuditReports_Status(),
+		Messages.DbAuditReports_StartedBy(),
+		Messages.DbAuditReports_ExecutionParameters() }) {
+	    writer.print("<th>");
+	    writer.print(Util.escape(heading));
+	    writer.print("</th>");
+	}
+	writer.println("</tr>");
+    }
+
+    @Override
+    protected void writeProjectEnd() {
+	writer.println("</table>");
+    }
+
+    @Override
+    protected void writeRow(final BuildDetails details, final int row) {
+	writer.print("<tr>");
+	writeCell((details.getNode() != null) ? details.getNode().getName()
+		: null);
+	writeCell((details.getStartDate() != null) ? dateFormat
+		.format(details.getStartDate()) : null);
+	writeCell((details.getEndDate() != null) ? dateFormat.format(details
+		.getEndDate()) : null);
+	writeCell(details.getResult());
+	writeCell(details.getUserId());
+	writer.print("<td><table class=\"report-paramtable\">");
+	for (final BuildParameter param : details.getParameters()) {
+	    writer.print("<tr>");
+	    writeCell(param.getName());
+	    writeCell("=");
+	    writeCell(param.getValue());
+	    writer.print("</tr>");
+	}
+	writer.println("</table></td></tr>");
+
+	if ((row % FLUSH_INTERVAL) == 0) {
+	    writer.flush();
+	}
+    }
+
+    @Override
+    protected void writeEnd(final boolean empty) {
+	if (empty) {
+	    writer.print("<div id=\"noDataWarning\" class=\"warning\">");
+	    writer.print(Util.escape(Messages.DbAuditReports_NoData()));
+	    writer.println("</div>");
+	}
+	writer.println("</div>");
+	writer.flush();
+    }
+
+    @Override
+    protected boolean checkError() {
+	return writer.checkError();
+    }
+
+    private void writeCell(final String value) {
+	writer.print("<td>");
+	if (value != null) {
+	    writer.print(Util.escape(value));
+	}
+	writer.print("</td>");
+    }
+}
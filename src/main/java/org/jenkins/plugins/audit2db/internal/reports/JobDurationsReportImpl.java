@@ -0,0 +1,113 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.reports;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Descriptor;
+
+import java.util.Date;
+import java.util.List;
+
+import jenkins.model.Jenkins;
+
+import org.jenkins.plugins.audit2db.Messages;
+import org.jenkins.plugins.audit2db.data.ReportLimitExceededException;
+import org.jenkins.plugins.audit2db.internal.DbAuditPlugin;
+import org.jenkins.plugins.audit2db.model.BuildSummary;
+import org.jenkins.plugins.audit2db.reports.DbAuditReport;
+import org.jenkins.plugins.audit2db.reports.JobDurationsReport;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * @author Marco Scata
+ *
+ */
+@Extension
+public class JobDurationsReportImpl extends AbstractDbAuditReport implements
+JobDurationsReport {
+    @Extension
+    public static final class DescriptorImpl extends Descriptor<DbAuditReport> {
+	@Override
+	public String getDisplayName() {
+	    return Messages.DbAuditReportsJobDurations_ReportTitle();
+	}
+    }
+
+    @Override
+    public String getDateGenerated() {
+	return DbAuditReportUtils.dateAsString(new Date(), true);
+    }
+
+    @Override
+    public String getStartDateParam(final String dateString) {
+	return DbAuditReportUtils.getStartDateParam(dateString);
+    }
+
+    @Override
+    public String getEndDateParam(final String dateString) {
+	return DbAuditReportUtils.getEndDateParam(dateString);
+    }
+
+    @Override
+    public String getReportDescription() {
+	return Messages.DbAuditReportsJobDurations_ReportDescription();
+    }
+
+    @Override
+    public String getReportDisplayedInfo() {
+	return Messages.DbAuditReportsJobDurations_ReportDisplayedInfo();
+    }
+
+    @Override
+    public String getDisplayName() {
+	return Messages.DbAuditReportsJobDurations_ReportTitle();
+    }
+
+    @Override
+    public String getUrlName() {
+	return "jobDurations";
+    }
+
+    @Override
+    public List<BuildSummary> getProjectDurations(final String jobName,
+	    final String startDateString, final String endDateString) {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    // unit tests won't have a Jenkins instance
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
+	}
+	try {
+	    return getRepository().getProjectBuildSummaries(
+		    getJenkinsHostname(), jobName,
+		    DbAuditReportUtils.stringToDate(startDateString),
+		    DbAuditReportUtils.stringToDate(endDateString));
+	} catch (final ReportLimitExceededException e) {
+	    logLimitExceeded(e);
+	    return null;
+	}
+    }
+
+    /**
+     * @return the given duration, in a human readable form.
+     */
+    public String getDurationString(final long duration) {
+	return Util.getTimeSpanString(duration);
+    }
+
+    /**
+     * The streamed and exported data are the build details the summaries
+     * are made of.
+     */
+    @Override
+    protected ReportSource getReportSource(final StaplerRequest req) {
+	final String jobName = req.getParameter("jobName");
+	final Date startDate = DbAuditReportUtils
+		.stringToDate(getStartDateParam(req.getParameter("startDate")));
+	final Date endDate = DbAuditReportUtils
+		.stringToDate(getEndDateParam(req.getParameter("endDate")));
+	return new ProjectReportSource(getJenkinsHostname(), jobName, startDate,
+		endDate);
+    }
+}
@@ -7,7 +7,6 @@ import hudson.Extension;
 import hudson.model.Descriptor;
 
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +17,8 @@ import org.jenkins.plugins.audit2db.internal.DbAuditPlugin;
 import org.jenkins.plugins.audit2db.model.BuildDetails;
 import org.jenkins.plugins.audit2db.reports.DbAuditReport;
 import org.jenkins.plugins.audit2db.reports.JobHistoryReport;
+import org.jenkins.plugins.audit2db.reports.ReportPage;
+import org.kohsuke.stapler.StaplerRequest;
 
 /**
  * @author Marco Scata
@@ -79,22 +80,36 @@ JobHistoryReport {
 	    // unit tests won't have a Jenkins instance
 	    jenkins.checkPermission(DbAuditPlugin.RUN);
 	}
-	final Map<String, List<BuildDetails>> retval = new HashMap<String, List<BuildDetails>>();
-	final Date startDate = DbAuditReportUtils.stringToDate(startDateString);
-	final Date endDate = DbAuditReportUtils.stringToDate(endDateString);
-	final String jenkinsHost = getJenkinsHostname();
-	final List<String> projectNames = getRepository().getProjectNames(
-		jenkinsHost, jobName, startDate, endDate);
-	for (final String projectName : projectNames) {
-	    final List<BuildDetails> buildDetails = getRepository()
-	    .getBuildDetails(
-		    jenkinsHost, projectName, startDate, endDate);
-	    if (!buildDetails.isEmpty()) {
-		retval.put(projectName, buildDetails);
-	    }
+	return getProjectExecutions(getReportSource(jobName,
+		startDateString, endDateString));
+    }
+
+    @Override
+    public ReportPage getProjectExecutionsPage(final String jobName,
+	    final String startDateString, final String endDateString,
+	    final String afterCursor, final String beforeCursor,
+	    final int pageSize) {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    // unit tests won't have a Jenkins instance
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
 	}
+	return getPage(getReportSource(jobName, startDateString, endDateString),
+		afterCursor, beforeCursor, pageSize);
+    }
 
-	return retval;
+    @Override
+    protected ReportSource getReportSource(final StaplerRequest req) {
+	return getReportSource(req.getParameter("jobName"),
+		getStartDateParam(req.getParameter("startDate")),
+		getEndDateParam(req.getParameter("endDate")));
     }
 
+    private ReportSource getReportSource(final String jobName,
+	    final String startDateString, final String endDateString) {
+	final Date startDate = DbAuditReportUtils.stringToDate(startDateString);
+	final Date endDate = DbAuditReportUtils.stringToDate(endDateString);
+	return new ProjectReportSource(getJenkinsHostname(), jobName, startDate,
+		endDate);
+    }
 }
@@ -15,10 +15,13 @@ import java.util.Map;
 import jenkins.model.Jenkins;
 
 import org.jenkins.plugins.audit2db.Messages;
+import org.jenkins.plugins.audit2db.data.BuildDetailsHandler;
 import org.jenkins.plugins.audit2db.internal.DbAuditPlugin;
 import org.jenkins.plugins.audit2db.model.BuildDetails;
 import org.jenkins.plugins.audit2db.reports.DbAuditReport;
 import org.jenkins.plugins.audit2db.reports.JobsByParamReport;
+import org.jenkins.plugins.audit2db.reports.ReportPage;
+import org.kohsuke.stapler.StaplerRequest;
 
 /**
  * @author Marco Scata
@@ -103,22 +106,91 @@ public class JobsByParamReportImpl extends AbstractDbAuditReport implements Jobs
 	    // unit tests won't have a Jenkins instance
 	    jenkins.checkPermission(DbAuditPlugin.RUN);
 	}
-	final Map<String, List<BuildDetails>> retval = new HashMap<String, List<BuildDetails>>();
+	return getProjectExecutions(getReportSource(paramName, paramValue,
+		startDateString, endDateString));
+    }
+
+    @Override
+    public ReportPage getProjectExecutionsPage(final String paramName,
+	    final String paramValue, final String startDateString,
+	    final String endDateString, final String afterCursor,
+	    final String beforeCursor, final int pageSize) {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    // unit tests won't have a Jenkins instance
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
+	}
+	return getPage(getReportSource(paramName, paramValue,
+		startDateString, endDateString),
+		afterCursor, beforeCursor, pageSize);
+    }
+
+    @Override
+    protected ReportSource getReportSource(final StaplerRequest req) {
+	return getReportSource(req.getParameter("paramName"),
+		req.getParameter("paramValue"),
+		getStartDateParam(req.getParameter("startDate")),
+		getEndDateParam(req.getParameter("endDate")));
+    }
+
+    private ReportSource getReportSource(final String paramName,
+	    final String paramValue, final String startDateString,
+	    final String endDateString) {
 	final Date startDate = DbAuditReportUtils.stringToDate(startDateString);
 	final Date endDate = DbAuditReportUtils.stringToDate(endDateString);
 	final String jenkinsHost = getJenkinsHostname();
-	final List<BuildDetails> buildDetails = getRepository().getBuildDetailsByParams(
-		jenkinsHost, paramName, paramValue, startDate, endDate);
+	return new ReportSource(jenkinsHost, startDate, endDate,
+		paramName, paramValue) {
+	    @Override
+	    protected Map<String, List<BuildDetails>> getBuildDetailsByProject() {
+		final Map<String, List<BuildDetails>> retval = new HashMap<String, List<BuildDetails>>();
+		for (final BuildDetails details : getRepository()
+			.getBuildDetailsByParams(jenkinsHost, paramName,
+				paramValue, startDate, endDate)) {
+		    final String projectName = details.getName();
+		    if (!retval.containsKey(projectName)) {
+			retval.put(projectName, new ArrayList<BuildDetails>());
+		    }
+		    retval.get(projectName).add(details);
+		}
+		return retval;
+	    }
 
-	for (final BuildDetails details : buildDetails) {
-	    final String projectName = details.getName();
-	    if (!retval.containsKey(projectName)) {
-		retval.put(projectName, new ArrayList<BuildDetails>());
+	    @Override
+	    protected List<BuildDetails> getBuildDetails(
+		    final BuildDetails cursor, final boolean backward,
+		    final int maxResults) {
+		return getRepository().getBuildDetailsByParamsPage(
+			jenkinsHost, paramName, paramValue, startDate,
+			endDate, cursor, backward, maxResults);
 	    }
-	    retval.get(projectName).add(details);
-	}
 
-	return retval;
-    }
+	    @Override
+	    protected void streamBuildDetails(final BuildDetailsHandler handler) {
+		getRepository().streamBuildDetailsByParams(jenkinsHost,
+			paramName, paramValue, startDate, endDate, handler);
+	    }
 
+	    @Override
+	    protected String getSignature() {
+		return getRepository().getBuildDetailsByParamsSignature(
+			jenkinsHost, paramName, paramValue, startDate, endDate);
+	    }
+
+	    @Override
+	    protected List<BuildDetails> getArchivedBuildDetails() {
+		return getArchivedBuildDetailsByParams(jenkinsHost,
+			paramName, paramValue, startDate, endDate);
+	    }
+
+	    @Override
+	    protected List<BuildDetails> getArchivedBuildDetails(
+		    final BuildDetails cursor, final boolean backward,
+		    final int maxResults) {
+		return getArchivedBuildDetailsByParamsPage(jenkinsHost,
+			paramName, paramValue, startDate, endDate, cursor,
+			backward, maxResults);
+	    }
+	};
+    }
 }
@@ -0,0 +1,131 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.reports;
+
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.List;
+
+import net.sf.json.util.JSONUtils;
+
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+import org.jenkins.plugins.audit2db.model.BuildParameter;
+
+/**
+ * Writes the report results as a JSON object, for use by dashboards and
+ * scripts. The object holds the report name and the list of projects, each
+ * with its executions. Dates are written as milliseconds since the epoch,
+ * like in the Jenkins remote API.
+ *
+ * @author Marco Scata
+ *
+ */
+final class JsonReportWriter extends ReportStreamWriter {
+    private final PrintWriter writer;
+    private final String reportName;
+
+    private boolean firstProject = true;
+    private boolean firstExecution;
+
+    /**
+     * @param writer
+     *            the response writer.
+     * @param reportName
+     *            the url name of the report.
+     * @param archivedDetails
+     *            the matching archived build details, in start date order.
+     */
+    JsonReportWriter(final PrintWriter writer, final String reportName,
+	    final List<BuildDetails> archivedDetails) {
+	super(archivedDetails);
+	this.writer = writer;
+	this.reportName = reportName;
+    }
+
+    @Override
+    protected void writeStart() {
+	writer.print("{\"report\":");
+	writer.print(JSONUtils.quote(reportName));
+	writer.print(",\"projects\":[");
+    }
+
+    @Override
+    protected void writeProjectStart(final String name) {
+	if (!firstProject) {
+	    writer.print(',');
+	}
+	firstProject = false;
+	firstExecution = true;
+	writer.print("{\"name\":");
+	writer.print(JSONUtils.quote(name));
+	writer.print(",\"executions\":[");
+    }
+
+    @Override
+    protected void writeProjectEnd() {
+	writer.print("]}");
+    }
+
+    @Override
+    protected void writeRow(final BuildDetails details, final int row) {
+	if (!firstExecution) {
+	    writer.print(',');
+	}
+	firstExecution = false;
+	writer.print('{');
+	writeProperty("id", details.getId(), false);
+	writeProperty("fullName", details.getFullName(), true);
+	writeProperty("node", (details.getNode() != null) ? details.getNode()
+		.getName() : null, true);
+	writeProperty("startDate", details.getStartDate());
+	writeProperty("endDate", details.getEndDate());
+	writer.print(",\"duration\":");
+	writer.print(details.getDuration());
+	writeProperty("result", details.getResult(), true);
+	writeProperty("userId", details.getUserId(), true);
+	writeProperty("userName", details.getUserName(), true);
+	writer.print(",\"parameters\":[");
+	boolean firstParam = true;
+	for (final BuildParameter param : details.getParameters()) {
+	    if (!firstParam) {
+		writer.print(',');
+	    }
+	    firstParam = false;
+	    writer.print('{');
+	    writeProperty("name", param.getName(), false);
+	    writeProperty("value", param.getValue(), true);
+	    writer.print('}');
+	}
+	writer.print("]}");
+    }
+
+    @Override
+    protected void writeEnd(final boolean empty) {
+	writer.print("]}");
+	writer.flush();
+    }
+
+    @Override
+    protected boolean checkError() {
+	return writer.checkError();
+    }
+
+    private void writeProperty(final String name, final String value,
+	    final boolean separator) {
+	if (separator) {
+	    writer.print(',');
+	}
+	writer.print(JSONUtils.quote(name));
+	writer.print(':');
+	writer.print((value != null) ? JSONUtils.quote(value) : "null");
+    }
+
+    private void writeProperty(final String name, final Date value) {
+	writer.print(',');
+	writer.print(JSONUtils.quote(name));
+	writer.print(':');
+	writer.print((value != null) ? String.valueOf(value.getTime())
+		: "null");
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.reports;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Descriptor;
+
+import java.util.Date;
+import java.util.List;
+
+import jenkins.model.Jenkins;
+
+import org.jenkins.plugins.audit2db.Messages;
+import org.jenkins.plugins.audit2db.data.ReportLimitExceededException;
+import org.jenkins.plugins.audit2db.internal.DbAuditPlugin;
+import org.jenkins.plugins.audit2db.model.NodeUtilization;
+import org.jenkins.plugins.audit2db.reports.DbAuditReport;
+import org.jenkins.plugins.audit2db.reports.NodeUtilizationReport;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * @author Marco Scata
+ *
+ */
+@Extension
+public class NodeUtilizationReportImpl extends AbstractDbAuditReport implements
+NodeUtilizationReport {
+    @Extension
+    public static final class DescriptorImpl extends Descriptor<DbAuditReport> {
+	@Override
+	public String getDisplayName() {
+	    return Messages.DbAuditReportsNodeUtilization_ReportTitle();
+	}
+    }
+
+    @Override
+    public String getDateGenerated() {
+	return DbAuditReportUtils.dateAsString(new Date(), true);
+    }
+
+    @Override
+    public String getStartDateParam(final String dateString) {
+	return DbAuditReportUtils.getStartDateParam(dateString);
+    }
+
+    @Override
+    public String getEndDateParam(final String dateString) {
+	return DbAuditReportUtils.getEndDateParam(dateString);
+    }
+
+    @Override
+    public String getReportDescription() {
+	return Messages.DbAuditReportsNodeUtilization_ReportDescription();
+    }
+
+    @Override
+    public String getReportDisplayedInfo() {
+	return Messages.DbAuditReportsNodeUtilization_ReportDisplayedInfo();
+    }
+
+    @Override
+    public String getDisplayName() {
+	return Messages.DbAuditReportsNodeUtilization_ReportTitle();
+    }
+
+    @Override
+    public String getUrlName() {
+	return "nodeUtilization";
+    }
+
+    @Override
+    public List<NodeUtilization> getNodeUtilization(
+	    final String startDateString, final String endDateString) {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    // unit tests won't have a Jenkins instance
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
+	}
+	try {
+	    return getRepository().getNodeUtilization(getJenkinsHostname(),
+		    DbAuditReportUtils.stringToDate(startDateString),
+		    DbAuditReportUtils.stringToDate(endDateString));
+	} catch (final ReportLimitExceededException e) {
+	    logLimitExceeded(e);
+	    return null;
+	}
+    }
+
+    /**
+     * @return the given duration, in a human readable form.
+     */
+    public String getDurationString(final long duration) {
+	return Util.getTimeSpanString(duration);
+    }
+
+    /**
+     * @return the given time, as a percentage of the period of the given
+     *         node use.
+     */
+    public double getPercentage(final long time,
+	    final NodeUtilization utilization) {
+	return (0 == utilization.getPeriod()) ? 0
+		: ((time * 100.0) / utilization.getPeriod());
+    }
+
+    /**
+     * The streamed and exported data are the build details the node use is
+     * measured from.
+     */
+    @Override
+    protected ReportSource getReportSource(final StaplerRequest req) {
+	final Date startDate = DbAuditReportUtils
+		.stringToDate(getStartDateParam(req.getParameter("startDate")));
+	final Date endDate = DbAuditReportUtils
+		.stringToDate(getEndDateParam(req.getParameter("endDate")));
+	return new ProjectReportSource(getJenkinsHostname(), null, startDate,
+		endDate);
+    }
+}
@@ -0,0 +1,376 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.reports;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jenkins.model.Jenkins;
+
+/**
+ * Runs report exports in the background, so that large reports do not tie
+ * up the request threads or outlast the proxy timeouts.
+ * <p>
+ * Jobs run on a small, bounded pool of low priority threads, and only a
+ * limited number of jobs can wait for a thread: further jobs are rejected
+ * rather than queued without bounds. A job submitted while an identical one
+ * is still queued or running is not run again: the running job is returned
+ * instead. Results are written to files, and kept for a limited time after
+ * the job finishes, so that they can be downloaded repeatedly.
+ *
+ * @author Marco Scata
+ *
+ */
+public final class ReportJobs {
+    private final static Logger LOGGER = Logger.getLogger(ReportJobs.class.getName());
+
+    public final static String DIRECTORY_NAME = "audit2db-reports";
+
+    /**
+     * Number of jobs running at the same time.
+     */
+    private final static int THREADS = Integer.getInteger(
+	    ReportJobs.class.getName() + ".threads", 2);
+
+    /**
+     * Number of jobs waiting for a thread.
+     */
+    private final static int MAX_QUEUED = Integer.getInteger(
+	    ReportJobs.class.getName() + ".maxQueued", 10);
+
+    /**
+     * Number of minutes the result of a job is kept for, once the job
+     * finishes.
+     */
+    private final static int RETENTION_MINUTES = Integer.getInteger(
+	    ReportJobs.class.getName() + ".retentionMinutes", 60);
+
+    private static ReportJobs instance;
+
+    /**
+     * Writes the result of a job.
+     */
+    public interface Task {
+	/**
+	 * @param job
+	 *            the job, to report progress to.
+	 * @param writer
+	 *            the writer of the result file.
+	 */
+	void run(Job job, PrintWriter writer) throws IOException;
+    }
+
+    public enum Status {
+	QUEUED, RUNNING, DONE, FAILED
+    }
+
+    /**
+     * A report export submitted to run in the background.
+     */
+    public final static class Job {
+	private final String id = UUID.randomUUID().toString();
+	private final List<Object> key;
+	private final String fileName;
+	private final String contentType;
+	private final File file;
+	private final long submitted = System.currentTimeMillis();
+	private final AtomicLong rows = new AtomicLong();
+	private volatile long expectedRows = -1;
+	private volatile Status status = Status.QUEUED;
+	private volatile long finished;
+	private volatile String failure;
+
+	private Job(final List<Object> key, final String fileName,
+		final String contentType, final File file) {
+	    this.key = key;
+	    this.fileName = fileName;
+	    this.contentType = contentType;
+	    this.file = file;
+	}
+
+	/**
+	 * Records that a row of the result was written.
+	 */
+	public void addRow() {
+	    rows.incrementAndGet();
+	}
+
+	/**
+	 * @param expectedRows
+	 *            the estimated number of rows of the result.
+	 */
+	public void setExpectedRows(final long expectedRows) {
+	    this.expectedRows = expectedRows;
+	}
+
+	public String getId() {
+	    return id;
+	}
+
+	/**
+	 * @return the name the result is downloaded as.
+	 */
+	public String getFileName() {
+	    return fileName;
+	}
+
+	public String getContentType() {
+	    return contentType;
+	}
+
+	/**
+	 * @return the result file, complete once the job is done.
+	 */
+	public File getFile() {
+	    return file;
+	}
+
+	public Status getStatus() {
+	    return status;
+	}
+
+	public long getSubmitted() {
+	    return submitted;
+	}
+
+	/**
+	 * @return when the job finished, or 0 if it has not yet.
+	 */
+	public long getFinished() {
+	    return finished;
+	}
+
+	public long getRows() {
+	    return rows.get();
+	}
+
+	/**
+	 * @return the estimated number of rows of the result, or -1 if not
+	 *         known yet.
+	 */
+	public long getExpectedRows() {
+	    return expectedRows;
+	}
+
+	/**
+	 * @return the percentage of the rows written so far, or -1 if not
+	 *         known.
+	 */
+	public int getProgress() {
+	    if (Status.DONE == status) {
+		return 100;
+	    }
+	    final long expected = expectedRows;
+	    if (expected < 0) {
+		return -1;
+	    }
+	    // the estimate may be exceeded by builds recorded meanwhile
+	    return (0 == expected) ? 0 : (int) Math.min(99,
+		    (rows.get() * 100) / expected);
+	}
+
+	/**
+	 * @return the reason the job failed, or <code>null</code>.
+	 */
+	public String getFailure() {
+	    return failure;
+	}
+    }
+
+    private final File directory;
+    private final long retentionMillis;
+    private final ThreadPoolExecutor executor;
+
+    // in submission order: the first job is the oldest one
+    private final Map<String, Job> jobs = new LinkedHashMap<String, Job>();
+    private final Map<List<Object>, Job> unfinishedJobs = new HashMap<List<Object>, Job>();
+
+    public ReportJobs(final File directory, final int threads,
+	    final int maxQueued, final long retentionMillis) {
+	this.directory = directory;
+	this.retentionMillis = retentionMillis;
+	this.executor = new ThreadPoolExecutor(threads, threads, 0,
+		TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+			maxQueued), new ThreadFactory() {
+		    private final AtomicInteger counter = new AtomicInteger();
+
+		    @Override
+		    public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable,
+				"audit2db-report-" + counter.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		    }
+		});
+	// results left over from before a restart cannot be looked up
+	final File[] leftovers = directory.listFiles();
+	if (leftovers != null) {
+	    for (final File leftover : leftovers) {
+		delete(leftover);
+	    }
+	}
+    }
+
+    /**
+     * @return the jobs shared by all the reports.
+     */
+    public static synchronized ReportJobs getInstance() {
+	if (null == instance) {
+	    final Jenkins jenkins = Jenkins.getInstance();
+	    final File parent = (jenkins != null) ? jenkins.getRootDir()
+		    : new File(System.getProperty("java.io.tmpdir"));
+	    instance = new ReportJobs(new File(parent, DIRECTORY_NAME),
+		    THREADS, MAX_QUEUED,
+		    TimeUnit.MINUTES.toMillis(RETENTION_MINUTES));
+	}
+	return instance;
+    }
+
+    /**
+     * Submits a job, unless an identical one is still queued or running.
+     *
+     * @param key
+     *            the report type and all its filters: jobs with equal keys
+     *            are identical.
+     * @param fileName
+     *            the name the result is downloaded as.
+     * @param contentType
+     *            the content type of the result.
+     * @param task
+     *            writes the result.
+     * @return the submitted job, or the identical one.
+     * @throws RejectedExecutionException
+     *             if too many jobs are waiting to run.
+     */
+    public synchronized Job submit(final List<Object> key,
+	    final String fileName, final String contentType, final Task task)
+	    throws IOException {
+	purge();
+	final Job unfinished = unfinishedJobs.get(key);
+	if (unfinished != null) {
+	    return unfinished;
+	}
+
+	if (!directory.isDirectory() && !directory.mkdirs()) {
+	    throw new IOException("Cannot create directory " + directory);
+	}
+	final Job job = new Job(key, fileName, contentType, File.createTempFile(
+		"report", ".tmp", directory));
+	try {
+	    executor.execute(new Runnable() {
+		@Override
+		public void run() {
+		    runJob(job, task);
+		}
+	    });
+	} catch (final RejectedExecutionException e) {
+	    delete(job.file);
+	    throw e;
+	}
+	jobs.put(job.getId(), job);
+	unfinishedJobs.put(key, job);
+	return job;
+    }
+
+    private void runJob(final Job job, final Task task) {
+	job.status = Status.RUNNING;
+	boolean done = false;
+	try {
+	    final PrintWriter writer = new PrintWriter(new BufferedWriter(
+		    new OutputStreamWriter(new FileOutputStream(job.file),
+			    "UTF-8")));
+	    try {
+		task.run(job, writer);
+	    } finally {
+		writer.close();
+	    }
+	    if (writer.checkError()) {
+		throw new IOException("Cannot write " + job.file);
+	    }
+	    done = true;
+	} catch (final Throwable t) {
+	    LOGGER.log(Level.SEVERE, t.getMessage(), t);
+	    job.failure = String.valueOf(t.getMessage());
+	    if (t instanceof Error) {
+		throw (Error) t;
+	    }
+	} finally {
+	    // a job must end up finished whatever stopped it, or an
+	    // identical one could never be submitted again
+	    if (!done) {
+		delete(job.file);
+	    }
+	    synchronized (this) {
+		job.status = done ? Status.DONE : Status.FAILED;
+		job.finished = System.currentTimeMillis();
+		unfinishedJobs.remove(job.key);
+	    }
+	}
+    }
+
+    /**
+     * @return the job with the given id, or <code>null</code> if there is
+     *         none or its result has expired.
+     */
+    public synchronized Job get(final String id) {
+	purge();
+	return (null == id) ? null : jobs.get(id);
+    }
+
+    /**
+     * Drops the jobs that finished longer ago than the retention time,
+     * together with their results.
+     */
+    private void purge() {
+	final long now = System.currentTimeMillis();
+	final Iterator<Job> iterator = jobs.values().iterator();
+	while (iterator.hasNext()) {
+	    final Job job = iterator.next();
+	    if ((job.finished > 0) && ((job.finished + retentionMillis) <= now)) {
+		delete(job.file);
+		iterator.remove();
+	    }
+	}
+    }
+
+    private static void delete(final File file) {
+	if (file.exists() && !file.delete()) {
+	    LOGGER.log(Level.WARNING, "Cannot delete {0}", file);
+	}
+    }
+
+    /**
+     * @return the number of jobs kept, finished or not.
+     */
+    public synchronized int getSize() {
+	return jobs.size();
+    }
+
+    /**
+     * Stops the running jobs. Only meant to be used by tests.
+     */
+    public void shutdown() {
+	executor.shutdownNow();
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.reports;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+import org.jenkins.plugins.audit2db.reports.ReportPage;
+
+/**
+ * @author Marco Scata
+ *
+ */
+public class ReportPageImpl implements ReportPage {
+    private final Map<String, List<BuildDetails>> projectExecutions;
+    private final int pageSize;
+    private final String nextCursor;
+    private final String previousCursor;
+
+    public ReportPageImpl(
+	    final Map<String, List<BuildDetails>> projectExecutions,
+	    final int pageSize, final String nextCursor,
+	    final String previousCursor) {
+	this.projectExecutions = projectExecutions;
+	this.pageSize = pageSize;
+	this.nextCursor = nextCursor;
+	this.previousCursor = previousCursor;
+    }
+
+    @Override
+    public Map<String, List<BuildDetails>> getProjectExecutions() {
+	return projectExecutions;
+    }
+
+    @Override
+    public int getPageSize() {
+	return pageSize;
+    }
+
+    @Override
+    public String getNextCursor() {
+	return nextCursor;
+    }
+
+    @Override
+    public String getPreviousCursor() {
+	return previousCursor;
+    }
+}
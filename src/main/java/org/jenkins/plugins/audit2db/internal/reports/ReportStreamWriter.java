@@ -0,0 +1,137 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.reports;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.jenkins.plugins.audit2db.data.BuildDetailsHandler;
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+
+/**
+ * Writes the report results as they are read from the repository.
+ * <p>
+ * The build details must be received in project name order. Archived build
+ * details, which are read up front, are merged in as each project starts.
+ * Subclasses only deal with the output format.
+ *
+ * @author Marco Scata
+ *
+ */
+abstract class ReportStreamWriter implements BuildDetailsHandler {
+    private final TreeMap<String, List<BuildDetails>> archived = new TreeMap<String, List<BuildDetails>>();
+    private final Set<String> archivedIds = new HashSet<String>();
+
+    private String projectName;
+    private int rows;
+
+    /**
+     * @param archivedDetails
+     *            the matching archived build details, in start date order.
+     */
+    ReportStreamWriter(final List<BuildDetails> archivedDetails) {
+	for (final BuildDetails details : archivedDetails) {
+	    List<BuildDetails> executions = archived.get(details.getName());
+	    if (null == executions) {
+		executions = new ArrayList<BuildDetails>();
+		archived.put(details.getName(), executions);
+	    }
+	    executions.add(details);
+	}
+    }
+
+    void start() {
+	writeStart();
+    }
+
+    @Override
+    public boolean handle(final BuildDetails details) {
+	if (!details.getName().equals(projectName)) {
+	    startProject(details.getName());
+	}
+	// build details archived just before a failed purge
+	// may still be in the database as well
+	if (!archivedIds.contains(details.getId())) {
+	    row(details);
+	}
+	// stop reading as soon as the client goes away
+	return !checkError();
+    }
+
+    void finish() {
+	while (!archived.isEmpty()) {
+	    final Map.Entry<String, List<BuildDetails>> project = archived
+		    .pollFirstEntry();
+	    startProject(project.getKey(), project.getValue());
+	}
+	endProject();
+	writeEnd(0 == rows);
+    }
+
+    private void startProject(final String name) {
+	// archived projects without builds in the database
+	// are written in their place in name order
+	while (!archived.isEmpty() && (archived.firstKey().compareTo(name) < 0)) {
+	    final Map.Entry<String, List<BuildDetails>> project = archived
+		    .pollFirstEntry();
+	    startProject(project.getKey(), project.getValue());
+	}
+	startProject(name, archived.remove(name));
+    }
+
+    private void startProject(final String name,
+	    final List<BuildDetails> archivedExecutions) {
+	endProject();
+	projectName = name;
+	archivedIds.clear();
+	writeProjectStart(name);
+
+	if (archivedExecutions != null) {
+	    for (final BuildDetails details : archivedExecutions) {
+		archivedIds.add(details.getId());
+		row(details);
+	    }
+	}
+    }
+
+    private void endProject() {
+	if (projectName != null) {
+	    writeProjectEnd();
+	    projectName = null;
+	}
+    }
+
+    private void row(final BuildDetails details) {
+	writeRow(details, ++rows);
+    }
+
+    protected abstract void writeStart();
+
+    protected abstract void writeProjectStart(String name);
+
+    protected abstract void writeProjectEnd();
+
+    /**
+     * @param details
+     *            the build details to write.
+     * @param row
+     *            the number of the row, starting from 1.
+     */
+    protected abstract void writeRow(BuildDetails details, int row);
+
+    /**
+     * @param empty
+     *            <code>true</code> if no rows were written.
+     */
+    protected abstract void writeEnd(boolean empty);
+
+    /**
+     * @return <code>true</code> if the output can no longer be written.
+     */
+    protected abstract boolean checkError();
+}
@@ -0,0 +1,209 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.reports;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.Descriptor;
+import hudson.model.Result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jenkins.model.Jenkins;
+
+import org.jenkins.plugins.audit2db.Messages;
+import org.jenkins.plugins.audit2db.data.BuildDetailsHandler;
+import org.jenkins.plugins.audit2db.data.ReportLimitExceededException;
+import org.jenkins.plugins.audit2db.internal.DbAuditPlugin;
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+import org.jenkins.plugins.audit2db.reports.DbAuditReport;
+import org.jenkins.plugins.audit2db.reports.SlowestBuildsReport;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * @author Marco Scata
+ *
+ */
+@Extension
+public class SlowestBuildsReportImpl extends AbstractDbAuditReport implements
+SlowestBuildsReport {
+    @Extension
+    public static final class DescriptorImpl extends Descriptor<DbAuditReport> {
+	@Override
+	public String getDisplayName() {
+	    return Messages.DbAuditReportsSlowestBuilds_ReportTitle();
+	}
+    }
+
+    @Override
+    public String getDateGenerated() {
+	return DbAuditReportUtils.dateAsString(new Date(), true);
+    }
+
+    @Override
+    public String getStartDateParam(final String dateString) {
+	return DbAuditReportUtils.getStartDateParam(dateString);
+    }
+
+    @Override
+    public String getEndDateParam(final String dateString) {
+	return DbAuditReportUtils.getEndDateParam(dateString);
+    }
+
+    @Override
+    public String getReportDescription() {
+	return Messages.DbAuditReportsSlowestBuilds_ReportDescription();
+    }
+
+    @Override
+    public String getReportDisplayedInfo() {
+	return Messages.DbAuditReportsSlowestBuilds_ReportDisplayedInfo();
+    }
+
+    @Override
+    public String getDisplayName() {
+	return Messages.DbAuditReportsSlowestBuilds_ReportTitle();
+    }
+
+    @Override
+    public String getUrlName() {
+	return "slowestBuilds";
+    }
+
+    @Override
+    public List<BuildDetails> getSlowestBuilds(final String jobName,
+	    final String nodeName, final String result,
+	    final String startDateString, final String endDateString,
+	    final int count) {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    // unit tests won't have a Jenkins instance
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
+	}
+	try {
+	    return getRepository().getSlowestBuildDetails(getJenkinsHostname(),
+		    jobName, nodeName, result,
+		    DbAuditReportUtils.stringToDate(startDateString),
+		    DbAuditReportUtils.stringToDate(endDateString), count);
+	} catch (final ReportLimitExceededException e) {
+	    logLimitExceeded(e);
+	    return null;
+	}
+    }
+
+    /**
+     * @return the names of the build results, most successful first.
+     */
+    public List<String> getResultNames() {
+	return Arrays.asList(Result.SUCCESS.toString(),
+		Result.UNSTABLE.toString(), Result.FAILURE.toString(),
+		Result.NOT_BUILT.toString(), Result.ABORTED.toString());
+    }
+
+    /**
+     * @return the given duration, in a human readable form.
+     */
+    public String getDurationString(final long duration) {
+	return Util.getTimeSpanString(duration);
+    }
+
+    /**
+     * The streamed and exported data are the slowest builds shown in the
+     * report, with the same filters, grouped by project in name order as the
+     * report writers expect. As in the report, archived builds are left out.
+     */
+    @Override
+    protected ReportSource getReportSource(final StaplerRequest req) {
+	final String jobName = req.getParameter("jobName");
+	final String nodeName = req.getParameter("nodeName");
+	final String result = req.getParameter("result");
+	final Date startDate = DbAuditReportUtils
+		.stringToDate(getStartDateParam(req.getParameter("startDate")));
+	final Date endDate = DbAuditReportUtils
+		.stringToDate(getEndDateParam(req.getParameter("endDate")));
+	final int count = getPageSizeParam(req.getParameter("count"));
+	final String jenkinsHost = getJenkinsHostname();
+	return new ReportSource(jenkinsHost, startDate, endDate, jobName,
+		nodeName, result, String.valueOf(count)) {
+	    private List<BuildDetails> slowestBuilds;
+
+	    private List<BuildDetails> loadSlowestBuilds() {
+		if (null == slowestBuilds) {
+		    slowestBuilds = getRepository().getSlowestBuildDetails(
+			    jenkinsHost, jobName, nodeName, result, startDate,
+			    endDate, count);
+		}
+		return slowestBuilds;
+	    }
+
+	    @Override
+	    protected Map<String, List<BuildDetails>> getBuildDetailsByProject() {
+		final Map<String, List<BuildDetails>> retval = new TreeMap<String, List<BuildDetails>>();
+		for (final BuildDetails details : loadSlowestBuilds()) {
+		    List<BuildDetails> executions = retval.get(details
+			    .getName());
+		    if (null == executions) {
+			executions = new ArrayList<BuildDetails>();
+			retval.put(details.getName(), executions);
+		    }
+		    executions.add(details);
+		}
+		return retval;
+	    }
+
+	    @Override
+	    protected List<BuildDetails> getBuildDetails(
+		    final BuildDetails cursor, final boolean backward,
+		    final int maxResults) {
+		// the slowest builds all fit in a single page
+		if (cursor != null) {
+		    return Collections.emptyList();
+		}
+		final List<BuildDetails> retval = loadSlowestBuilds();
+		return retval.subList(0, Math.min(maxResults, retval.size()));
+	    }
+
+	    @Override
+	    protected void streamBuildDetails(final BuildDetailsHandler handler) {
+		for (final List<BuildDetails> executions : getBuildDetailsByProject()
+			.values()) {
+		    for (final BuildDetails details : executions) {
+			if (!handler.handle(details)) {
+			    return;
+			}
+		    }
+		}
+	    }
+
+	    @Override
+	    protected String getSignature() {
+		final List<BuildDetails> builds = loadSlowestBuilds();
+		final StringBuilder retval = new StringBuilder();
+		retval.append(builds.size());
+		for (final BuildDetails details : builds) {
+		    retval.append(':').append(details.getId());
+		}
+		return retval.toString();
+	    }
+
+	    @Override
+	    protected List<BuildDetails> getArchivedBuildDetails() {
+		return Collections.emptyList();
+	    }
+
+	    @Override
+	    protected List<BuildDetails> getArchivedBuildDetails(
+		    final BuildDetails cursor, final boolean backward,
+		    final int maxResults) {
+		return Collections.emptyList();
+	    }
+	};
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.internal.reports;
+
+import hudson.Extension;
+import hudson.model.Descriptor;
+
+import java.util.Date;
+import java.util.List;
+
+import jenkins.model.Jenkins;
+
+import org.jenkins.plugins.audit2db.Messages;
+import org.jenkins.plugins.audit2db.data.ReportLimitExceededException;
+import org.jenkins.plugins.audit2db.data.TimeBucket;
+import org.jenkins.plugins.audit2db.internal.DbAuditPlugin;
+import org.jenkins.plugins.audit2db.model.BuildThroughput;
+import org.jenkins.plugins.audit2db.reports.DbAuditReport;
+import org.jenkins.plugins.audit2db.reports.ThroughputReport;
+import org.kohsuke.stapler.StaplerRequest;
+
+/**
+ * @author Marco Scata
+ *
+ */
+@Extension
+public class ThroughputReportImpl extends AbstractDbAuditReport implements
+ThroughputReport {
+    /**
+     * The height of the tallest bar of the chart, in pixels.
+     */
+    private final static int CHART_HEIGHT = 150;
+
+    @Extension
+    public static final class DescriptorImpl extends Descriptor<DbAuditReport> {
+	@Override
+	public String getDisplayName() {
+	    return Messages.DbAuditReportsThroughput_ReportTitle();
+	}
+    }
+
+    @Override
+    public String getDateGenerated() {
+	return DbAuditReportUtils.dateAsString(new Date(), true);
+    }
+
+    @Override
+    public String getStartDateParam(final String dateString) {
+	return DbAuditReportUtils.getStartDateParam(dateString);
+    }
+
+    @Override
+    public String getEndDateParam(final String dateString) {
+	return DbAuditReportUtils.getEndDateParam(dateString);
+    }
+
+    @Override
+    public String getBucketParam(final String bucketString) {
+	return TimeBucket.parse(bucketString).name().toLowerCase();
+    }
+
+    @Override
+    public String getReportDescription() {
+	return Messages.DbAuditReportsThroughput_ReportDescription();
+    }
+
+    @Override
+    public String getReportDisplayedInfo() {
+	return Messages.DbAuditReportsThroughput_ReportDisplayedInfo();
+    }
+
+    @Override
+    public String getDisplayName() {
+	return Messages.DbAuditReportsThroughput_ReportTitle();
+    }
+
+    @Override
+    public String getUrlName() {
+	return "throughput";
+    }
+
+    @Override
+    public List<BuildThroughput> getBuildThroughput(final String bucket,
+	    final String startDateString, final String endDateString) {
+	final Jenkins jenkins = Jenkins.getInstance();
+	if (jenkins != null) {
+	    // unit tests won't have a Jenkins instance
+	    jenkins.checkPermission(DbAuditPlugin.RUN);
+	}
+	try {
+	    return getRepository().getBuildThroughput(getJenkinsHostname(),
+		    TimeBucket.parse(bucket),
+		    DbAuditReportUtils.stringToDate(startDateString),
+		    DbAuditReportUtils.stringToDate(endDateString));
+	} catch (final ReportLimitExceededException e) {
+	    logLimitExceeded(e);
+	    return null;
+	}
+    }
+
+    /**
+     * @return whether the date range spans more buckets of the given size
+     *         than the report can show.
+     */
+    public boolean isTooManyBuckets(final String bucket,
+	    final String startDateString, final String endDateString) {
+	final long buckets = TimeBucket.parse(bucket).countBuckets(
+		DbAuditReportUtils.stringToDate(startDateString),
+		DbAuditReportUtils.stringToDate(endDateString));
+	return buckets > TimeBucket.MAX_BUCKETS;
+    }
+
+    /**
+     * @return the bucket sizes, smallest first.
+     */
+    public TimeBucket[] getBuckets() {
+	return TimeBucket.values();
+    }
+
+    /**
+     * @return the build count of the busiest bucket of the series, which the
+     *         chart bars are scaled to.
+     */
+    public long getMaxBuildCount(final List<BuildThroughput> series) {
+	long retval = 0;
+	for (final BuildThroughput bucket : series) {
+	    retval = Math.max(retval, bucket.getBuildCount());
+	}
+	return retval;
+    }
+
+    /**
+     * @return the height of the chart bar for the given number of builds,
+     *         in pixels, scaled to the build count of the busiest bucket.
+     */
+    public long getBarHeight(final long buildCount, final long maxBuildCount) {
+	return (0 == maxBuildCount) ? 0
+		: ((buildCount * CHART_HEIGHT) / maxBuildCount);
+    }
+
+    /**
+     * The streamed and exported data are the build details the series is
+     * counted from.
+     */
+    @Override
+    protected ReportSource getReportSource(final StaplerRequest req) {
+	final Date startDate = DbAuditReportUtils
+		.stringToDate(getStartDateParam(req.getParameter("startDate")));
+	final Date endDate = DbAuditReportUtils
+		.stringToDate(getEndDateParam(req.getParameter("endDate")));
+	return new ProjectReportSource(getJenkinsHostname(), null, startDate,
+		endDate);
+    }
+}
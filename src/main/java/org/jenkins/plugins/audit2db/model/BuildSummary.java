@@ -0,0 +1,49 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.model;
+
+/**
+ * Data model for the aggregated statistics of the builds of a project that
+ * ended with the same result.
+ *
+ * @author Marco Scata
+ *
+ */
+public interface BuildSummary {
+    String getName();
+
+    String getResult();
+
+    long getBuildCount();
+
+    /**
+     * @return the sum of the build durations, in milliseconds.
+     */
+    long getTotalDuration();
+
+    /**
+     * @return the shortest build duration, in milliseconds.
+     */
+    long getMinDuration();
+
+    /**
+     * @return the longest build duration, in milliseconds.
+     */
+    long getMaxDuration();
+
+    /**
+     * @return the average build duration, in milliseconds.
+     */
+    long getAverageDuration();
+
+    /**
+     * Estimates a percentile of the build durations, within 2% of a
+     * duration actually recorded.
+     *
+     * @param percentile
+     *            the percentile, between 0 and 100.
+     * @return the estimated duration, in milliseconds.
+     */
+    long getDurationPercentile(double percentile);
+}
@@ -0,0 +1,29 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.model;
+
+import java.util.Date;
+
+/**
+ * Data model for the number of builds started within a time bucket.
+ *
+ * @author Marco Scata
+ *
+ */
+public interface BuildThroughput {
+    /**
+     * @return the start date of the time bucket.
+     */
+    Date getStartDate();
+
+    /**
+     * @return the number of finished builds started within the bucket.
+     */
+    long getBuildCount();
+
+    /**
+     * @return the number of those builds that failed.
+     */
+    long getFailureCount();
+}
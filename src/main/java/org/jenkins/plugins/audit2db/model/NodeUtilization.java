@@ -0,0 +1,62 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.model;
+
+import java.util.List;
+
+/**
+ * Data model for the use of a build node, or of all the nodes with the same
+ * label, over a period of time.
+ *
+ * @author Marco Scata
+ *
+ */
+public interface NodeUtilization {
+    /**
+     * @return the node name, or the label.
+     */
+    String getName();
+
+    /**
+     * @return <code>true</code> if this is the use of all the nodes with a
+     *         label, <code>false</code> if it is the use of a single node.
+     */
+    boolean isLabel();
+
+    /**
+     * @return the number of builds that ran within the period.
+     */
+    long getBuildCount();
+
+    /**
+     * @return the largest number of builds that ran at the same time.
+     */
+    int getPeakConcurrency();
+
+    /**
+     * @return the length of the period, in milliseconds.
+     */
+    long getPeriod();
+
+    /**
+     * @return how long at least one build was running, in milliseconds.
+     */
+    long getBusyTime();
+
+    /**
+     * @return the busy time, as a percentage of the period.
+     */
+    double getBusyPercentage();
+
+    /**
+     * @return the average number of builds running at the same time.
+     */
+    double getAverageConcurrency();
+
+    /**
+     * @return how long exactly as many builds as the index were running, in
+     *         milliseconds, from none up to the peak concurrency.
+     */
+    List<Long> getConcurrencyTimes();
+}
@@ -40,6 +40,16 @@ Describable<DbAuditReport> {
      */
     String getReportDisplayedInfo();
 
+    /**
+     * Checks the given page size string and, if invalid, returns the default
+     * page size.
+     *
+     * @param pageSizeString
+     *            a page size in string format.
+     * @return a valid page size.
+     */
+    int getPageSizeParam(String pageSizeString);
+
     /**
      * @return the build details repository.
      */
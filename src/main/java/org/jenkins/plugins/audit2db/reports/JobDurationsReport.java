@@ -0,0 +1,51 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.reports;
+
+import java.util.List;
+
+import org.jenkins.plugins.audit2db.model.BuildSummary;
+
+/**
+ * @author Marco Scata
+ *
+ */
+public interface JobDurationsReport extends DbAuditReport {
+    /**
+     * Checks the given date string and, if invalid, returns a default date.
+     *
+     * @param dateString
+     *            a date in string format.
+     * @return a valid start date string.
+     */
+    String getStartDateParam(String dateString);
+
+    /**
+     * Checks the given date string and, if invalid, returns a default date.
+     *
+     * @param dateString
+     *            a date in string format.
+     * @return a valid end date string.
+     */
+    String getEndDateParam(String dateString);
+
+    /**
+     * Retrieves the build duration statistics, percentiles included, of the
+     * projects that match the given name and were started within the given
+     * dates. The statistics are merged from the daily build summaries,
+     * without reading the build details.
+     *
+     * @param jobName
+     *            the project name pattern, or <code>null</code> to match all
+     *            projects.
+     * @param startDate
+     *            a valid start date.
+     * @param endDate
+     *            a valid end date.
+     * @return the statistics of each project, ordered by project name, or
+     *         <code>null</code> if the query limits were exceeded.
+     */
+    List<BuildSummary> getProjectDurations(String jobName, String startDate,
+	    String endDate);
+}
@@ -19,4 +19,8 @@ public interface JobHistoryReport extends DbAuditReport {
 
     Map<String, List<BuildDetails>> getProjectExecutions(
 	    String jobName, String startDate, String endDate);
+
+    ReportPage getProjectExecutionsPage(String jobName, String startDate,
+	    String endDate, String afterCursor, String beforeCursor,
+	    int pageSize);
 }
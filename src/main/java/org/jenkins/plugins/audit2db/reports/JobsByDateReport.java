@@ -45,4 +45,24 @@ public interface JobsByDateReport extends DbAuditReport {
      */
     Map<String, List<BuildDetails>> getProjectExecutions(String startDate,
 	    String endDate);
+
+    /**
+     * Retrieves a single page of the project executions that were started or
+     * have ended within the given dates, in start date order.
+     *
+     * @param startDate
+     *            a valid start date.
+     * @param endDate
+     *            a valid end date.
+     * @param afterCursor
+     *            the next cursor of the previous page, if any.
+     * @param beforeCursor
+     *            the previous cursor of the next page, if any.
+     * @param pageSize
+     *            the maximum number of executions in the page.
+     * @return the requested page of executions, or <code>null</code> if
+     *         the query limits were exceeded.
+     */
+    ReportPage getProjectExecutionsPage(String startDate, String endDate,
+	    String afterCursor, String beforeCursor, int pageSize);
 }
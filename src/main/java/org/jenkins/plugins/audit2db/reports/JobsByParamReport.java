@@ -20,4 +20,8 @@ public interface JobsByParamReport extends DbAuditReport {
     Map<String, List<BuildDetails>> getProjectExecutions(
 	    String paramName, String paramValue,
 	    String startDate, String endDate);
+
+    ReportPage getProjectExecutionsPage(String paramName, String paramValue,
+	    String startDate, String endDate, String afterCursor,
+	    String beforeCursor, int pageSize);
 }
@@ -0,0 +1,54 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.reports;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jenkins.plugins.audit2db.model.BuildSummary;
+
+/**
+ * @author Marco Scata
+ *
+ */
+public interface JobsSummaryReport extends DbAuditReport {
+    /**
+     * Checks the given date string and, if invalid, returns a default date.
+     *
+     * @param dateString
+     *            a date in string format.
+     * @return a valid start date string.
+     */
+    String getStartDateParam(String dateString);
+
+    /**
+     * Checks the given date string and, if invalid, returns a default date.
+     *
+     * @param dateString
+     *            a date in string format.
+     * @return a valid end date string.
+     */
+    String getEndDateParam(String dateString);
+
+    /**
+     * Retrieves the build statistics of the projects that match the given
+     * name and were started within the given dates. The statistics are read
+     * from the daily build summaries, so long date ranges are as quick as
+     * short ones. Each project can have statistics for several build results,
+     * so this method returns a map where each entry's key is a project name,
+     * and its value is a list of statistics for that project.
+     *
+     * @param jobName
+     *            the project name pattern, or <code>null</code> to match all
+     *            projects.
+     * @param startDate
+     *            a valid start date.
+     * @param endDate
+     *            a valid end date.
+     * @return a map of statistics lists, keyed by project name, or
+     *         <code>null</code> if the query limits were exceeded.
+     */
+    Map<String, List<BuildSummary>> getProjectSummaries(String jobName,
+	    String startDate, String endDate);
+}
@@ -0,0 +1,45 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.reports;
+
+import java.util.List;
+
+import org.jenkins.plugins.audit2db.model.NodeUtilization;
+
+/**
+ * @author Marco Scata
+ *
+ */
+public interface NodeUtilizationReport extends DbAuditReport {
+    /**
+     * Checks the given date string and, if invalid, returns a default date.
+     *
+     * @param dateString
+     *            a date in string format.
+     * @return a valid start date string.
+     */
+    String getStartDateParam(String dateString);
+
+    /**
+     * Checks the given date string and, if invalid, returns a default date.
+     *
+     * @param dateString
+     *            a date in string format.
+     * @return a valid end date string.
+     */
+    String getEndDateParam(String dateString);
+
+    /**
+     * Measures the use of the build nodes, and of their labels, by the
+     * builds that were running at any time within the given dates.
+     *
+     * @param startDate
+     *            a valid start date.
+     * @param endDate
+     *            a valid end date.
+     * @return the use of each node, by name, followed by the use of each
+     *         label, by label, or <code>null</code> if the query timed out.
+     */
+    List<NodeUtilization> getNodeUtilization(String startDate, String endDate);
+}
@@ -0,0 +1,42 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.reports;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+
+/**
+ * A single page of report results. Pages are delimited by the start date and
+ * id of their first and last build details (keyset pagination), so that
+ * reading a page costs the same however many builds fall in the report dates.
+ *
+ * @author Marco Scata
+ *
+ */
+public interface ReportPage {
+    /**
+     * @return the project executions in this page, keyed by project name.
+     */
+    Map<String, List<BuildDetails>> getProjectExecutions();
+
+    /**
+     * @return the maximum number of executions in a page.
+     */
+    int getPageSize();
+
+    /**
+     * @return the cursor to pass as the <code>after</code> parameter to read
+     *         the next page, or <code>null</code> if this is the last page.
+     */
+    String getNextCursor();
+
+    /**
+     * @return the cursor to pass as the <code>before</code> parameter to
+     *         read the previous page, or <code>null</code> if this is the
+     *         first page.
+     */
+    String getPreviousCursor();
+}
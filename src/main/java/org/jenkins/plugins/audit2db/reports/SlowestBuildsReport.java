@@ -0,0 +1,57 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.reports;
+
+import java.util.List;
+
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+
+/**
+ * @author Marco Scata
+ *
+ */
+public interface SlowestBuildsReport extends DbAuditReport {
+    /**
+     * Checks the given date string and, if invalid, returns a default date.
+     *
+     * @param dateString
+     *            a date in string format.
+     * @return a valid start date string.
+     */
+    String getStartDateParam(String dateString);
+
+    /**
+     * Checks the given date string and, if invalid, returns a default date.
+     *
+     * @param dateString
+     *            a date in string format.
+     * @return a valid end date string.
+     */
+    String getEndDateParam(String dateString);
+
+    /**
+     * Retrieves the longest of the project executions that were started
+     * within the given dates, longest first.
+     *
+     * @param jobName
+     *            the project name pattern, or <code>null</code> to match all
+     *            projects.
+     * @param nodeName
+     *            the node name pattern, or <code>null</code> to match all
+     *            nodes.
+     * @param result
+     *            the build result, or <code>null</code> to match all
+     *            results.
+     * @param startDate
+     *            a valid start date.
+     * @param endDate
+     *            a valid end date.
+     * @param count
+     *            the maximum number of executions to retrieve.
+     * @return the slowest executions, longest first, or <code>null</code>
+     *         if the query limits were exceeded.
+     */
+    List<BuildDetails> getSlowestBuilds(String jobName, String nodeName,
+	    String result, String startDate, String endDate, int count);
+}
@@ -0,0 +1,59 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.reports;
+
+import java.util.List;
+
+import org.jenkins.plugins.audit2db.model.BuildThroughput;
+
+/**
+ * @author Marco Scata
+ *
+ */
+public interface ThroughputReport extends DbAuditReport {
+    /**
+     * Checks the given date string and, if invalid, returns a default date.
+     *
+     * @param dateString
+     *            a date in string format.
+     * @return a valid start date string.
+     */
+    String getStartDateParam(String dateString);
+
+    /**
+     * Checks the given date string and, if invalid, returns a default date.
+     *
+     * @param dateString
+     *            a date in string format.
+     * @return a valid end date string.
+     */
+    String getEndDateParam(String dateString);
+
+    /**
+     * Checks the given bucket size and, if invalid, returns the default one.
+     *
+     * @param bucketString
+     *            a bucket size: minute, hour or day.
+     * @return a valid bucket size.
+     */
+    String getBucketParam(String bucketString);
+
+    /**
+     * Counts the builds, and the failed ones, that were executed within the
+     * given dates, per time bucket.
+     *
+     * @param bucket
+     *            a valid bucket size.
+     * @param startDate
+     *            a valid start date.
+     * @param endDate
+     *            a valid end date.
+     * @return one entry per bucket, oldest first, or <code>null</code> if
+     *         the query limits were exceeded.
+     * @throws IllegalArgumentException
+     *             if the dates span too many buckets of the given size.
+     */
+    List<BuildThroughput> getBuildThroughput(String bucket, String startDate,
+	    String endDate);
+}
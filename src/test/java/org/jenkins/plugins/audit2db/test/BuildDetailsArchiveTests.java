@@ -0,0 +1,193 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.jenkins.plugins.audit2db.internal.data.BuildDetailsArchive;
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+import org.jenkins.plugins.audit2db.model.BuildParameter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link BuildDetailsArchive} class.
+ *
+ * @author Marco Scata
+ *
+ */
+public class BuildDetailsArchiveTests {
+    private final String hostName = "MY_JENKINS";
+
+    private File rootDir;
+    private BuildDetailsArchive archive;
+
+    @Before
+    public void setUp() throws IOException {
+	rootDir = File.createTempFile("audit2db", "archive");
+	rootDir.delete();
+	archive = new BuildDetailsArchive(rootDir);
+    }
+
+    @After
+    public void tearDown() {
+	delete(rootDir);
+    }
+
+    private void delete(final File file) {
+	final File[] children = file.listFiles();
+	if (children != null) {
+	    for (final File child : children) {
+		delete(child);
+	    }
+	}
+	file.delete();
+    }
+
+    private BuildDetails createBuildDetails(final String projectName,
+	    final Date startDate) {
+	final BuildDetails retval = TestUtils.createRandomBuildDetails(true);
+	retval.setName(projectName);
+	retval.setStartDate(startDate);
+	retval.setEndDate(new Date(startDate.getTime() + 60000));
+	retval.getNode().setMasterHostName(hostName);
+	return retval;
+    }
+
+    private Date daysAgo(final int days) {
+	final Calendar retval = Calendar.getInstance();
+	retval.set(Calendar.DAY_OF_MONTH, 15);
+	retval.add(Calendar.DAY_OF_MONTH, -days);
+	return retval.getTime();
+    }
+
+    @Test
+    public void archivedBuildDetailsShouldBeReadBack() throws IOException {
+	final BuildDetails expected = createBuildDetails("ARCHIVED", daysAgo(1));
+	final BuildDetailsArchive.Writer writer = archive.createWriter(expected
+		.getStartDate());
+	writer.write(expected);
+	writer.close();
+
+	final List<BuildDetails> actual = archive.getBuildDetails(hostName,
+		null, daysAgo(2), daysAgo(0));
+	Assert.assertEquals("Unexpected number of archived builds", 1,
+		actual.size());
+	final BuildDetails details = actual.get(0);
+	Assert.assertEquals("Unexpected build", expected, details);
+	Assert.assertEquals("Unexpected start date", expected.getStartDate(),
+		details.getStartDate());
+	Assert.assertEquals("Unexpected node", expected.getNode(),
+		details.getNode());
+	Assert.assertEquals("Unexpected number of params", expected
+		.getParameters().size(), details.getParameters().size());
+	final BuildParameter param = expected.getParameters().get(0);
+	Assert.assertEquals("Unexpected param value", param.getValue(),
+		details.getParameters().get(0).getValue());
+    }
+
+    @Test
+    public void archiveQueriesShouldFilterByDateProjectAndParam()
+	    throws IOException {
+	final BuildDetails details = createBuildDetails("MATCHING", daysAgo(1));
+	final BuildDetailsArchive.Writer writer = archive.createWriter(details
+		.getStartDate());
+	writer.write(details);
+	writer.write(createBuildDetails("OTHER", daysAgo(1)));
+	writer.close();
+
+	Assert.assertTrue("Unexpected builds outside date range", archive
+		.getBuildDetails(hostName, null, daysAgo(-1), daysAgo(-2))
+		.isEmpty());
+	Assert.assertTrue("Unexpected builds for another master", archive
+		.getBuildDetails("ANOTHER_HOST", null, daysAgo(2), daysAgo(0))
+		.isEmpty());
+	Assert.assertEquals("Unexpected builds for all projects", 2, archive
+		.getBuildDetails(hostName, "%", daysAgo(2), daysAgo(0)).size());
+	Assert.assertEquals("Unexpected builds for project pattern", 1,
+		archive.getBuildDetails(hostName, "match%", daysAgo(2),
+			daysAgo(0)).size());
+
+	final BuildParameter param = details.getParameters().get(0);
+	final List<BuildDetails> byParam = archive.getBuildDetailsByParams(
+		hostName, param.getName(), param.getValue(), daysAgo(2),
+		daysAgo(0));
+	Assert.assertEquals("Unexpected builds for param", 1, byParam.size());
+	Assert.assertEquals("Unexpected build for param", details,
+		byParam.get(0));
+    }
+
+    @Test
+    public void archivePagesShouldOnlyReadBeyondTheCursor() throws IOException {
+	final Comparator<BuildDetails> order = new Comparator<BuildDetails>() {
+	    @Override
+	    public int compare(final BuildDetails d1, final BuildDetails d2) {
+		return d1.getStartDate().compareTo(d2.getStartDate());
+	    }
+	};
+	final BuildDetails lastMonth = createBuildDetails("PAGED",
+		daysAgo(35));
+	BuildDetailsArchive.Writer writer = archive.createWriter(lastMonth
+		.getStartDate());
+	writer.write(lastMonth);
+	writer.close();
+	final BuildDetails first = createBuildDetails("PAGED", daysAgo(2));
+	final BuildDetails second = createBuildDetails("PAGED", daysAgo(1));
+	writer = archive.createWriter(first.getStartDate());
+	writer.write(first);
+	writer.write(second);
+	writer.close();
+
+	List<BuildDetails> page = archive.getBuildDetailsPage(hostName, null,
+		daysAgo(40), daysAgo(0), null, false, 2, order);
+	Assert.assertEquals("Unexpected first page size", 2, page.size());
+	Assert.assertEquals("Unexpected first build", lastMonth, page.get(0));
+	Assert.assertEquals("Unexpected last build", first, page.get(1));
+
+	page = archive.getBuildDetailsPage(hostName, null, daysAgo(40),
+		daysAgo(0), first, false, 2, order);
+	Assert.assertEquals("Unexpected next page size", 1, page.size());
+	Assert.assertEquals("Unexpected next build", second, page.get(0));
+
+	page = archive.getBuildDetailsPage(hostName, null, daysAgo(40),
+		daysAgo(0), second, true, 1, order);
+	Assert.assertEquals("Unexpected previous page size", 1, page.size());
+	Assert.assertEquals("Unexpected previous build", first, page.get(0));
+
+	Assert.assertTrue("Unexpected builds for another project", archive
+		.getBuildDetailsPage(hostName, "OTHER%", daysAgo(40),
+			daysAgo(0), null, false, 2, order).isEmpty());
+    }
+
+    @Test
+    public void abortedArchiveFileShouldNotBeVisible() throws IOException {
+	final BuildDetails details = createBuildDetails("ABORTED", daysAgo(1));
+	final BuildDetailsArchive.Writer writer = archive.createWriter(details
+		.getStartDate());
+	writer.write(details);
+	writer.abort();
+
+	Assert.assertTrue("Unexpected archived builds", archive
+		.getBuildDetails(hostName, null, daysAgo(2), daysAgo(0))
+		.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void writingAnotherMonthShouldFail() throws IOException {
+	final BuildDetailsArchive.Writer writer = archive
+		.createWriter(daysAgo(0));
+	try {
+	    writer.write(createBuildDetails("LAST_MONTH", daysAgo(45)));
+	} finally {
+	    writer.abort();
+	}
+    }
+}
@@ -3,19 +3,33 @@
  */
 package org.jenkins.plugins.audit2db.test;
 
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.jenkins.plugins.audit2db.data.BuildDetailsHandler;
 import org.jenkins.plugins.audit2db.data.BuildDetailsRepository;
+import org.jenkins.plugins.audit2db.data.ReportLimitExceededException;
+import org.jenkins.plugins.audit2db.data.TimeBucket;
 import org.jenkins.plugins.audit2db.internal.data.AbstractHibernateRepository;
 import org.jenkins.plugins.audit2db.internal.data.BuildDetailsHibernateRepository;
 import org.jenkins.plugins.audit2db.internal.data.HibernateUtil;
+import org.jenkins.plugins.audit2db.internal.model.DurationSketch;
 import org.jenkins.plugins.audit2db.model.BuildDetails;
 import org.jenkins.plugins.audit2db.model.BuildNode;
 import org.jenkins.plugins.audit2db.model.BuildParameter;
+import org.jenkins.plugins.audit2db.model.BuildSummary;
+import org.jenkins.plugins.audit2db.model.BuildThroughput;
+import org.jenkins.plugins.audit2db.model.NodeUtilization;
 import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.orm.hibernate3.HibernateTemplate;
@@ -90,6 +104,32 @@ public class BuildDetailsHibernateRepositoryTests {
 	Assert.assertEquals("Unexpected build node", expected, actual);
     }
 
+    @Test
+    public void retrievingBuildNodeByUrlShouldIgnoreCase() {
+	final BuildDetails build = TestUtils.createRandomBuildDetails();
+	repository.saveBuildDetails(build);
+
+	final BuildNode expected = build.getNode();
+	Assert.assertEquals("Unexpected build node", expected, repository
+		.getBuildNodeByUrl(expected.getUrl().toLowerCase()));
+    }
+
+    @Test
+    public void retrievingBuildDetailsByNameShouldNotTreatTheNameAsPattern() {
+	final BuildDetails build = TestUtils.createRandomBuildDetails();
+	build.setName("EXACT_NAME_JOB");
+	repository.saveBuildDetails(build);
+	final BuildDetails other = TestUtils.createRandomBuildDetails();
+	other.setName("EXACTXNAME_JOB");
+	repository.saveBuildDetails(other);
+
+	final List<BuildDetails> actual = repository
+		.getBuildDetailsByName("exact_name_job");
+	Assert.assertEquals("Unexpected number of build details", 1,
+		actual.size());
+	Assert.assertEquals("Unexpected build details", build, actual.get(0));
+    }
+
     @Test
     public void retrievingBuildNodeByNonExistingUrlShouldReturnNull() {
 	final BuildDetails build = TestUtils.createRandomBuildDetails();
@@ -174,6 +214,106 @@ public class BuildDetailsHibernateRepositoryTests {
 	Assert.assertEquals("Unexpected number of builds", 1, builds.size());
     }
 
+    @Test
+    public void retrievalByDateRangeShouldReturnOverlappingBuilds() {
+	final Calendar day = Calendar.getInstance();
+	day.clear();
+	day.set(2012, Calendar.MARCH, 8);
+	final List<BuildDetails> builds = new ArrayList<BuildDetails>();
+	// spanning the whole day, still running, ended the day before and
+	// started the day after
+	final int[][] hours = { { -2, 25 }, { -2, -1 }, { -14, -13 }, { 25, 26 } };
+	for (final int[] startEnd : hours) {
+	    final BuildDetails build = TestUtils.createRandomBuildDetails();
+	    build.setId(build.getId() + builds.size());
+	    build.setStartDate(new Date(day.getTimeInMillis()
+		    + (startEnd[0] * 3600000L)));
+	    build.setEndDate(new Date(day.getTimeInMillis()
+		    + (startEnd[1] * 3600000L)));
+	    builds.add(build);
+	}
+	builds.get(1).setEndDate(null);
+	repository.saveNewBuildDetails(builds);
+
+	final List<BuildDetails> actual = repository.getBuildDetailsByDateRange(
+		day.getTime(), day.getTime());
+	Assert.assertEquals("Unexpected number of builds", 2, actual.size());
+	Assert.assertTrue("Missing spanning build",
+		actual.contains(builds.get(0)));
+	Assert.assertTrue("Missing running build",
+		actual.contains(builds.get(1)));
+	Assert.assertFalse("Unexpected build ended before",
+		actual.contains(builds.get(2)));
+	Assert.assertFalse("Unexpected build started after",
+		actual.contains(builds.get(3)));
+    }
+
+    @Test
+    public void retrievalByDateRangeShouldSkipBuildsOlderThanTheMaximumAge() {
+	final Calendar day = Calendar.getInstance();
+	day.clear();
+	day.set(2012, Calendar.MARCH, 8);
+	final List<BuildDetails> builds = new ArrayList<BuildDetails>();
+	// still running and finished within the day, each started within
+	// and beyond a day before
+	for (final int hours : new int[] { -23, -25, -23, -25 }) {
+	    final BuildDetails build = TestUtils.createRandomBuildDetails();
+	    build.setId(build.getId() + builds.size());
+	    build.setStartDate(new Date(day.getTimeInMillis()
+		    + (hours * 3600000L)));
+	    build.setEndDate((builds.size() < 2) ? null : new Date(day
+		    .getTimeInMillis() + 3600000L));
+	    builds.add(build);
+	}
+	repository.saveNewBuildDetails(builds);
+
+	((BuildDetailsHibernateRepository) repository).setMaxBuildAge(24);
+	List<BuildDetails> actual = repository.getBuildDetailsByDateRange(
+		day.getTime(), day.getTime());
+	Assert.assertEquals("Unexpected number of builds", 2, actual.size());
+	Assert.assertTrue("Missing running build",
+		actual.contains(builds.get(0)));
+	Assert.assertTrue("Missing finished build",
+		actual.contains(builds.get(2)));
+
+	((BuildDetailsHibernateRepository) repository).setMaxBuildAge(0);
+	actual = repository.getBuildDetailsByDateRange(day.getTime(),
+		day.getTime());
+	Assert.assertEquals("Unexpected number of builds without a limit", 4,
+		actual.size());
+    }
+
+    @Test
+    public void overlapConditionsShouldUseTheOverlapIndex() throws Exception {
+	// the index must serve both branches of the end date condition
+	for (final String condition : new String[] {
+		"endDate >= TIMESTAMP '2012-03-08 00:00:00'",
+		"endDate IS NULL" }) {
+	    final String plan = explain("SELECT id"
+		    + " FROM JENKINS_BUILD_DETAILS WHERE " + condition
+		    + " AND startDate <= TIMESTAMP '2012-03-08 23:59:59'"
+		    + " AND startDate >= TIMESTAMP '2012-03-01 00:00:00'");
+	    Assert.assertTrue("Unexpected plan for " + condition + ": " + plan,
+		    plan.toUpperCase().contains("IDX_JBD_OVERLAP"));
+	}
+    }
+
+    private static String explain(final String sql) throws SQLException {
+	final Connection connection = DriverManager.getConnection(
+		TestUtils.JDBC_URL, TestUtils.JDBC_USER, TestUtils.JDBC_PASS);
+	try {
+	    final ResultSet rows = connection.createStatement().executeQuery(
+		    "EXPLAIN PLAN FOR " + sql);
+	    final StringBuilder plan = new StringBuilder();
+	    while (rows.next()) {
+		plan.append(rows.getString(1)).append('\n');
+	    }
+	    return plan.toString();
+	} finally {
+	    connection.close();
+	}
+    }
+
     @Test
     public void retrievalByNonMatchingDurationRangeShouldReturnEmptyList() {
 	final BuildDetails build = TestUtils.createRandomBuildDetails();
@@ -513,6 +653,167 @@ public class BuildDetailsHibernateRepositoryTests {
 		projectNames.isEmpty());
     }
 
+    @Test
+    public void groupedRetrievalShouldMatchPerProjectRetrieval() {
+	final Map<String, List<BuildDetails>> dataset = TestUtils
+	.createRandomDataset(hostName);
+	final TransactionStatus tx = txmgr.getTransaction(null);
+	tx.setRollbackOnly();
+
+	for (final List<BuildDetails> detailsList : dataset.values()) {
+	    repository.saveBuildDetailsList(detailsList);
+	}
+
+	final Calendar fromDate = Calendar.getInstance();
+	fromDate.add(Calendar.YEAR, -1);
+
+	final Calendar toDate = Calendar.getInstance();
+
+	final Map<String, List<BuildDetails>> grouped = repository
+		.getBuildDetailsByProject(hostName, null, fromDate.getTime(),
+			toDate.getTime());
+
+	Assert.assertEquals("Unexpected project names",
+		repository.getProjectNames(hostName, fromDate.getTime(),
+			toDate.getTime()),
+		new ArrayList<String>(grouped.keySet()));
+	for (final String projectName : grouped.keySet()) {
+	    Assert.assertEquals("Unexpected build details for " + projectName,
+		    repository.getBuildDetails(hostName, projectName,
+			    fromDate.getTime(), toDate.getTime()),
+		    grouped.get(projectName));
+	}
+
+	txmgr.rollback(tx);
+
+	Assert.assertEquals("Unexpected number of projects", dataset.size(),
+		grouped.size());
+    }
+
+    @Test
+    public void streamedBuildDetailsShouldMatchGroupedRetrieval() {
+	final Map<String, List<BuildDetails>> dataset = TestUtils
+	.createRandomDataset(hostName);
+	final TransactionStatus tx = txmgr.getTransaction(null);
+	tx.setRollbackOnly();
+
+	for (final List<BuildDetails> detailsList : dataset.values()) {
+	    repository.saveBuildDetailsList(detailsList);
+	}
+
+	final Calendar fromDate = Calendar.getInstance();
+	fromDate.add(Calendar.YEAR, -1);
+
+	final Calendar toDate = Calendar.getInstance();
+
+	final List<BuildDetails> expected = new ArrayList<BuildDetails>();
+	for (final List<BuildDetails> detailsList : repository
+		.getBuildDetailsByProject(hostName, null, fromDate.getTime(),
+			toDate.getTime()).values()) {
+	    expected.addAll(detailsList);
+	}
+
+	final List<BuildDetails> streamed = new ArrayList<BuildDetails>();
+	repository.streamBuildDetails(hostName, null, fromDate.getTime(),
+		toDate.getTime(), new BuildDetailsHandler() {
+		    @Override
+		    public boolean handle(final BuildDetails details) {
+			streamed.add(details);
+			return true;
+		    }
+		});
+
+	txmgr.rollback(tx);
+
+	Assert.assertEquals("Unexpected streamed build details", expected,
+		streamed);
+	for (int i = 0; i < expected.size(); i++) {
+	    Assert.assertEquals("Unexpected build parameters",
+		    new HashSet<BuildParameter>(expected.get(i).getParameters()),
+		    new HashSet<BuildParameter>(streamed.get(i).getParameters()));
+	}
+    }
+
+    @Test
+    public void streamingShouldStopWhenTheHandlerSaysSo() {
+	final Map<String, List<BuildDetails>> dataset = TestUtils
+	.createRandomDataset(hostName);
+	final TransactionStatus tx = txmgr.getTransaction(null);
+	tx.setRollbackOnly();
+
+	for (final List<BuildDetails> detailsList : dataset.values()) {
+	    repository.saveBuildDetailsList(detailsList);
+	}
+
+	final Calendar fromDate = Calendar.getInstance();
+	fromDate.add(Calendar.YEAR, -1);
+
+	final List<BuildDetails> streamed = new ArrayList<BuildDetails>();
+	repository.streamBuildDetails(hostName, null, fromDate.getTime(),
+		new Date(), new BuildDetailsHandler() {
+		    @Override
+		    public boolean handle(final BuildDetails details) {
+			streamed.add(details);
+			return false;
+		    }
+		});
+
+	txmgr.rollback(tx);
+
+	Assert.assertEquals("Unexpected number of streamed build details", 1,
+		streamed.size());
+    }
+
+    @Test
+    public void signatureShouldChangeOnlyWhenBuildsAreAdded() {
+	final BuildDetails build = TestUtils.createRandomBuildDetails(true);
+	final String masterHostName = build.getNode().getMasterHostName();
+	final Date fromDate = new Date(0);
+	final Date toDate = build.getEndDate();
+
+	final String before = repository.getBuildDetailsSignature(
+		masterHostName, null, fromDate, toDate);
+	Assert.assertEquals("Unexpected signature change", before, repository
+		.getBuildDetailsSignature(masterHostName, null, fromDate,
+			toDate));
+
+	repository.saveBuildDetails(build);
+
+	final String after = repository.getBuildDetailsSignature(
+		masterHostName, null, fromDate, toDate);
+	Assert.assertFalse("Unexpected unchanged signature",
+		before.equals(after));
+	Assert.assertEquals("Unexpected signature change", after, repository
+		.getBuildDetailsSignature(masterHostName, null, fromDate,
+			toDate));
+    }
+
+    @Test
+    public void reportBuildDetailsShouldBeReadOnlyAndWithoutLog() {
+	final BuildDetails build = TestUtils.createRandomBuildDetails(true);
+	build.setLog("build log".getBytes());
+	repository.saveBuildDetails(build);
+
+	final List<BuildDetails> builds = repository.getBuildDetails(build
+		.getNode().getMasterHostName(), build.getName(), new Date(0),
+		build.getEndDate());
+	Assert.assertEquals("Unexpected number of builds", 1, builds.size());
+
+	final BuildDetails actual = builds.get(0);
+	Assert.assertEquals("Mismatching build details found", build, actual);
+	Assert.assertEquals("Mismatching node", build.getNode().getName(),
+		actual.getNode().getName());
+	Assert.assertEquals("Mismatching number of parameters", build
+		.getParameters().size(), actual.getParameters().size());
+	Assert.assertNull("Unexpected build log", actual.getLog());
+	try {
+	    actual.setResult("FAILURE");
+	    Assert.fail("Expected read-only build details");
+	} catch (final UnsupportedOperationException e) {
+	    // expected
+	}
+    }
+
     @Test
     public void retrievingOldProjectNamesShouldReturnEmptyList() {
 	final Map<String, List<BuildDetails>> dataset = TestUtils
@@ -725,4 +1026,420 @@ public class BuildDetailsHibernateRepositoryTests {
 	Assert.assertEquals("Unexpected build details retrieved", expected,
 		buildDetails.get(0));
     }
+
+    @Test
+    public void expiredIdsShouldBeRetrievedOldestFirst() {
+	final Calendar cutoff = Calendar.getInstance();
+	cutoff.add(Calendar.DAY_OF_MONTH, -5);
+	final List<BuildDetails> builds = TestUtils.createRandomBuildHistory(
+		hostName, "PURGE_PROJECT", 3, true);
+	for (int i = 0; i < builds.size(); i++) {
+	    final Calendar startDate = Calendar.getInstance();
+	    startDate.add(Calendar.DAY_OF_MONTH, -10 + (i * 5));
+	    builds.get(i).setStartDate(startDate.getTime());
+	    repository.saveBuildDetails(builds.get(i));
+	}
+
+	final List<String> ids = repository.getBuildDetailsIdsStartedBefore(
+		hostName, cutoff.getTime(), 10);
+	Assert.assertEquals("Unexpected number of expired ids", 1, ids.size());
+	Assert.assertEquals("Unexpected expired id", builds.get(0).getId(),
+		ids.get(0));
+
+	final List<String> limitedIds = repository
+		.getBuildDetailsIdsStartedBefore(hostName, new Date(), 1);
+	Assert.assertEquals("Unexpected number of limited ids", 1,
+		limitedIds.size());
+	Assert.assertEquals("Unexpected oldest id", builds.get(0).getId(),
+		limitedIds.get(0));
+    }
+
+    @Test
+    public void deletingBuildDetailsShouldRemoveParamsButKeepNode() {
+	final BuildDetails expired = TestUtils.createRandomBuildDetails(true);
+	expired.getNode().setMasterHostName(hostName);
+	final BuildDetails kept = TestUtils.createRandomBuildDetails(true);
+	kept.getNode().setMasterHostName(hostName);
+	repository.saveBuildDetails(expired);
+	repository.saveBuildDetails(kept);
+
+	final int deleted = repository.deleteBuildDetails(
+		Collections.singletonList(expired.getId()));
+	Assert.assertEquals("Unexpected number of deleted builds", 1, deleted);
+	Assert.assertNull("Unexpected expired build",
+		repository.getBuildDetailsById(expired.getId()));
+
+	Assert.assertNotNull("Missing kept build",
+		repository.getBuildDetailsById(kept.getId()));
+
+	final HibernateTemplate hibernate = new HibernateTemplate();
+	hibernate.setSessionFactory(((AbstractHibernateRepository) repository)
+		.getSessionFactory());
+	final List<BuildParameter> params = hibernate
+		.loadAll(BuildParameter.class);
+	Assert.assertEquals("Unexpected number of params", 2, params.size());
+	for (final BuildParameter param : params) {
+	    Assert.assertEquals("Unexpected param owner", kept,
+		    param.getBuildDetails());
+	}
+	Assert.assertNotNull("Missing build node",
+		repository.getBuildNodeByUrl(kept.getNode().getUrl()));
+    }
+
+    @Test
+    public void bulkSaveShouldSkipExistingBuildsAndReuseNodes() {
+	final BuildDetails existing = TestUtils.createRandomBuildDetails();
+	repository.saveBuildDetails(existing);
+
+	final List<BuildDetails> builds = TestUtils.createRandomBuildHistory(
+		hostName, "BULK_PROJECT", 5, true);
+	builds.add(existing);
+	final int saved = repository.saveNewBuildDetails(builds);
+	Assert.assertEquals("Unexpected number of saved builds", 5, saved);
+	for (final BuildDetails build : builds) {
+	    Assert.assertNotNull("Missing saved build",
+		    repository.getBuildDetailsById(build.getId()));
+	}
+
+	final HibernateTemplate hibernate = new HibernateTemplate();
+	hibernate.setSessionFactory(((AbstractHibernateRepository) repository)
+		.getSessionFactory());
+	Assert.assertEquals("Unexpected number of node entities", 1,
+		hibernate.loadAll(BuildNode.class).size());
+	Assert.assertEquals("Unexpected number of params", 12,
+		hibernate.loadAll(BuildParameter.class).size());
+    }
+
+    @Test
+    public void finishedBuildsShouldBeAddedToTheirDailySummary() {
+	final List<BuildDetails> builds = TestUtils.createRandomBuildHistory(
+		hostName, "SUMMARY_PROJECT", 3, false);
+	builds.get(0).setResult("SUCCESS");
+	builds.get(1).setResult("SUCCESS");
+	builds.get(2).setResult("FAILURE");
+	final Date day = builds.get(0).getStartDate();
+
+	// one build saved when finished, one updated when it finishes, and
+	// one bulk saved
+	repository.saveBuildDetails(builds.get(0));
+	final Date endDate = builds.get(1).getEndDate();
+	builds.get(1).setEndDate(null);
+	repository.saveBuildDetails(builds.get(1));
+	builds.get(1).setEndDate(endDate);
+	repository.updateBuildDetails(builds.get(1));
+	// updating a finished build must not count it again
+	repository.updateBuildDetails(builds.get(1));
+	repository.saveNewBuildDetails(Collections.singletonList(builds.get(2)));
+
+	final List<BuildSummary> summaries = repository.getBuildSummaries(
+		hostName, "SUMMARY%", day, day);
+	Assert.assertEquals("Unexpected number of summaries", 2,
+		summaries.size());
+	assertSummary(summaries.get(0), "FAILURE", builds.get(2));
+	assertSummary(summaries.get(1), "SUCCESS", builds.get(0),
+		builds.get(1));
+
+	Assert.assertTrue("Unexpected summaries for another master",
+		repository.getBuildSummaries("OTHER_JENKINS", null, day, day)
+			.isEmpty());
+    }
+
+    @Test
+    public void rebuiltSummariesShouldMatchTheBuildDetails() {
+	final Map<String, List<BuildDetails>> dataset = TestUtils
+		.createRandomDataset(hostName);
+	final Date day = new Date();
+	for (final List<BuildDetails> builds : dataset.values()) {
+	    repository.saveBuildDetailsList(builds);
+	}
+	final List<BuildSummary> maintained = repository.getBuildSummaries(
+		hostName, null, day, day);
+	Assert.assertEquals("Unexpected number of summaries", dataset.size(),
+		maintained.size());
+
+	final int rebuilt = repository.rebuildBuildSummaries(hostName,
+		repository.getOldestBuildDate(hostName), day);
+	Assert.assertEquals("Unexpected number of rebuilt summaries",
+		dataset.size(), rebuilt);
+	final List<BuildSummary> summaries = repository.getBuildSummaries(
+		hostName, null, day, day);
+	Assert.assertEquals("Unexpected number of summaries", dataset.size(),
+		summaries.size());
+	for (final BuildSummary summary : summaries) {
+	    final List<BuildDetails> builds = dataset.get(summary.getName());
+	    assertSummary(summary, null,
+		    builds.toArray(new BuildDetails[builds.size()]));
+	    Assert.assertEquals("Unexpected percentile without a sketch", 0,
+		    summary.getDurationPercentile(100));
+	}
+	for (final BuildSummary summary : repository.getProjectBuildSummaries(
+		hostName, null, day, day)) {
+	    long max = 0;
+	    for (final BuildDetails build : dataset.get(summary.getName())) {
+		max = Math.max(max, build.getDuration());
+	    }
+	    Assert.assertEquals("Unexpected longest duration percentile", max,
+		    summary.getDurationPercentile(100),
+		    (max * DurationSketch.RELATIVE_ACCURACY) + 1);
+	}
+    }
+
+    @Test
+    public void projectSummariesShouldMergeAllResults() {
+	final List<BuildDetails> builds = TestUtils.createRandomBuildHistory(
+		hostName, "DURATION_PROJECT", 100, false);
+	for (int i = 0; i < builds.size(); i++) {
+	    builds.get(i).setDuration(Long.valueOf((i + 1) * 1000));
+	    builds.get(i).setResult(((i % 10) == 0) ? "FAILURE" : "SUCCESS");
+	}
+	repository.saveNewBuildDetails(builds);
+	final Date day = builds.get(0).getStartDate();
+
+	Assert.assertEquals("Unexpected number of summaries", 2, repository
+		.getBuildSummaries(hostName, "DURATION%", day, day).size());
+	final List<BuildSummary> summaries = repository
+		.getProjectBuildSummaries(hostName, "DURATION%", day, day);
+	Assert.assertEquals("Unexpected number of summaries", 1,
+		summaries.size());
+	final BuildSummary summary = summaries.get(0);
+	Assert.assertNull("Unexpected result", summary.getResult());
+	Assert.assertEquals("Unexpected number of builds", 100,
+		summary.getBuildCount());
+	Assert.assertEquals("Unexpected median", 50000,
+		summary.getDurationPercentile(50),
+		50000 * DurationSketch.RELATIVE_ACCURACY);
+	Assert.assertEquals("Unexpected 90th percentile", 90000,
+		summary.getDurationPercentile(90),
+		90000 * DurationSketch.RELATIVE_ACCURACY);
+    }
+
+    @Test
+    public void slowestBuildsShouldBeLongestFirstAndLimited() {
+	final List<BuildDetails> builds = TestUtils.createRandomBuildHistory(
+		hostName, "SLOW_PROJECT", 20, false);
+	for (int i = 0; i < builds.size(); i++) {
+	    builds.get(i).setDuration(Long.valueOf((i + 1) * 1000));
+	    builds.get(i).setResult(((i % 2) == 0) ? "FAILURE" : "SUCCESS");
+	}
+	repository.saveNewBuildDetails(builds);
+	final Date day = builds.get(0).getStartDate();
+
+	final List<BuildDetails> slowest = repository.getSlowestBuildDetails(
+		hostName, "SLOW%", null, null, day, day, 5);
+	Assert.assertEquals("Unexpected number of builds", 5, slowest.size());
+	for (int i = 0; i < slowest.size(); i++) {
+	    Assert.assertEquals("Unexpected build", builds.get(19 - i)
+		    .getId(), slowest.get(i).getId());
+	}
+
+	final List<BuildDetails> failures = repository.getSlowestBuildDetails(
+		hostName, null, "node name", "failure", day, day, 3);
+	Assert.assertEquals("Unexpected number of builds", 3, failures.size());
+	Assert.assertEquals("Unexpected slowest failure", builds.get(18)
+		.getId(), failures.get(0).getId());
+	for (final BuildDetails failure : failures) {
+	    Assert.assertEquals("Unexpected result", "FAILURE",
+		    failure.getResult());
+	}
+
+	Assert.assertTrue("Unexpected builds for another node", repository
+		.getSlowestBuildDetails(hostName, null, "OTHER NODE", null,
+			day, day, 3).isEmpty());
+    }
+
+    @Test
+    public void throughputShouldCountFinishedBuildsPerBucket() {
+	final String otherHost = "THROUGHPUT_JENKINS";
+	final List<BuildDetails> builds = TestUtils.createRandomBuildHistory(
+		otherHost, "THROUGHPUT_PROJECT", 4, false);
+	final Calendar start = Calendar.getInstance();
+	start.clear();
+	start.set(2012, Calendar.MARCH, 5, 10, 5);
+	final Date day = start.getTime();
+	final int[][] startTimes = { { 10, 5 }, { 10, 40 }, { 12, 0 },
+		{ 11, 30 } };
+	final String[] results = { "SUCCESS", "FAILURE", "SUCCESS", null };
+	for (int i = 0; i < builds.size(); i++) {
+	    start.set(Calendar.HOUR_OF_DAY, startTimes[i][0]);
+	    start.set(Calendar.MINUTE, startTimes[i][1]);
+	    builds.get(i).setStartDate(start.getTime());
+	    // the last build is still running
+	    builds.get(i).setEndDate((null == results[i]) ? null : new Date(
+		    start.getTimeInMillis() + 60000));
+	    builds.get(i).setResult(results[i]);
+	}
+	repository.saveNewBuildDetails(builds);
+
+	final List<BuildThroughput> hours = repository.getBuildThroughput(
+		otherHost, TimeBucket.HOUR, day, day);
+	Assert.assertEquals("Unexpected number of buckets", 24, hours.size());
+	long total = 0;
+	for (int hour = 0; hour < hours.size(); hour++) {
+	    final BuildThroughput bucket = hours.get(hour);
+	    final Calendar bucketStart = Calendar.getInstance();
+	    bucketStart.setTime(bucket.getStartDate());
+	    Assert.assertEquals("Unexpected bucket start", hour,
+		    bucketStart.get(Calendar.HOUR_OF_DAY));
+	    total += bucket.getBuildCount();
+	}
+	Assert.assertEquals("Unexpected number of builds", 3, total);
+	Assert.assertEquals("Unexpected builds at 10", 2, hours.get(10)
+		.getBuildCount());
+	Assert.assertEquals("Unexpected failures at 10", 1, hours.get(10)
+		.getFailureCount());
+	Assert.assertEquals("Unexpected builds at 11", 0, hours.get(11)
+		.getBuildCount());
+	Assert.assertEquals("Unexpected builds at 12", 1, hours.get(12)
+		.getBuildCount());
+
+	final List<BuildThroughput> minutes = repository.getBuildThroughput(
+		otherHost, TimeBucket.MINUTE, day, day);
+	Assert.assertEquals("Unexpected number of buckets", 24 * 60,
+		minutes.size());
+	Assert.assertEquals("Unexpected failures at 10:40", 1,
+		minutes.get((10 * 60) + 40).getFailureCount());
+
+	final List<BuildThroughput> days = repository.getBuildThroughput(
+		otherHost, TimeBucket.DAY, day, day);
+	Assert.assertEquals("Unexpected number of buckets", 1, days.size());
+	Assert.assertEquals("Unexpected builds for the day", 3, days.get(0)
+		.getBuildCount());
+	Assert.assertEquals("Unexpected failures for the day", 1, days.get(0)
+		.getFailureCount());
+    }
+
+    @Test
+    public void nodeUtilizationShouldSweepBuildsInStartOrder() {
+	final List<BuildDetails> builds = TestUtils.createRandomBuildHistory(
+		hostName, "UTILIZATION_PROJECT", 4, false);
+	final Calendar start = Calendar.getInstance();
+	start.clear();
+	start.set(2012, Calendar.MARCH, 6, 10, 0);
+	final Date day = start.getTime();
+	// the first build starts the day before, at 23:30
+	final int[] startMinutes = { -30, 10 * 60, (10 * 60) + 15, 11 * 60 };
+	for (int i = 0; i < builds.size(); i++) {
+	    start.setTime(day);
+	    start.set(Calendar.HOUR_OF_DAY, 0);
+	    start.add(Calendar.MINUTE, startMinutes[i]);
+	    builds.get(i).setStartDate(start.getTime());
+	    // the last build is still running
+	    builds.get(i).setEndDate((i < 3) ? new Date(
+		    start.getTimeInMillis() + (((i == 0) ? 60 : 30) * 60000))
+		    : null);
+	}
+	// saved in reverse order, so the sweep relies on the query order
+	Collections.reverse(builds);
+	repository.saveNewBuildDetails(builds);
+
+	final List<NodeUtilization> utilization = repository
+		.getNodeUtilization(hostName, day, day);
+	// the node, then its labels
+	Assert.assertEquals("Unexpected number of nodes and labels", 3,
+		utilization.size());
+	final NodeUtilization node = utilization.get(0);
+	Assert.assertEquals("Unexpected node", "NODE NAME", node.getName());
+	Assert.assertFalse("Unexpected label", node.isLabel());
+	Assert.assertEquals("Unexpected number of builds", 4,
+		node.getBuildCount());
+	Assert.assertEquals("Unexpected peak concurrency", 2,
+		node.getPeakConcurrency());
+	Assert.assertEquals("Unexpected period", 24 * 60 * 60000L,
+		node.getPeriod());
+	// 00:00 to 00:30, 10:00 to 10:45, then from 11:00 to the end of the day
+	Assert.assertEquals("Unexpected busy time",
+		(30 + 45 + (13 * 60)) * 60000L,
+		node.getBusyTime());
+	Assert.assertEquals("Unexpected time with two builds", 15 * 60000L,
+		node.getConcurrencyTimes().get(2).longValue());
+	for (final NodeUtilization label : utilization.subList(1, 3)) {
+	    Assert.assertTrue("Unexpected node", label.isLabel());
+	    Assert.assertEquals("Unexpected busy time", node.getBusyTime(),
+		    label.getBusyTime());
+	}
+
+	Assert.assertTrue("Unexpected nodes for another master", repository
+		.getNodeUtilization("OTHER_JENKINS", day, day).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throughputShouldRejectTooManyBuckets() {
+	final Calendar from = Calendar.getInstance();
+	from.add(Calendar.DAY_OF_MONTH, -30);
+	repository.getBuildThroughput(hostName, TimeBucket.MINUTE,
+		from.getTime(), new Date());
+    }
+
+    @Test
+    public void reportQueriesShouldStopAtTheRowLimit() {
+	final List<BuildDetails> builds = TestUtils.createRandomBuildHistory(
+		hostName, "LIMITED_PROJECT", 5, false);
+	final Calendar start = Calendar.getInstance();
+	start.clear();
+	start.set(2012, Calendar.MARCH, 7, 10, 0);
+	final Date day = start.getTime();
+	for (final BuildDetails build : builds) {
+	    start.add(Calendar.MINUTE, 10);
+	    build.setStartDate(start.getTime());
+	    build.setEndDate(new Date(start.getTimeInMillis() + 60000));
+	}
+	repository.saveNewBuildDetails(builds);
+
+	try {
+	    repository.setQueryLimits(0, 5);
+	    Assert.assertEquals("Unexpected number of builds at the limit", 5,
+		    repository.getBuildDetailsByProject(hostName, null, day, day)
+			    .get("LIMITED_PROJECT").size());
+
+	    repository.setQueryLimits(0, 4);
+	    try {
+		repository.getBuildDetailsByProject(hostName, null, day, day);
+		Assert.fail("Row limit not enforced");
+	    } catch (final ReportLimitExceededException e) {
+		Assert.assertFalse("Unexpected timeout", e.isTimeout());
+		Assert.assertEquals("Unexpected limit", 4, e.getLimit());
+	    }
+
+	    // pages are bounded by their size, and streams are not limited
+	    Assert.assertEquals("Unexpected page size", 3, repository
+		    .getBuildDetailsPage(hostName, null, day, day, null, false, 3)
+		    .size());
+	    final List<BuildDetails> streamed = new ArrayList<BuildDetails>();
+	    repository.streamBuildDetails(hostName, null, day, day,
+		    new BuildDetailsHandler() {
+			@Override
+			public boolean handle(final BuildDetails details) {
+			    streamed.add(details);
+			    return true;
+			}
+		    });
+	    Assert.assertEquals("Unexpected number of streamed builds", 5,
+		    streamed.size());
+	} finally {
+	    repository.setQueryLimits(0, 0);
+	}
+    }
+
+    private static void assertSummary(final BuildSummary summary,
+	    final String result, final BuildDetails... builds) {
+	long total = 0;
+	long min = Long.MAX_VALUE;
+	long max = 0;
+	for (final BuildDetails build : builds) {
+	    total += build.getDuration();
+	    min = Math.min(min, build.getDuration());
+	    max = Math.max(max, build.getDuration());
+	}
+	Assert.assertEquals("Unexpected result", result, summary.getResult());
+	Assert.assertEquals("Unexpected number of builds", builds.length,
+		summary.getBuildCount());
+	Assert.assertEquals("Unexpected total duration", total,
+		summary.getTotalDuration());
+	Assert.assertEquals("Unexpected shortest duration", min,
+		summary.getMinDuration());
+	Assert.assertEquals("Unexpected longest duration", max,
+		summary.getMaxDuration());
+	Assert.assertEquals("Unexpected average duration", total
+		/ builds.length, summary.getAverageDuration());
+    }
 }
@@ -7,9 +7,11 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.TimeZone;
 
 import junit.framework.Assert;
 
+import org.jenkins.plugins.audit2db.data.TimeBucket;
 import org.jenkins.plugins.audit2db.internal.model.BuildDetailsImpl;
 import org.jenkins.plugins.audit2db.internal.model.BuildParameterImpl;
 import org.jenkins.plugins.audit2db.model.BuildDetails;
@@ -84,4 +86,24 @@ public class BuildDetailsImplTests {
         final BuildDetails actual = getBuildDetails();
         Assert.assertFalse("Broken inequality logic", actual.equals("SOMESTRING"));
     }
+
+    @Test
+    public void startBucketsShouldNotDependOnTheTimeZone() {
+        final TimeZone defaultZone = TimeZone.getDefault();
+        try {
+            final BuildDetailsImpl build = new BuildDetailsImpl();
+            build.setStartDate(new Date(1331000000000L));
+            TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+            final Long minute = build.getStartMinute();
+            final Long hour = build.getStartHour();
+            // an offset which is not a whole number of hours
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+            Assert.assertEquals("Unexpected start minute", minute, build.getStartMinute());
+            Assert.assertEquals("Unexpected start hour", hour, build.getStartHour());
+            Assert.assertEquals("Unexpected hour start", hour.longValue() * 3600000L,
+                    TimeBucket.HOUR.getStartDate(hour.longValue()).getTime());
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
 }
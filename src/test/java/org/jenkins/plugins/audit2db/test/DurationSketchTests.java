@@ -0,0 +1,95 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.jenkins.plugins.audit2db.internal.model.DurationSketch;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link DurationSketch} class.
+ *
+ * @author Marco Scata
+ *
+ */
+public class DurationSketchTests {
+    private static void assertPercentile(final long[] sorted,
+	    final DurationSketch sketch, final double percentile) {
+	final int rank = (int) Math.ceil((percentile / 100) * sorted.length) - 1;
+	final long expected = sorted[rank];
+	final long actual = sketch.getPercentile(percentile);
+	Assert.assertEquals("Unexpected percentile " + percentile, expected,
+		actual, (expected * DurationSketch.RELATIVE_ACCURACY) + 1);
+    }
+
+    @Test
+    public void emptySketchShouldReturnZero() {
+	final DurationSketch sketch = DurationSketch.valueOf(null);
+	Assert.assertEquals("Unexpected count", 0, sketch.getCount());
+	Assert.assertEquals("Unexpected percentile", 0,
+		sketch.getPercentile(50));
+    }
+
+    @Test
+    public void percentilesShouldBeWithinTheRelativeAccuracy() {
+	final Random random = new Random(42);
+	final long[] durations = new long[10000];
+	final DurationSketch sketch = new DurationSketch();
+	for (int i = 0; i < durations.length; i++) {
+	    // half a minute on average, with a long tail
+	    durations[i] = (long) (Math.exp(random.nextGaussian()) * 30000);
+	    sketch.add(durations[i]);
+	}
+	Arrays.sort(durations);
+
+	Assert.assertEquals("Unexpected count", durations.length,
+		sketch.getCount());
+	for (final double percentile : new double[] { 1, 10, 50, 90, 99, 100 }) {
+	    assertPercentile(durations, sketch, percentile);
+	}
+    }
+
+    @Test
+    public void mergedSketchesShouldMatchASingleSketch() {
+	final DurationSketch single = new DurationSketch();
+	final DurationSketch merged = new DurationSketch();
+	for (int day = 0; day < 30; day++) {
+	    final DurationSketch daily = new DurationSketch();
+	    for (int build = 1; build <= 20; build++) {
+		final long duration = (day * 1000) + (build * 37);
+		single.add(duration);
+		daily.add(duration);
+	    }
+	    // as stored in the daily summaries
+	    merged.merge(DurationSketch.valueOf(daily.toString()));
+	}
+
+	Assert.assertEquals("Unexpected stored sketch", single.toString(),
+		merged.toString());
+	Assert.assertEquals("Unexpected count", single.getCount(),
+		merged.getCount());
+	Assert.assertEquals("Unexpected median", single.getPercentile(50),
+		merged.getPercentile(50));
+    }
+
+    @Test
+    public void sketchSizeShouldBeBounded() {
+	final DurationSketch sketch = new DurationSketch();
+	sketch.add(0);
+	long max = 0;
+	for (double duration = 1; duration < 1e12; duration *= 1.01) {
+	    max = (long) duration;
+	    sketch.add(max);
+	}
+	Assert.assertTrue("Unexpected stored sketch size",
+		sketch.toString().length() <= 4000);
+	// the highest percentiles keep their accuracy
+	Assert.assertEquals("Unexpected maximum", max,
+		sketch.getPercentile(100),
+		(max * DurationSketch.RELATIVE_ACCURACY) + 1);
+    }
+}
@@ -3,7 +3,7 @@
  */
 package org.jenkins.plugins.audit2db.test;
 
-import java.io.IOException;
+import java.sql.SQLException;
 
 import junit.framework.Assert;
 
@@ -16,7 +16,7 @@ import org.junit.Test;
  */
 public class HibernateUtilTest {
     @Test
-    public void checkDdlGeneration() throws IOException {
+    public void checkDdlGeneration() throws SQLException {
 	final String ddl = HibernateUtil.getSchemaDdl(
 		"org.hsqldb.jdbc.JDBCDriver",
 		"jdbc:hsqldb:mem:test",
@@ -24,4 +24,31 @@ public class HibernateUtilTest {
 	Assert.assertNotNull("Unexpected null DDL string", ddl);
 	Assert.assertFalse("Unexpected empty DDL string", ddl.isEmpty());
     }
+
+    @Test
+    public void generatedDdlShouldIncludeIndexes() throws SQLException {
+	final String ddl = HibernateUtil.getSchemaDdl(
+		"org.hsqldb.jdbc.JDBCDriver",
+		"jdbc:hsqldb:mem:test",
+		"SA", "").toUpperCase();
+	for (final String index : new String[] { "IDX_JBD_DATES",
+		"IDX_JBD_NAME", "IDX_JBD_NODE", "IDX_JBN_MASTER",
+		"IDX_JBP_DETAILS", "IDX_JBP_NAME_VALUE", "IDX_JBD_PROJECTS",
+		"IDX_JBD_KEYSET", "IDX_JBDY_DAY", "IDX_JBD_DURATION",
+		"IDX_JBD_BUCKETS", "IDX_JBD_LOWER_NAME", "IDX_JBD_LOWER_FULL_NAME",
+		"IDX_JBD_LOWER_USER_ID", "IDX_JBD_LOWER_USER_NAME",
+		"IDX_JBN_LOWER_URL", "IDX_JBN_LOWER_MASTER",
+		"IDX_JBP_LOWER_NAME_VALUE", "IDX_JBDY_LOWER_DAY",
+		"IDX_JBD_OVERLAP", "IDX_JBD_PAGES" }) {
+	    Assert.assertTrue("Missing index " + index, ddl.contains(index));
+	}
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void partitioningDdlShouldRequireNativeSupport() throws SQLException {
+	HibernateUtil.getPartitioningDdl(
+		"org.hsqldb.jdbc.JDBCDriver",
+		"jdbc:hsqldb:mem:test",
+		"SA", "");
+    }
 }
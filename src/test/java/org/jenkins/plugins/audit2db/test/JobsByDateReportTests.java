@@ -3,15 +3,31 @@
  */
 package org.jenkins.plugins.audit2db.test;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletOutputStream;
 
 import org.jenkins.plugins.audit2db.internal.DbAuditUtil;
 import org.jenkins.plugins.audit2db.internal.reports.JobsByDateReportImpl;
 import org.jenkins.plugins.audit2db.model.BuildDetails;
 import org.jenkins.plugins.audit2db.reports.JobsByDateReport;
+import org.jenkins.plugins.audit2db.reports.ReportPage;
 import org.junit.Assert;
 import org.junit.Test;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.mockito.Mockito;
 
 /**
  * Contains tests for the {@link JobsByDateReportImpl} class.
@@ -40,6 +56,161 @@ public class JobsByDateReportTests {
 	Assert.assertFalse("Unexpected empty results", results.isEmpty());
     }
 
+    @Test
+    public void parametersShouldBeReadableOutsideTheSession() {
+	final JobsByDateReport report = new JobsByDateReportImpl();
+	report.setRepository(TestUtils.getTestRepository());
+
+	final Map<String, List<BuildDetails>> dataset = TestUtils
+		.createRandomDataset(DbAuditUtil.getHostName());
+	final Map<String, Integer> expectedParams = new HashMap<String, Integer>();
+	for (final List<BuildDetails> detailsList : dataset.values()) {
+	    TestUtils.getTestRepository().saveBuildDetailsList(detailsList);
+	    for (final BuildDetails details : detailsList) {
+		expectedParams.put(details.getId(), details.getParameters()
+			.size());
+	    }
+	}
+
+	final Map<String, List<BuildDetails>> results = report
+		.getProjectExecutions(
+			TestUtils.NOW, TestUtils.NOW);
+
+	int matched = 0;
+	for (final List<BuildDetails> detailsList : results.values()) {
+	    for (final BuildDetails details : detailsList) {
+		final Integer expected = expectedParams.get(details.getId());
+		if (expected != null) {
+		    // no session is open here: the parameters
+		    // must have been loaded with the build details
+		    Assert.assertEquals("Unexpected number of parameters",
+			    expected.intValue(), details.getParameters().size());
+		    matched++;
+		}
+	    }
+	}
+	Assert.assertEquals("Unexpected number of build details",
+		expectedParams.size(), matched);
+    }
+
+    @Test
+    public void pagesShouldCoverAllResultsInBothDirections() {
+	final JobsByDateReport report = new JobsByDateReportImpl();
+	report.setRepository(TestUtils.getTestRepository());
+
+	final Map<String, List<BuildDetails>> dataset = TestUtils
+		.createRandomDataset(DbAuditUtil.getHostName());
+	for (final List<BuildDetails> detailsList : dataset.values()) {
+	    TestUtils.getTestRepository().saveBuildDetailsList(detailsList);
+	}
+
+	final Set<BuildDetails> expected = new HashSet<BuildDetails>();
+	for (final List<BuildDetails> detailsList : report
+		.getProjectExecutions(TestUtils.NOW, TestUtils.NOW).values()) {
+	    expected.addAll(detailsList);
+	}
+
+	final int pageSize = 3;
+	final List<ReportPage> pages = new ArrayList<ReportPage>();
+	final Set<BuildDetails> forward = new HashSet<BuildDetails>();
+	String cursor = null;
+	do {
+	    final ReportPage page = report.getProjectExecutionsPage(
+		    TestUtils.NOW, TestUtils.NOW, cursor, null, pageSize);
+	    int pageExecutions = 0;
+	    for (final List<BuildDetails> detailsList : page
+		    .getProjectExecutions().values()) {
+		pageExecutions += detailsList.size();
+		for (final BuildDetails details : detailsList) {
+		    Assert.assertTrue("Execution found in two pages",
+			    forward.add(details));
+		}
+	    }
+	    Assert.assertTrue("Unexpected page size",
+		    pageExecutions <= pageSize);
+	    pages.add(page);
+	    cursor = page.getNextCursor();
+	} while (cursor != null);
+
+	Assert.assertEquals("Unexpected paged executions", expected, forward);
+	Assert.assertNull("Unexpected previous page",
+		pages.get(0).getPreviousCursor());
+
+	// walk back from the last page to the first one
+	final Set<BuildDetails> backward = new HashSet<BuildDetails>(
+		flatten(pages.get(pages.size() - 1)));
+	cursor = pages.get(pages.size() - 1).getPreviousCursor();
+	int index = pages.size() - 2;
+	while (cursor != null) {
+	    final ReportPage page = report.getProjectExecutionsPage(
+		    TestUtils.NOW, TestUtils.NOW, null, cursor, pageSize);
+	    Assert.assertEquals("Unexpected previous page",
+		    flatten(pages.get(index--)), flatten(page));
+	    backward.addAll(flatten(page));
+	    cursor = page.getPreviousCursor();
+	}
+	Assert.assertEquals("Unexpected number of previous pages", -1, index);
+	Assert.assertEquals("Unexpected paged executions", expected, backward);
+    }
+
+    private static Set<BuildDetails> flatten(final ReportPage page) {
+	final Set<BuildDetails> retval = new HashSet<BuildDetails>();
+	for (final List<BuildDetails> detailsList : page.getProjectExecutions()
+		.values()) {
+	    retval.addAll(detailsList);
+	}
+	return retval;
+    }
+
+    @Test
+    public void exportShouldWriteOneLinePerExecution() throws IOException {
+	final JobsByDateReportImpl report = new JobsByDateReportImpl();
+	report.setRepository(TestUtils.getTestRepository());
+
+	final Map<String, List<BuildDetails>> dataset = TestUtils
+		.createRandomDataset(DbAuditUtil.getHostName());
+	for (final List<BuildDetails> detailsList : dataset.values()) {
+	    TestUtils.getTestRepository().saveBuildDetailsList(detailsList);
+	}
+
+	int expected = 0;
+	for (final List<BuildDetails> detailsList : report
+		.getProjectExecutions(TestUtils.NOW, TestUtils.NOW).values()) {
+	    expected += detailsList.size();
+	}
+
+	final StaplerRequest req = Mockito.mock(StaplerRequest.class);
+	Mockito.when(req.getParameter("startDate")).thenReturn(TestUtils.NOW);
+	Mockito.when(req.getParameter("endDate")).thenReturn(TestUtils.NOW);
+	Mockito.when(req.getParameter("format")).thenReturn("tsv");
+	Mockito.when(req.getHeader("Accept-Encoding")).thenReturn("gzip");
+
+	final ByteArrayOutputStream content = new ByteArrayOutputStream();
+	final StaplerResponse rsp = Mockito.mock(StaplerResponse.class);
+	Mockito.when(rsp.getOutputStream()).thenReturn(
+		new ServletOutputStream() {
+		    @Override
+		    public void write(final int b) {
+			content.write(b);
+		    }
+		});
+
+	report.doExport(req, rsp);
+
+	Mockito.verify(rsp).setHeader("Content-Encoding", "gzip");
+	final BufferedReader reader = new BufferedReader(new InputStreamReader(
+		new GZIPInputStream(new ByteArrayInputStream(content
+			.toByteArray())), "UTF-8"));
+	Assert.assertTrue("Unexpected header line", reader.readLine()
+		.startsWith("project\tfullName\t"));
+	int lines = 0;
+	while (reader.readLine() != null) {
+	    lines++;
+	}
+	Assert.assertEquals("Unexpected number of exported executions",
+		expected, lines);
+    }
+
     @Test
     public void invalidDateRangeShouldReturnEmptyResults() {
 	final JobsByDateReport report = new JobsByDateReportImpl();
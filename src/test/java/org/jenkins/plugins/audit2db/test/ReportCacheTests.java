@@ -0,0 +1,160 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkins.plugins.audit2db.internal.data.ReportCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Contains tests for the {@link ReportCache} class.
+ *
+ * @author Marco Scata
+ *
+ */
+public class ReportCacheTests {
+    private final static String HOST = "HOST";
+
+    /**
+     * Counts the loads and weighs each result as given.
+     */
+    private static class CountingLoader implements ReportCache.Loader<String> {
+	private final int weight;
+	private int loads;
+
+	private CountingLoader(final int weight) {
+	    this.weight = weight;
+	}
+
+	@Override
+	public String load() {
+	    loads++;
+	    return "result" + loads;
+	}
+
+	@Override
+	public int getWeight(final String value) {
+	    return weight;
+	}
+    }
+
+    private static Date daysAgo(final int days) {
+	final Calendar retval = Calendar.getInstance();
+	retval.add(Calendar.DAY_OF_MONTH, -days);
+	return retval.getTime();
+    }
+
+    @Test
+    public void repeatedQueriesShouldBeServedFromTheCache() {
+	final ReportCache cache = new ReportCache(100,
+		TimeUnit.MINUTES.toMillis(1));
+	final CountingLoader loader = new CountingLoader(1);
+
+	final String first = cache.get(HOST, daysAgo(7), new Date(),
+		Arrays.asList("jobsByDate"), loader);
+	final String second = cache.get(HOST.toLowerCase(), daysAgo(7),
+		new Date(), Arrays.asList("jobsByDate"), loader);
+
+	Assert.assertEquals("Unexpected cached result", first, second);
+	Assert.assertEquals("Unexpected number of loads", 1, loader.loads);
+	Assert.assertEquals("Unexpected number of hits", 1, cache.getHits());
+	Assert.assertEquals("Unexpected number of misses", 1,
+		cache.getMisses());
+	Assert.assertEquals("Unexpected hit rate", 0.5, cache.getHitRate(),
+		0.001);
+    }
+
+    @Test
+    public void expiredResultsShouldBeLoadedAgain() {
+	final ReportCache cache = new ReportCache(100, 0);
+	final CountingLoader loader = new CountingLoader(1);
+
+	cache.get(HOST, daysAgo(7), new Date(), Arrays.asList("jobsByDate"),
+		loader);
+	cache.get(HOST, daysAgo(7), new Date(), Arrays.asList("jobsByDate"),
+		loader);
+
+	Assert.assertEquals("Unexpected number of loads", 2, loader.loads);
+    }
+
+    @Test
+    public void recordedBuildsShouldOnlyInvalidateMatchingRanges() {
+	final ReportCache cache = new ReportCache(100,
+		TimeUnit.MINUTES.toMillis(1));
+	final CountingLoader lastWeek = new CountingLoader(1);
+	final CountingLoader lastMonth = new CountingLoader(1);
+	final CountingLoader otherHost = new CountingLoader(1);
+
+	cache.get(HOST, daysAgo(7), new Date(), Arrays.asList("jobsByDate"),
+		lastWeek);
+	cache.get(HOST, daysAgo(30), daysAgo(20), Arrays.asList("jobsByDate"),
+		lastMonth);
+	cache.get("OTHER", daysAgo(7), new Date(),
+		Arrays.asList("jobsByDate"), otherHost);
+
+	cache.invalidate(HOST, daysAgo(1));
+
+	cache.get(HOST, daysAgo(7), new Date(), Arrays.asList("jobsByDate"),
+		lastWeek);
+	cache.get(HOST, daysAgo(30), daysAgo(20), Arrays.asList("jobsByDate"),
+		lastMonth);
+	cache.get("OTHER", daysAgo(7), new Date(),
+		Arrays.asList("jobsByDate"), otherHost);
+
+	Assert.assertEquals("Unexpected loads for the matching range", 2,
+		lastWeek.loads);
+	Assert.assertEquals("Unexpected loads for an older range", 1,
+		lastMonth.loads);
+	Assert.assertEquals("Unexpected loads for another host", 1,
+		otherHost.loads);
+	Assert.assertEquals("Unexpected number of invalidations", 1,
+		cache.getInvalidations());
+    }
+
+    @Test
+    public void leastRecentlyUsedResultsShouldBeEvictedFirst() {
+	// each result weighs its build details plus one
+	final ReportCache cache = new ReportCache(100,
+		TimeUnit.MINUTES.toMillis(1));
+	final CountingLoader first = new CountingLoader(24);
+	final CountingLoader second = new CountingLoader(24);
+	final CountingLoader tooLarge = new CountingLoader(25);
+
+	cache.get(HOST, daysAgo(1), new Date(), Arrays.asList("first"), first);
+	cache.get(HOST, daysAgo(1), new Date(), Arrays.asList("second"), second);
+	cache.get(HOST, daysAgo(1), new Date(), Arrays.asList("third"),
+		new CountingLoader(24));
+	// the first result is now more recently used than the second one
+	cache.get(HOST, daysAgo(1), new Date(), Arrays.asList("first"), first);
+	cache.get(HOST, daysAgo(1), new Date(), Arrays.asList("fourth"),
+		new CountingLoader(24));
+	Assert.assertEquals("Unexpected number of evictions", 0,
+		cache.getEvictions());
+	cache.get(HOST, daysAgo(1), new Date(), Arrays.asList("fifth"),
+		new CountingLoader(24));
+	Assert.assertEquals("Unexpected number of evictions", 1,
+		cache.getEvictions());
+	Assert.assertEquals("Unexpected cache weight", 100, cache.getWeight());
+
+	cache.get(HOST, daysAgo(1), new Date(), Arrays.asList("first"), first);
+	cache.get(HOST, daysAgo(1), new Date(), Arrays.asList("second"), second);
+	Assert.assertEquals("Unexpected loads for a recent result", 1,
+		first.loads);
+	Assert.assertEquals("Unexpected loads for an evicted result", 2,
+		second.loads);
+
+	// a single result cannot take more than a quarter of the cache
+	cache.get(HOST, daysAgo(1), new Date(), Arrays.asList("tooLarge"),
+		tooLarge);
+	cache.get(HOST, daysAgo(1), new Date(), Arrays.asList("tooLarge"),
+		tooLarge);
+	Assert.assertEquals("Unexpected loads for an uncacheable result", 2,
+		tooLarge.loads);
+    }
+}
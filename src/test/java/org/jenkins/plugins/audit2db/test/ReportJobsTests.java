@@ -0,0 +1,207 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.jenkins.plugins.audit2db.internal.reports.ReportJobs;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Contains tests for the {@link ReportJobs} class.
+ *
+ * @author Marco Scata
+ *
+ */
+public class ReportJobsTests {
+    private File directory;
+
+    /**
+     * Writes a single row, once released.
+     */
+    private static class BlockingTask implements ReportJobs.Task {
+	private final CountDownLatch release = new CountDownLatch(1);
+	private int runs;
+
+	@Override
+	public void run(final ReportJobs.Job job, final PrintWriter writer) {
+	    runs++;
+	    job.setExpectedRows(2);
+	    try {
+		release.await(10, TimeUnit.SECONDS);
+	    } catch (final InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	    writer.println("result");
+	    job.addRow();
+	}
+    }
+
+    @Before
+    public void setUp() throws IOException {
+	directory = File.createTempFile("reportJobs", "");
+	Assert.assertTrue("Cannot create test directory", directory.delete());
+    }
+
+    @After
+    public void tearDown() {
+	final File[] files = directory.listFiles();
+	if (files != null) {
+	    for (final File file : files) {
+		file.delete();
+	    }
+	}
+	directory.delete();
+    }
+
+    private static void awaitFinished(final ReportJobs.Job job)
+	    throws InterruptedException {
+	for (int i = 0; (i < 100) && (0 == job.getFinished()); i++) {
+	    Thread.sleep(100);
+	}
+	Assert.assertTrue("Job not finished", job.getFinished() > 0);
+    }
+
+    @Test
+    public void identicalRunningJobsShouldBeCoalesced() throws Exception {
+	final ReportJobs jobs = new ReportJobs(directory, 1, 1,
+		TimeUnit.MINUTES.toMillis(1));
+	try {
+	    final BlockingTask task = new BlockingTask();
+	    final ReportJobs.Job first = jobs.submit(
+		    Arrays.<Object> asList("report", "csv"), "report.csv",
+		    "text/csv", task);
+	    final ReportJobs.Job second = jobs.submit(
+		    Arrays.<Object> asList("report", "csv"), "report.csv",
+		    "text/csv", task);
+	    Assert.assertSame("Unexpected second job", first, second);
+	    Assert.assertEquals("Unexpected number of jobs", 1, jobs.getSize());
+
+	    task.release.countDown();
+	    awaitFinished(first);
+	    Assert.assertEquals("Unexpected status", ReportJobs.Status.DONE,
+		    first.getStatus());
+	    Assert.assertEquals("Unexpected progress", 100,
+		    first.getProgress());
+	    Assert.assertEquals("Unexpected number of runs", 1, task.runs);
+	    Assert.assertSame("Unexpected job lookup", first,
+		    jobs.get(first.getId()));
+
+	    // the stored result can be read again and again
+	    for (int i = 0; i < 2; i++) {
+		final BufferedReader reader = new BufferedReader(
+			new FileReader(first.getFile()));
+		try {
+		    Assert.assertEquals("Unexpected result", "result",
+			    reader.readLine());
+		} finally {
+		    reader.close();
+		}
+	    }
+
+	    // a finished job is not reused
+	    final BlockingTask again = new BlockingTask();
+	    again.release.countDown();
+	    final ReportJobs.Job third = jobs.submit(
+		    Arrays.<Object> asList("report", "csv"), "report.csv",
+		    "text/csv", again);
+	    Assert.assertNotSame("Unexpected reused job", first, third);
+	    awaitFinished(third);
+	} finally {
+	    jobs.shutdown();
+	}
+    }
+
+    @Test
+    public void finishedJobsShouldExpire() throws Exception {
+	final ReportJobs jobs = new ReportJobs(directory, 1, 1, 0);
+	try {
+	    final BlockingTask task = new BlockingTask();
+	    task.release.countDown();
+	    final ReportJobs.Job job = jobs.submit(
+		    Arrays.<Object> asList("report"), "report.csv", "text/csv",
+		    task);
+	    awaitFinished(job);
+
+	    Assert.assertNull("Unexpected expired job", jobs.get(job.getId()));
+	    Assert.assertFalse("Unexpected expired result", job.getFile()
+		    .exists());
+	} finally {
+	    jobs.shutdown();
+	}
+    }
+
+    @Test
+    public void jobsBeyondTheQueueShouldBeRejected() throws Exception {
+	final ReportJobs jobs = new ReportJobs(directory, 1, 1,
+		TimeUnit.MINUTES.toMillis(1));
+	final BlockingTask task = new BlockingTask();
+	try {
+	    // one running and one queued
+	    jobs.submit(Arrays.<Object> asList("first"), "first.csv",
+		    "text/csv", task);
+	    jobs.submit(Arrays.<Object> asList("second"), "second.csv",
+		    "text/csv", task);
+	    try {
+		jobs.submit(Arrays.<Object> asList("third"), "third.csv",
+			"text/csv", task);
+		Assert.fail("Job not rejected");
+	    } catch (final RejectedExecutionException e) {
+		Assert.assertEquals("Unexpected number of jobs", 2,
+			jobs.getSize());
+	    }
+	} finally {
+	    task.release.countDown();
+	    jobs.shutdown();
+	}
+    }
+
+    @Test
+    public void jobsStoppedByAnErrorShouldFail() throws Exception {
+	final ReportJobs jobs = new ReportJobs(directory, 1, 1,
+		TimeUnit.MINUTES.toMillis(1));
+	try {
+	    final ReportJobs.Task failing = new ReportJobs.Task() {
+		@Override
+		public void run(final ReportJobs.Job job,
+			final PrintWriter writer) {
+		    throw new NoClassDefFoundError("MissingClass");
+		}
+	    };
+	    final ReportJobs.Job job = jobs.submit(
+		    Arrays.<Object> asList("report"), "report.csv", "text/csv",
+		    failing);
+	    awaitFinished(job);
+	    Assert.assertEquals("Unexpected status", ReportJobs.Status.FAILED,
+		    job.getStatus());
+	    Assert.assertEquals("Unexpected failure", "MissingClass",
+		    job.getFailure());
+	    Assert.assertFalse("Unexpected result", job.getFile().exists());
+
+	    // the failed job does not stand in for a new one
+	    final BlockingTask task = new BlockingTask();
+	    task.release.countDown();
+	    final ReportJobs.Job again = jobs.submit(
+		    Arrays.<Object> asList("report"), "report.csv", "text/csv",
+		    task);
+	    Assert.assertNotSame("Unexpected reused job", job, again);
+	    awaitFinished(again);
+	    Assert.assertEquals("Unexpected status", ReportJobs.Status.DONE,
+		    again.getStatus());
+	} finally {
+	    jobs.shutdown();
+	}
+    }
+}
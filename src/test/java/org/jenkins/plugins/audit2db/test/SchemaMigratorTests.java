@@ -0,0 +1,295 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import junit.framework.Assert;
+
+import org.jenkins.plugins.audit2db.data.BuildDetailsRepository;
+import org.jenkins.plugins.audit2db.internal.DbAuditUtil;
+import org.jenkins.plugins.audit2db.internal.data.BuildDetailsHibernateRepository;
+import org.jenkins.plugins.audit2db.internal.data.HibernateUtil;
+import org.jenkins.plugins.audit2db.internal.data.SchemaMigrator;
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+import org.junit.Test;
+
+/**
+ * @author Marco Scata
+ *
+ */
+public class SchemaMigratorTests {
+    private final static String JDBC_DRIVER = "org.hsqldb.jdbc.JDBCDriver";
+    private final static String JDBC_USER = "SA";
+    private final static String JDBC_PASSWORD = "";
+
+    private SchemaMigrator getMigrator(final String jdbcUrl) {
+	return new SchemaMigrator(JDBC_DRIVER, jdbcUrl, JDBC_USER, JDBC_PASSWORD);
+    }
+
+    private Connection getConnection(final String jdbcUrl) throws Exception {
+	Class.forName(JDBC_DRIVER);
+	return DriverManager.getConnection(jdbcUrl, JDBC_USER, JDBC_PASSWORD);
+    }
+
+    private void execute(final String jdbcUrl, final String sql)
+	    throws Exception {
+	final Connection connection = getConnection(jdbcUrl);
+	try {
+	    final Statement statement = connection.createStatement();
+	    statement.execute(sql);
+	    statement.close();
+	} finally {
+	    connection.close();
+	}
+    }
+
+    private int getRecordedVersion(final String jdbcUrl) throws Exception {
+	final Connection connection = getConnection(jdbcUrl);
+	try {
+	    final Statement statement = connection.createStatement();
+	    final ResultSet result = statement.executeQuery(
+		    "select max(schemaVersion) from "
+			    + SchemaMigrator.VERSION_TABLE);
+	    result.next();
+	    final int retval = result.getInt(1);
+	    result.close();
+	    statement.close();
+	    return retval;
+	} finally {
+	    connection.close();
+	}
+    }
+
+    private String queryString(final String jdbcUrl, final String sql)
+	    throws Exception {
+	final Connection connection = getConnection(jdbcUrl);
+	try {
+	    final Statement statement = connection.createStatement();
+	    final ResultSet result = statement.executeQuery(sql);
+	    result.next();
+	    final String retval = result.getString(1);
+	    result.close();
+	    statement.close();
+	    return retval;
+	} finally {
+	    connection.close();
+	}
+    }
+
+    /**
+     * @return a repository on the given database, whose schema is left as
+     *         it is rather than generated from the mappings.
+     */
+    private BuildDetailsRepository getRepository(final String jdbcUrl) {
+	final Properties props = HibernateUtil.getExtraProperties(JDBC_DRIVER,
+		jdbcUrl, JDBC_USER, JDBC_PASSWORD);
+	props.put("hibernate.hbm2ddl.auto", "none");
+	return new BuildDetailsHibernateRepository(
+		HibernateUtil.getSessionFactory(props));
+    }
+
+    @Test
+    public void migrationShouldCreateFreshSchemaAtLatestVersion()
+	    throws Exception {
+	final String jdbcUrl = "jdbc:hsqldb:mem:migrationFresh";
+	final SchemaMigrator migrator = getMigrator(jdbcUrl);
+	migrator.migrate(false);
+
+	Assert.assertEquals("Unexpected schema version",
+		migrator.getLatestVersion(), getRecordedVersion(jdbcUrl));
+    }
+
+    @Test
+    public void migrationShouldBeRepeatable() throws Exception {
+	final String jdbcUrl = "jdbc:hsqldb:mem:migrationRepeat";
+	final SchemaMigrator migrator = getMigrator(jdbcUrl);
+	migrator.migrate(false);
+	final String report = migrator.migrate(false);
+
+	Assert.assertFalse("Unexpected statements on second run",
+		report.toLowerCase().contains("create "));
+	Assert.assertEquals("Unexpected schema version",
+		migrator.getLatestVersion(), getRecordedVersion(jdbcUrl));
+    }
+
+    @Test
+    public void dryRunShouldNotChangeTheDatabase() throws Exception {
+	final String jdbcUrl = "jdbc:hsqldb:mem:migrationDryRun";
+	final String report = getMigrator(jdbcUrl).migrate(true);
+	Assert.assertTrue("Missing statements in dry run report",
+		report.toLowerCase().contains("create table"));
+
+	try {
+	    getRecordedVersion(jdbcUrl);
+	    Assert.fail("Unexpected version table after dry run");
+	} catch (final SQLException e) {
+	    // expected
+	}
+    }
+
+    @Test
+    public void unversionedSchemaShouldBeMigratedFromBaseline()
+	    throws Exception {
+	final String jdbcUrl = "jdbc:hsqldb:mem:migrationBaseline";
+	final SchemaMigrator migrator = getMigrator(jdbcUrl);
+	migrator.migrate(false);
+	// simulate a schema created by an earlier release
+	execute(jdbcUrl, "drop table " + SchemaMigrator.VERSION_TABLE);
+	execute(jdbcUrl, "drop index IDX_JBD_NAME");
+	execute(jdbcUrl, "drop table JENKINS_BUILD_DAILY");
+
+	final String report = migrator.migrate(false).toUpperCase();
+	Assert.assertTrue("Missing index was not recreated",
+		report.contains("IDX_JBD_NAME"));
+	Assert.assertTrue("Missing table was not recreated",
+		report.contains("CREATE TABLE JENKINS_BUILD_DAILY"));
+	Assert.assertTrue("Missing table index was not recreated",
+		report.contains("IDX_JBDY_DAY"));
+	Assert.assertFalse("Existing index was recreated",
+		report.contains("IDX_JBD_DATES"));
+	Assert.assertEquals("Unexpected schema version",
+		migrator.getLatestVersion(), getRecordedVersion(jdbcUrl));
+    }
+
+    @Test
+    public void lowerCaseMigrationsShouldBackfillExistingRows()
+	    throws Exception {
+	final String jdbcUrl = "jdbc:hsqldb:mem:migrationLowerCase";
+	final SchemaMigrator migrator = getMigrator(jdbcUrl);
+	migrator.migrate(false);
+	// simulate a schema at version 9, before the lower case copies
+	execute(jdbcUrl, "delete from " + SchemaMigrator.VERSION_TABLE
+		+ " where schemaVersion > 9");
+	for (final String index : new String[] { "IDX_JBD_LOWER_NAME",
+		"IDX_JBD_LOWER_FULL_NAME", "IDX_JBD_LOWER_USER_ID",
+		"IDX_JBD_LOWER_USER_NAME", "IDX_JBN_LOWER_URL",
+		"IDX_JBN_LOWER_MASTER", "IDX_JBP_LOWER_NAME_VALUE",
+		"IDX_JBDY_LOWER_DAY" }) {
+	    execute(jdbcUrl, "drop index " + index);
+	}
+	for (final String column : new String[] { "lowerName",
+		"lowerFullName", "lowerUserId", "lowerUserName" }) {
+	    execute(jdbcUrl, "alter table JENKINS_BUILD_DETAILS drop column "
+		    + column);
+	}
+	execute(jdbcUrl, "alter table JENKINS_BUILD_NODE drop column lowerUrl");
+	execute(jdbcUrl,
+		"alter table JENKINS_BUILD_NODE drop column lowerMasterHostName");
+	execute(jdbcUrl, "alter table JENKINS_BUILD_NODE drop column lowerName");
+	execute(jdbcUrl,
+		"alter table JENKINS_BUILD_NODE drop column lowerDisplayName");
+	execute(jdbcUrl, "alter table JENKINS_BUILD_PARAMS drop column lowerName");
+	execute(jdbcUrl, "alter table JENKINS_BUILD_PARAMS drop column lowerValue");
+	execute(jdbcUrl,
+		"alter table JENKINS_BUILD_DAILY drop column lowerMasterHostName");
+	execute(jdbcUrl, "alter table JENKINS_BUILD_DAILY drop column lowerName");
+
+	execute(jdbcUrl, "insert into JENKINS_BUILD_NODE"
+		+ " (url, masterAddress, masterHostName, displayName, name)"
+		+ " values ('HTTP://Master/', '1.2.3.4', 'Master', 'Master', 'Master')");
+	execute(jdbcUrl, "insert into JENKINS_BUILD_DETAILS"
+		+ " (id, name, fullName, startDate, userId, userName, node_url)"
+		+ " values ('BUILD-1', 'Project', 'Project #1',"
+		+ " timestamp '2012-04-01 10:00:00', null, 'Some User',"
+		+ " 'HTTP://Master/')");
+	execute(jdbcUrl, "insert into JENKINS_BUILD_PARAMS"
+		+ " (id, name, value, buildDetails_id)"
+		+ " values ('BUILD-1-P', 'Param', 'Value', 'BUILD-1')");
+	execute(jdbcUrl, "insert into JENKINS_BUILD_DAILY"
+		+ " (id, masterHostName, name, buildDay, buildCount,"
+		+ " totalDuration, minDuration, maxDuration)"
+		+ " values ('DAY-1', 'Master', 'Project', date '2012-04-01',"
+		+ " 1, 10, 10, 10)");
+
+	migrator.migrate(false);
+
+	Assert.assertEquals("Unexpected lower case url", "http://master/",
+		queryString(jdbcUrl, "select lowerUrl from JENKINS_BUILD_NODE"));
+	Assert.assertEquals("Unexpected lower case master host name", "master",
+		queryString(jdbcUrl,
+			"select lowerMasterHostName from JENKINS_BUILD_NODE"));
+	Assert.assertEquals("Unexpected lower case node display name",
+		"master", queryString(jdbcUrl,
+			"select lowerDisplayName from JENKINS_BUILD_NODE"));
+	Assert.assertEquals("Unexpected lower case full name", "project #1",
+		queryString(jdbcUrl,
+			"select lowerFullName from JENKINS_BUILD_DETAILS"));
+	Assert.assertEquals("Unexpected lower case user name", "some user",
+		queryString(jdbcUrl,
+			"select lowerUserName from JENKINS_BUILD_DETAILS"));
+	Assert.assertNull("Unexpected lower case copy of a null user id",
+		queryString(jdbcUrl,
+			"select lowerUserId from JENKINS_BUILD_DETAILS"));
+	Assert.assertEquals("Unexpected lower case parameter value", "value",
+		queryString(jdbcUrl,
+			"select lowerValue from JENKINS_BUILD_PARAMS"));
+	Assert.assertEquals("Unexpected lower case daily name", "project",
+		queryString(jdbcUrl, "select lowerName from JENKINS_BUILD_DAILY"));
+	Assert.assertEquals("Unexpected id hash",
+		String.valueOf(DbAuditUtil.getIdHash("BUILD-1")), queryString(
+			jdbcUrl, "select idHash from JENKINS_BUILD_DETAILS"));
+	Assert.assertEquals("Unexpected schema version",
+		migrator.getLatestVersion(), getRecordedVersion(jdbcUrl));
+    }
+
+    @Test
+    public void buildsShouldNotBeRecordedBeforeMigration() throws Exception {
+	final String jdbcUrl = "jdbc:hsqldb:mem:migrationRecord";
+	final SchemaMigrator migrator = getMigrator(jdbcUrl);
+	migrator.migrate(false);
+	// simulate a schema created by an earlier release, at the baseline
+	// version: without the later tables, columns and their indexes
+	execute(jdbcUrl, "drop table " + SchemaMigrator.VERSION_TABLE);
+	execute(jdbcUrl, "drop table JENKINS_BUILD_DAILY");
+	for (final String index : new String[] { "IDX_JBD_BUCKETS",
+		"IDX_JBD_LOWER_NAME", "IDX_JBD_LOWER_FULL_NAME",
+		"IDX_JBD_LOWER_USER_ID", "IDX_JBD_LOWER_USER_NAME",
+		"IDX_JBN_LOWER_URL", "IDX_JBN_LOWER_MASTER",
+		"IDX_JBP_LOWER_NAME_VALUE", "IDX_JBD_PAGES" }) {
+	    execute(jdbcUrl, "drop index " + index);
+	}
+	for (final String column : new String[] { "startMinute", "startHour",
+		"lowerName", "lowerFullName", "lowerUserId", "lowerUserName",
+		"idHash" }) {
+	    execute(jdbcUrl, "alter table JENKINS_BUILD_DETAILS drop column "
+		    + column);
+	}
+	execute(jdbcUrl, "alter table JENKINS_BUILD_NODE drop column lowerUrl");
+	execute(jdbcUrl,
+		"alter table JENKINS_BUILD_NODE drop column lowerMasterHostName");
+	execute(jdbcUrl, "alter table JENKINS_BUILD_NODE drop column lowerName");
+	execute(jdbcUrl,
+		"alter table JENKINS_BUILD_NODE drop column lowerDisplayName");
+	execute(jdbcUrl, "alter table JENKINS_BUILD_PARAMS drop column lowerName");
+	execute(jdbcUrl, "alter table JENKINS_BUILD_PARAMS drop column lowerValue");
+
+	// the builds are refused, rather than failing on the missing columns
+	final BuildDetailsRepository outdated = getRepository(jdbcUrl);
+	Assert.assertFalse("Unexpected up to date schema",
+		outdated.isSchemaUpToDate());
+	try {
+	    outdated.saveBuildDetails(TestUtils.createRandomBuildDetails());
+	    Assert.fail("Unexpected build recorded before migration");
+	} catch (final IllegalStateException e) {
+	    // expected
+	}
+	Assert.assertEquals("Unexpected build details", "0", queryString(
+		jdbcUrl, "select count(*) from JENKINS_BUILD_DETAILS"));
+
+	migrator.migrate(false);
+	final BuildDetailsRepository migrated = getRepository(jdbcUrl);
+	Assert.assertTrue("Unexpected outdated schema",
+		migrated.isSchemaUpToDate());
+	final BuildDetails build = TestUtils.createRandomBuildDetails();
+	migrated.saveBuildDetails(build);
+	Assert.assertNotNull("Missing build details",
+		migrated.getBuildDetailsById(build.getId()));
+    }
+}
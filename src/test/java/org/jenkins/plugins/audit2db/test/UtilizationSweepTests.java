@@ -0,0 +1,94 @@
+/**
+ *
+ */
+package org.jenkins.plugins.audit2db.test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.jenkins.plugins.audit2db.internal.data.UtilizationSweep;
+import org.jenkins.plugins.audit2db.internal.model.BuildDetailsImpl;
+import org.jenkins.plugins.audit2db.internal.model.BuildNodeImpl;
+import org.jenkins.plugins.audit2db.model.BuildDetails;
+import org.jenkins.plugins.audit2db.model.BuildNode;
+import org.jenkins.plugins.audit2db.model.NodeUtilization;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Contains tests for the {@link UtilizationSweep} class.
+ *
+ * @author Marco Scata
+ *
+ */
+public class UtilizationSweepTests {
+    private final static BuildNode NODE_A = new BuildNodeImpl("ADDRESS",
+	    "HOST", "Node A", "URL A", "NODE A", "DESCRIPTION", "linux docker");
+    private final static BuildNode NODE_B = new BuildNodeImpl("ADDRESS",
+	    "HOST", "Node B", "URL B", "NODE B", "DESCRIPTION", "linux");
+
+    private static BuildDetails createBuild(final BuildNode node,
+	    final long start, final Long end) {
+	final BuildDetails retval = new BuildDetailsImpl();
+	retval.setStartDate(new Date(start));
+	retval.setEndDate((null == end) ? null : new Date(end));
+	retval.setNode(node);
+	return retval;
+    }
+
+    @Test
+    public void concurrentBuildsShouldBeMeasuredPerNodeAndLabel() {
+	final UtilizationSweep sweep = new UtilizationSweep(0, 100);
+	// in start time order; the build on node B is still running
+	for (final BuildDetails build : Arrays.asList(
+		createBuild(NODE_B, 0, null), createBuild(NODE_A, 10, 30L),
+		createBuild(NODE_A, 20, 50L), createBuild(NODE_A, 40, 60L))) {
+	    Assert.assertTrue("Unexpected end of the sweep",
+		    sweep.handle(build));
+	}
+	final List<NodeUtilization> utilization = sweep.finish();
+
+	Assert.assertEquals("Unexpected number of nodes and labels", 4,
+		utilization.size());
+	assertUtilization(utilization.get(0), "NODE A", false, 3, 2, 50L,
+		30L, 20L);
+	Assert.assertEquals("Unexpected average concurrency", 0.7,
+		utilization.get(0).getAverageConcurrency(), 0.001);
+	assertUtilization(utilization.get(1), "NODE B", false, 1, 1, 0L, 100L);
+	assertUtilization(utilization.get(2), "docker", true, 3, 2, 50L, 30L,
+		20L);
+	assertUtilization(utilization.get(3), "linux", true, 4, 3, 0L, 50L,
+		30L, 20L);
+	Assert.assertEquals("Unexpected busy percentage", 100.0, utilization
+		.get(3).getBusyPercentage(), 0.001);
+    }
+
+    @Test
+    public void buildsShouldBeClippedToThePeriod() {
+	final UtilizationSweep sweep = new UtilizationSweep(100, 200);
+	sweep.handle(createBuild(NODE_B, 50, 150L));
+	sweep.handle(createBuild(NODE_B, 150, 150L));
+	sweep.handle(createBuild(NODE_B, 190, 400L));
+	final NodeUtilization node = sweep.finish().get(0);
+
+	Assert.assertEquals("Unexpected period", 100, node.getPeriod());
+	Assert.assertEquals("Unexpected busy time", 60, node.getBusyTime());
+	Assert.assertEquals("Unexpected peak concurrency", 1,
+		node.getPeakConcurrency());
+    }
+
+    private static void assertUtilization(final NodeUtilization utilization,
+	    final String name, final boolean label, final long buildCount,
+	    final int peakConcurrency, final Long... concurrencyTimes) {
+	Assert.assertEquals("Unexpected name", name, utilization.getName());
+	Assert.assertEquals("Unexpected kind", label, utilization.isLabel());
+	Assert.assertEquals("Unexpected number of builds", buildCount,
+		utilization.getBuildCount());
+	Assert.assertEquals("Unexpected peak concurrency", peakConcurrency,
+		utilization.getPeakConcurrency());
+	Assert.assertEquals("Unexpected time by concurrency",
+		Arrays.asList(concurrencyTimes),
+		utilization.getConcurrencyTimes());
+    }
+}